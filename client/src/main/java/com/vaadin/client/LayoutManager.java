@@ -56,6 +56,8 @@ public class LayoutManager {
 
     private FastStringSet needsMeasure = FastStringSet.create();
 
+    private FastStringSet changedHierarchies = FastStringSet.create();
+
     private FastStringSet pendingOverflowFixes = FastStringSet.create();
 
     private final Map<Element, Collection<ElementResizeListener>> elementResizeListeners = new HashMap<>();
@@ -326,10 +328,18 @@ public class LayoutManager {
         }
         needsMeasure = FastStringSet.create();
 
+        int skippedConnectorCount = 0;
+        if (everythingNeedsMeasure) {
+            changedHierarchies = FastStringSet.create();
+        } else if (!changedHierarchies.isEmpty()) {
+            skippedConnectorCount = measureChangedHierarchies(connectorMap);
+        }
+
         measureNonConnectors();
 
         Profiler.leave("LayoutManager phase init");
 
+        int totalMeasuredConnectorCount = 0;
         while (true) {
             Profiler.enter("Layout pass");
             passes++;
@@ -340,6 +350,7 @@ public class LayoutManager {
             int measuredConnectorCount = measureConnectors(
                     currentDependencyTree, everythingNeedsMeasure);
             Profiler.leave("Layout measure connectors");
+            totalMeasuredConnectorCount += measuredConnectorCount;
 
             everythingNeedsMeasure = false;
             if (measuredConnectorCount == 0) {
@@ -611,6 +622,120 @@ public class LayoutManager {
 
         getLogger().info("Total layout phase time: "
                 + totalDuration.elapsedMillis() + "ms");
+        getLogger().info("Layout phase did " + passes + " passes, measured "
+                + totalMeasuredConnectorCount + " connectors and skipped "
+                + skippedConnectorCount + " unchanged connectors");
+
+        Profiler.count("LayoutManager passes", passes);
+        Profiler.count("LayoutManager measured connectors",
+                totalMeasuredConnectorCount);
+        Profiler.count("LayoutManager skipped connectors",
+                skippedConnectorCount);
+    }
+
+    /**
+     * Marks the connectors that might have been resized by the changes
+     * reported through {@link #setHierarchyChanged(ComponentConnector)} as
+     * needing measure. These are the connectors in the changed hierarchies,
+     * their ancestors and the children of ancestors that are not managed
+     * layouts, since the browser might resize those children when the size of
+     * a sibling changes. Other connectors are measured only if the dependency
+     * tree finds that a measured size they depend on has changed.
+     *
+     * @param connectorMap
+     *            the connector map to find the changed connectors from
+     * @return the number of component connectors that were not marked
+     */
+    private int measureChangedHierarchies(ConnectorMap connectorMap) {
+        Profiler.enter("LayoutManager.measureChangedHierarchies");
+        FastStringSet visited = FastStringSet.create();
+        int visitedCount = 0;
+
+        JsArrayString changedIds = changedHierarchies.dump();
+        changedHierarchies = FastStringSet.create();
+        int length = changedIds.length();
+        for (int i = 0; i < length; i++) {
+            ServerConnector connector = connectorMap
+                    .getConnector(changedIds.get(i));
+            if (connector instanceof ComponentConnector) {
+                visitedCount += markHierarchyForMeasure(
+                        (ComponentConnector) connector, visited);
+            }
+        }
+
+        // Changed content might resize any ancestor
+        FastStringSet checkedAncestors = FastStringSet.create();
+        for (int i = 0; i < length; i++) {
+            ServerConnector connector = connectorMap
+                    .getConnector(changedIds.get(i));
+            if (connector != null) {
+                visitedCount += markAncestorsForMeasure(connector, visited,
+                        checkedAncestors);
+            }
+        }
+
+        int skippedCount = connectorMap.getComponentConnectorsAsJsArray()
+                .size() - visitedCount;
+        Profiler.leave("LayoutManager.measureChangedHierarchies");
+        return skippedCount;
+    }
+
+    private int markHierarchyForMeasure(ComponentConnector connector,
+            FastStringSet visited) {
+        if (visited.contains(connector.getConnectorId())) {
+            return 0;
+        }
+        visited.add(connector.getConnectorId());
+        markForMeasure(connector);
+
+        int count = 1;
+        if (connector instanceof HasComponentsConnector) {
+            for (ComponentConnector child : ((HasComponentsConnector) connector)
+                    .getChildComponents()) {
+                count += markHierarchyForMeasure(child, visited);
+            }
+        }
+        return count;
+    }
+
+    private int markAncestorsForMeasure(ServerConnector connector,
+            FastStringSet visited, FastStringSet checkedAncestors) {
+        int count = 0;
+        ServerConnector parent = connector.getParent();
+        // Ancestors of a checked ancestor have been checked as well
+        while (parent instanceof ComponentConnector
+                && !checkedAncestors.contains(parent.getConnectorId())) {
+            checkedAncestors.add(parent.getConnectorId());
+            count += markOnceForMeasure((ComponentConnector) parent, visited);
+            if (!(parent instanceof ManagedLayout)
+                    && parent instanceof HasComponentsConnector) {
+                // Siblings might be resized by the browser, e.g. an expanded
+                // slot next to a component that grew
+                HasComponentsConnector layout = (HasComponentsConnector) parent;
+                for (ComponentConnector child : layout.getChildComponents()) {
+                    count += markOnceForMeasure(child, visited);
+                }
+            }
+            parent = parent.getParent();
+        }
+        return count;
+    }
+
+    private int markOnceForMeasure(ComponentConnector connector,
+            FastStringSet visited) {
+        if (visited.contains(connector.getConnectorId())) {
+            return 0;
+        }
+        visited.add(connector.getConnectorId());
+        markForMeasure(connector);
+        return 1;
+    }
+
+    private void markForMeasure(ComponentConnector connector) {
+        if (!Util.shouldSkipMeasurementOfConnector(connector)
+                && needsMeasure(connector.getWidget().getElement())) {
+            currentDependencyTree.setNeedsMeasure(connector, true);
+        }
     }
 
     private void logConnectorStatus(int connectorId) {
@@ -1828,6 +1953,39 @@ public class LayoutManager {
         everythingNeedsMeasure = true;
     }
 
+    /**
+     * Informs this LayoutManager that the contents of a component hierarchy
+     * might have changed in a way that affects the sizes of the component, its
+     * descendants or its ancestors, e.g. because the state of the component
+     * was updated from the server.
+     * <p>
+     * Unlike {@link #setEverythingNeedsMeasure()}, only the connectors in the
+     * hierarchy, the ancestors of the component and the children of ancestors
+     * that are not managed layouts are measured in the beginning of the next
+     * layout phase. Any other connector is measured only if a size it depends
+     * on is found to have changed.
+     * <p>
+     * If there is no upcoming layout phase, a new layout phase is scheduled.
+     *
+     * @since 8.1
+     * @param component
+     *            the component at the root of the changed hierarchy
+     */
+    public void setHierarchyChanged(ComponentConnector component) {
+        if (isLayoutRunning()) {
+            measureHierarchyNow(component);
+        } else {
+            changedHierarchies.add(component.getConnectorId());
+            layoutLater();
+        }
+    }
+
+    private void measureHierarchyNow(ComponentConnector component) {
+        FastStringSet visited = FastStringSet.create();
+        markHierarchyForMeasure(component, visited);
+        markAncestorsForMeasure(component, visited, FastStringSet.create());
+    }
+
     private static Logger getLogger() {
         return Logger.getLogger(LayoutManager.class.getName());
     }
@@ -1844,7 +2002,7 @@ public class LayoutManager {
                 || !needsVerticalLayout.isEmpty()) {
             return true;
         }
-        if (!needsMeasure.isEmpty()) {
+        if (!needsMeasure.isEmpty() || !changedHierarchies.isEmpty()) {
             return true;
         }
 
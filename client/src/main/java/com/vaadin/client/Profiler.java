@@ -51,6 +51,8 @@ public class Profiler {
 
     private static ProfilerResultConsumer consumer;
 
+    private static final LinkedHashMap<String, Integer> counters = new LinkedHashMap<>();
+
     /**
      * Class to include using deferred binding to enable the profiling.
      *
@@ -77,6 +79,20 @@ public class Profiler {
         public void addProfilerData(Node rootNode, List<Node> totals);
 
         public void addBootstrapData(LinkedHashMap<String, Double> timings);
+
+        /**
+         * Called with the values of the counters updated through
+         * {@link Profiler#count(String, int)} since the previous reset.
+         *
+         * @since 8.1
+         * @param counters
+         *            the counter values by counter name, in the order the
+         *            counters were first updated
+         */
+        public default void addCounterData(
+                LinkedHashMap<String, Integer> counters) {
+            // Ignored by default
+        }
     }
 
     /**
@@ -385,6 +401,26 @@ public class Profiler {
         }
     }
 
+    /**
+     * Adds to the value of a named counter, e.g. the number of times some
+     * operation was performed. The counters are reported together with the
+     * profiling data and are cleared by {@link #reset()}. Calls to this method
+     * will be removed by the compiler unless profiling is enabled.
+     *
+     * @since 8.1
+     * @param name
+     *            the name of the counter
+     * @param amount
+     *            the amount to add to the counter
+     */
+    public static void count(String name, int amount) {
+        if (isEnabled()) {
+            Integer value = counters.get(name);
+            counters.put(name, Integer.valueOf(
+                    value == null ? amount : value.intValue() + amount));
+        }
+    }
+
     /**
      * Returns time relative to the particular page load time. The value should
      * not be used directly but rather difference between two values returned by
@@ -423,6 +459,7 @@ public class Profiler {
             initialize();
 
             clearEventsList();
+            counters.clear();
         }
     }
 
@@ -559,6 +596,9 @@ public class Profiler {
 
         if (getConsumer() != null) {
             getConsumer().addProfilerData(stack.getFirst(), totalList);
+            if (!counters.isEmpty()) {
+                getConsumer().addCounterData(new LinkedHashMap<>(counters));
+            }
         }
     }
 
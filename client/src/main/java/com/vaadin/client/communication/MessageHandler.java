@@ -404,7 +404,8 @@ public class MessageHandler {
         }
 
         Command c = new Command() {
-            private boolean onlyNoLayoutUpdates = true;
+            private FastStringSet layoutChangedConnectorIds = FastStringSet
+                    .create();
 
             @Override
             public void execute() {
@@ -507,9 +508,7 @@ public class MessageHandler {
                 Profiler.enter("Layout processing");
                 try {
                     LayoutManager layoutManager = getLayoutManager();
-                    if (!onlyNoLayoutUpdates) {
-                        layoutManager.setEverythingNeedsMeasure();
-                    }
+                    setHierarchiesChanged(layoutManager);
                     if (layoutManager.isLayoutNeeded()) {
                         layoutManager.layoutNow();
                     }
@@ -617,6 +616,42 @@ public class MessageHandler {
                         connectorHierarchyUpdateResult.detachedConnectorIds);
             }
 
+            /**
+             * Marks that a connector has been updated in a way that might
+             * affect the layout of its component hierarchy.
+             *
+             * @param connectorId
+             *            the id of the updated connector
+             */
+            private void markLayoutChanged(String connectorId) {
+                layoutChangedConnectorIds.add(connectorId);
+            }
+
+            /**
+             * Reports the component hierarchies of all connectors updated in
+             * a way that might affect the layout to the layout manager, so
+             * that only those hierarchies are measured.
+             *
+             * @param layoutManager
+             *            the layout manager to report to
+             */
+            private void setHierarchiesChanged(LayoutManager layoutManager) {
+                JsArrayString changedIds = layoutChangedConnectorIds.dump();
+                for (int i = 0; i < changedIds.length(); i++) {
+                    ServerConnector connector = getConnectorMap()
+                            .getConnector(changedIds.get(i));
+                    // Extensions affect the layout of the extended component
+                    while (connector != null
+                            && !(connector instanceof ComponentConnector)) {
+                        connector = connector.getParent();
+                    }
+                    if (connector != null) {
+                        layoutManager.setHierarchyChanged(
+                                (ComponentConnector) connector);
+                    }
+                }
+            }
+
             private void updateCaptions(
                     JsArrayObject<StateChangeEvent> pendingStateChangeEvents,
                     FastStringSet parentChangedIds) {
@@ -858,7 +893,7 @@ public class MessageHandler {
 
                         // Always do layouts if there's at least one new
                         // connector
-                        onlyNoLayoutUpdates = false;
+                        markLayoutChanged(connectorId);
 
                         int connectorType = Integer
                                 .parseInt(types.getString(connectorId));
@@ -905,11 +940,6 @@ public class MessageHandler {
                 JsArray<ValueMap> changes = json.getJSValueMapArray("changes");
                 int length = changes.length();
 
-                // Must always do layout if there's even a single legacy update
-                if (length != 0) {
-                    onlyNoLayoutUpdates = false;
-                }
-
                 getLogger()
                         .info(" * Passing UIDL to Vaadin 6 style connectors");
                 // update paintables
@@ -919,6 +949,9 @@ public class MessageHandler {
                         final UIDL uidl = change.getChildUIDL(0);
                         String connectorId = uidl.getId();
 
+                        // Must always do layout for a legacy update
+                        markLayoutChanged(connectorId);
+
                         final ComponentConnector legacyConnector = (ComponentConnector) getConnectorMap()
                                 .getConnector(connectorId);
                         if (legacyConnector instanceof Paintable) {
@@ -1046,14 +1079,15 @@ public class MessageHandler {
                             Type stateType = new Type(
                                     state.getClass().getName(), null);
 
-                            if (onlyNoLayoutUpdates) {
+                            if (!layoutChangedConnectorIds
+                                    .contains(connectorId)) {
                                 Profiler.enter(
                                         "updateConnectorState @NoLayout handling");
                                 for (String propertyName : stateJson.keys()) {
                                     Property property = stateType
                                             .getProperty(propertyName);
                                     if (!property.isNoLayout()) {
-                                        onlyNoLayoutUpdates = false;
+                                        markLayoutChanged(connectorId);
                                         break;
                                     }
                                 }
@@ -1188,8 +1222,9 @@ public class MessageHandler {
                 Profiler.leave(
                         "updateConnectorHierarchy detach removed connectors");
 
-                if (result.events.size() != 0) {
-                    onlyNoLayoutUpdates = false;
+                for (int i = 0; i < result.events.size(); i++) {
+                    markLayoutChanged(result.events.get(i).getConnector()
+                            .getConnectorId());
                 }
 
                 Profiler.leave("updateConnectorHierarchy");
@@ -1481,9 +1516,9 @@ public class MessageHandler {
                                     .parseAndApplyInvocation(rpcCall,
                                             connection);
 
-                            if (onlyNoLayoutUpdates && !RpcManager
-                                    .getMethod(invocation).isNoLayout()) {
-                                onlyNoLayoutUpdates = false;
+                            if (!RpcManager.getMethod(invocation)
+                                    .isNoLayout()) {
+                                markLayoutChanged(invocation.getConnectorId());
                             }
 
                         } catch (final Throwable e) {
@@ -15,10 +15,15 @@
  */
 package com.vaadin.client.connectors.grid;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.event.shared.HandlerRegistration;
 import com.google.gwt.user.client.ui.Widget;
 
 import com.vaadin.client.ComponentConnector;
@@ -29,8 +34,11 @@ import com.vaadin.client.data.DataChangeHandler;
 import com.vaadin.client.extensions.AbstractExtensionConnector;
 import com.vaadin.client.widget.grid.HeightAwareDetailsGenerator;
 import com.vaadin.client.widgets.Grid;
+import com.vaadin.shared.Range;
 import com.vaadin.shared.Registration;
+import com.vaadin.shared.data.DataCommunicatorConstants;
 import com.vaadin.shared.ui.Connect;
+import com.vaadin.shared.ui.grid.DetailsManagerServerRpc;
 import com.vaadin.shared.ui.grid.DetailsManagerState;
 import com.vaadin.shared.ui.grid.GridState;
 import com.vaadin.ui.Grid.DetailsManager;
@@ -46,12 +54,22 @@ import elemental.json.JsonObject;
 @Connect(DetailsManager.class)
 public class DetailsManagerConnector extends AbstractExtensionConnector {
 
+    /* Details id of rows whose details component is not generated yet */
+    private static final String PENDING_DETAILS_ID = "";
+
     /* Map for tracking which details are open on which row */
     private Map<Integer, String> indexToDetailConnectorId = new HashMap<>();
     /* Boolean flag to avoid multiple refreshes */
     private boolean refreshing;
     /* Registration for data change handler. */
     private Registration dataChangeRegistration;
+    /* Registration for row visibility change handler. */
+    private HandlerRegistration rowVisibilityRegistration;
+    /* Keys of rows whose pending details have been requested */
+    private Set<String> requestedDetailsKeys = new HashSet<>();
+    /* Sum and count of measured details heights for estimating heights */
+    private double measuredHeightsSum = 0;
+    private int measuredHeightsCount = 0;
 
     /**
      * DataChangeHandler for updating the visibility of detail widgets.
@@ -61,15 +79,24 @@ public class DetailsManagerConnector extends AbstractExtensionConnector {
         public void resetDataAndSize(int estimatedNewDataSize) {
             // Full clean up
             indexToDetailConnectorId.clear();
+            requestedDetailsKeys.clear();
         }
 
         @Override
         public void dataUpdated(int firstRowIndex, int numberOfRows) {
+            // Pending details becoming available should not scroll
+            boolean wasPending = PENDING_DETAILS_ID
+                    .equals(indexToDetailConnectorId.get(firstRowIndex));
             for (int i = 0; i < numberOfRows; ++i) {
                 int index = firstRowIndex + i;
-                detachIfNeeded(index, getDetailsComponentConnectorId(index));
+                JsonObject row = getWidget().getDataSource().getRow(index);
+                if (row != null) {
+                    requestedDetailsKeys.remove(
+                            row.getString(DataCommunicatorConstants.KEY));
+                }
+                detachIfNeeded(index, getDetailsId(index));
             }
-            if (numberOfRows == 1) {
+            if (numberOfRows == 1 && !wasPending) {
                 getParent().singleDetailsOpened(firstRowIndex);
             }
             // Deferred opening of new ones.
@@ -120,8 +147,19 @@ public class DetailsManagerConnector extends AbstractExtensionConnector {
             getLayoutManager().setNeedsMeasureRecursively(componentConnector);
             getLayoutManager().layoutNow();
 
-            return getLayoutManager().getOuterHeightDouble(
+            double height = getLayoutManager().getOuterHeightDouble(
                     componentConnector.getWidget().getElement());
+            measuredHeightsSum += height;
+            measuredHeightsCount++;
+            return height;
+        }
+
+        @Override
+        public double getEstimatedDetailsHeight(int rowIndex) {
+            if (measuredHeightsCount == 0) {
+                return -1;
+            }
+            return measuredHeightsSum / measuredHeightsCount;
         }
 
         private ComponentConnector getConnector(String id) {
@@ -135,6 +173,8 @@ public class DetailsManagerConnector extends AbstractExtensionConnector {
         getWidget().setDetailsGenerator(new CustomDetailsGenerator());
         dataChangeRegistration = getWidget().getDataSource()
                 .addDataChangeHandler(new DetailsChangeHandler());
+        rowVisibilityRegistration = getWidget().addRowVisibilityChangeHandler(
+                event -> requestVisibleDetails());
     }
 
     private void detachIfNeeded(int rowIndex, String id) {
@@ -155,8 +195,11 @@ public class DetailsManagerConnector extends AbstractExtensionConnector {
 
         dataChangeRegistration.remove();
         dataChangeRegistration = null;
+        rowVisibilityRegistration.removeHandler();
+        rowVisibilityRegistration = null;
 
         indexToDetailConnectorId.clear();
+        requestedDetailsKeys.clear();
     }
 
     @Override
@@ -192,6 +235,51 @@ public class DetailsManagerConnector extends AbstractExtensionConnector {
         return row.getString(GridState.JSONKEY_DETAILS_VISIBLE);
     }
 
+    /**
+     * Returns the id for tracking the details of a row.
+     *
+     * @param rowIndex
+     *            the row index of details component
+     * @return connector id of the details component;
+     *         {@value #PENDING_DETAILS_ID} if the details component has not
+     *         been generated yet; {@code null} if row or details are not found
+     */
+    private String getDetailsId(int rowIndex) {
+        String id = getDetailsComponentConnectorId(rowIndex);
+        if (id == null && isDetailsPending(rowIndex)) {
+            return PENDING_DETAILS_ID;
+        }
+        return id;
+    }
+
+    private boolean isDetailsPending(int rowIndex) {
+        JsonObject row = getWidget().getDataSource().getRow(rowIndex);
+        return row != null && row.hasKey(GridState.JSONKEY_DETAILS_PENDING)
+                && row.getBoolean(GridState.JSONKEY_DETAILS_PENDING);
+    }
+
+    /**
+     * Requests the details components of the visible rows whose details have
+     * not been generated yet.
+     */
+    private void requestVisibleDetails() {
+        List<String> keys = new ArrayList<>();
+        Range visibleRows = getWidget().getEscalator().getVisibleRowRange();
+        for (int i = visibleRows.getStart(); i < visibleRows.getEnd(); ++i) {
+            if (!PENDING_DETAILS_ID.equals(indexToDetailConnectorId.get(i))) {
+                continue;
+            }
+            String key = getWidget().getDataSource().getRow(i)
+                    .getString(DataCommunicatorConstants.KEY);
+            if (requestedDetailsKeys.add(key)) {
+                keys.add(key);
+            }
+        }
+        if (!keys.isEmpty()) {
+            getRpcProxy(DetailsManagerServerRpc.class).requestDetails(keys);
+        }
+    }
+
     private LayoutManager getLayoutManager() {
         return LayoutManager.get(getConnection());
     }
@@ -211,7 +299,7 @@ public class DetailsManagerConnector extends AbstractExtensionConnector {
     private void refreshDetailsVisibility() {
         boolean shownDetails = false;
         for (int i = 0; i < getWidget().getDataSource().size(); ++i) {
-            String id = getDetailsComponentConnectorId(i);
+            String id = getDetailsId(i);
 
             detachIfNeeded(i, id);
 
@@ -225,5 +313,6 @@ public class DetailsManagerConnector extends AbstractExtensionConnector {
         }
         refreshing = false;
         getParent().detailsRefreshed(shownDetails);
+        requestVisibleDetails();
     }
 }
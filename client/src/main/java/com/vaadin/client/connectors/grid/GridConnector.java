@@ -42,6 +42,7 @@ import com.vaadin.client.WidgetUtil;
 import com.vaadin.client.annotations.OnStateChange;
 import com.vaadin.client.connectors.AbstractListingConnector;
 import com.vaadin.client.connectors.grid.ColumnConnector.CustomColumn;
+import com.vaadin.client.data.AbstractRemoteDataSource;
 import com.vaadin.client.data.DataSource;
 import com.vaadin.client.ui.SimpleManagedLayout;
 import com.vaadin.client.widget.grid.CellReference;
@@ -57,6 +58,8 @@ import com.vaadin.client.widgets.Grid.Column;
 import com.vaadin.client.widgets.Grid.FooterRow;
 import com.vaadin.client.widgets.Grid.HeaderRow;
 import com.vaadin.shared.MouseEventDetails;
+import com.vaadin.shared.Range;
+import com.vaadin.shared.data.DataCommunicatorConstants;
 import com.vaadin.shared.data.sort.SortDirection;
 import com.vaadin.shared.ui.Connect;
 import com.vaadin.shared.ui.grid.GridClientRpc;
@@ -69,7 +72,9 @@ import com.vaadin.shared.ui.grid.SectionState;
 import com.vaadin.shared.ui.grid.SectionState.CellState;
 import com.vaadin.shared.ui.grid.SectionState.RowState;
 
+import elemental.json.Json;
 import elemental.json.JsonObject;
+import elemental.json.JsonValue;
 
 /**
  * A connector class for the typed Grid component.
@@ -195,7 +200,14 @@ public class GridConnector extends AbstractListingConnector
     private boolean rowHasDetails(int rowIndex) {
         JsonObject row = getWidget().getDataSource().getRow(rowIndex);
 
-        return row != null && row.hasKey(GridState.JSONKEY_DETAILS_VISIBLE)
+        if (row == null) {
+            return false;
+        }
+        if (row.hasKey(GridState.JSONKEY_DETAILS_PENDING)
+                && row.getBoolean(GridState.JSONKEY_DETAILS_PENDING)) {
+            return true;
+        }
+        return row.hasKey(GridState.JSONKEY_DETAILS_VISIBLE)
                 && !row.getString(GridState.JSONKEY_DETAILS_VISIBLE).isEmpty();
     }
 
@@ -241,6 +253,12 @@ public class GridConnector extends AbstractListingConnector
                     }
                 });
             }
+
+            @Override
+            public void updateColumnData(String columnInternalId,
+                    JsonObject data) {
+                GridConnector.this.updateColumnData(columnInternalId, data);
+            }
         });
 
         getWidget().addSortHandler(this::handleSortEvent);
@@ -637,6 +655,59 @@ public class GridConnector extends AbstractListingConnector
         return false;
     }
 
+    /**
+     * Replaces the data of the given column in the cached rows with the given
+     * data and re-renders only the updated cells.
+     *
+     * @param columnInternalId
+     *            the internal id of the column
+     * @param data
+     *            the column data for each updated row, mapped by row key
+     */
+    private void updateColumnData(String columnInternalId, JsonObject data) {
+        CustomColumn column = getColumn(columnInternalId);
+        if (column == null) {
+            return;
+        }
+        String columnKey = column.getConnectorId();
+
+        int columnIndex = getWidget().getVisibleColumns().indexOf(column);
+        DataSource<JsonObject> dataSource = getDataSource();
+        Range cached = dataSource instanceof AbstractRemoteDataSource
+                ? ((AbstractRemoteDataSource<JsonObject>) dataSource)
+                        .getCachedRange()
+                : Range.withLength(0, dataSource.size());
+        for (int i = cached.getStart(); i < cached.getEnd(); i++) {
+            JsonObject row = dataSource.getRow(i);
+            if (row == null || !data.hasKey(getRowKey(row))) {
+                continue;
+            }
+            // Clear the old values, e.g. a style that is no longer generated
+            for (String section : new String[] {
+                    DataCommunicatorConstants.DATA,
+                    GridState.JSONKEY_CELLSTYLES,
+                    GridState.JSONKEY_CELLDESCRIPTION }) {
+                if (row.hasKey(section)) {
+                    row.getObject(section).remove(columnKey);
+                }
+            }
+            JsonObject columnData = data.getObject(getRowKey(row));
+            for (String section : columnData.keys()) {
+                if (!row.hasKey(section)) {
+                    row.put(section, Json.createObject());
+                }
+                JsonObject values = columnData.getObject(section);
+                for (String key : values.keys()) {
+                    JsonValue value = values.get(key);
+                    row.getObject(section).put(key, value);
+                }
+            }
+            if (columnIndex >= 0) {
+                getWidget().getEscalator().refreshBodyCell(i, columnIndex);
+            }
+        }
+    }
+
     private List<String> mapColumnsToIds(List<Column<?, JsonObject>> columns) {
         return columns.stream().map(this::getColumnId).filter(Objects::nonNull)
                 .collect(Collectors.toList());
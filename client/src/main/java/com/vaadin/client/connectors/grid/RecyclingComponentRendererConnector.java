@@ -0,0 +1,32 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.client.connectors.grid;
+
+import com.vaadin.shared.ui.Connect;
+import com.vaadin.ui.renderers.RecyclingComponentRenderer;
+
+/**
+ * Connector for {@link RecyclingComponentRenderer}. Components are rendered the
+ * same way as with the {@link ComponentRendererConnector}; the recycling is
+ * handled on the server side.
+ *
+ * @author Vaadin Ltd
+ * @since 8.1
+ */
+@Connect(RecyclingComponentRenderer.class)
+public class RecyclingComponentRendererConnector
+        extends ComponentRendererConnector {
+}
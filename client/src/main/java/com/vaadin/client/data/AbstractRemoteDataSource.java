@@ -181,8 +181,7 @@ public abstract class AbstractRemoteDataSource<T> implements DataSource<T> {
 
     private Range cached = Range.between(0, 0);
 
-    private final HashMap<Integer, T> indexToRowMap = new HashMap<>();
-    private final HashMap<Object, Integer> keyToIndexMap = new HashMap<>();
+    private final RowCache<T> rowCache = new RowCache<>(this::getRowKey);
 
     /**
      * Map used to temporarily store rows invalidated by
@@ -363,13 +362,14 @@ public abstract class AbstractRemoteDataSource<T> implements DataSource<T> {
      *            the range of rows to drop
      */
     protected void dropFromCache(Range range) {
-        for (int i = range.getStart(); i < range.getEnd(); i++) {
+        Range[] partition = range.partitionWith(rowCache.getRange());
+        for (int i = partition[1].getStart(); i < partition[1]
+                .getEnd(); i++) {
             // Called after dropping from cache. Dropped row is passed as a
             // parameter, but is no longer present in the DataSource
-            T removed = indexToRowMap.remove(Integer.valueOf(i));
+            T removed = rowCache.remove(i);
             if (removed != null) {
                 onDropFromCache(i, removed);
-                keyToIndexMap.remove(getRowKey(removed));
             }
         }
     }
@@ -432,7 +432,7 @@ public abstract class AbstractRemoteDataSource<T> implements DataSource<T> {
 
     @Override
     public T getRow(int rowIndex) {
-        return indexToRowMap.get(Integer.valueOf(rowIndex));
+        return rowCache.get(rowIndex);
     }
 
     /**
@@ -446,11 +446,7 @@ public abstract class AbstractRemoteDataSource<T> implements DataSource<T> {
      * @return index of the row; or <code>-1</code> if row is not available
      */
     public int indexOf(T row) {
-        Object key = getRowKey(row);
-        if (keyToIndexMap.containsKey(key)) {
-            return keyToIndexMap.get(key);
-        }
-        return -1;
+        return rowCache.indexOf(getRowKey(row));
     }
 
     @Override
@@ -502,9 +498,7 @@ public abstract class AbstractRemoteDataSource<T> implements DataSource<T> {
             // Update the parts that are actually inside
             int start = newUsefulData.getStart();
             for (int i = start; i < newUsefulData.getEnd(); i++) {
-                final T row = rowData.get(i - firstRowIndex);
-                indexToRowMap.put(Integer.valueOf(i), row);
-                keyToIndexMap.put(getRowKey(row), Integer.valueOf(i));
+                rowCache.put(i, rowData.get(i - firstRowIndex));
             }
 
             Profiler.enter(
@@ -595,9 +589,7 @@ public abstract class AbstractRemoteDataSource<T> implements DataSource<T> {
                 if (!invalidatedRows.containsKey(i)) {
                     return;
                 }
-                T row = invalidatedRows.get(i);
-                indexToRowMap.put(i, row);
-                keyToIndexMap.put(getRowKey(row), i);
+                rowCache.put(i, invalidatedRows.get(i));
                 last = i;
             }
 
@@ -657,10 +649,7 @@ public abstract class AbstractRemoteDataSource<T> implements DataSource<T> {
         dropFromCache(removedRange);
 
         // shift indices to fill the cache correctly
-        int firstMoved = Math.max(firstRowIndex + count, cached.getStart());
-        for (int i = firstMoved; i < cached.getEnd(); i++) {
-            moveRowFromIndexToIndex(i, i - count);
-        }
+        rowCache.collapse(firstRowIndex, count);
 
         if (cached.isSubsetOf(removedRange)) {
             // Whole cache is part of the removal. Empty cache
@@ -712,14 +701,8 @@ public abstract class AbstractRemoteDataSource<T> implements DataSource<T> {
         size += count;
 
         if (firstRowIndex <= cached.getStart()) {
-            Range oldCached = cached;
             cached = cached.offsetBy(count);
-
-            for (int i = 1; i <= cached.length(); i++) {
-                int oldIndex = oldCached.getEnd() - i;
-                int newIndex = cached.getEnd() - i;
-                moveRowFromIndexToIndex(oldIndex, newIndex);
-            }
+            rowCache.shift(count);
         } else if (cached.contains(firstRowIndex)) {
             int oldCacheEnd = cached.getEnd();
             /*
@@ -745,13 +728,12 @@ public abstract class AbstractRemoteDataSource<T> implements DataSource<T> {
                 // Store all invalidated items to a map. Indices are updated to
                 // match what they should be after the insertion.
                 for (int i = invalid.getStart(); i < invalid.getEnd(); ++i) {
-                    invalidatedRows.put(i + count, indexToRowMap.get(i));
+                    invalidatedRows.put(i + count, rowCache.get(i));
                 }
             }
 
             for (int i = firstRowIndex; i < oldCacheEnd; i++) {
-                T row = indexToRowMap.remove(Integer.valueOf(i));
-                keyToIndexMap.remove(getRowKey(row));
+                rowCache.remove(i);
             }
         }
 
@@ -762,22 +744,6 @@ public abstract class AbstractRemoteDataSource<T> implements DataSource<T> {
         Profiler.leave("AbstractRemoteDataSource.insertRowData");
     }
 
-    @SuppressWarnings("boxing")
-    private void moveRowFromIndexToIndex(int oldIndex, int newIndex) {
-        T row = indexToRowMap.remove(oldIndex);
-        if (indexToRowMap.containsKey(newIndex)) {
-            // Old row is about to be overwritten. Remove it from keyCache.
-            T row2 = indexToRowMap.remove(newIndex);
-            if (row2 != null) {
-                keyToIndexMap.remove(getRowKey(row2));
-            }
-        }
-        indexToRowMap.put(newIndex, row);
-        if (row != null) {
-            keyToIndexMap.put(getRowKey(row), newIndex);
-        }
-    }
-
     /**
      * Gets the current range of cached rows.
      *
@@ -853,7 +819,7 @@ public abstract class AbstractRemoteDataSource<T> implements DataSource<T> {
 
         if (pinnedRows.containsKey(key)) {
             return pinnedRows.get(key);
-        } else if (keyToIndexMap.containsKey(key)) {
+        } else if (rowCache.containsKey(key)) {
             return new RowHandleImpl(row, key);
         } else {
             throw new IllegalStateException("The cache of this DataSource "
@@ -904,19 +870,14 @@ public abstract class AbstractRemoteDataSource<T> implements DataSource<T> {
      */
     protected void resetDataAndSize(int newSize) {
         size = newSize;
-        indexToRowMap.clear();
-        keyToIndexMap.clear();
+        rowCache.clear();
         cached = Range.withLength(0, 0);
 
         getHandlers().forEach(dch -> dch.resetDataAndSize(newSize));
     }
 
     protected int indexOfKey(Object rowKey) {
-        if (!keyToIndexMap.containsKey(rowKey)) {
-            return -1;
-        } else {
-            return keyToIndexMap.get(rowKey);
-        }
+        return rowCache.indexOf(rowKey);
     }
 
     protected boolean isPinned(T row) {
@@ -0,0 +1,303 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.client.data;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import com.vaadin.shared.Range;
+
+/**
+ * The row cache of {@link AbstractRemoteDataSource}. Rows are stored in a ring
+ * buffer that covers a contiguous range of row indices, and row keys are mapped
+ * to positions that are translated to row indices with a common offset.
+ * <p>
+ * This makes shifting all cached rows after rows have been inserted or removed
+ * before them a constant time operation. When rows are removed from the middle
+ * of the cached range, only the rows on the shorter side of the removed range
+ * are moved.
+ *
+ * @since 8.1
+ * @author Vaadin Ltd
+ * @param <T>
+ *            the row type
+ */
+class RowCache<T> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Function<T, Object> keyProvider;
+
+    /** Ring buffer of rows, slots outside of the cached range are null. */
+    private Object[] rows = new Object[INITIAL_CAPACITY];
+    /** The slot of the first cached row index. */
+    private int head = 0;
+    /** The first cached row index. */
+    private int firstIndex = 0;
+    /** The number of cached row indices, including possible holes. */
+    private int size = 0;
+
+    /** Row index of a key is its position plus the offset. */
+    private final Map<Object, Integer> keyToPosition = new HashMap<>();
+    private int offset = 0;
+
+    /**
+     * Creates a new row cache.
+     *
+     * @param keyProvider
+     *            the function for getting the key of a row
+     */
+    public RowCache(Function<T, Object> keyProvider) {
+        this.keyProvider = keyProvider;
+    }
+
+    /**
+     * Gets the range of row indices covered by this cache. All cached rows are
+     * within the range, but the range may also contain indices without a row.
+     *
+     * @return the covered range of row indices
+     */
+    public Range getRange() {
+        return Range.withLength(firstIndex, size);
+    }
+
+    /**
+     * Gets the row at the given index.
+     *
+     * @param index
+     *            the row index
+     * @return the cached row, or <code>null</code> if there is no cached row
+     *         at the index
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index < firstIndex || index >= firstIndex + size) {
+            return null;
+        }
+        return (T) rows[slot(index)];
+    }
+
+    /**
+     * Gets the index of the row with the given key.
+     *
+     * @param key
+     *            the row key
+     * @return the index of the row, or <code>-1</code> if there is no cached
+     *         row with the key
+     */
+    public int indexOf(Object key) {
+        Integer position = keyToPosition.get(key);
+        if (position == null) {
+            return -1;
+        }
+        return position.intValue() + offset;
+    }
+
+    /**
+     * Checks whether there is a cached row with the given key.
+     *
+     * @param key
+     *            the row key
+     * @return <code>true</code> if a row with the key is cached,
+     *         <code>false</code> if not
+     */
+    public boolean containsKey(Object key) {
+        return keyToPosition.containsKey(key);
+    }
+
+    /**
+     * Caches a row at the given index, replacing any row previously cached at
+     * the index.
+     *
+     * @param index
+     *            the row index
+     * @param row
+     *            the row to cache, not <code>null</code>
+     */
+    public void put(int index, T row) {
+        if (size == 0) {
+            head = 0;
+            firstIndex = index;
+            size = 1;
+        } else if (index < firstIndex) {
+            int added = firstIndex - index;
+            ensureCapacity(size + added);
+            head = (head - added % rows.length + rows.length) % rows.length;
+            firstIndex = index;
+            size += added;
+        } else if (index >= firstIndex + size) {
+            int newSize = index - firstIndex + 1;
+            ensureCapacity(newSize);
+            size = newSize;
+        }
+
+        int slot = slot(index);
+        removeKey(rows[slot], index);
+        rows[slot] = row;
+        keyToPosition.put(keyProvider.apply(row),
+                Integer.valueOf(index - offset));
+    }
+
+    /**
+     * Removes the row at the given index from the cache.
+     *
+     * @param index
+     *            the row index
+     * @return the removed row, or <code>null</code> if there was no cached row
+     *         at the index
+     */
+    public T remove(int index) {
+        T row = get(index);
+        if (row != null) {
+            rows[slot(index)] = null;
+            removeKey(row, index);
+            trim();
+        }
+        return row;
+    }
+
+    /**
+     * Moves all cached rows by the given amount of row indices.
+     *
+     * @param delta
+     *            the amount to add to the index of each row
+     */
+    public void shift(int delta) {
+        firstIndex += delta;
+        offset += delta;
+    }
+
+    /**
+     * Removes a range of row indices from the cache. Any rows cached in the
+     * range are discarded, and the rows after the range are moved to fill the
+     * gap.
+     *
+     * @param start
+     *            the first removed row index
+     * @param count
+     *            the number of removed row indices
+     */
+    public void collapse(int start, int count) {
+        int end = start + count;
+        int cachedEnd = firstIndex + size;
+        if (end <= firstIndex) {
+            shift(-count);
+            return;
+        } else if (start >= cachedEnd) {
+            return;
+        }
+
+        for (int i = Math.max(start, firstIndex); i < Math
+                .min(end, cachedEnd); i++) {
+            int slot = slot(i);
+            removeKey(rows[slot], i);
+            rows[slot] = null;
+        }
+
+        if (start <= firstIndex) {
+            // Removed from the beginning, the rest moves without copying
+            int removed = Math.min(end, cachedEnd) - firstIndex;
+            head = (head + removed) % rows.length;
+            firstIndex += removed;
+            size -= removed;
+            shift(-count);
+        } else if (end >= cachedEnd) {
+            // Removed from the end, nothing to move
+            size = start - firstIndex;
+        } else if (cachedEnd - end <= start - firstIndex) {
+            // Move the rows after the removed range backwards
+            for (int i = end; i < cachedEnd; i++) {
+                moveRow(i, i - count);
+            }
+            size -= count;
+        } else {
+            // Move the rows before the removed range forwards and compensate
+            // with the offset
+            for (int i = start - 1; i >= firstIndex; i--) {
+                moveRow(i, i + count);
+            }
+            head = (head + count) % rows.length;
+            firstIndex += count;
+            size -= count;
+            shift(-count);
+        }
+        trim();
+    }
+
+    /**
+     * Removes all rows from the cache.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            rows[(head + i) % rows.length] = null;
+        }
+        keyToPosition.clear();
+        head = 0;
+        firstIndex = 0;
+        size = 0;
+    }
+
+    private int slot(int index) {
+        return (head + index - firstIndex) % rows.length;
+    }
+
+    private void moveRow(int fromIndex, int toIndex) {
+        int fromSlot = slot(fromIndex);
+        @SuppressWarnings("unchecked")
+        T row = (T) rows[fromSlot];
+        rows[fromSlot] = null;
+        rows[slot(toIndex)] = row;
+        if (row != null) {
+            keyToPosition.put(keyProvider.apply(row),
+                    Integer.valueOf(toIndex - offset));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void removeKey(Object row, int index) {
+        if (row == null) {
+            return;
+        }
+        Object key = keyProvider.apply((T) row);
+        if (indexOf(key) == index) {
+            keyToPosition.remove(key);
+        }
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= rows.length) {
+            return;
+        }
+        Object[] newRows = new Object[Math.max(capacity, rows.length * 2)];
+        for (int i = 0; i < size; i++) {
+            newRows[i] = rows[(head + i) % rows.length];
+        }
+        rows = newRows;
+        head = 0;
+    }
+
+    private void trim() {
+        while (size > 0 && rows[head] == null) {
+            head = (head + 1) % rows.length;
+            firstIndex++;
+            size--;
+        }
+        while (size > 0 && rows[slot(firstIndex + size - 1)] == null) {
+            size--;
+        }
+    }
+}
@@ -99,6 +99,20 @@ public class ProfilerSection implements Section {
                 content.add(tree);
                 applyLimit();
             }
+
+            @Override
+            public void addCounterData(
+                    LinkedHashMap<String, Integer> counters) {
+                SimpleTree tree = new SimpleTree("Counters");
+                for (Entry<String, Integer> entry : counters.entrySet()) {
+                    tree.add(
+                            new Label(entry.getValue() + " " + entry.getKey()));
+                }
+
+                tree.open(false);
+                content.add(tree);
+                applyLimit();
+            }
         });
     }
 
@@ -131,6 +131,37 @@ public interface RowContainer {
          */
         public void setNewRowCallback(
                 Consumer<List<TableRowElement>> consumer);
+
+        /**
+         * Sets whether rows may have different heights.
+         * <p>
+         * By default, all rows are of the {@link #getDefaultRowHeight() default
+         * row height}, and content that does not fit is clipped. When variable
+         * row heights are enabled, each row is measured when it is rendered
+         * and grows to fit its content. Rows that have not been rendered yet
+         * are estimated to be of the default row height.
+         * <p>
+         * Only the rows that are rendered are measured, so the total height of
+         * the content, and thus the scroll bar, is adjusted as rows are
+         * scrolled into view.
+         *
+         * @param enabled
+         *            <code>true</code> to enable variable row heights,
+         *            <code>false</code> to use the default row height for all
+         *            rows
+         * @since 8.1
+         */
+        public void setVariableRowHeightsEnabled(boolean enabled);
+
+        /**
+         * Checks whether rows may have different heights.
+         *
+         * @return <code>true</code> if variable row heights are enabled,
+         *         <code>false</code> otherwise
+         * @see #setVariableRowHeightsEnabled(boolean)
+         * @since 8.1
+         */
+        public boolean isVariableRowHeightsEnabled();
     }
 
     /**
@@ -0,0 +1,274 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.client.widget.escalator;
+
+/**
+ * Bookkeeping of variable row heights in a {@link RowContainer}.
+ * <p>
+ * Each row has a height that is the default row height plus a row specific
+ * delta. The deltas are stored in a Fenwick tree (binary indexed tree), so
+ * that the top position of a row and the row at a given position can both be
+ * resolved in logarithmic time, regardless of the number of rows. Rows whose
+ * height has not been measured have a delta of zero, i.e. they are estimated
+ * to be of the default row height.
+ * <p>
+ * Since the deltas are relative to the default row height, changing the
+ * default row height does not require updating the tree.
+ * <p>
+ * <em>Note:</em> Inserting and removing rows rebuilds the tree, which takes
+ * linear time. If no row has a non-zero delta, only the row count is updated.
+ *
+ * @since 8.1
+ * @author Vaadin Ltd
+ */
+public class RowHeightTree {
+
+    /** The height delta of each row, valid for indices below {@link #size}. */
+    private double[] deltas = new double[0];
+
+    /**
+     * The Fenwick tree of the deltas, 1-based. Index {@code i} holds the sum
+     * of the deltas of the {@code i & -i} rows ending at row {@code i - 1}.
+     */
+    private double[] tree = new double[1];
+
+    private int size = 0;
+
+    private int nonZeroCount = 0;
+
+    /**
+     * Gets the number of rows tracked.
+     *
+     * @return the number of rows
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether any of the rows has a height that differs from the
+     * default row height.
+     *
+     * @return <code>true</code> if any row has a non-zero height delta,
+     *         <code>false</code> otherwise
+     */
+    public boolean hasHeightDeltas() {
+        return nonZeroCount > 0;
+    }
+
+    /**
+     * Discards all height deltas and sets the number of rows tracked.
+     *
+     * @param numberOfRows
+     *            the new number of rows
+     */
+    public void reset(int numberOfRows) {
+        assert numberOfRows >= 0 : "Number of rows must not be negative";
+        deltas = new double[0];
+        tree = new double[1];
+        size = numberOfRows;
+        nonZeroCount = 0;
+    }
+
+    /**
+     * Inserts rows with the default row height.
+     *
+     * @param index
+     *            the index of the first inserted row
+     * @param numberOfRows
+     *            the number of rows to insert
+     */
+    public void insertRows(int index, int numberOfRows) {
+        assert index >= 0 && index <= size : "Index out of bounds: " + index;
+        assert numberOfRows >= 0 : "Number of rows must not be negative";
+        if (nonZeroCount == 0) {
+            size += numberOfRows;
+            return;
+        }
+
+        double[] newDeltas = new double[size + numberOfRows];
+        System.arraycopy(deltas, 0, newDeltas, 0, index);
+        System.arraycopy(deltas, index, newDeltas, index + numberOfRows,
+                size - index);
+        deltas = newDeltas;
+        size += numberOfRows;
+        rebuildTree();
+    }
+
+    /**
+     * Removes rows.
+     *
+     * @param index
+     *            the index of the first removed row
+     * @param numberOfRows
+     *            the number of rows to remove
+     */
+    public void removeRows(int index, int numberOfRows) {
+        assert index >= 0 && numberOfRows >= 0
+                && index + numberOfRows <= size : "Range out of bounds: "
+                        + index + "+" + numberOfRows;
+        if (nonZeroCount == 0) {
+            size -= numberOfRows;
+            return;
+        }
+
+        for (int i = index; i < index + numberOfRows; i++) {
+            if (deltas[i] != 0) {
+                nonZeroCount--;
+            }
+        }
+        double[] newDeltas = new double[size - numberOfRows];
+        System.arraycopy(deltas, 0, newDeltas, 0, index);
+        System.arraycopy(deltas, index + numberOfRows, newDeltas, index,
+                size - index - numberOfRows);
+        deltas = newDeltas;
+        size -= numberOfRows;
+        rebuildTree();
+    }
+
+    /**
+     * Gets the difference between the height of a row and the default row
+     * height.
+     *
+     * @param index
+     *            the index of the row
+     * @return the height delta of the row, in pixels
+     */
+    public double getHeightDelta(int index) {
+        assert index >= 0 && index < size : "Index out of bounds: " + index;
+        if (nonZeroCount == 0) {
+            return 0;
+        }
+        return deltas[index];
+    }
+
+    /**
+     * Sets the difference between the height of a row and the default row
+     * height.
+     *
+     * @param index
+     *            the index of the row
+     * @param delta
+     *            the height delta of the row, in pixels
+     */
+    public void setHeightDelta(int index, double delta) {
+        assert index >= 0 && index < size : "Index out of bounds: " + index;
+        if (deltas.length != size) {
+            if (delta == 0) {
+                return;
+            }
+            // Allocated lazily on the first non-zero delta
+            deltas = new double[size];
+            tree = new double[size + 1];
+        }
+
+        double diff = delta - deltas[index];
+        if (diff == 0) {
+            return;
+        }
+        if (deltas[index] == 0) {
+            nonZeroCount++;
+        } else if (delta == 0 && --nonZeroCount == 0) {
+            // Drop the arrays along with any accumulated rounding errors
+            reset(size);
+            return;
+        }
+        deltas[index] = delta;
+        for (int i = index + 1; i <= size; i += i & -i) {
+            tree[i] += diff;
+        }
+    }
+
+    /**
+     * Gets the sum of the height deltas of the rows above a row.
+     *
+     * @param index
+     *            the index of the row, may be equal to the number of rows
+     * @return the sum of height deltas of the rows in
+     *         <code>[0..index)</code>, in pixels
+     */
+    public double getHeightDeltaSum(int index) {
+        assert index >= 0 && index <= size : "Index out of bounds: " + index;
+        if (nonZeroCount == 0) {
+            return 0;
+        }
+        double sum = 0;
+        for (int i = index; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Gets the sum of the height deltas of all rows.
+     *
+     * @return the sum of all height deltas, in pixels
+     */
+    public double getTotalHeightDelta() {
+        return getHeightDeltaSum(size);
+    }
+
+    /**
+     * Finds the row at a pixel offset, measured from the top of the first row
+     * and not counting anything in between the rows.
+     * <p>
+     * Offsets beyond the last row are extrapolated with the default row
+     * height, in which case the returned index is not a valid row index.
+     *
+     * @param px
+     *            the pixel offset
+     * @param defaultRowHeight
+     *            the default row height, in pixels
+     * @return the index of the row at {@code px}
+     */
+    public int getRowIndexAt(double px, double defaultRowHeight) {
+        if (px <= 0) {
+            return 0;
+        } else if (nonZeroCount == 0) {
+            return (int) (px / defaultRowHeight);
+        }
+
+        // Descend the tree to the last row whose top is not after px
+        int index = 0;
+        double remaining = px;
+        for (int step = Integer.highestOneBit(size); step > 0; step >>= 1) {
+            int next = index + step;
+            if (next <= size) {
+                double height = tree[next] + step * defaultRowHeight;
+                if (height <= remaining) {
+                    index = next;
+                    remaining -= height;
+                }
+            }
+        }
+
+        if (index == size) {
+            index += (int) (remaining / defaultRowHeight);
+        }
+        return index;
+    }
+
+    private void rebuildTree() {
+        tree = new double[size + 1];
+        for (int i = 1; i <= size; i++) {
+            tree[i] += deltas[i - 1];
+            int parent = i + (i & -i);
+            if (parent <= size) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+}
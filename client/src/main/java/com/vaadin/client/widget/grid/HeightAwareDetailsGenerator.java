@@ -42,4 +42,23 @@ public interface HeightAwareDetailsGenerator extends DetailsGenerator {
      * @return height of the details row
      */
     public double getDetailsHeight(int rowIndex);
+
+    /**
+     * This method is called for whenever a details row has no details widget
+     * yet, and an estimate of its height is needed until the widget becomes
+     * available.
+     * <p>
+     * <b>FOR INTERNAL USE ONLY!</b> This method exists only for the sake of a
+     * temporary workaround and might be removed or renamed at any time.
+     * </p>
+     *
+     * @since 8.1
+     * @param rowIndex
+     *            the index of the row for which to estimate details row height
+     * @return estimated height of the details row, or a negative value to use
+     *         the default height
+     */
+    public default double getEstimatedDetailsHeight(int rowIndex) {
+        return -1;
+    }
 }
@@ -79,6 +79,7 @@ import com.vaadin.client.widget.escalator.PositionFunction.WebkitTranslate3DPosi
 import com.vaadin.client.widget.escalator.Row;
 import com.vaadin.client.widget.escalator.RowContainer;
 import com.vaadin.client.widget.escalator.RowContainer.BodyRowContainer;
+import com.vaadin.client.widget.escalator.RowHeightTree;
 import com.vaadin.client.widget.escalator.RowVisibilityChangeEvent;
 import com.vaadin.client.widget.escalator.RowVisibilityChangeHandler;
 import com.vaadin.client.widget.escalator.ScrollbarBundle;
@@ -1102,11 +1103,9 @@ public class Escalator extends Widget
         public void scrollToRow(final int rowIndex,
                 final ScrollDestination destination, final double padding) {
 
-            final double targetStartPx = (body.getDefaultRowHeight() * rowIndex)
-                    + body.spacerContainer
-                            .getSpacerHeightsSumUntilIndex(rowIndex);
+            final double targetStartPx = body.getRowTop(rowIndex);
             final double targetEndPx = targetStartPx
-                    + body.getDefaultRowHeight();
+                    + body.getRowHeight(rowIndex);
 
             final double viewportStartPx = getScrollTop();
             final double viewportEndPx = viewportStartPx
@@ -2521,6 +2520,14 @@ public class Escalator extends Widget
 
         private final SpacerContainer spacerContainer = new SpacerContainer();
 
+        /**
+         * The heights of the rows relative to the default row height. Kept in
+         * sync with the row count even if variable row heights are disabled.
+         */
+        private final RowHeightTree rowHeights = new RowHeightTree();
+
+        private boolean variableRowHeights = false;
+
         public BodyRowContainerImpl(final TableSectionElement bodyElement) {
             super(bodyElement);
         }
@@ -2547,10 +2554,10 @@ public class Escalator extends Widget
             if (topSpacer != null) {
                 topElementPosition = topSpacer.getTop();
                 nextRowBottomOffset = topSpacer.getHeight()
-                        + getDefaultRowHeight();
+                        + getRowHeight(getTopRowLogicalIndex());
             } else {
                 topElementPosition = getRowTop(visualRowOrder.getFirst());
-                nextRowBottomOffset = getDefaultRowHeight();
+                nextRowBottomOffset = getRowHeight(getTopRowLogicalIndex());
             }
 
             // TODO [[mpixscroll]]
@@ -2565,16 +2572,22 @@ public class Escalator extends Widget
             if (viewportOffset > 0) {
                 // there's empty room on top
 
-                double rowPx = getRowHeightsSumBetweenPx(scrollTop,
-                        topElementPosition);
-                int originalRowsToMove = (int) Math
-                        .ceil(rowPx / getDefaultRowHeight());
+                final int logicalRowIndex = getLogicalRowIndex(scrollTop);
+                int originalRowsToMove;
+                if (variableRowHeights) {
+                    originalRowsToMove = Math.max(0,
+                            getTopRowLogicalIndex() - logicalRowIndex);
+                } else {
+                    double rowPx = getRowHeightsSumBetweenPx(scrollTop,
+                            topElementPosition);
+                    originalRowsToMove = (int) Math
+                            .ceil(rowPx / getDefaultRowHeight());
+                }
                 int rowsToMove = Math.min(originalRowsToMove,
                         visualRowOrder.size());
 
                 final int end = visualRowOrder.size();
                 final int start = end - rowsToMove;
-                final int logicalRowIndex = getLogicalRowIndex(scrollTop);
 
                 moveAndUpdateEscalatorRows(Range.between(start, end), 0,
                         logicalRowIndex);
@@ -2590,10 +2603,16 @@ public class Escalator extends Widget
                  * row.
                  */
 
-                double rowPx = getRowHeightsSumBetweenPx(topElementPosition,
-                        scrollTop);
-
-                int originalRowsToMove = (int) (rowPx / getDefaultRowHeight());
+                int originalRowsToMove;
+                if (variableRowHeights) {
+                    originalRowsToMove = Math.max(0,
+                            getLogicalRowIndex(scrollTop)
+                                    - getTopRowLogicalIndex());
+                } else {
+                    double rowPx = getRowHeightsSumBetweenPx(
+                            topElementPosition, scrollTop);
+                    originalRowsToMove = (int) (rowPx / getDefaultRowHeight());
+                }
                 int rowsToMove = Math.min(originalRowsToMove,
                         visualRowOrder.size());
 
@@ -2694,12 +2713,16 @@ public class Escalator extends Widget
 
         private int getLogicalRowIndex(final double px) {
             double rowPx = px - spacerContainer.getSpacerHeightsSumUntilPx(px);
+            if (variableRowHeights) {
+                return rowHeights.getRowIndexAt(rowPx, getDefaultRowHeight());
+            }
             return (int) (rowPx / getDefaultRowHeight());
         }
 
         @Override
         public void insertRows(int index, int numberOfRows) {
             super.insertRows(index, numberOfRows);
+            verifyRowHeightsSize();
 
             if (heightMode == HeightMode.UNDEFINED) {
                 setHeightByRows(getRowCount());
@@ -2709,12 +2732,172 @@ public class Escalator extends Widget
         @Override
         public void removeRows(int index, int numberOfRows) {
             super.removeRows(index, numberOfRows);
+            verifyRowHeightsSize();
 
             if (heightMode == HeightMode.UNDEFINED) {
                 setHeightByRows(getRowCount());
             }
         }
 
+        /**
+         * The row heights are updated when rows are painted. If the rows were
+         * not painted, the heights are discarded.
+         */
+        private void verifyRowHeightsSize() {
+            if (rowHeights.size() != getRowCount()) {
+                rowHeights.reset(getRowCount());
+            }
+        }
+
+        @Override
+        public void setVariableRowHeightsEnabled(boolean enabled) {
+            if (variableRowHeights != enabled) {
+                variableRowHeights = enabled;
+                reapplyDefaultRowHeights();
+            }
+        }
+
+        @Override
+        public boolean isVariableRowHeightsEnabled() {
+            return variableRowHeights;
+        }
+
+        /**
+         * Gets the height of a row, as measured when it was last rendered.
+         * Rows that have not been rendered are assumed to be of the default
+         * row height.
+         *
+         * @param logicalIndex
+         *            the logical index of the row
+         * @return the height of the row, in pixels
+         */
+        private double getRowHeight(int logicalIndex) {
+            if (variableRowHeights && logicalIndex >= 0
+                    && logicalIndex < rowHeights.size()) {
+                return getDefaultRowHeight()
+                        + rowHeights.getHeightDelta(logicalIndex);
+            }
+            return getDefaultRowHeight();
+        }
+
+        /**
+         * Gets the sum of the heights of the rows above a logical index, not
+         * counting spacers.
+         *
+         * @param logicalIndex
+         *            a logical row index
+         * @return the pixels occupied by rows up until {@code logicalIndex}
+         */
+        private double getRowHeightsSumUntilIndex(int logicalIndex) {
+            double heights = logicalIndex * getDefaultRowHeight();
+            if (variableRowHeights && logicalIndex > 0) {
+                heights += rowHeights.getHeightDeltaSum(
+                        Math.min(logicalIndex, rowHeights.size()));
+            }
+            return heights;
+        }
+
+        @Override
+        protected double calculateTotalRowHeight() {
+            return getRowHeightsSumUntilIndex(getRowCount());
+        }
+
+        /**
+         * Measures the natural heights of rendered rows when variable row
+         * heights are enabled, and moves the rows and spacers to match any
+         * changed heights.
+         * <p>
+         * All the DOM writes and reads are batched so that measuring the rows
+         * causes only one reflow. The rows are assumed to be a contiguous
+         * block, i.e. the logical index of the first visual row is
+         * {@code logicalIndex - visualIndex}.
+         *
+         * @param visualIndex
+         *            the visual index of the first row to measure
+         * @param numberOfRows
+         *            the number of rows to measure
+         * @param logicalIndex
+         *            the logical index of the first row to measure
+         */
+        private void updateRowHeights(int visualIndex, int numberOfRows,
+                int logicalIndex) {
+            if (!variableRowHeights || numberOfRows <= 0) {
+                return;
+            }
+
+            Profiler.enter("Escalator.BodyRowContainer.updateRowHeights");
+
+            final List<TableRowElement> rows = new ArrayList<>(visualRowOrder
+                    .subList(visualIndex, visualIndex + numberOfRows));
+            for (TableRowElement tr : rows) {
+                Element cellElem = tr.getFirstChildElement();
+                while (cellElem != null) {
+                    cellElem.getStyle().clearHeight();
+                    cellElem = cellElem.getNextSiblingElement();
+                }
+            }
+
+            final double[] heights = new double[numberOfRows];
+            for (int i = 0; i < numberOfRows; i++) {
+                heights[i] = getBoundingHeight(rows.get(i));
+            }
+
+            /*
+             * Rows growing or shrinking above the viewport would move the
+             * content in the viewport, unless the scroll position follows.
+             */
+            final int viewportTopRow = getLogicalRowIndex(tBodyScrollTop);
+            double diffAboveViewport = 0;
+            boolean heightsChanged = false;
+
+            for (int i = 0; i < numberOfRows; i++) {
+                final double height = Math.max(heights[i],
+                        getDefaultRowHeight());
+                reapplyRowHeight(rows.get(i), height);
+
+                final int logical = logicalIndex + i;
+                final double delta = height - getDefaultRowHeight();
+                final double diff = delta - rowHeights.getHeightDelta(logical);
+                if (!WidgetUtil.pixelValuesEqual(diff, 0)) {
+                    rowHeights.setHeightDelta(logical, delta);
+                    heightsChanged = true;
+                    if (logical < viewportTopRow) {
+                        diffAboveViewport += diff;
+                    }
+                }
+            }
+
+            if (heightsChanged) {
+                repositionRows(logicalIndex - visualIndex);
+                scroller.recalculateScrollbarsForVirtualViewport();
+                if (diffAboveViewport != 0) {
+                    setBodyScrollPosition(tBodyScrollLeft,
+                            tBodyScrollTop + diffAboveViewport);
+                    verticalScrollbar.setScrollPosByDelta(diffAboveViewport);
+                }
+            }
+
+            Profiler.leave("Escalator.BodyRowContainer.updateRowHeights");
+        }
+
+        /**
+         * Places all escalator rows and spacers to their calculated positions.
+         *
+         * @param topLogicalIndex
+         *            the logical index of the first visual row
+         */
+        private void repositionRows(int topLogicalIndex) {
+            double rowTop = getRowTop(topLogicalIndex);
+            int logicalIndex = topLogicalIndex;
+            for (TableRowElement tr : visualRowOrder) {
+                setRowPosition(tr, 0, rowTop);
+                rowTop += getRowHeight(logicalIndex);
+                rowTop += spacerContainer.getSpacerHeight(logicalIndex);
+                logicalIndex++;
+            }
+            spacerContainer.repositionSpacers();
+        }
+
         @Override
         protected void paintInsertRows(final int index,
                 final int numberOfRows) {
@@ -2723,6 +2906,7 @@ public class Escalator extends Widget
             }
 
             spacerContainer.shiftSpacersByRows(index, numberOfRows);
+            rowHeights.insertRows(index, numberOfRows);
 
             /*
              * TODO: this method should probably only add physical rows, and not
@@ -2734,6 +2918,7 @@ public class Escalator extends Widget
              */
             final List<TableRowElement> addedRows = fillAndPopulateEscalatorRowsIfNeeded(
                     index, numberOfRows);
+            updateRowHeights(index, addedRows.size(), index);
 
             /*
              * insertRows will always change the number of rows - update the
@@ -2741,11 +2926,11 @@ public class Escalator extends Widget
              */
             scroller.recalculateScrollbarsForVirtualViewport();
 
-            final boolean addedRowsAboveCurrentViewport = index
-                    * getDefaultRowHeight() < getScrollTop();
-            final boolean addedRowsBelowCurrentViewport = index
-                    * getDefaultRowHeight() > getScrollTop()
-                            + getHeightOfSection();
+            final double addedRowsTop = getRowHeightsSumUntilIndex(index);
+            final boolean addedRowsAboveCurrentViewport = addedRowsTop
+                    < getScrollTop();
+            final boolean addedRowsBelowCurrentViewport = addedRowsTop
+                    > getScrollTop() + getHeightOfSection();
 
             if (addedRowsAboveCurrentViewport) {
                 /*
@@ -2791,8 +2976,8 @@ public class Escalator extends Widget
                             visualTargetIndex, unupdatedLogicalStart);
 
                     // move the surrounding rows to their correct places.
-                    double rowTop = (unupdatedLogicalStart + (end - start))
-                            * getDefaultRowHeight();
+                    double rowTop = getRowHeightsSumUntilIndex(
+                            unupdatedLogicalStart + (end - start));
 
                     // TODO: Get rid of this try/catch block by fixing the
                     // underlying issue. The reason for this erroneous behavior
@@ -2810,7 +2995,7 @@ public class Escalator extends Widget
 
                             final TableRowElement tr = i.next();
                             setRowPosition(tr, 0, rowTop);
-                            rowTop += getDefaultRowHeight();
+                            rowTop += getRowHeight(logicalRowIndexCursor - 1);
                         }
                     } catch (Exception e) {
                         Logger logger = getLogger();
@@ -2932,11 +3117,14 @@ public class Escalator extends Widget
                     final TableRowElement tr = iter.next();
                     setRowPosition(tr, 0, newRowTop);
 
-                    newRowTop += getDefaultRowHeight();
+                    newRowTop += getRowHeight(logicalTargetIndex + i);
                     newRowTop += spacerContainer
                             .getSpacerHeight(logicalTargetIndex + i);
                 }
             }
+
+            updateRowHeights(adjustedVisualTargetIndex,
+                    visualSourceRange.length(), logicalTargetIndex);
         }
 
         /**
@@ -3023,8 +3211,7 @@ public class Escalator extends Widget
                         index, escalatorRowsNeeded);
                 visualRowOrder.addAll(index, addedRows);
 
-                double y = index * getDefaultRowHeight()
-                        + spacerContainer.getSpacerHeightsSumUntilIndex(index);
+                double y = getRowTop(index);
                 for (int i = index; i < visualRowOrder.size(); i++) {
 
                     final TableRowElement tr;
@@ -3035,7 +3222,7 @@ public class Escalator extends Widget
                     }
 
                     setRowPosition(tr, 0, y);
-                    y += getDefaultRowHeight();
+                    y += getRowHeight(i);
                     y += spacerContainer.getSpacerHeight(i);
                 }
 
@@ -3098,6 +3285,16 @@ public class Escalator extends Widget
             final Range removedVisualInside = convertToVisual(
                     removedLogicalInside);
 
+            final double removedAboveHeightDelta;
+            if (variableRowHeights && !removedAbove.isEmpty()) {
+                removedAboveHeightDelta = rowHeights
+                        .getHeightDeltaSum(removedAbove.getEnd())
+                        - rowHeights.getHeightDeltaSum(removedAbove.getStart());
+            } else {
+                removedAboveHeightDelta = 0;
+            }
+            rowHeights.removeRows(index, numberOfRows);
+
             /*
              * TODO: extract the following if-block to a separate method. I'll
              * leave this be inlined for now, to make linediff-based code
@@ -3128,7 +3325,8 @@ public class Escalator extends Widget
                         * getDefaultRowHeight();
                 final double firstLogicalRowHeight = getDefaultRowHeight();
                 final boolean removalScrollsToShowFirstLogicalRow = verticalScrollbar
-                        .getScrollPos() - yDelta < firstLogicalRowHeight;
+                        .getScrollPos() - yDelta
+                        - removedAboveHeightDelta < firstLogicalRowHeight;
 
                 if (removedVisualInside.isEmpty()
                         && (!removalScrollsToShowFirstLogicalRow
@@ -3139,6 +3337,16 @@ public class Escalator extends Widget
                      * removed rows
                      */
                     moveViewportAndContent(-yDelta);
+                    if (removedAboveHeightDelta != 0) {
+                        /*
+                         * The rows are repositioned below, only the scroll
+                         * position needs to account for the removed heights.
+                         */
+                        setBodyScrollPosition(tBodyScrollLeft,
+                                tBodyScrollTop - removedAboveHeightDelta);
+                        verticalScrollbar
+                                .setScrollPosByDelta(-removedAboveHeightDelta);
+                    }
                 } else if (removalScrollsToShowFirstLogicalRow) {
                     /*
                      * It seems like we've removed all rows from above, and also
@@ -3205,8 +3413,8 @@ public class Escalator extends Widget
                      * double-refreshing.
                      */
 
-                    final double contentBottom = getRowCount()
-                            * getDefaultRowHeight();
+                    final double contentBottom = getRowHeightsSumUntilIndex(
+                            getRowCount());
                     final double viewportBottom = tBodyScrollTop
                             + getHeightOfSection();
                     if (viewportBottom <= contentBottom) {
@@ -3334,7 +3542,8 @@ public class Escalator extends Widget
                                 .getStart(); i < escalatorRowCount; i++) {
                             final TableRowElement tr = visualRowOrder.get(i);
                             setRowPosition(tr, 0, (int) newTop);
-                            newTop += getDefaultRowHeight();
+                            newTop += getRowHeight(
+                                    i + removedLogicalInside.getStart());
                             newTop += spacerContainer.getSpacerHeight(
                                     i + removedLogicalInside.getStart());
                         }
@@ -3405,6 +3614,10 @@ public class Escalator extends Widget
 
             updateTopRowLogicalIndex(-removedAbove.length());
 
+            if (variableRowHeights && !visualRowOrder.isEmpty()) {
+                repositionRows(getTopRowLogicalIndex());
+            }
+
             /*
              * this needs to be done after the escalator has been shrunk down,
              * or it won't work correctly (due to setScrollTop invocation)
@@ -3440,7 +3653,7 @@ public class Escalator extends Widget
                     - removedVisualInside.length(); i++) {
                 final TableRowElement tr = iterator.next();
                 setRowPosition(tr, 0, rowTop);
-                rowTop += getDefaultRowHeight();
+                rowTop += getRowHeight(i + removedLogicalInside.getStart());
                 rowTop += spacerContainer
                         .getSpacerHeight(i + removedLogicalInside.getStart());
             }
@@ -3471,7 +3684,7 @@ public class Escalator extends Widget
             while (iterator.hasNext()) {
                 final TableRowElement tr = iterator.next();
                 setRowPosition(tr, 0, rowTop);
-                rowTop += getDefaultRowHeight();
+                rowTop += getRowHeight(firstUpdatedIndex + i);
                 rowTop += spacerContainer
                         .getSpacerHeight(firstUpdatedIndex + i++);
             }
@@ -3565,6 +3778,8 @@ public class Escalator extends Widget
                     refreshRow(visualRowOrder.get(rowNumber),
                             firstLogicalRowIndex + rowNumber, colRange);
                 }
+                updateRowHeights(visualRange.getStart(), visualRange.length(),
+                        firstLogicalRowIndex + visualRange.getStart());
             }
 
             Profiler.leave("Escalator.BodyRowContainer.refreshRows");
@@ -3765,6 +3980,9 @@ public class Escalator extends Widget
 
         @Override
         protected void reapplyDefaultRowHeights() {
+            // Row heights are relative to the default row height
+            rowHeights.reset(getRowCount());
+
             if (visualRowOrder.isEmpty()) {
                 return;
             }
@@ -3809,6 +4027,8 @@ public class Escalator extends Widget
                     / getDefaultRowHeight());
             setTopRowLogicalIndex(logicalLogical);
 
+            updateRowHeights(0, visualRowOrder.size(), logicalLogical);
+
             Profiler.leave(
                     "Escalator.BodyRowContainer.reapplyDefaultRowHeights");
         }
@@ -3974,7 +4194,9 @@ public class Escalator extends Widget
          * <p>
          * A correct result requires that both {@link #getDefaultRowHeight()} is
          * consistent, and the placement and height of all spacers above the
-         * given logical index are consistent.
+         * given logical index are consistent. With variable row heights, the
+         * rows above the given logical index are assumed to be of the height
+         * they were last measured to be.
          *
          * @param logicalIndex
          *            the logical index of the row for which to calculate the
@@ -3985,7 +4207,7 @@ public class Escalator extends Widget
         private double getRowTop(int logicalIndex) {
             double top = spacerContainer
                     .getSpacerHeightsSumUntilIndex(logicalIndex);
-            return top + (logicalIndex * getDefaultRowHeight());
+            return top + getRowHeightsSumUntilIndex(logicalIndex);
         }
 
         public void shiftRowPositions(int row, double diff) {
@@ -4656,7 +4878,7 @@ public class Escalator extends Widget
             }
 
             private double getSpacerDecoTopOffset() {
-                return getBody().getDefaultRowHeight();
+                return body.getRowHeight(getRow());
             }
 
             public void setStylePrimaryName(String style) {
@@ -4769,7 +4991,7 @@ public class Escalator extends Widget
             /** Resizes and places the decorator. */
             private void updateDecoratorGeometry(double detailsHeight) {
                 Style style = deco.getStyle();
-                decoHeight = detailsHeight + getBody().getDefaultRowHeight();
+                decoHeight = detailsHeight + body.getRowHeight(getRow());
                 style.setHeight(decoHeight, Unit.PX);
             }
 
@@ -5414,7 +5636,18 @@ public class Escalator extends Widget
         }
 
         private double calculateSpacerTop(int logicalIndex) {
-            return body.getRowTop(logicalIndex) + body.getDefaultRowHeight();
+            return body.getRowTop(logicalIndex)
+                    + body.getRowHeight(logicalIndex);
+        }
+
+        /**
+         * Places all spacers to their calculated positions.
+         */
+        public void repositionSpacers() {
+            for (SpacerImpl spacer : rowIndexToSpacer.values()) {
+                spacer.setPosition(spacer.getLeft(),
+                        calculateSpacerTop(spacer.getRow()));
+            }
         }
 
         @SuppressWarnings("boxing")
@@ -6401,6 +6634,63 @@ public class Escalator extends Widget
                 RowVisibilityChangeEvent.TYPE);
     }
 
+    private void refreshBodyColumns(Range columns) {
+        if (!columns.isEmpty()) {
+            body.refreshColumns(columns.getStart(), columns.length());
+        }
+    }
+
+    /**
+     * Refreshes the content of the body cells in the given columns, leaving
+     * the header and the footer untouched. Useful when the data of some
+     * columns has changed without the rest of the rows changing.
+     *
+     * @since 8.1
+     * @param index
+     *            the index of the first column to refresh
+     * @param numberOfColumns
+     *            the number of columns to refresh
+     * @throws IndexOutOfBoundsException
+     *             if the column range is outside the current columns
+     * @see ColumnConfiguration#refreshColumns(int, int)
+     */
+    public void refreshBodyColumns(int index, int numberOfColumns)
+            throws IndexOutOfBoundsException {
+        if (index < 0 || index + numberOfColumns > columnConfiguration
+                .getColumnCount()) {
+            throw new IndexOutOfBoundsException("The given column range ("
+                    + index + ".." + (index + numberOfColumns)
+                    + ") was outside of the current number of columns ("
+                    + columnConfiguration.getColumnCount() + ")");
+        }
+        refreshBodyColumns(Range.withLength(index, numberOfColumns));
+    }
+
+    /**
+     * Refreshes the content of a single body cell, leaving the other cells of
+     * the row untouched. Does nothing if the row is not currently in the DOM.
+     *
+     * @since 8.1
+     * @param rowIndex
+     *            the logical index of the row of the cell
+     * @param columnIndex
+     *            the index of the column of the cell
+     * @throws IndexOutOfBoundsException
+     *             if the column index is outside the current columns
+     */
+    public void refreshBodyCell(int rowIndex, int columnIndex)
+            throws IndexOutOfBoundsException {
+        if (columnIndex < 0
+                || columnIndex >= columnConfiguration.getColumnCount()) {
+            throw new IndexOutOfBoundsException("The given column index ("
+                    + columnIndex
+                    + ") was outside of the current number of columns ("
+                    + columnConfiguration.getColumnCount() + ")");
+        }
+        body.refreshCells(Range.withOnly(rowIndex),
+                Range.withOnly(columnIndex));
+    }
+
     private void fireRowVisibilityChangeEvent() {
         if (!body.visualRowOrder.isEmpty()) {
             int visibleRangeStart = body
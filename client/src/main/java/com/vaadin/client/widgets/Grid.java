@@ -3647,7 +3647,7 @@ public class Grid<T> extends ResizeComposite implements HasSelectionHandlers<T>,
             Element spacerElement = spacer.getElement();
             if (detailsWidget == null) {
                 spacerElement.removeAllChildren();
-                spacerHeight = DETAILS_ROW_INITIAL_HEIGHT;
+                spacerHeight = getEstimatedDetailsHeight(rowIndex);
             } else {
                 Element element = detailsWidget.getElement();
                 spacerElement.appendChild(element);
@@ -3723,6 +3723,17 @@ public class Grid<T> extends ResizeComposite implements HasSelectionHandlers<T>,
             }
         }
 
+        private double getEstimatedDetailsHeight(int rowIndex) {
+            if (detailsGenerator instanceof HeightAwareDetailsGenerator) {
+                HeightAwareDetailsGenerator sadg = (HeightAwareDetailsGenerator) detailsGenerator;
+                double estimate = sadg.getEstimatedDetailsHeight(rowIndex);
+                if (estimate >= 0) {
+                    return estimate;
+                }
+            }
+            return DETAILS_ROW_INITIAL_HEIGHT;
+        }
+
         private void initTheming(Spacer spacer) {
             Element spacerRoot = spacer.getElement();
 
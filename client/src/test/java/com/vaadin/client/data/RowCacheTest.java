@@ -0,0 +1,221 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.client.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.vaadin.shared.Range;
+
+public class RowCacheTest {
+
+    private final RowCache<String> cache = new RowCache<>(row -> row);
+
+    @Test
+    public void putAndGet() {
+        putRows(10, 20);
+
+        assertEquals(Range.between(10, 20), cache.getRange());
+        assertEquals("row15", cache.get(15));
+        assertEquals(15, cache.indexOf("row15"));
+        assertNull(cache.get(9));
+        assertNull(cache.get(20));
+        assertEquals(-1, cache.indexOf("row20"));
+    }
+
+    @Test
+    public void putBeforeAndAfter_rangeExtended() {
+        putRows(10, 20);
+        putRows(0, 10);
+        putRows(20, 100);
+
+        assertEquals(Range.between(0, 100), cache.getRange());
+        for (int i = 0; i < 100; i++) {
+            assertEquals("row" + i, cache.get(i));
+            assertEquals(i, cache.indexOf("row" + i));
+        }
+    }
+
+    @Test
+    public void put_replacesRow() {
+        putRows(0, 5);
+        cache.put(2, "other");
+
+        assertEquals("other", cache.get(2));
+        assertFalse(cache.containsKey("row2"));
+        assertEquals(2, cache.indexOf("other"));
+    }
+
+    @Test
+    public void remove_rangeTrimmed() {
+        putRows(0, 10);
+
+        assertEquals("row0", cache.remove(0));
+        assertEquals("row9", cache.remove(9));
+        assertEquals("row5", cache.remove(5));
+
+        assertEquals(Range.between(1, 9), cache.getRange());
+        assertNull(cache.get(5));
+        assertFalse(cache.containsKey("row5"));
+        assertEquals(6, cache.indexOf("row6"));
+    }
+
+    @Test
+    public void shift_rowsMoved() {
+        putRows(10, 20);
+        cache.shift(5);
+
+        assertEquals(Range.between(15, 25), cache.getRange());
+        assertEquals("row10", cache.get(15));
+        assertEquals(15, cache.indexOf("row10"));
+    }
+
+    @Test
+    public void collapse_beforeRange() {
+        putRows(10, 20);
+        cache.collapse(0, 5);
+
+        assertEquals(Range.between(5, 15), cache.getRange());
+        assertEquals(5, cache.indexOf("row10"));
+    }
+
+    @Test
+    public void collapse_middleOfRange() {
+        putRows(10, 20);
+        cache.collapse(12, 2);
+        // Closer to the end
+        cache.collapse(15, 1);
+
+        assertEquals(Range.between(10, 17), cache.getRange());
+        assertFalse(cache.containsKey("row12"));
+        assertFalse(cache.containsKey("row17"));
+        assertEquals(11, cache.indexOf("row11"));
+        assertEquals(12, cache.indexOf("row14"));
+        assertEquals("row19", cache.get(16));
+    }
+
+    @Test
+    public void collapse_overlappingStart() {
+        putRows(10, 20);
+        cache.collapse(5, 10);
+
+        assertEquals(Range.between(5, 10), cache.getRange());
+        assertEquals("row15", cache.get(5));
+        assertEquals(5, cache.indexOf("row15"));
+    }
+
+    @Test
+    public void collapse_overlappingEnd() {
+        putRows(10, 20);
+        cache.collapse(15, 10);
+
+        assertEquals(Range.between(10, 15), cache.getRange());
+        assertFalse(cache.containsKey("row15"));
+    }
+
+    @Test
+    public void clear_empty() {
+        putRows(10, 20);
+        cache.clear();
+
+        assertTrue(cache.getRange().isEmpty());
+        assertNull(cache.get(10));
+        assertFalse(cache.containsKey("row10"));
+    }
+
+    @Test
+    public void randomOperations_matchMapImplementation() {
+        Random random = new Random(42);
+        Map<Integer, String> expected = new HashMap<>();
+        int counter = 0;
+
+        for (int round = 0; round < 2000; round++) {
+            int start = expected.isEmpty() ? random.nextInt(50)
+                    : cache.getRange().getStart() + random.nextInt(40) - 20;
+            int count = 1 + random.nextInt(10);
+            switch (random.nextInt(4)) {
+            case 0:
+                // Keep the rows contiguous like the data source does
+                Range range = cache.getRange();
+                if (!expected.isEmpty()) {
+                    start = random.nextBoolean() ? range.getEnd()
+                            : Math.max(0, range.getStart() - count);
+                }
+                for (int i = start; i < start + count; i++) {
+                    String row = "row" + counter++;
+                    cache.put(i, row);
+                    expected.put(i, row);
+                }
+                break;
+            case 1:
+                for (int i = start; i < start + count; i++) {
+                    assertEquals(expected.remove(i), cache.remove(i));
+                }
+                break;
+            case 2:
+                cache.collapse(start, count);
+                Map<Integer, String> collapsed = new HashMap<>();
+                for (Map.Entry<Integer, String> entry : expected
+                        .entrySet()) {
+                    int index = entry.getKey();
+                    if (index < start) {
+                        collapsed.put(index, entry.getValue());
+                    } else if (index >= start + count) {
+                        collapsed.put(index - count, entry.getValue());
+                    }
+                }
+                expected = collapsed;
+                break;
+            default:
+                int delta = random.nextInt(20) - 5;
+                if (cache.getRange().getStart() + delta < 0) {
+                    delta = 0;
+                }
+                cache.shift(delta);
+                Map<Integer, String> shifted = new HashMap<>();
+                for (Map.Entry<Integer, String> entry : expected
+                        .entrySet()) {
+                    shifted.put(entry.getKey() + delta, entry.getValue());
+                }
+                expected = shifted;
+            }
+
+            for (Map.Entry<Integer, String> entry : expected.entrySet()) {
+                assertEquals(entry.getValue(), cache.get(entry.getKey()));
+                assertEquals(entry.getKey().intValue(),
+                        cache.indexOf(entry.getValue()));
+            }
+            Range range = cache.getRange();
+            for (int i = range.getStart(); i < range.getEnd(); i++) {
+                assertEquals(expected.get(i), cache.get(i));
+            }
+        }
+    }
+
+    private void putRows(int start, int end) {
+        for (int i = start; i < end; i++) {
+            cache.put(i, "row" + i);
+        }
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.client.widget.escalator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class RowHeightTreeTest {
+
+    private static final double DEFAULT_HEIGHT = 20;
+
+    private final RowHeightTree tree = new RowHeightTree();
+
+    @Test
+    public void noDeltas_behavesAsDefaultHeights() {
+        tree.reset(100);
+
+        assertFalse(tree.hasHeightDeltas());
+        assertEquals(0, tree.getHeightDeltaSum(50), 0);
+        assertEquals(0, tree.getRowIndexAt(19.9, DEFAULT_HEIGHT));
+        assertEquals(1, tree.getRowIndexAt(20, DEFAULT_HEIGHT));
+        assertEquals(50, tree.getRowIndexAt(1005, DEFAULT_HEIGHT));
+    }
+
+    @Test
+    public void setHeightDelta_sumsUpdated() {
+        tree.reset(10);
+        tree.setHeightDelta(2, 10);
+        tree.setHeightDelta(5, 30);
+
+        assertTrue(tree.hasHeightDeltas());
+        assertEquals(0, tree.getHeightDeltaSum(2), 0);
+        assertEquals(10, tree.getHeightDeltaSum(3), 0);
+        assertEquals(10, tree.getHeightDeltaSum(5), 0);
+        assertEquals(40, tree.getHeightDeltaSum(6), 0);
+        assertEquals(40, tree.getTotalHeightDelta(), 0);
+
+        tree.setHeightDelta(2, 0);
+        assertEquals(30, tree.getTotalHeightDelta(), 0);
+        tree.setHeightDelta(5, 0);
+        assertFalse(tree.hasHeightDeltas());
+        assertEquals(0, tree.getTotalHeightDelta(), 0);
+    }
+
+    @Test
+    public void getRowIndexAt_tallRow() {
+        tree.reset(10);
+        // Row 1 is [20..70)
+        tree.setHeightDelta(1, 30);
+
+        assertEquals(0, tree.getRowIndexAt(0, DEFAULT_HEIGHT));
+        assertEquals(1, tree.getRowIndexAt(20, DEFAULT_HEIGHT));
+        assertEquals(1, tree.getRowIndexAt(69, DEFAULT_HEIGHT));
+        assertEquals(2, tree.getRowIndexAt(70, DEFAULT_HEIGHT));
+        assertEquals(9, tree.getRowIndexAt(229, DEFAULT_HEIGHT));
+        assertEquals(10, tree.getRowIndexAt(230, DEFAULT_HEIGHT));
+        assertEquals(12, tree.getRowIndexAt(270, DEFAULT_HEIGHT));
+    }
+
+    @Test
+    public void insertAndRemoveRows_deltasMoveWithRows() {
+        tree.reset(5);
+        tree.setHeightDelta(1, 10);
+        tree.setHeightDelta(3, 30);
+
+        tree.insertRows(2, 3);
+        assertEquals(8, tree.size());
+        assertEquals(10, tree.getHeightDelta(1), 0);
+        assertEquals(0, tree.getHeightDelta(2), 0);
+        assertEquals(30, tree.getHeightDelta(6), 0);
+        assertEquals(10, tree.getHeightDeltaSum(6), 0);
+
+        tree.removeRows(0, 2);
+        assertEquals(6, tree.size());
+        assertEquals(30, tree.getHeightDelta(4), 0);
+        assertEquals(30, tree.getTotalHeightDelta(), 0);
+
+        tree.removeRows(4, 1);
+        assertFalse(tree.hasHeightDeltas());
+        assertEquals(5, tree.size());
+    }
+
+    @Test
+    public void randomOperations_matchNaiveModel() {
+        Random random = new Random(42);
+        List<Double> model = new ArrayList<>();
+        tree.reset(0);
+
+        for (int round = 0; round < 2000; round++) {
+            int operation = random.nextInt(4);
+            if (operation == 0 || model.isEmpty()) {
+                int index = random.nextInt(model.size() + 1);
+                int count = random.nextInt(5);
+                for (int i = 0; i < count; i++) {
+                    model.add(index, 0.0);
+                }
+                tree.insertRows(index, count);
+            } else if (operation == 1) {
+                int index = random.nextInt(model.size());
+                int count = random.nextInt(model.size() - index + 1);
+                model.subList(index, index + count).clear();
+                tree.removeRows(index, count);
+            } else {
+                int index = random.nextInt(model.size());
+                double delta = random.nextBoolean() ? 0
+                        : random.nextInt(100);
+                model.set(index, delta);
+                tree.setHeightDelta(index, delta);
+            }
+
+            assertEquals(model.size(), tree.size());
+            double top = 0;
+            for (int i = 0; i < model.size(); i++) {
+                assertEquals(top - i * DEFAULT_HEIGHT,
+                        tree.getHeightDeltaSum(i), 0.0001);
+                double height = DEFAULT_HEIGHT + model.get(i);
+                assertEquals(i, tree.getRowIndexAt(top, DEFAULT_HEIGHT));
+                assertEquals(i, tree.getRowIndexAt(top + height - 0.5,
+                        DEFAULT_HEIGHT));
+                top += height;
+            }
+        }
+    }
+}
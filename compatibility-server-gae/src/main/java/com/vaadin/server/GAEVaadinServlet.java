@@ -15,12 +15,8 @@
  */
 package com.vaadin.server;
 
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.NotSerializableException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
@@ -114,6 +110,9 @@ public class GAEVaadinServlet extends VaadinServlet {
     // used identify ApplicationContext in memcache and datastore
     private static final String AC_BASE = "_vac";
 
+    // Separates the session id from the UI id in the keys of UI entries
+    private static final String UI_KEY_SEPARATOR = "_ui";
+
     // UIDL requests will attempt to gain access for this long before telling
     // the client to retry
     private static final int MAX_UIDL_WAIT_MILLISECONDS = 5000;
@@ -248,28 +247,9 @@ public class GAEVaadinServlet extends VaadinServlet {
 
             super.service(request, response);
 
-            // serialize
-            started = new Date().getTime();
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ObjectOutputStream oos = new ObjectOutputStream(baos);
-            oos.writeObject(ctx);
-            oos.flush();
-            byte[] bytes = baos.toByteArray();
-
-            started = new Date().getTime();
-
-            String id = AC_BASE + session.getId();
-            Date expire = new Date(
-                    started + getMaxInactiveIntervalSeconds(session) * 1000);
-            Expiration expires = Expiration.onDate(expire);
-
-            memcache.put(id, bytes, expires);
-
-            DatastoreService ds = DatastoreServiceFactory.getDatastoreService();
-            Entity entity = new Entity(AC_BASE, id);
-            entity.setProperty(PROPERTY_EXPIRES, expire.getTime());
-            entity.setProperty(PROPERTY_DATA, new Blob(bytes));
-            ds.put(entity);
+            // serialize the session and the UIs changed by the request
+            createSessionPersistence(memcache, session).save(session.getId(),
+                    ctx);
 
         } catch (DeadlineExceededException e) {
             getLogger().log(Level.WARNING, "DeadlineExceeded for {0}",
@@ -315,58 +295,52 @@ public class GAEVaadinServlet extends VaadinServlet {
     protected VaadinSession getApplicationContext(HttpServletRequest request,
             MemcacheService memcache) throws ServletException {
         HttpSession session = request.getSession();
-        String id = AC_BASE + session.getId();
-        byte[] serializedAC = (byte[]) memcache.get(id);
-        if (serializedAC == null) {
-            DatastoreService ds = DatastoreServiceFactory.getDatastoreService();
-            Key key = KeyFactory.createKey(AC_BASE, id);
-            Entity entity = null;
-            try {
-                entity = ds.get(key);
-            } catch (EntityNotFoundException e) {
-                // Ok, we were a bit optimistic; we'll create a new one later
-            }
-            if (entity != null) {
-                Blob blob = (Blob) entity.getProperty(PROPERTY_DATA);
-                serializedAC = blob.getBytes();
-                // bring it to memcache
-                memcache.put(AC_BASE + session.getId(), serializedAC,
-                        Expiration.byDeltaSeconds(
-                                getMaxInactiveIntervalSeconds(session)),
-                        MemcacheService.SetPolicy.ADD_ONLY_IF_NOT_PRESENT);
-            }
-        }
-        if (serializedAC != null) {
-            ByteArrayInputStream bais = new ByteArrayInputStream(serializedAC);
-            ObjectInputStream ois;
-            try {
-                ois = new ObjectInputStream(bais);
-                VaadinSession vaadinSession = (VaadinSession) ois.readObject();
-                getService().storeSession(vaadinSession,
-                        new WrappedHttpSession(session));
-            } catch (IOException e) {
-                getLogger().log(Level.WARNING,
-                        "Could not de-serialize ApplicationContext for "
-                                + session.getId()
-                                + " A new one will be created. ",
-                        e);
-            } catch (ClassNotFoundException e) {
-                getLogger().log(Level.WARNING,
-                        "Could not de-serialize ApplicationContext for "
-                                + session.getId()
-                                + " A new one will be created. ",
-                        e);
+        ShardedSessionPersistence persistence = createSessionPersistence(
+                memcache, session);
+        VaadinRequest vaadinRequest = createVaadinRequest(request);
+        WrappedSession wrappedSession = new WrappedHttpSession(session);
+        getService().lockSession(wrappedSession);
+        try {
+            // Only load the UI targeted by the request, the other UIs are
+            // loaded if needed
+            VaadinSession vaadinSession = persistence.load(session.getId(),
+                    vaadinRequest);
+            if (vaadinSession != null) {
+                getService().storeSession(vaadinSession, wrappedSession);
             }
+        } catch (IOException | ClassNotFoundException e) {
+            getLogger().log(Level.WARNING,
+                    "Could not de-serialize ApplicationContext for "
+                            + session.getId() + " A new one will be created. ",
+                    e);
+        } finally {
+            getService().unlockSession(wrappedSession);
         }
 
         // will create new context if the above did not
         try {
-            return getService().findVaadinSession(createVaadinRequest(request));
+            return getService().findVaadinSession(vaadinRequest);
         } catch (Exception e) {
             throw new ServletException(e);
         }
     }
 
+    /**
+     * Creates the persistence used for storing the Vaadin session of the given
+     * HTTP session in memcache and the datastore.
+     *
+     * @param memcache
+     *            the memcache service
+     * @param session
+     *            the HTTP session
+     * @return the session persistence
+     */
+    protected ShardedSessionPersistence createSessionPersistence(
+            MemcacheService memcache, HttpSession session) {
+        return new ShardedSessionPersistence(new GAESessionStore(memcache,
+                getMaxInactiveIntervalSeconds(session)));
+    }
+
     private boolean isCleanupRequest(HttpServletRequest request) {
         String path = request.getPathInfo();
         if (path != null && path.equals(CLEANUP_PATH)) {
@@ -466,4 +440,99 @@ public class GAEVaadinServlet extends VaadinServlet {
     private static final Logger getLogger() {
         return Logger.getLogger(GAEVaadinServlet.class.getName());
     }
+
+    /**
+     * Session store keeping the session and UI entries in memcache, backed by
+     * the datastore. The entries of expired sessions are removed from the
+     * datastore by {@link GAEVaadinServlet#cleanDatastore()}.
+     */
+    private static class GAESessionStore implements SessionStore {
+
+        private final transient MemcacheService memcache;
+        private final int expirationSeconds;
+
+        public GAESessionStore(MemcacheService memcache,
+                int expirationSeconds) {
+            this.memcache = memcache;
+            this.expirationSeconds = expirationSeconds;
+        }
+
+        @Override
+        public byte[] loadSession(String sessionId) {
+            return load(AC_BASE + sessionId);
+        }
+
+        @Override
+        public void storeSession(String sessionId, byte[] data) {
+            store(AC_BASE + sessionId, data);
+        }
+
+        @Override
+        public byte[] loadUI(String sessionId, int uiId) {
+            return load(getUIKey(sessionId, uiId));
+        }
+
+        @Override
+        public void storeUI(String sessionId, int uiId, byte[] data) {
+            store(getUIKey(sessionId, uiId), data);
+        }
+
+        @Override
+        public void removeUI(String sessionId, int uiId) {
+            remove(getUIKey(sessionId, uiId));
+        }
+
+        @Override
+        public void removeSession(String sessionId) {
+            // The UI entries expire with the session
+            remove(AC_BASE + sessionId);
+        }
+
+        private static String getUIKey(String sessionId, int uiId) {
+            return AC_BASE + sessionId + UI_KEY_SEPARATOR + uiId;
+        }
+
+        private byte[] load(String id) {
+            byte[] data = (byte[]) memcache.get(id);
+            if (data == null) {
+                DatastoreService ds = DatastoreServiceFactory
+                        .getDatastoreService();
+                Key key = KeyFactory.createKey(AC_BASE, id);
+                Entity entity = null;
+                try {
+                    entity = ds.get(key);
+                } catch (EntityNotFoundException e) {
+                    // Ok, we were a bit optimistic; we'll create a new one
+                    // later
+                }
+                if (entity != null) {
+                    Blob blob = (Blob) entity.getProperty(PROPERTY_DATA);
+                    data = blob.getBytes();
+                    // bring it to memcache
+                    memcache.put(id, data,
+                            Expiration.byDeltaSeconds(expirationSeconds),
+                            MemcacheService.SetPolicy.ADD_ONLY_IF_NOT_PRESENT);
+                }
+            }
+            return data;
+        }
+
+        private void store(String id, byte[] data) {
+            Date expire = new Date(
+                    System.currentTimeMillis() + expirationSeconds * 1000L);
+            memcache.put(id, data, Expiration.onDate(expire));
+
+            DatastoreService ds = DatastoreServiceFactory.getDatastoreService();
+            Entity entity = new Entity(AC_BASE, id);
+            entity.setProperty(PROPERTY_EXPIRES, expire.getTime());
+            entity.setProperty(PROPERTY_DATA, new Blob(data));
+            ds.put(entity);
+        }
+
+        private void remove(String id) {
+            memcache.delete(id);
+            DatastoreServiceFactory.getDatastoreService()
+                    .delete(KeyFactory.createKey(AC_BASE, id));
+        }
+    }
 }
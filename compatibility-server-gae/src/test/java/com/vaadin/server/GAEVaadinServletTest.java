@@ -0,0 +1,156 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.google.appengine.api.memcache.MemcacheService;
+import com.vaadin.shared.ui.ui.UIConstants;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+import com.vaadin.util.CurrentInstance;
+
+public class GAEVaadinServletTest {
+
+    private static final String SESSION_ID = "session";
+
+    private final InMemorySessionStore store = new InMemorySessionStore();
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    private GAEVaadinServlet servlet;
+    private HttpSession httpSession;
+    private MemcacheService memcache;
+    private VaadinSession loaded;
+    private UI ui1;
+    private UI ui2;
+
+    @Before
+    public void setup() throws Exception {
+        servlet = new GAEVaadinServlet() {
+            @Override
+            protected ShardedSessionPersistence createSessionPersistence(
+                    MemcacheService memcache, HttpSession session) {
+                return new ShardedSessionPersistence(store);
+            }
+        };
+        servlet.init(new MockServletConfig());
+        memcache = Mockito.mock(MemcacheService.class);
+
+        httpSession = Mockito.mock(HttpSession.class);
+        Mockito.when(httpSession.getId()).thenReturn(SESSION_ID);
+        Mockito.when(httpSession.getAttribute(Mockito.anyString()))
+                .thenAnswer(invocation -> attributes
+                        .get(invocation.getArguments()[0]));
+        Mockito.doAnswer(invocation -> attributes.put(
+                (String) invocation.getArguments()[0],
+                invocation.getArguments()[1])).when(httpSession)
+                .setAttribute(Mockito.anyString(), Mockito.any());
+
+        MockVaadinSession session = new MockVaadinSession(
+                servlet.getService());
+        session.lock();
+        try {
+            ui1 = createUI(session, "first");
+            ui2 = createUI(session, "second");
+            servlet.createSessionPersistence(memcache, httpSession)
+                    .save(SESSION_ID, session);
+        } finally {
+            session.unlock();
+        }
+    }
+
+    @After
+    public void tearDown() {
+        if (loaded != null) {
+            loaded.getLockInstance().unlock();
+        }
+        CurrentInstance.clearAll();
+    }
+
+    @Test
+    public void getApplicationContext_targetedUILoaded() throws Exception {
+        loadApplicationContext(ui2);
+
+        Assert.assertTrue(loaded.isPartiallyLoaded());
+        Assert.assertEquals(1, loaded.getLoadedUIs().size());
+        UI loadedUI = loaded.getLoadedUIs().iterator().next();
+        Assert.assertEquals(ui2.getUIId(), loadedUI.getUIId());
+        Assert.assertSame(loaded, loadedUI.getSession());
+        Assert.assertSame(servlet.getService(), loaded.getService());
+    }
+
+    @Test
+    public void getApplicationContext_getUIs_allUIsLoaded() throws Exception {
+        loadApplicationContext(ui2);
+
+        Assert.assertEquals(2, loaded.getUIs().size());
+        Assert.assertFalse(loaded.isPartiallyLoaded());
+        Assert.assertEquals("first", getLabel(ui1).getValue());
+    }
+
+    @Test
+    public void changedUISaved_changesLoadedByNextRequest() throws Exception {
+        loadApplicationContext(ui1);
+        getLabel(ui1).setValue("changed");
+        servlet.createSessionPersistence(memcache, httpSession)
+                .save(SESSION_ID, loaded);
+        loaded.getLockInstance().unlock();
+        loaded = null;
+        attributes.clear();
+
+        loadApplicationContext(ui1);
+
+        Assert.assertEquals("changed", getLabel(ui1).getValue());
+        Assert.assertEquals("second", getLabel(ui2).getValue());
+    }
+
+    private UI createUI(VaadinSession session, String value) {
+        UI ui = new MockUI(session);
+        ui.doInit(Mockito.mock(VaadinRequest.class), session.getNextUIid(),
+                null);
+        ui.setContent(new Label(value));
+        session.addUI(ui);
+        return ui;
+    }
+
+    private void loadApplicationContext(UI ui) throws Exception {
+        HttpServletRequest request = Mockito.mock(HttpServletRequest.class);
+        Mockito.when(request.getSession()).thenReturn(httpSession);
+        Mockito.when(request.getSession(Mockito.anyBoolean()))
+                .thenReturn(httpSession);
+        Mockito.when(request.getPathInfo()).thenReturn("/UIDL/");
+        Mockito.when(request.getParameter(UIConstants.UI_ID_PARAMETER))
+                .thenReturn(String.valueOf(ui.getUIId()));
+
+        loaded = servlet.getApplicationContext(request, memcache);
+        loaded.getLockInstance().lock();
+    }
+
+    private Label getLabel(UI ui) {
+        return (Label) loaded.getUIById(ui.getUIId()).getContent();
+    }
+}
@@ -494,6 +494,23 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
         }
     }
 
+    /**
+     * Updates the filtering after the given item has been added or a value of
+     * a filtered property of the item has changed, and sends a notification if
+     * the set of visible items changed in any way.
+     * <p>
+     * The default implementation filters the whole container using
+     * {@link #filterAll()}. Subclasses can override this to only re-evaluate
+     * the items affected by the change.
+     *
+     * @since 8.1
+     * @param itemId
+     *            the identifier of the changed item
+     */
+    protected void filterItem(Object itemId) {
+        filterAll();
+    }
+
     /**
      * Filters the data in the container and updates internal data structures.
      * This method should reset any internal data structures and then repopulate
@@ -875,8 +892,8 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
         ITEMCLASS newItem = internalAddAt(getAllItemIds().size(), newItemId,
                 item);
         if (newItem != null && filter) {
-            // TODO filter only this item, use fireItemAdded()
-            filterAll();
+            // TODO use fireItemAdded()
+            filterItem(newItemId);
             if (!isFiltered()) {
                 // TODO hack: does not detect change in filterAll() in this case
                 fireItemAdded(indexOfId(newItemId), newItemId, item);
@@ -915,8 +932,8 @@ public abstract class AbstractInMemoryContainer<ITEMIDTYPE, PROPERTYIDCLASS, ITE
                     newItemId, item);
         }
         if (newItem != null && filter) {
-            // TODO filter only this item, use fireItemAdded()
-            filterAll();
+            // TODO use fireItemAdded()
+            filterItem(newItemId);
             if (!isFiltered()) {
                 // TODO hack: does not detect change in filterAll() in this case
                 fireItemAdded(indexOfId(newItemId), newItemId, item);
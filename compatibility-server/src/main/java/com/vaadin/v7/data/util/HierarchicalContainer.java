@@ -16,12 +16,13 @@
 
 package com.vaadin.v7.data.util;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -64,28 +65,34 @@ public class HierarchicalContainer extends IndexedContainer
     /**
      * Mapping from Item ID to a list of child IDs.
      */
-    private final HashMap<Object, LinkedList<Object>> children = new HashMap<Object, LinkedList<Object>>();
+    private final HashMap<Object, ArrayList<Object>> children = new HashMap<Object, ArrayList<Object>>();
 
     /**
      * Mapping from Item ID to a list of child IDs when filtered
      */
-    private HashMap<Object, LinkedList<Object>> filteredChildren = null;
+    private HashMap<Object, ArrayList<Object>> filteredChildren = null;
 
     /**
      * List that contains all root elements of the container.
      */
-    private final LinkedList<Object> roots = new LinkedList<Object>();
+    private final ArrayList<Object> roots = new ArrayList<Object>();
 
     /**
      * List that contains all filtered root elements of the container.
      */
-    private LinkedList<Object> filteredRoots = null;
+    private ArrayList<Object> filteredRoots = null;
 
     /**
      * Determines how filtering of the container is done.
      */
     private boolean includeParentsWhenFiltering = true;
 
+    /**
+     * Determines if changes to single items update only the affected path of
+     * the filtered hierarchy instead of re-filtering the whole container.
+     */
+    private boolean incrementalFiltering = false;
+
     /**
      * Counts how many nested contents change disable calls are in progress.
      *
@@ -114,7 +121,7 @@ public class HierarchicalContainer extends IndexedContainer
      */
     @Override
     public Collection<?> getChildren(Object itemId) {
-        LinkedList<Object> c;
+        ArrayList<Object> c;
 
         if (filteredChildren != null) {
             c = filteredChildren.get(itemId);
@@ -162,10 +169,10 @@ public class HierarchicalContainer extends IndexedContainer
      */
     @Override
     public boolean isRoot(Object itemId) {
-        // If the container is filtered the itemId must be among filteredRoots
-        // to be a root.
-        if (filteredRoots != null) {
-            if (!filteredRoots.contains(itemId)) {
+        // If the container is filtered the itemId must not have a filtered
+        // parent to be a root. Only filtered items have a filtered parent.
+        if (filteredParent != null) {
+            if (filteredParent.containsKey(itemId)) {
                 return false;
             }
         } else {
@@ -272,7 +279,7 @@ public class HierarchicalContainer extends IndexedContainer
             // roots)
 
             // Removes from old parents children list
-            final LinkedList<Object> l = children.get(oldParentId);
+            final ArrayList<Object> l = children.get(oldParentId);
             if (l != null) {
                 l.remove(itemId);
                 if (l.isEmpty()) {
@@ -291,7 +298,7 @@ public class HierarchicalContainer extends IndexedContainer
                 // Refilter the container if setParent is called when filters
                 // are applied. Changing parent can change what is included in
                 // the filtered version (if includeParentsWhenFiltering==true).
-                doFilterContainer(hasFilters());
+                refilterAfterParentChange(itemId, oldParentId);
             }
 
             fireItemSetChange();
@@ -325,11 +332,11 @@ public class HierarchicalContainer extends IndexedContainer
 
         // Updates parent
         parent.put(itemId, newParentId);
-        LinkedList<Object> pcl = children.get(newParentId);
+        ArrayList<Object> pcl = children.get(newParentId);
         if (pcl == null) {
             // Create an empty list for holding children if one were not
             // previously created
-            pcl = new LinkedList<Object>();
+            pcl = new ArrayList<Object>();
             children.put(newParentId, pcl);
         }
         pcl.add(itemId);
@@ -338,7 +345,7 @@ public class HierarchicalContainer extends IndexedContainer
         if (oldParentId == null) {
             roots.remove(itemId);
         } else {
-            final LinkedList<Object> l = children.get(oldParentId);
+            final ArrayList<Object> l = children.get(oldParentId);
             if (l != null) {
                 l.remove(itemId);
                 if (l.isEmpty()) {
@@ -351,7 +358,7 @@ public class HierarchicalContainer extends IndexedContainer
             // Refilter the container if setParent is called when filters
             // are applied. Changing parent can change what is included in
             // the filtered version (if includeParentsWhenFiltering==true).
-            doFilterContainer(hasFilters());
+            refilterAfterParentChange(itemId, oldParentId);
         }
 
         fireItemSetChange();
@@ -363,6 +370,40 @@ public class HierarchicalContainer extends IndexedContainer
         return (filteredRoots != null);
     }
 
+    /**
+     * Checks if single item changes can be applied to the filtered hierarchy
+     * without re-filtering the whole container.
+     */
+    private boolean canFilterIncrementally() {
+        return incrementalFiltering && includeParentsWhenFiltering
+                && hasFilters();
+    }
+
+    /**
+     * Updates the filtered hierarchy after the parent of an item has changed.
+     *
+     * @param itemId
+     *            the item whose parent was changed
+     * @param oldParentId
+     *            the previous parent of the item, or <code>null</code> if the
+     *            item was a root
+     */
+    private void refilterAfterParentChange(Object itemId, Object oldParentId) {
+        if (!canFilterIncrementally()) {
+            doFilterContainer(hasFilters());
+            return;
+        }
+
+        // The inclusion of the moved item only depends on its own subtree, so
+        // only the old and the new ancestors need to be re-evaluated
+        if (getFilteredItemIds().contains(itemId)) {
+            unlinkFilteredItem(itemId, oldParentId);
+            linkFilteredItem(itemId);
+        }
+        refilterPath(oldParentId);
+        refilterPath(parent.get(itemId));
+    }
+
     /**
      * Moves a node (an Item) in the container immediately after a sibling node.
      * The two nodes must have the same parent in the container.
@@ -375,7 +416,7 @@ public class HierarchicalContainer extends IndexedContainer
      */
     public void moveAfterSibling(Object itemId, Object siblingId) {
         Object parent2 = getParent(itemId);
-        LinkedList<Object> childrenList;
+        ArrayList<Object> childrenList;
         if (parent2 == null) {
             childrenList = roots;
         } else {
@@ -383,7 +424,7 @@ public class HierarchicalContainer extends IndexedContainer
         }
         if (siblingId == null) {
             childrenList.remove(itemId);
-            childrenList.addFirst(itemId);
+            childrenList.add(0, itemId);
 
         } else {
             int oldIndex = childrenList.indexOf(itemId);
@@ -402,6 +443,13 @@ public class HierarchicalContainer extends IndexedContainer
                         "Given identifiers no not have the same parent.");
             }
         }
+        if (canFilterIncrementally()
+                && getFilteredItemIds().contains(itemId)) {
+            // Move the item to the corresponding position among the
+            // filtered siblings
+            unlinkFilteredItem(itemId, parent.get(itemId));
+            linkFilteredItem(itemId);
+        }
         fireItemSetChange();
 
     }
@@ -519,7 +567,7 @@ public class HierarchicalContainer extends IndexedContainer
 
             if (success) {
                 // Remove from roots if this was a root
-                if (roots.remove(itemId)) {
+                if (!parent.containsKey(itemId) && roots.remove(itemId)) {
 
                     // If filtering is enabled we might need to remove it from
                     // the filtered list also
@@ -530,7 +578,7 @@ public class HierarchicalContainer extends IndexedContainer
 
                 // Clear the children list. Old children will now become root
                 // nodes
-                LinkedList<Object> childNodeIds = children.remove(itemId);
+                ArrayList<Object> childNodeIds = children.remove(itemId);
                 if (childNodeIds != null) {
                     if (filteredChildren != null) {
                         filteredChildren.remove(itemId);
@@ -544,7 +592,7 @@ public class HierarchicalContainer extends IndexedContainer
                 // id in its children list
                 final Object parentItemId = parent.get(itemId);
                 if (parentItemId != null) {
-                    final LinkedList<Object> c = children.get(parentItemId);
+                    final ArrayList<Object> c = children.get(parentItemId);
                     if (c != null) {
                         c.remove(itemId);
 
@@ -555,7 +603,7 @@ public class HierarchicalContainer extends IndexedContainer
                         // Found in the children list so might also be in the
                         // filteredChildren list
                         if (filteredChildren != null) {
-                            LinkedList<Object> f = filteredChildren
+                            ArrayList<Object> f = filteredChildren
                                     .get(parentItemId);
                             if (f != null) {
                                 f.remove(itemId);
@@ -573,6 +621,12 @@ public class HierarchicalContainer extends IndexedContainer
                     filteredParent.remove(itemId);
                 }
                 noChildrenAllowed.remove(itemId);
+
+                if (canFilterIncrementally()) {
+                    // The parent might only have been included because of the
+                    // removed item
+                    refilterPath(parentItemId);
+                }
             }
 
             return success;
@@ -636,7 +690,7 @@ public class HierarchicalContainer extends IndexedContainer
         super.doSort();
 
         Collections.sort(roots, getItemSorter());
-        for (LinkedList<Object> childList : children.values()) {
+        for (ArrayList<Object> childList : children.values()) {
             Collections.sort(childList, getItemSorter());
         }
     }
@@ -672,6 +726,188 @@ public class HierarchicalContainer extends IndexedContainer
         }
     }
 
+    /**
+     * Used to control how changes to single items are reflected in a filtered
+     * container. @see {@link #setIncrementalFiltering(boolean)} for more
+     * information.
+     *
+     * @since 8.1
+     * @return true if changes to single items only update the affected path of
+     *         the filtered hierarchy, false if the whole container is
+     *         re-filtered
+     */
+    public boolean isIncrementalFiltering() {
+        return incrementalFiltering;
+    }
+
+    /**
+     * Controls how changes to single items are reflected in a filtered
+     * container. Set this to true to make changing the parent of an item,
+     * moving or removing an item or changing a filtered property value of an
+     * item only re-evaluate the filters for that item and its ancestors instead
+     * of re-filtering the whole container. This makes filtered containers with
+     * a large number of items usable with frequent changes.
+     * <p>
+     * Incremental updates are only used when parents are included when
+     * filtering (see {@link #setIncludeParentsWhenFiltering(boolean)}). When
+     * only the matching items are included, the whole container is always
+     * re-filtered.
+     *
+     * @since 8.1
+     * @param incrementalFiltering
+     *            true to only update the affected path of the filtered
+     *            hierarchy, false to re-filter the whole container on every
+     *            change
+     */
+    public void setIncrementalFiltering(boolean incrementalFiltering) {
+        this.incrementalFiltering = incrementalFiltering;
+    }
+
+    @Override
+    protected void filterItem(Object itemId) {
+        if (canFilterIncrementally()) {
+            if (!parent.containsKey(itemId) && !roots.contains(itemId)) {
+                // An item added with addItemAt or addItemAfter is not part of
+                // the hierarchy and is thus never included when filtering
+                return;
+            }
+            if (refilterPath(itemId)) {
+                fireItemSetChange();
+            }
+        } else {
+            super.filterItem(itemId);
+        }
+    }
+
+    /**
+     * Re-evaluates whether the given item and its ancestors should be included
+     * in the filtered hierarchy and updates the filtered data structures
+     * accordingly. Stops at the first item whose inclusion does not change as
+     * the inclusion of its ancestors cannot change either.
+     *
+     * @param itemId
+     *            the item to start from, may be <code>null</code>
+     * @return true if the filtered item set was changed
+     */
+    private boolean refilterPath(Object itemId) {
+        boolean changed = false;
+        Object id = itemId;
+        while (id != null && getUnfilteredItem(id) != null) {
+            boolean included = passesFilters(id)
+                    || filteredChildren.containsKey(id);
+            if (included == getFilteredItemIds().contains(id)) {
+                break;
+            }
+            if (included) {
+                linkFilteredItem(id);
+                addFilteredItemId(id);
+            } else {
+                unlinkFilteredItem(id, parent.get(id));
+                getFilteredItemIds().remove(id);
+            }
+            changed = true;
+            id = parent.get(id);
+        }
+        return changed;
+    }
+
+    /**
+     * Adds the given item to the filtered roots or to the filtered children of
+     * its parent, in the same position relative to its filtered siblings as in
+     * the unfiltered hierarchy.
+     *
+     * @param itemId
+     *            the item to add to the filtered hierarchy
+     */
+    private void linkFilteredItem(Object itemId) {
+        Object parentItemId = parent.get(itemId);
+        if (parentItemId == null) {
+            filteredRoots.add(getFilteredIndex(roots, itemId), itemId);
+        } else {
+            ArrayList<Object> filteredSiblings = filteredChildren
+                    .get(parentItemId);
+            if (filteredSiblings == null) {
+                filteredSiblings = new ArrayList<Object>();
+                filteredChildren.put(parentItemId, filteredSiblings);
+            }
+            filteredSiblings.add(
+                    getFilteredIndex(children.get(parentItemId), itemId),
+                    itemId);
+            filteredParent.put(itemId, parentItemId);
+        }
+    }
+
+    /**
+     * Removes the given item from the filtered roots or from the filtered
+     * children of the given parent.
+     *
+     * @param itemId
+     *            the item to remove from the filtered hierarchy
+     * @param parentItemId
+     *            the parent the item was filtered under, or <code>null</code>
+     *            if the item was a filtered root
+     */
+    private void unlinkFilteredItem(Object itemId, Object parentItemId) {
+        if (parentItemId == null) {
+            filteredRoots.remove(itemId);
+        } else {
+            ArrayList<Object> filteredSiblings = filteredChildren
+                    .get(parentItemId);
+            if (filteredSiblings != null) {
+                filteredSiblings.remove(itemId);
+                if (filteredSiblings.isEmpty()) {
+                    filteredChildren.remove(parentItemId);
+                }
+            }
+            filteredParent.remove(itemId);
+        }
+    }
+
+    /**
+     * Counts the filtered items preceding the given item in the given
+     * unfiltered sibling list.
+     *
+     * @param siblings
+     *            the unfiltered list containing the item
+     * @param itemId
+     *            the item to find the filtered index for
+     * @return the index the item should have among its filtered siblings
+     */
+    private int getFilteredIndex(List<Object> siblings, Object itemId) {
+        int index = 0;
+        for (Object siblingId : siblings) {
+            if (siblingId.equals(itemId)) {
+                break;
+            }
+            if (getFilteredItemIds().contains(siblingId)) {
+                index++;
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Adds the given item to the filtered item ids, keeping the order of the
+     * unfiltered item ids.
+     *
+     * @param itemId
+     *            the item to include in the filtered container
+     */
+    private void addFilteredItemId(Object itemId) {
+        List<Object> allItemIds = getAllItemIds();
+        List<Object> filteredItemIds = getFilteredItemIds();
+        int size = allItemIds.size();
+        for (int i = allItemIds.indexOf(itemId) + 1; i < size; i++) {
+            Object nextItemId = allItemIds.get(i);
+            if (filteredItemIds.contains(nextItemId)) {
+                filteredItemIds.add(filteredItemIds.indexOf(nextItemId),
+                        itemId);
+                return;
+            }
+        }
+        filteredItemIds.add(itemId);
+    }
+
     @Override
     protected boolean doFilterContainer(boolean hasFilters) {
         if (!hasFilters) {
@@ -684,8 +920,8 @@ public class HierarchicalContainer extends IndexedContainer
         }
 
         // Reset data structures
-        filteredRoots = new LinkedList<Object>();
-        filteredChildren = new HashMap<Object, LinkedList<Object>>();
+        filteredRoots = new ArrayList<Object>();
+        filteredChildren = new HashMap<Object, ArrayList<Object>>();
         filteredParent = new HashMap<Object, Object>();
 
         if (includeParentsWhenFiltering) {
@@ -742,10 +978,10 @@ public class HierarchicalContainer extends IndexedContainer
      * @param childItemId
      */
     private void addFilteredChild(Object parentItemId, Object childItemId) {
-        LinkedList<Object> parentToChildrenList = filteredChildren
+        ArrayList<Object> parentToChildrenList = filteredChildren
                 .get(parentItemId);
         if (parentToChildrenList == null) {
-            parentToChildrenList = new LinkedList<Object>();
+            parentToChildrenList = new ArrayList<Object>();
             filteredChildren.put(parentItemId, parentToChildrenList);
         }
         filteredParent.put(childItemId, parentItemId);
@@ -768,7 +1004,7 @@ public class HierarchicalContainer extends IndexedContainer
      */
     private void addFilteredChildrenRecursively(Object parentItemId,
             HashSet<Object> includedItems) {
-        LinkedList<Object> childList = children.get(parentItemId);
+        ArrayList<Object> childList = children.get(parentItemId);
         if (childList == null) {
             return;
         }
@@ -795,7 +1031,7 @@ public class HierarchicalContainer extends IndexedContainer
             HashSet<Object> includedItems) {
         boolean toBeIncluded = passesFilters(itemId);
 
-        LinkedList<Object> childList = children.get(itemId);
+        ArrayList<Object> childList = children.get(itemId);
         if (childList != null) {
             for (Object childItemId : children.get(itemId)) {
                 toBeIncluded |= filterIncludingParents(childItemId,
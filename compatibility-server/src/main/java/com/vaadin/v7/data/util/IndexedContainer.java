@@ -866,7 +866,7 @@ public class IndexedContainer
 
             // update the container filtering if this property is being filtered
             if (isPropertyFiltered(propertyId)) {
-                filterAll();
+                filterItem(itemId);
             }
 
             firePropertyValueChange(this);
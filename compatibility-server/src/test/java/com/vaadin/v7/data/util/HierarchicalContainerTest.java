@@ -3,11 +3,17 @@ package com.vaadin.v7.data.util;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 
 import org.junit.Test;
 
 import com.vaadin.v7.data.Container.Filter;
 import com.vaadin.v7.data.Item;
+import com.vaadin.v7.data.util.filter.SimpleStringFilter;
 
 public class HierarchicalContainerTest
         extends AbstractHierarchicalContainerTestBase {
@@ -283,4 +289,155 @@ public class HierarchicalContainerTest
                 true, expectedSize, expectedRoots, false);
 
     }
+
+    @Test
+    public void testIncrementalFilteringPropertyChange() {
+        HierarchicalContainer container = createIncrementalContainer();
+        Item ab = container.getItem("a.b");
+
+        // a.b.c no longer matches so a.b and a are no longer needed
+        container.getContainerProperty("a.b.c", "name").setValue("x");
+        assertFalse(container.containsId("a"));
+        assertFalse(container.containsId("a.b"));
+        assertSameHierarchyAsFullFiltering(container);
+
+        // a.b matches again so a is included again as its parent
+        ab.getItemProperty("name").setValue("match");
+        assertTrue(container.containsId("a"));
+        assertTrue(container.containsId("a.b"));
+        assertFalse(container.containsId("a.b.c"));
+        assertSameHierarchyAsFullFiltering(container);
+    }
+
+    @Test
+    public void testIncrementalFilteringSetParent() {
+        HierarchicalContainer container = createIncrementalContainer();
+
+        container.setParent("a.b.c", "d");
+        assertFalse(container.containsId("a"));
+        assertTrue(container.containsId("d"));
+        assertEquals("d", container.getParent("a.b.c"));
+        assertSameHierarchyAsFullFiltering(container);
+
+        container.setParent("a.b.c", null);
+        assertTrue(container.isRoot("a.b.c"));
+        assertSameHierarchyAsFullFiltering(container);
+    }
+
+    @Test
+    public void testIncrementalFilteringRemoveAndMove() {
+        HierarchicalContainer container = createIncrementalContainer();
+
+        container.moveAfterSibling("d.f", null);
+        assertSameHierarchyAsFullFiltering(container);
+
+        container.removeItem("a.b.c");
+        assertFalse(container.containsId("a"));
+        assertFalse(container.containsId("a.b"));
+        assertSameHierarchyAsFullFiltering(container);
+
+        container.removeItem("d");
+        assertTrue(container.isRoot("d.e"));
+        assertTrue(container.isRoot("d.f"));
+        assertSameHierarchyAsFullFiltering(container);
+    }
+
+    @Test
+    public void testIncrementalFilteringAddAndRemoveItem() {
+        HierarchicalContainer container = createIncrementalContainer();
+        for (int i = 0; i < 100; i++) {
+            container.addItem("x" + i);
+        }
+        CountingFilter filter = new CountingFilter(
+                new SimpleStringFilter("name", "match", false, false));
+        container.removeAllContainerFilters();
+        container.addContainerFilter(filter);
+        assertSameHierarchyAsFullFiltering(container);
+
+        filter.count = 0;
+        container.addItem("h");
+        container.setParent("h", "a.b.c");
+        container.addItem();
+        container.addItemAfter("x10", "y");
+        container.addItemAt(0, "z");
+        container.addItem("i").getItemProperty("name").setValue("match");
+        container.setParent("i", "d.e");
+        assertTrue(container.containsId("i"));
+        assertTrue("Filters evaluated " + filter.count + " times",
+                filter.count < 10);
+        assertSameHierarchyAsFullFiltering(container);
+
+        filter.count = 0;
+        container.removeItem("i");
+        container.removeItem("x50");
+        container.removeItem("a.b.c");
+        assertFalse(container.containsId("a"));
+        assertTrue("Filters evaluated " + filter.count + " times",
+                filter.count < 10);
+        assertSameHierarchyAsFullFiltering(container);
+    }
+
+    private static class CountingFilter implements Filter {
+        private final Filter filter;
+        private int count = 0;
+
+        private CountingFilter(Filter filter) {
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean passesFilter(Object itemId, Item item) {
+            count++;
+            return filter.passesFilter(itemId, item);
+        }
+
+        @Override
+        public boolean appliesToProperty(Object propertyId) {
+            return filter.appliesToProperty(propertyId);
+        }
+    }
+
+    private HierarchicalContainer createIncrementalContainer() {
+        HierarchicalContainer container = new HierarchicalContainer();
+        container.addContainerProperty("name", String.class, "");
+        String[][] items = { { "a", null, "" }, { "a.b", "a", "" },
+                { "a.b.c", "a.b", "match" }, { "d", null, "" },
+                { "d.e", "d", "match" }, { "d.f", "d", "match" },
+                { "g", null, "match" } };
+        for (String[] item : items) {
+            container.addItem(item[0]).getItemProperty("name")
+                    .setValue(item[2]);
+            container.setParent(item[0], item[1]);
+        }
+        container.setIncrementalFiltering(true);
+        container.addContainerFilter("name", "match", false, false);
+        assertEquals(7, container.size());
+        return container;
+    }
+
+    private void assertSameHierarchyAsFullFiltering(
+            HierarchicalContainer container) {
+        List<Object> incremental = getHierarchy(container);
+        // Re-filters the whole container
+        container.setIncludeParentsWhenFiltering(true);
+        assertEquals(getHierarchy(container), incremental);
+    }
+
+    private List<Object> getHierarchy(HierarchicalContainer container) {
+        List<Object> hierarchy = new ArrayList<Object>();
+        hierarchy.add(new ArrayList<Object>(container.getItemIds()));
+        addHierarchy(container, container.rootItemIds(), hierarchy);
+        return hierarchy;
+    }
+
+    private void addHierarchy(HierarchicalContainer container,
+            Collection<?> itemIds, List<Object> hierarchy) {
+        for (Object itemId : itemIds) {
+            hierarchy.add(itemId + " -> " + container.getParent(itemId));
+            if (container.hasChildren(itemId)) {
+                addHierarchy(container, container.getChildren(itemId),
+                        hierarchy);
+            }
+        }
+    }
 }
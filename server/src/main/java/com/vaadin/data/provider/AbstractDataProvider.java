@@ -16,9 +16,15 @@
 package com.vaadin.data.provider;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.EventObject;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
 
 import com.vaadin.data.provider.DataChangeEvent.DataRefreshEvent;
+import com.vaadin.data.provider.DataChangeEvent.DataRefreshItemsEvent;
 import com.vaadin.event.EventRouter;
 import com.vaadin.shared.Registration;
 
@@ -56,6 +62,29 @@ public abstract class AbstractDataProvider<T, F> implements DataProvider<T, F> {
         fireEvent(new DataRefreshEvent<>(this, item));
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Items with the same {@link #getId(Object) identifier} are only refreshed
+     * once, using the last given instance. All the items are refreshed using a
+     * single {@link DataRefreshItemsEvent}, or a {@link DataRefreshEvent} if
+     * there is only one item.
+     */
+    @Override
+    public void refreshItems(Collection<T> items) {
+        Objects.requireNonNull(items, "Refreshed items can't be null");
+        Map<Object, T> itemsById = new LinkedHashMap<>();
+        for (T item : items) {
+            itemsById.put(getId(item), item);
+        }
+        if (itemsById.size() == 1) {
+            refreshItem(itemsById.values().iterator().next());
+        } else if (!itemsById.isEmpty()) {
+            fireEvent(new DataRefreshItemsEvent<>(this,
+                    new ArrayList<>(itemsById.values())));
+        }
+    }
+
     /**
      * Registers a new listener with the specified activation method to listen
      * events generated by this component. If the activation method does not
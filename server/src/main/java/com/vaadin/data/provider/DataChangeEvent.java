@@ -15,6 +15,8 @@
  */
 package com.vaadin.data.provider;
 
+import java.util.Collection;
+import java.util.Collections;
 import java.util.EventObject;
 import java.util.Objects;
 
@@ -68,6 +70,46 @@ public class DataChangeEvent<T> extends EventObject {
         }
     }
 
+    /**
+     * An event fired when several items of a {@code DataProvider} have been
+     * updated at once.
+     *
+     * @see DataProvider#refreshItems(java.util.Collection)
+     *
+     * @param <T>
+     *            the data type
+     * @since 8.1
+     */
+    public static class DataRefreshItemsEvent<T> extends DataChangeEvent<T> {
+
+        private final Collection<T> items;
+
+        /**
+         * Creates a new data refresh event for several items originating from
+         * the given data provider.
+         *
+         * @param source
+         *            the data provider, not null
+         * @param items
+         *            the updated items, not null
+         */
+        public DataRefreshItemsEvent(DataProvider<T, ?> source,
+                Collection<T> items) {
+            super(source);
+            Objects.requireNonNull(items, "Refreshed items can't be null");
+            this.items = Collections.unmodifiableCollection(items);
+        }
+
+        /**
+         * Gets the refreshed items.
+         *
+         * @return an unmodifiable collection of the refreshed items
+         */
+        public Collection<T> getItems() {
+            return items;
+        }
+    }
+
     /**
      * Creates a new {@code DataChangeEvent} event originating from the given
      * data provider.
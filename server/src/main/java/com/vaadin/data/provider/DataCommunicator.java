@@ -32,9 +32,12 @@ import java.util.stream.Stream;
 
 import com.vaadin.data.ValueProvider;
 import com.vaadin.data.provider.DataChangeEvent.DataRefreshEvent;
+import com.vaadin.data.provider.DataChangeEvent.DataRefreshItemsEvent;
 import com.vaadin.server.AbstractExtension;
 import com.vaadin.server.KeyMapper;
 import com.vaadin.server.SerializableConsumer;
+import com.vaadin.server.ServiceMetrics;
+import com.vaadin.server.ServiceMetrics.Phase;
 import com.vaadin.shared.Range;
 import com.vaadin.shared.Registration;
 import com.vaadin.shared.data.DataCommunicatorClientRpc;
@@ -335,7 +338,10 @@ public class DataCommunicator<T> extends AbstractExtension {
             int offset = requestedRows.getStart();
             int limit = requestedRows.length();
 
+            ServiceMetrics metrics = ServiceMetrics.get(getUI());
+            long start = metrics.start();
             List<T> rowsToPush = fetchItemsWithRange(offset, limit);
+            metrics.end(getUI(), Phase.DATA_FETCH, start);
 
             if (!initial && !reset && rowsToPush.size() == 0) {
                 triggerReset = true;
@@ -454,6 +460,73 @@ public class DataCommunicator<T> extends AbstractExtension {
         return dataObject;
     }
 
+    /**
+     * Generates data with the given data generator for each item that is
+     * currently available on the client side. This can be used for sending a
+     * partial update of the client-side rows, e.g. the values of a single
+     * column, instead of refreshing the complete rows.
+     *
+     * @param generator
+     *            the data generator to use, not <code>null</code>
+     * @return a JSON object that maps the key of each active item to the data
+     *         generated for it; items for which the generator produced no
+     *         data are omitted
+     * @since 8.1
+     */
+    public JsonObject generatePartialData(DataGenerator<T> generator) {
+        Objects.requireNonNull(generator, "Data generator can not be null");
+        JsonObject partialData = Json.createObject();
+        for (String key : handler.activeData) {
+            T item = getKeyMapper().get(key);
+            if (item != null) {
+                putPartialData(partialData, key, item, generator);
+            }
+        }
+        return partialData;
+    }
+
+    /**
+     * Generates data with the given data generator for those of the given
+     * items that are currently available on the client side. The given item
+     * instances replace the previously known instances with the same id, like
+     * when {@link #refresh(Object) refreshing} an item.
+     *
+     * @param generator
+     *            the data generator to use, not <code>null</code>
+     * @param items
+     *            the items to generate data for, not <code>null</code>
+     * @return a JSON object that maps the key of each active item to the data
+     *         generated for it; items that are not active or for which the
+     *         generator produced no data are omitted
+     * @since 8.1
+     */
+    public JsonObject generatePartialData(DataGenerator<T> generator,
+            Collection<T> items) {
+        Objects.requireNonNull(generator, "Data generator can not be null");
+        Objects.requireNonNull(items, "Items can not be null");
+        JsonObject partialData = Json.createObject();
+        for (T item : items) {
+            if (!getKeyMapper().has(item)) {
+                continue;
+            }
+            String key = getKeyMapper().key(item);
+            if (handler.activeData.contains(key)) {
+                getKeyMapper().refresh(item);
+                putPartialData(partialData, key, item, generator);
+            }
+        }
+        return partialData;
+    }
+
+    private void putPartialData(JsonObject partialData, String key, T item,
+            DataGenerator<T> generator) {
+        JsonObject itemData = Json.createObject();
+        generator.generateData(item, itemData);
+        if (itemData.keys().length > 0) {
+            partialData.put(key, itemData);
+        }
+    }
+
     /**
      * Returns the active data handler.
      *
@@ -754,10 +827,13 @@ public class DataCommunicator<T> extends AbstractExtension {
                 .addDataProviderListener(event -> {
                     getUI().access(() -> {
                         if (event instanceof DataRefreshEvent) {
-                            T item = ((DataRefreshEvent<T>) event).getItem();
-                            getKeyMapper().refresh(item);
-                            generators.forEach(g -> g.refreshData(item));
-                            refresh(item);
+                            refreshItem(
+                                    ((DataRefreshEvent<T>) event).getItem());
+                        } else if (event instanceof DataRefreshItemsEvent) {
+                            // All items are handled in one go, the
+                            // communicator is only marked dirty once
+                            ((DataRefreshItemsEvent<T>) event).getItems()
+                                    .forEach(this::refreshItem);
                         } else {
                             hardReset();
                         }
@@ -765,7 +841,19 @@ public class DataCommunicator<T> extends AbstractExtension {
                 });
     }
 
+    private void refreshItem(T item) {
+        if (inMemorySorting instanceof SortKeyComparator) {
+            ((SortKeyComparator<T>) inMemorySorting).invalidate(item);
+        }
+        getKeyMapper().refresh(item);
+        generators.forEach(g -> g.refreshData(item));
+        refresh(item);
+    }
+
     private void hardReset() {
+        if (inMemorySorting instanceof SortKeyComparator) {
+            ((SortKeyComparator<T>) inMemorySorting).invalidateAll();
+        }
         if (reset) {
             return;
         }
@@ -107,6 +107,27 @@ public interface DataProvider<T, F> extends Serializable {
      */
     void refreshItem(T item);
 
+    /**
+     * Refreshes the given items. This method should be used instead of
+     * repeatedly calling {@link #refreshItem(Object)} when several items have
+     * been updated at once, so that {@link DataProviderListener
+     * DataProviderListeners} can handle all the changes together.
+     * <p>
+     * The same requirements for identifying the items apply as for
+     * {@link #refreshItem(Object)}. The default implementation refreshes the
+     * items one by one.
+     *
+     * @see #refreshItem(Object)
+     *
+     * @param items
+     *            the items to refresh, not <code>null</code>
+     * @since 8.1
+     */
+    public default void refreshItems(Collection<T> items) {
+        Objects.requireNonNull(items, "Refreshed items can't be null");
+        items.forEach(this::refreshItem);
+    }
+
     /**
      * Refreshes all data based on currently available data in the underlying
      * provider.
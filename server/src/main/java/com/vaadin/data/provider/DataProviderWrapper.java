@@ -15,6 +15,7 @@
  */
 package com.vaadin.data.provider;
 
+import java.util.Collection;
 import java.util.Objects;
 import java.util.stream.Stream;
 
@@ -69,6 +70,11 @@ public abstract class DataProviderWrapper<T, F, M>
         dataProvider.refreshItem(item);
     }
 
+    @Override
+    public void refreshItems(Collection<T> items) {
+        dataProvider.refreshItems(items);
+    }
+
     @Override
     public Object getId(T item) {
         return dataProvider.getId(item);
@@ -17,8 +17,10 @@ package com.vaadin.data.provider;
 
 import java.util.Collection;
 import java.util.Comparator;
+import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import com.vaadin.server.SerializableComparator;
@@ -70,6 +72,18 @@ public class ListDataProvider<T>
     public Stream<T> fetch(Query<T, SerializablePredicate<T>> query) {
         Stream<T> stream = getFilteredStream(query);
 
+        if (query.getInMemorySorting() instanceof SortKeyComparator) {
+            SortKeyComparator<T> sortKeys = (SortKeyComparator<T>) query
+                    .getInMemorySorting();
+            sortKeys.limitSortKeys(backend.size());
+            if (sortKeys.isParallel()) {
+                // Sort keys are otherwise extracted while sorting
+                List<T> items = stream.collect(Collectors.toList());
+                sortKeys.extractSortKeys(items);
+                stream = items.stream();
+            }
+        }
+
         Optional<Comparator<T>> comparing = Stream
                 .of(query.getInMemorySorting(), sortOrder)
                 .filter(c -> c != null)
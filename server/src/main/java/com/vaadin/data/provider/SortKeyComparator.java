@@ -0,0 +1,201 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.data.provider;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import com.vaadin.data.ValueProvider;
+import com.vaadin.server.SerializableComparator;
+
+/**
+ * A comparator that compares items by sort keys extracted from them, for
+ * sorting data in memory.
+ * <p>
+ * The sort keys of an item are extracted once, the first time the item is
+ * compared, and are then reused until they are invalidated. Sorting
+ * {@code n} items thus calls each key extractor {@code n} times instead of
+ * twice per comparison. In-memory data providers may also extract the keys of
+ * all items before sorting them, see {@link #extractSortKeys(Collection)}.
+ * <p>
+ * Items are identified by object identity, so the sort keys of an item must
+ * be {@link #invalidate(Object) invalidated} when the item is modified.
+ * {@link DataCommunicator} does this when items are refreshed.
+ * {@link ListDataProvider} {@link #limitSortKeys(int) limits} the cached keys
+ * to the number of items it contains, so that the keys of removed items do
+ * not accumulate.
+ *
+ * @param <T>
+ *            the type of the compared items
+ * @since 8.1
+ */
+public class SortKeyComparator<T> implements SerializableComparator<T> {
+
+    private final List<ValueProvider<T, ?>> keyExtractors = new ArrayList<>();
+    private final List<SerializableComparator<Object>> keyComparators =
+            new ArrayList<>();
+    private boolean parallel = false;
+
+    private transient Map<T, Object[]> sortKeys;
+
+    /**
+     * Adds a sort key to compare items by. Sort keys are compared in the order
+     * they are added.
+     *
+     * @param <K>
+     *            the type of the sort key
+     * @param keyExtractor
+     *            the function extracting the sort key from an item, not
+     *            {@code null}
+     * @param keyComparator
+     *            the comparator for the sort keys, not {@code null}
+     * @return this comparator
+     */
+    @SuppressWarnings("unchecked")
+    public <K> SortKeyComparator<T> addSortKey(
+            ValueProvider<T, ? extends K> keyExtractor,
+            SerializableComparator<? super K> keyComparator) {
+        keyExtractors.add(keyExtractor);
+        keyComparators.add((SerializableComparator<Object>) keyComparator);
+        invalidateAll();
+        return this;
+    }
+
+    /**
+     * Sets whether {@link #extractSortKeys(Collection)} may extract the sort
+     * keys in parallel. The key extractors are then called from other threads
+     * than the one holding the session lock, so they must not depend on
+     * thread local state such as {@code VaadinSession.getCurrent()}.
+     * <p>
+     * The default is {@code false}.
+     *
+     * @param parallel
+     *            {@code true} to extract sort keys in parallel, {@code false}
+     *            to extract them in the calling thread
+     */
+    public void setParallel(boolean parallel) {
+        this.parallel = parallel;
+    }
+
+    /**
+     * Returns whether sort keys may be extracted in parallel.
+     *
+     * @return {@code true} if sort keys are extracted in parallel,
+     *         {@code false} otherwise
+     * @see #setParallel(boolean)
+     */
+    public boolean isParallel() {
+        return parallel;
+    }
+
+    /**
+     * Extracts and caches the sort keys of the given items, unless already
+     * cached. Calling this before sorting is optional; the keys are otherwise
+     * extracted while sorting.
+     *
+     * @param items
+     *            the items to extract sort keys for, not {@code null}
+     */
+    public void extractSortKeys(Collection<T> items) {
+        Map<T, Object[]> keys = getSortKeys();
+        List<T> missing = items.stream().filter(item -> !keys.containsKey(item))
+                .collect(Collectors.toList());
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        Stream<T> stream = parallel ? missing.parallelStream()
+                : missing.stream();
+        List<Object[]> extracted = stream.map(this::extractKeys)
+                .collect(Collectors.toList());
+        for (int i = 0; i < missing.size(); i++) {
+            keys.put(missing.get(i), extracted.get(i));
+        }
+    }
+
+    /**
+     * Discards the cached sort keys of an item. If no keys are cached for this
+     * instance, the keys may have been cached for another instance that
+     * represents the same item, so all cached keys are discarded.
+     *
+     * @param item
+     *            the item whose sort keys to discard
+     */
+    public void invalidate(T item) {
+        if (sortKeys != null && sortKeys.remove(item) == null) {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Discards all cached sort keys if keys are cached for more items than the
+     * given limit, e.g. because items have been removed without invalidating
+     * their keys.
+     *
+     * @param maxItems
+     *            the maximum number of items to keep sort keys for
+     */
+    public void limitSortKeys(int maxItems) {
+        if (sortKeys != null && sortKeys.size() > maxItems) {
+            invalidateAll();
+        }
+    }
+
+    /**
+     * Discards all cached sort keys.
+     */
+    public void invalidateAll() {
+        sortKeys = null;
+    }
+
+    @Override
+    public int compare(T o1, T o2) {
+        Object[] keys1 = getSortKeys(o1);
+        Object[] keys2 = getSortKeys(o2);
+        for (int i = 0; i < keys1.length; i++) {
+            int result = keyComparators.get(i).compare(keys1[i], keys2[i]);
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+
+    private Map<T, Object[]> getSortKeys() {
+        if (sortKeys == null) {
+            sortKeys = new IdentityHashMap<>();
+        }
+        return sortKeys;
+    }
+
+    private Object[] getSortKeys(T item) {
+        return getSortKeys().computeIfAbsent(item, this::extractKeys);
+    }
+
+    private Object[] extractKeys(T item) {
+        Object[] keys = new Object[keyExtractors.size()];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = keyExtractors.get(i).apply(item);
+        }
+        return keys;
+    }
+}
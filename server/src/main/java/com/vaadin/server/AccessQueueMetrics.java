@@ -0,0 +1,120 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.vaadin.ui.UI;
+
+/**
+ * Counters for the session access tasks and session locking of a
+ * {@link VaadinService}. The counters are updated without locking and can be
+ * read at any time, e.g. for exposing them through a monitoring system.
+ *
+ * @see VaadinService#getAccessQueueMetrics()
+ * @since 8.1
+ * @author Vaadin Ltd
+ */
+public final class AccessQueueMetrics implements Serializable {
+
+    private final LongAdder queuedTasks = new LongAdder();
+    private final LongAdder runTasks = new LongAdder();
+    private final LongAdder lockWaits = new LongAdder();
+    private final LongAdder lockWaitNanos = new LongAdder();
+    private final AtomicLong maxLockWaitNanos = new AtomicLong();
+
+    AccessQueueMetrics() {
+        // Only created by VaadinService
+    }
+
+    void taskQueued() {
+        queuedTasks.increment();
+    }
+
+    void taskRun() {
+        runTasks.increment();
+    }
+
+    void lockWaited(long nanos) {
+        lockWaits.increment();
+        lockWaitNanos.add(nanos);
+        maxLockWaitNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    /**
+     * Gets the number of tasks that have been queued using
+     * {@link VaadinSession#access(Runnable)} or {@link UI#access(Runnable)}.
+     *
+     * @return the number of queued access tasks
+     */
+    public long getQueuedTaskCount() {
+        return queuedTasks.sum();
+    }
+
+    /**
+     * Gets the number of queued access tasks that have been run or found to be
+     * cancelled.
+     *
+     * @return the number of access tasks taken from the queues
+     */
+    public long getRunTaskCount() {
+        return runTasks.sum();
+    }
+
+    /**
+     * Gets the number of access tasks currently waiting in the queues of all
+     * sessions. The value is approximate while tasks are being queued or run
+     * and it also includes tasks of sessions that were closed before their
+     * tasks were run.
+     *
+     * @return the number of pending access tasks
+     */
+    public long getPendingTaskCount() {
+        return Math.max(0, getQueuedTaskCount() - getRunTaskCount());
+    }
+
+    /**
+     * Gets the number of times {@link VaadinSession#lock()} had to wait for
+     * another thread to release the session lock.
+     *
+     * @return the number of contended lock acquisitions
+     */
+    public long getLockWaitCount() {
+        return lockWaits.sum();
+    }
+
+    /**
+     * Gets the total time threads have waited for session locks in
+     * {@link VaadinSession#lock()}.
+     *
+     * @return the total lock wait time in nanoseconds
+     */
+    public long getTotalLockWaitNanos() {
+        return lockWaitNanos.sum();
+    }
+
+    /**
+     * Gets the longest time a thread has waited for a session lock in
+     * {@link VaadinSession#lock()}.
+     *
+     * @return the longest lock wait time in nanoseconds
+     */
+    public long getMaxLockWaitNanos() {
+        return maxLockWaitNanos.get();
+    }
+}
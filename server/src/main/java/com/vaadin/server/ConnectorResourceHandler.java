@@ -28,7 +28,7 @@ import com.vaadin.shared.ApplicationConstants;
 import com.vaadin.ui.UI;
 import com.vaadin.util.CurrentInstance;
 
-public class ConnectorResourceHandler implements RequestHandler {
+public class ConnectorResourceHandler implements PathPrefixRequestHandler {
     // APP/connector/[uiid]/[cid]/[filename.xyz]
     private static final String CONNECTOR_RESOURCE_PREFIX = "/"
             + ApplicationConstants.APP_PATH + "/"
@@ -41,6 +41,11 @@ public class ConnectorResourceHandler implements RequestHandler {
 
     }
 
+    @Override
+    public String getPathPrefix() {
+        return CONNECTOR_RESOURCE_PREFIX.substring(1);
+    }
+
     @Override
     public boolean handleRequest(VaadinSession session, VaadinRequest request,
             VaadinResponse response) throws IOException {
@@ -62,7 +67,7 @@ public class ConnectorResourceHandler implements RequestHandler {
         String cid = matcher.group(2);
         String key = matcher.group(3);
 
-        session.lock();
+        session.lockRead();
         UI ui;
         ClientConnector connector;
         try {
@@ -81,7 +86,7 @@ public class ConnectorResourceHandler implements RequestHandler {
             }
 
         } finally {
-            session.unlock();
+            session.unlockRead();
         }
 
         Map<Class<?>, CurrentInstance> oldInstances = CurrentInstance
@@ -126,6 +126,27 @@ public interface Constants {
      */
     static final String SERVLET_PARAMETER_LEGACY_DESIGN_PREFIX = "legacyDesignPrefix";
 
+    /**
+     * Name of system or context property to protect sessions with a read/write
+     * lock instead of an exclusive lock, allowing request handling that only
+     * reads session state to run concurrently. The default value is
+     * <code>false</code>.
+     *
+     * @see VaadinSession#lockRead()
+     * @since 8.1
+     */
+    static final String SERVLET_PARAMETER_READ_WRITE_SESSION_LOCK = "readWriteSessionLock";
+
+    /**
+     * Name of system or context property to limit the number of characters in
+     * a message containing RPC invocations sent by the client. Messages
+     * exceeding the limit are rejected before they have been read completely.
+     * The default value is <code>-1</code>, i.e. no limit.
+     *
+     * @since 8.1
+     */
+    static final String SERVLET_PARAMETER_MAX_RPC_MESSAGE_LENGTH = "maxRpcMessageLength";
+
     // Configurable parameter names
     static final String PARAMETER_VAADIN_RESOURCES = "Resources";
 
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Base64;
+
+/**
+ * Session store keeping the serialized sessions in files in a local directory.
+ * Each session is stored in a subdirectory containing one file for the session
+ * entry and one for each UI. Files are replaced atomically so that a crash
+ * while storing does not leave partially written entries.
+ *
+ * @since 8.1
+ * @author Vaadin Ltd
+ */
+public class FileSessionStore implements SessionStore {
+
+    private static final String SESSION_FILE = "session";
+    private static final String UI_FILE_PREFIX = "ui-";
+
+    private final File directory;
+
+    /**
+     * Creates a new file session store.
+     *
+     * @param directory
+     *            the directory to store the sessions in, not
+     *            <code>null</code>. Created if it does not exist.
+     */
+    public FileSessionStore(File directory) {
+        if (directory == null) {
+            throw new IllegalArgumentException("The directory cannot be null");
+        }
+        this.directory = directory;
+    }
+
+    /**
+     * Gets the directory the sessions are stored in.
+     *
+     * @return the directory, not <code>null</code>
+     */
+    public File getDirectory() {
+        return directory;
+    }
+
+    @Override
+    public byte[] loadSession(String sessionId) throws IOException {
+        return read(getSessionDirectory(sessionId).resolve(SESSION_FILE));
+    }
+
+    @Override
+    public void storeSession(String sessionId, byte[] data)
+            throws IOException {
+        write(getSessionDirectory(sessionId), SESSION_FILE, data);
+    }
+
+    @Override
+    public byte[] loadUI(String sessionId, int uiId) throws IOException {
+        return read(getSessionDirectory(sessionId)
+                .resolve(UI_FILE_PREFIX + uiId));
+    }
+
+    @Override
+    public void storeUI(String sessionId, int uiId, byte[] data)
+            throws IOException {
+        write(getSessionDirectory(sessionId), UI_FILE_PREFIX + uiId, data);
+    }
+
+    @Override
+    public void removeUI(String sessionId, int uiId) throws IOException {
+        Files.deleteIfExists(
+                getSessionDirectory(sessionId).resolve(UI_FILE_PREFIX + uiId));
+    }
+
+    @Override
+    public void removeSession(String sessionId) throws IOException {
+        Path sessionDirectory = getSessionDirectory(sessionId);
+        if (!Files.isDirectory(sessionDirectory)) {
+            return;
+        }
+        try (DirectoryStream<Path> files = Files
+                .newDirectoryStream(sessionDirectory)) {
+            for (Path file : files) {
+                Files.deleteIfExists(file);
+            }
+        }
+        Files.deleteIfExists(sessionDirectory);
+    }
+
+    /**
+     * Gets the directory of a session. The session id is encoded so that it
+     * cannot refer to a file outside the store directory.
+     *
+     * @param sessionId
+     *            the session id
+     * @return the session directory
+     */
+    private Path getSessionDirectory(String sessionId) {
+        String name = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(sessionId.getBytes(StandardCharsets.UTF_8));
+        return directory.toPath().resolve(name);
+    }
+
+    private static byte[] read(Path file) throws IOException {
+        try {
+            return Files.readAllBytes(file);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    private static void write(Path sessionDirectory, String name, byte[] data)
+            throws IOException {
+        Files.createDirectories(sessionDirectory);
+        Path temp = Files.createTempFile(sessionDirectory, name, ".tmp");
+        try {
+            Files.write(temp, data);
+            Files.move(temp, sessionDirectory.resolve(name),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.vaadin.ui.UI;
+
+/**
+ * Metrics implementation recording the time spent in each phase in a
+ * {@link TimingHistogram} per UI class. The histograms can be queried directly
+ * or exposed as MXBeans using {@link #registerMBeans(MBeanServer, String)}.
+ * <p>
+ * Usage example:
+ *
+ * <pre>
+ * HistogramServiceMetrics metrics = new HistogramServiceMetrics();
+ * service.setMetrics(metrics);
+ * metrics.registerMBeans(ManagementFactory.getPlatformMBeanServer(),
+ *         "myapp");
+ * </pre>
+ *
+ * @since 8.1
+ * @author Vaadin Ltd
+ */
+public class HistogramServiceMetrics implements ServiceMetrics {
+
+    private final Map<Class<? extends UI>, TimingHistogram[]> histograms = new ConcurrentHashMap<>();
+
+    private transient MBeanServer mBeanServer;
+    private transient String serviceName;
+
+    @Override
+    public void record(Class<? extends UI> uiClass, Phase phase,
+            long nanos) {
+        TimingHistogram[] uiHistograms = histograms.get(uiClass);
+        if (uiHistograms == null) {
+            uiHistograms = histograms.computeIfAbsent(uiClass,
+                    this::createHistograms);
+        }
+        uiHistograms[phase.ordinal()].record(nanos);
+    }
+
+    private TimingHistogram[] createHistograms(Class<? extends UI> uiClass) {
+        TimingHistogram[] uiHistograms = new TimingHistogram[Phase
+                .values().length];
+        for (int i = 0; i < uiHistograms.length; i++) {
+            uiHistograms[i] = new TimingHistogram();
+        }
+        synchronized (this) {
+            if (mBeanServer != null) {
+                registerMBeans(uiClass, uiHistograms);
+            }
+        }
+        return uiHistograms;
+    }
+
+    /**
+     * Gets the histogram of the time spent in the given phase for UIs of the
+     * given class.
+     *
+     * @param uiClass
+     *            the UI class, <code>UI.class</code> for the times not
+     *            related to a specific UI
+     * @param phase
+     *            the phase, not <code>null</code>
+     * @return the histogram, or <code>null</code> if nothing has been recorded
+     *         for the UI class
+     */
+    public TimingHistogram getHistogram(Class<? extends UI> uiClass,
+            Phase phase) {
+        TimingHistogram[] uiHistograms = histograms.get(uiClass);
+        return uiHistograms == null ? null : uiHistograms[phase.ordinal()];
+    }
+
+    /**
+     * Gets the UI classes for which times have been recorded.
+     *
+     * @return an unmodifiable set of UI classes
+     */
+    public Set<Class<? extends UI>> getUIClasses() {
+        return Collections.unmodifiableSet(histograms.keySet());
+    }
+
+    /**
+     * Registers the histograms as MXBeans in the given server. Histograms for
+     * UI classes recorded later are registered when they are created. The
+     * object names are of the form
+     * <code>com.vaadin:type=ServiceMetrics,service="name",ui="class",phase="phase"</code>.
+     *
+     * @param mBeanServer
+     *            the MBean server to register in, not <code>null</code>
+     * @param serviceName
+     *            a name identifying the service in the object names, not
+     *            <code>null</code>
+     */
+    public synchronized void registerMBeans(MBeanServer mBeanServer,
+            String serviceName) {
+        if (this.mBeanServer != null) {
+            throw new IllegalStateException(
+                    "The MBeans have already been registered");
+        }
+        this.mBeanServer = mBeanServer;
+        this.serviceName = serviceName;
+        histograms.forEach(this::registerMBeans);
+    }
+
+    /**
+     * Unregisters the MXBeans registered using
+     * {@link #registerMBeans(MBeanServer, String)}, e.g. when the service is
+     * destroyed.
+     */
+    public synchronized void unregisterMBeans() {
+        if (mBeanServer == null) {
+            return;
+        }
+        for (Class<? extends UI> uiClass : histograms.keySet()) {
+            for (Phase phase : Phase.values()) {
+                try {
+                    ObjectName name = getObjectName(uiClass, phase);
+                    if (mBeanServer.isRegistered(name)) {
+                        mBeanServer.unregisterMBean(name);
+                    }
+                } catch (JMException e) {
+                    getLogger().log(Level.WARNING,
+                            "Could not unregister metrics MBean", e);
+                }
+            }
+        }
+        mBeanServer = null;
+        serviceName = null;
+    }
+
+    private void registerMBeans(Class<? extends UI> uiClass,
+            TimingHistogram[] uiHistograms) {
+        for (Phase phase : Phase.values()) {
+            try {
+                mBeanServer.registerMBean(uiHistograms[phase.ordinal()],
+                        getObjectName(uiClass, phase));
+            } catch (JMException e) {
+                getLogger().log(Level.WARNING,
+                        "Could not register metrics MBean", e);
+            }
+        }
+    }
+
+    /**
+     * Gets the JMX object name of the histogram for the given UI class and
+     * phase.
+     *
+     * @param uiClass
+     *            the UI class, not <code>null</code>
+     * @param phase
+     *            the phase, not <code>null</code>
+     * @return the object name
+     * @throws JMException
+     *             if the name is invalid
+     */
+    protected ObjectName getObjectName(Class<? extends UI> uiClass,
+            Phase phase) throws JMException {
+        return new ObjectName("com.vaadin:type=ServiceMetrics,service="
+                + ObjectName.quote(serviceName) + ",ui="
+                + ObjectName.quote(uiClass.getName()) + ",phase="
+                + ObjectName.quote(phase.name()));
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(HistogramServiceMetrics.class.getName());
+    }
+}
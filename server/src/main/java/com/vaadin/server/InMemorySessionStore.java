@@ -0,0 +1,79 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Session store keeping the serialized sessions in memory, e.g. for testing
+ * or for passivating sessions to save memory in a single server.
+ *
+ * @since 8.1
+ * @author Vaadin Ltd
+ */
+public class InMemorySessionStore implements SessionStore {
+
+    /**
+     * The stored entries of a session.
+     */
+    private static class Entries implements Serializable {
+        private volatile byte[] session;
+        private final Map<Integer, byte[]> uis = new ConcurrentHashMap<>();
+    }
+
+    private final Map<String, Entries> sessions = new ConcurrentHashMap<>();
+
+    @Override
+    public byte[] loadSession(String sessionId) {
+        Entries entries = sessions.get(sessionId);
+        return entries == null ? null : entries.session;
+    }
+
+    @Override
+    public void storeSession(String sessionId, byte[] data) {
+        getEntries(sessionId).session = data;
+    }
+
+    @Override
+    public byte[] loadUI(String sessionId, int uiId) {
+        Entries entries = sessions.get(sessionId);
+        return entries == null ? null : entries.uis.get(uiId);
+    }
+
+    @Override
+    public void storeUI(String sessionId, int uiId, byte[] data) {
+        getEntries(sessionId).uis.put(uiId, data);
+    }
+
+    @Override
+    public void removeUI(String sessionId, int uiId) {
+        Entries entries = sessions.get(sessionId);
+        if (entries != null) {
+            entries.uis.remove(uiId);
+        }
+    }
+
+    @Override
+    public void removeSession(String sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    private Entries getEntries(String sessionId) {
+        return sessions.computeIfAbsent(sessionId, id -> new Entries());
+    }
+}
@@ -0,0 +1,489 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.io.StreamCorruptedException;
+import java.lang.reflect.Array;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.vaadin.ui.UI;
+import com.vaadin.util.CurrentInstance;
+
+/**
+ * Session serializer that serializes each UI separately from the session and
+ * only re-serializes the UIs that have changed since the session was last
+ * serialized or deserialized. This reduces the CPU cost of storing a session
+ * with many UIs after each request, at the cost of keeping the serialized form
+ * of each UI and references to the objects in it in memory.
+ * <p>
+ * <strong>Whether a UI has changed is a heuristic.</strong> A UI is
+ * serialized again if {@link UI#isSerializationDirty()} is set or if it has
+ * any dirty connectors. The framework marks a UI dirty when a connector in it
+ * is marked dirty, when a heartbeat is received for it and when the session
+ * lock is released while it is the current UI. Any other change to a UI, e.g.
+ * to a bean referenced by one of its components while another UI is the
+ * current UI, is not noticed. The application must then call
+ * {@link UI#setSerializationDirty(boolean)}, or the previously serialized,
+ * outdated form of the UI is stored again.
+ * <p>
+ * Since the UIs and the session are serialized separately, objects shared
+ * between them would be deserialized as separate copies. Any object
+ * referenced both from the session and a UI, or from two UIs, is therefore
+ * detected, and the complete session is then serialized using standard Java
+ * serialization instead. Strings, boxed primitives, enums and other
+ * immutable values are allowed to be shared.
+ *
+ * @since 8.1
+ * @author Vaadin Ltd
+ */
+public class IncrementalSessionSerializer implements SessionSerializer {
+
+    private static final int FORMAT_FULL = 0;
+    private static final int FORMAT_INCREMENTAL = 1;
+
+    /**
+     * Placeholder for the session in the serialized form of a UI.
+     */
+    private static class SessionReference implements Serializable {
+    }
+
+    /**
+     * The serialized form of a UI along with the objects written to it, other
+     * than immutable values. The objects are used for detecting objects shared
+     * with the session or other UIs without serializing the UI again.
+     */
+    static final class SerializedUI {
+        private final byte[] bytes;
+        private final Set<Object> objects;
+
+        SerializedUI(byte[] bytes, Set<Object> objects) {
+            this.bytes = bytes;
+            this.objects = objects;
+        }
+
+        byte[] getBytes() {
+            return bytes;
+        }
+
+        Set<Object> getObjects() {
+            return objects;
+        }
+    }
+
+    /**
+     * Thrown when the session or a UI references objects of another UI, or
+     * the session and a UI share objects, so that they cannot be serialized
+     * separately.
+     */
+    static class CrossReferenceException extends IOException {
+        CrossReferenceException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * Object stream for writing the session without its UIs or a UI without
+     * its session. The written objects are collected, and the objects that
+     * were not written the previous time are checked against the objects of
+     * the other parts of the session.
+     */
+    static class SessionObjectOutputStream extends ObjectOutputStream {
+        private final VaadinSession session;
+        private final UI ui;
+        private final Set<Object> objects;
+        private final Set<Object> previousObjects;
+        private final Map<String, Set<Object>> otherParts;
+
+        SessionObjectOutputStream(OutputStream out, VaadinSession session,
+                UI ui, Set<Object> objects, Set<Object> previousObjects,
+                Map<String, Set<Object>> otherParts) throws IOException {
+            super(out);
+            this.session = session;
+            this.ui = ui;
+            this.objects = objects;
+            this.previousObjects = previousObjects;
+            this.otherParts = otherParts;
+            enableReplaceObject(true);
+        }
+
+        @Override
+        protected Object replaceObject(Object obj) throws IOException {
+            if (obj == session) {
+                return ui == null ? obj : new SessionReference();
+            }
+            if (obj instanceof ClientConnector) {
+                UI owner = ((ClientConnector) obj).getUI();
+                if (owner != null && owner != ui
+                        && owner.getSession() == session) {
+                    throw new CrossReferenceException(obj.getClass().getName()
+                            + " of UI " + owner.getUIId()
+                            + " is referenced from " + describe(ui));
+                }
+            }
+            if (!isShareable(obj) && objects.add(obj)
+                    && !previousObjects.contains(obj)) {
+                for (Map.Entry<String, Set<Object>> part : otherParts
+                        .entrySet()) {
+                    if (part.getValue().contains(obj)) {
+                        throw new CrossReferenceException(
+                                obj.getClass().getName()
+                                        + " is referenced from both "
+                                        + part.getKey() + " and "
+                                        + describe(ui));
+                    }
+                }
+            }
+            return obj;
+        }
+    }
+
+    /**
+     * Object stream for reading a session without its UIs or a UI of an
+     * already read session. The objects read for a UI are collected like when
+     * writing it.
+     */
+    static class SessionObjectInputStream extends ObjectInputStream {
+        private final VaadinSession session;
+        private final Set<Object> objects;
+
+        SessionObjectInputStream(InputStream in, VaadinSession session,
+                Set<Object> objects) throws IOException {
+            super(in);
+            this.session = session;
+            this.objects = objects;
+            enableResolveObject(session != null);
+        }
+
+        @Override
+        protected Object resolveObject(Object obj) throws IOException {
+            if (obj instanceof SessionReference) {
+                return session;
+            }
+            if (!isShareable(obj)) {
+                objects.add(obj);
+            }
+            return obj;
+        }
+    }
+
+    /**
+     * Checks whether the given object can be deserialized as separate copies
+     * without changing the behavior of the application, i.e. whether it is an
+     * immutable value or a constant that is resolved when deserialized.
+     */
+    private static boolean isShareable(Object obj) {
+        Class<?> type = obj.getClass();
+        if (obj instanceof String || obj instanceof Enum
+                || obj instanceof Boolean || obj instanceof Character
+                || obj instanceof Locale || obj == Collections.EMPTY_LIST
+                || obj == Collections.EMPTY_SET
+                || obj == Collections.EMPTY_MAP) {
+            return true;
+        } else if (obj instanceof Number) {
+            // Boxed primitives, but e.g. not AtomicInteger
+            return type.getPackage() == Number.class.getPackage()
+                    || type == BigInteger.class || type == BigDecimal.class;
+        } else if (type.isArray()) {
+            return Array.getLength(obj) == 0;
+        }
+        return false;
+    }
+
+    private static String describe(UI ui) {
+        return ui == null ? "the session" : "UI " + ui.getUIId();
+    }
+
+    private static Set<Object> createObjectSet() {
+        return Collections.newSetFromMap(new IdentityHashMap<>());
+    }
+
+    @Override
+    public byte[] serialize(VaadinSession session) throws IOException {
+        Lock lock = session.getLockInstance();
+        if (lock != null) {
+            lock.lock();
+        }
+        try {
+            try {
+                // Loads the other UIs of a partially loaded session
+                session.getUIs();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            try {
+                return serializeIncrementally(session);
+            } catch (CrossReferenceException e) {
+                getLogger().log(Level.FINE,
+                        "Serializing the complete session", e);
+                session.setSerializedUIs(new HashMap<>());
+
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                bytes.write(FORMAT_FULL);
+                try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+                    out.writeObject(session);
+                }
+                return bytes.toByteArray();
+            }
+        } finally {
+            if (lock != null) {
+                lock.unlock();
+            }
+        }
+    }
+
+    private byte[] serializeIncrementally(VaadinSession session)
+            throws IOException {
+        Map<Integer, SerializedUI> serializedUIs = new LinkedHashMap<>();
+        byte[] sessionBytes = writeSessionAndUIs(session, serializedUIs);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(FORMAT_INCREMENTAL);
+        writeBlock(out, sessionBytes);
+        out.writeInt(serializedUIs.size());
+        for (Map.Entry<Integer, SerializedUI> entry : serializedUIs
+                .entrySet()) {
+            out.writeInt(entry.getKey().intValue());
+            writeBlock(out, entry.getValue().getBytes());
+        }
+        session.setSerializedUIs(serializedUIs);
+
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Serializes a session without its UIs along with the UIs of the session
+     * that have changed since they were last serialized. The previous
+     * serialized form is reused for the other UIs. Objects referenced from
+     * more than one of the serialized parts are detected also when the
+     * previous serialized form of a UI is reused.
+     *
+     * @param session
+     *            the session to serialize
+     * @param serializedUIs
+     *            the map to which the serialized form of each loaded UI is
+     *            put, by UI id
+     * @return the serialized session
+     * @throws CrossReferenceException
+     *             if the parts of the session cannot be serialized separately
+     * @throws IOException
+     *             if the session could not be serialized
+     */
+    byte[] writeSessionAndUIs(VaadinSession session,
+            Map<Integer, SerializedUI> serializedUIs) throws IOException {
+        /*
+         * An object already written to a part the previous time has been
+         * checked against the other parts then, so only new objects are
+         * checked. The previous objects of a changed UI stand in for its
+         * current objects until it has been written.
+         */
+        Map<Integer, SerializedUI> previousUIs = session.getSerializedUIs();
+        Map<String, Set<Object>> parts = new HashMap<>();
+        for (UI ui : session.getLoadedUIs()) {
+            SerializedUI previous = previousUIs
+                    .get(Integer.valueOf(ui.getUIId()));
+            if (previous != null) {
+                parts.put(describe(ui), previous.getObjects());
+            }
+            if (previous != null && !isChanged(ui)) {
+                serializedUIs.put(Integer.valueOf(ui.getUIId()), previous);
+            } else {
+                // Keep the order of the UIs
+                serializedUIs.put(Integer.valueOf(ui.getUIId()), null);
+            }
+        }
+
+        Set<Object> sessionObjects = createObjectSet();
+        byte[] sessionBytes = writeObject(session, session, null,
+                sessionObjects, Collections.emptySet(), parts);
+        parts.put(describe(null), sessionObjects);
+
+        List<UI> writtenUIs = new ArrayList<>();
+        try {
+            for (UI ui : session.getLoadedUIs()) {
+                Integer uiId = Integer.valueOf(ui.getUIId());
+                if (serializedUIs.get(uiId) == null) {
+                    Set<Object> previousObjects = parts.remove(describe(ui));
+                    if (previousObjects == null) {
+                        previousObjects = Collections.emptySet();
+                    }
+                    Set<Object> uiObjects = createObjectSet();
+                    // Cleared first so that concurrent heartbeats are not
+                    // missed
+                    ui.setSerializationDirty(false);
+                    writtenUIs.add(ui);
+                    byte[] uiBytes = writeObject(ui, session, ui, uiObjects,
+                            previousObjects, parts);
+                    parts.put(describe(ui), uiObjects);
+                    serializedUIs.put(uiId,
+                            new SerializedUI(uiBytes, uiObjects));
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Nothing is stored, so the UIs must be written again next time
+            writtenUIs.forEach(ui -> ui.setSerializationDirty(true));
+            throw e;
+        }
+        return sessionBytes;
+    }
+
+    /**
+     * Checks whether a UI may have changed since it was last serialized. A UI
+     * with dirty connectors is always considered changed since connectors
+     * that are already dirty are not marked dirty again when changed.
+     *
+     * @param ui
+     *            the UI to check
+     * @return <code>true</code> if the UI must be serialized again, otherwise
+     *         <code>false</code>
+     */
+    protected boolean isChanged(UI ui) {
+        return ui.isSerializationDirty()
+                || ui.getConnectorTracker().hasDirtyConnectors();
+    }
+
+    private static byte[] writeObject(Object obj, VaadinSession session,
+            UI ui, Set<Object> objects, Set<Object> previousObjects,
+            Map<String, Set<Object>> otherParts) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new SessionObjectOutputStream(bytes,
+                session, ui, objects, previousObjects, otherParts)) {
+            out.writeObject(obj);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeBlock(DataOutputStream out, byte[] block)
+            throws IOException {
+        out.writeInt(block.length);
+        out.write(block);
+    }
+
+    @Override
+    public VaadinSession deserialize(byte[] data)
+            throws IOException, ClassNotFoundException {
+        DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(data));
+        int format = in.readByte();
+        if (format == FORMAT_FULL) {
+            try (ObjectInputStream objectIn = new ObjectInputStream(in)) {
+                return (VaadinSession) objectIn.readObject();
+            }
+        } else if (format != FORMAT_INCREMENTAL) {
+            throw new StreamCorruptedException(
+                    "Unknown session format " + format);
+        }
+
+        VaadinSession session = readSession(readBlock(in));
+        Map<Integer, SerializedUI> serializedUIs = new HashMap<>();
+        int uiCount = in.readInt();
+        for (int i = 0; i < uiCount; i++) {
+            Integer uiId = Integer.valueOf(in.readInt());
+            serializedUIs.put(uiId, readUI(readBlock(in), session));
+        }
+        session.setSerializedUIs(serializedUIs);
+        return session;
+    }
+
+    /**
+     * Deserializes a session serialized using
+     * {@link #writeSessionAndUIs(VaadinSession, Map)}.
+     *
+     * @param bytes
+     *            the serialized session
+     * @return the session, without any UIs
+     * @throws IOException
+     *             if the session could not be deserialized
+     * @throws ClassNotFoundException
+     *             if a class of a serialized object could not be found
+     */
+    static VaadinSession readSession(byte[] bytes)
+            throws IOException, ClassNotFoundException {
+        return (VaadinSession) readObject(bytes, null, createObjectSet());
+    }
+
+    /**
+     * Deserializes a UI serialized using
+     * {@link #writeSessionAndUIs(VaadinSession, Map)} and adds it to the
+     * session.
+     *
+     * @param bytes
+     *            the serialized UI
+     * @param session
+     *            the deserialized session of the UI
+     * @return the serialized form of the UI along with the objects read
+     * @throws IOException
+     *             if the UI could not be deserialized
+     * @throws ClassNotFoundException
+     *             if a class of a serialized object could not be found
+     */
+    static SerializedUI readUI(byte[] bytes, VaadinSession session)
+            throws IOException, ClassNotFoundException {
+        Map<Class<?>, CurrentInstance> old = CurrentInstance
+                .setCurrent(session);
+        try {
+            Set<Object> objects = createObjectSet();
+            session.addDeserializedUI(
+                    (UI) readObject(bytes, session, objects));
+            return new SerializedUI(bytes, objects);
+        } finally {
+            CurrentInstance.restoreInstances(old);
+        }
+    }
+
+    private static Object readObject(byte[] bytes, VaadinSession session,
+            Set<Object> objects) throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new SessionObjectInputStream(
+                new ByteArrayInputStream(bytes), session, objects)) {
+            return in.readObject();
+        }
+    }
+
+    private static byte[] readBlock(DataInputStream in) throws IOException {
+        byte[] block = new byte[in.readInt()];
+        in.readFully(block);
+        return block;
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(IncrementalSessionSerializer.class.getName());
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+/**
+ * A specialized RequestHandler which only handles requests with a given path
+ * info prefix. {@link VaadinService} uses the prefix to dispatch requests
+ * directly to the handlers that can handle them instead of consulting every
+ * registered request handler.
+ * <p>
+ * Request handlers that do not implement this interface, or return
+ * <code>null</code> from {@link #getPathPrefix()}, are consulted for all
+ * requests.
+ *
+ * @since 8.1
+ * @author Vaadin Ltd
+ */
+public interface PathPrefixRequestHandler extends RequestHandler {
+
+    /**
+     * Gets the prefix of the path info of the requests handled by this request
+     * handler, without a leading slash, e.g. <code>"UIDL/"</code>. The part of
+     * the prefix before the first slash must be a complete path segment.
+     * <p>
+     * The handler is only invoked for requests whose path info starts with the
+     * prefix. Subclasses that change which requests the handler accepts should
+     * also override this method.
+     *
+     * @return the path info prefix of the handled requests, or
+     *         <code>null</code> if the handler can handle any request
+     */
+    String getPathPrefix();
+
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Routing table that selects the request handlers to consult for a request
+ * based on its path info. Handlers declaring a path prefix through
+ * {@link PathPrefixRequestHandler} are only included for requests matching
+ * their prefix, while the relative order of the handlers is preserved. Other
+ * handlers are included for all requests.
+ *
+ * @since 8.1
+ * @author Vaadin Ltd
+ */
+class RequestHandlerRouter implements Serializable {
+
+    private static class Route implements Serializable {
+        private final String prefix;
+        private final List<RequestHandler> handlers;
+
+        private Route(String prefix, List<RequestHandler> handlers) {
+            this.prefix = prefix;
+            this.handlers = handlers;
+        }
+    }
+
+    /**
+     * Routes by the first path segment, longest prefix first.
+     */
+    private final Map<String, List<Route>> routes = new HashMap<>();
+
+    /**
+     * Handlers for requests that do not match any declared prefix.
+     */
+    private final List<RequestHandler> unprefixedHandlers;
+
+    /**
+     * Creates a routing table for the given request handlers.
+     *
+     * @param requestHandlers
+     *            the request handlers in the order they should be consulted
+     */
+    public RequestHandlerRouter(Iterable<RequestHandler> requestHandlers) {
+        Set<String> prefixes = new LinkedHashSet<>();
+        List<RequestHandler> unprefixed = new ArrayList<>();
+        for (RequestHandler handler : requestHandlers) {
+            String prefix = getPathPrefix(handler);
+            if (prefix == null) {
+                unprefixed.add(handler);
+            } else {
+                prefixes.add(prefix);
+            }
+        }
+        unprefixedHandlers = Collections.unmodifiableList(unprefixed);
+
+        for (String prefix : prefixes) {
+            List<RequestHandler> handlers = new ArrayList<>();
+            for (RequestHandler handler : requestHandlers) {
+                String handlerPrefix = getPathPrefix(handler);
+                if (handlerPrefix == null || prefix.startsWith(handlerPrefix)) {
+                    handlers.add(handler);
+                }
+            }
+            List<Route> segmentRoutes = routes.computeIfAbsent(
+                    getFirstSegment(prefix), segment -> new ArrayList<>());
+            segmentRoutes.add(new Route(prefix,
+                    Collections.unmodifiableList(handlers)));
+            segmentRoutes.sort((route1, route2) -> route2.prefix.length()
+                    - route1.prefix.length());
+        }
+    }
+
+    /**
+     * Gets the request handlers to consult for the given request, in the order
+     * they should be consulted.
+     *
+     * @param request
+     *            the request to route
+     * @return the request handlers for the request
+     */
+    public List<RequestHandler> getRequestHandlers(VaadinRequest request) {
+        String pathInfo = request.getPathInfo();
+        // Path prefixes are matched after the leading slash
+        if (pathInfo == null || !pathInfo.startsWith("/")
+                || routes.isEmpty()) {
+            return unprefixedHandlers;
+        }
+
+        int segmentEnd = pathInfo.indexOf('/', 1);
+        if (segmentEnd == -1) {
+            segmentEnd = pathInfo.length();
+        }
+        List<Route> segmentRoutes = routes
+                .get(pathInfo.substring(1, segmentEnd));
+        if (segmentRoutes != null) {
+            for (Route route : segmentRoutes) {
+                if (pathInfo.startsWith(route.prefix, 1)) {
+                    return route.handlers;
+                }
+            }
+        }
+        return unprefixedHandlers;
+    }
+
+    private static String getPathPrefix(RequestHandler handler) {
+        if (handler instanceof PathPrefixRequestHandler) {
+            String prefix = ((PathPrefixRequestHandler) handler)
+                    .getPathPrefix();
+            if (prefix != null && prefix.startsWith("/")) {
+                prefix = prefix.substring(1);
+            }
+            if (prefix == null || prefix.isEmpty()) {
+                return null;
+            }
+            return prefix;
+        }
+        return null;
+    }
+
+    private static String getFirstSegment(String path) {
+        int slashIndex = path.indexOf('/');
+        if (slashIndex == -1) {
+            return path;
+        }
+        return path.substring(0, slashIndex);
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+
+import com.vaadin.ui.UI;
+
+/**
+ * Service provider interface for recording the time spent in different phases
+ * of server-side processing, e.g. for monitoring where time goes in
+ * production. The metrics implementation used by a service is set using
+ * {@link VaadinService#setMetrics(ServiceMetrics)}.
+ * <p>
+ * Implementations are called from many threads concurrently and should record
+ * the measurements with as little overhead as possible. The default,
+ * {@link #NO_OP}, does not read the clock or allocate any objects.
+ *
+ * @see HistogramServiceMetrics
+ * @since 8.1
+ * @author Vaadin Ltd
+ */
+public interface ServiceMetrics extends Serializable {
+
+    /**
+     * The measured phases of server-side processing.
+     */
+    public enum Phase {
+        /**
+         * Handling of a complete request, including waiting for the session
+         * lock.
+         */
+        REQUEST,
+        /**
+         * Waiting for another thread to release the session lock.
+         */
+        LOCK_WAIT,
+        /**
+         * Invoking the RPC calls and variable changes received from the
+         * client.
+         */
+        RPC_HANDLING,
+        /**
+         * Writing a complete response or push message for a UI.
+         */
+        RESPONSE_WRITING,
+        /**
+         * Calling beforeClientResponse for the dirty connectors of a UI.
+         */
+        BEFORE_CLIENT_RESPONSE,
+        /**
+         * Encoding the shared states of the dirty connectors of a UI.
+         */
+        STATE_ENCODING,
+        /**
+         * Encoding the types of the connectors that are new to the client.
+         */
+        TYPE_ENCODING,
+        /**
+         * Encoding the changed connector hierarchy of a UI.
+         */
+        HIERARCHY_ENCODING,
+        /**
+         * Encoding the pending server to client RPC calls of a UI.
+         */
+        CLIENT_RPC_ENCODING,
+        /**
+         * Fetching items from a data provider to send to the client.
+         */
+        DATA_FETCH,
+        /**
+         * Sending a push message to the client.
+         */
+        PUSH_SEND;
+    }
+
+    /**
+     * Metrics implementation that records nothing.
+     */
+    public static final ServiceMetrics NO_OP = new ServiceMetrics() {
+        @Override
+        public void record(Class<? extends UI> uiClass, Phase phase,
+                long nanos) {
+            // Nothing to record
+        }
+
+        @Override
+        public long start() {
+            return 0;
+        }
+
+        @Override
+        public void end(UI ui, Phase phase, long startTime) {
+            // Nothing to record
+        }
+    };
+
+    /**
+     * Records the time spent in a phase.
+     *
+     * @param uiClass
+     *            the class of the UI the time was spent for, or
+     *            <code>UI.class</code> if the phase is not related to a
+     *            specific UI
+     * @param phase
+     *            the measured phase, not <code>null</code>
+     * @param nanos
+     *            the time spent in nanoseconds
+     */
+    public void record(Class<? extends UI> uiClass, Phase phase, long nanos);
+
+    /**
+     * Starts measuring a phase.
+     *
+     * @return the start time to pass to {@link #end(UI, Phase, long)}
+     */
+    public default long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Ends measuring a phase started using {@link #start()} and records the
+     * elapsed time.
+     *
+     * @param ui
+     *            the UI the time was spent for, or <code>null</code> if the
+     *            phase is not related to a specific UI
+     * @param phase
+     *            the measured phase, not <code>null</code>
+     * @param startTime
+     *            the start time returned by {@link #start()}
+     */
+    public default void end(UI ui, Phase phase, long startTime) {
+        record(ui == null ? UI.class : ui.getClass(), phase,
+                System.nanoTime() - startTime);
+    }
+
+    /**
+     * Gets the metrics implementation used by the given service.
+     *
+     * @param service
+     *            the service, or <code>null</code>
+     * @return the metrics of the service, or {@link #NO_OP} if there is no
+     *         service or it does not use metrics
+     */
+    public static ServiceMetrics get(VaadinService service) {
+        ServiceMetrics metrics = service == null ? null : service.getMetrics();
+        return metrics == null ? NO_OP : metrics;
+    }
+
+    /**
+     * Gets the metrics implementation used by the service of the given UI.
+     *
+     * @param ui
+     *            the UI, or <code>null</code>
+     * @return the metrics of the service of the UI, or {@link #NO_OP} if the
+     *         UI is not attached to a service that uses metrics
+     */
+    public static ServiceMetrics get(UI ui) {
+        VaadinSession session = ui == null ? null : ui.getSession();
+        return get(session == null ? null : session.getService());
+    }
+}
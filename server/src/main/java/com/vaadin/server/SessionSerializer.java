@@ -0,0 +1,64 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Strategy for converting a {@link VaadinSession} to bytes and back, used
+ * when a session is stored outside the servlet container, e.g. for replicating
+ * it in a cluster or for passivating it in a cache or a database. The strategy
+ * used by a service is set using
+ * {@link VaadinService#setSessionSerializer(SessionSerializer)}.
+ *
+ * @see JavaSessionSerializer
+ * @see IncrementalSessionSerializer
+ * @since 8.1
+ * @author Vaadin Ltd
+ */
+public interface SessionSerializer extends Serializable {
+
+    /**
+     * Serializes the given session. The session lock should be held or the
+     * session should otherwise not be accessed while it is serialized.
+     *
+     * @param session
+     *            the session to serialize, not <code>null</code>
+     * @return the serialized session
+     * @throws IOException
+     *             if the session could not be serialized
+     */
+    public byte[] serialize(VaadinSession session) throws IOException;
+
+    /**
+     * Deserializes a session serialized using
+     * {@link #serialize(VaadinSession)}. The transient fields of the returned
+     * session must be restored using
+     * {@link VaadinService#storeSession(VaadinSession, WrappedSession)} before
+     * using it.
+     *
+     * @param data
+     *            the serialized session, not <code>null</code>
+     * @return the deserialized session
+     * @throws IOException
+     *             if the session could not be deserialized
+     * @throws ClassNotFoundException
+     *             if a class of a serialized object could not be found
+     */
+    public VaadinSession deserialize(byte[] data)
+            throws IOException, ClassNotFoundException;
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.IOException;
+import java.io.Serializable;
+
+/**
+ * Storage for serialized sessions outside the servlet container, e.g. a cache,
+ * a database or the file system. The session and each of its UIs are stored
+ * as separate entries so that a request only needs to load and store the
+ * entries it uses. Used through {@link ShardedSessionPersistence}.
+ * <p>
+ * Implementations must be thread safe. Access to the entries of one session
+ * is serialized by the caller.
+ *
+ * @see InMemorySessionStore
+ * @see FileSessionStore
+ * @since 8.1
+ * @author Vaadin Ltd
+ */
+public interface SessionStore extends Serializable {
+
+    /**
+     * Loads the session entry of a session.
+     *
+     * @param sessionId
+     *            the id of the session, not <code>null</code>
+     * @return the stored data, or <code>null</code> if nothing is stored for
+     *         the session
+     * @throws IOException
+     *             if loading fails
+     */
+    public byte[] loadSession(String sessionId) throws IOException;
+
+    /**
+     * Stores the session entry of a session, replacing any previous entry.
+     *
+     * @param sessionId
+     *            the id of the session, not <code>null</code>
+     * @param data
+     *            the data to store, not <code>null</code>
+     * @throws IOException
+     *             if storing fails
+     */
+    public void storeSession(String sessionId, byte[] data)
+            throws IOException;
+
+    /**
+     * Loads the entry of a UI in a session.
+     *
+     * @param sessionId
+     *            the id of the session, not <code>null</code>
+     * @param uiId
+     *            the id of the UI
+     * @return the stored data, or <code>null</code> if nothing is stored for
+     *         the UI
+     * @throws IOException
+     *             if loading fails
+     */
+    public byte[] loadUI(String sessionId, int uiId) throws IOException;
+
+    /**
+     * Stores the entry of a UI in a session, replacing any previous entry.
+     *
+     * @param sessionId
+     *            the id of the session, not <code>null</code>
+     * @param uiId
+     *            the id of the UI
+     * @param data
+     *            the data to store, not <code>null</code>
+     * @throws IOException
+     *             if storing fails
+     */
+    public void storeUI(String sessionId, int uiId, byte[] data)
+            throws IOException;
+
+    /**
+     * Removes the entry of a UI in a session. Does nothing if there is no
+     * such entry.
+     *
+     * @param sessionId
+     *            the id of the session, not <code>null</code>
+     * @param uiId
+     *            the id of the UI
+     * @throws IOException
+     *             if removing fails
+     */
+    public void removeUI(String sessionId, int uiId) throws IOException;
+
+    /**
+     * Removes the session entry and all UI entries of a session.
+     *
+     * @param sessionId
+     *            the id of the session, not <code>null</code>
+     * @throws IOException
+     *             if removing fails
+     */
+    public void removeSession(String sessionId) throws IOException;
+}
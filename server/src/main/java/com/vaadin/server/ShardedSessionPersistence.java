@@ -0,0 +1,421 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.io.StreamCorruptedException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.vaadin.annotations.PreserveOnRefresh;
+import com.vaadin.server.IncrementalSessionSerializer.CrossReferenceException;
+import com.vaadin.server.IncrementalSessionSerializer.SerializedUI;
+import com.vaadin.shared.ApplicationConstants;
+import com.vaadin.shared.ui.ui.UIConstants;
+import com.vaadin.ui.UI;
+
+/**
+ * Persists sessions in a {@link SessionStore} with each UI stored as a separate
+ * entry. Only the UI targeted by a request is loaded and only the loaded UIs
+ * that have changed are stored again, so that the cost of persisting a session
+ * after a request depends on the UI that was used rather than on the number of
+ * UIs in the session.
+ * <p>
+ * A session loaded for one UI is {@link VaadinSession#isPartiallyLoaded()
+ * partially loaded}. The other UIs of the session are loaded from the store
+ * when they are needed, e.g. by {@link VaadinSession#getUIs()}, so code that
+ * iterates over all UIs of the session should use
+ * {@link VaadinSession#getLoadedUIs()} if loading every UI is not needed.
+ * Inactive UIs that are not loaded are only removed when the session expires.
+ * The same restrictions on shared objects apply as for
+ * {@link IncrementalSessionSerializer}. If the session references the
+ * components of a UI or a UI references another UI, all UIs are loaded and the
+ * complete session is stored as one entry.
+ *
+ * @since 8.1
+ * @author Vaadin Ltd
+ */
+public class ShardedSessionPersistence implements Serializable {
+
+    private static final int FORMAT_FULL = 0;
+    private static final int FORMAT_SHARDED = 1;
+
+    private final SessionStore store;
+    private final IncrementalSessionSerializer serializer = new IncrementalSessionSerializer();
+
+    /**
+     * Creates a new persistence using the given store.
+     *
+     * @param store
+     *            the session store to use, not <code>null</code>
+     */
+    public ShardedSessionPersistence(SessionStore store) {
+        if (store == null) {
+            throw new IllegalArgumentException("The store cannot be null");
+        }
+        this.store = store;
+    }
+
+    /**
+     * Gets the session store used by this persistence.
+     *
+     * @return the session store, not <code>null</code>
+     */
+    public SessionStore getStore() {
+        return store;
+    }
+
+    /**
+     * Loads a stored session with the given UI. The transient fields of the
+     * returned session must be restored using
+     * {@link VaadinService#storeSession(VaadinSession, WrappedSession)}
+     * before using it.
+     *
+     * @param sessionId
+     *            the id of the session, not <code>null</code>
+     * @param uiId
+     *            the id of the UI targeted by the request, or -1 to not load
+     *            any UI
+     * @return the loaded session, or <code>null</code> if the session is not
+     *         stored
+     * @throws IOException
+     *             if the session could not be loaded
+     * @throws ClassNotFoundException
+     *             if a class of a serialized object could not be found
+     */
+    public VaadinSession load(String sessionId, int uiId)
+            throws IOException, ClassNotFoundException {
+        return load(sessionId, uiId, null, false);
+    }
+
+    /**
+     * Loads a stored session with the UI needed for handling the given request.
+     * The UI is identified by the {@value UIConstants#UI_ID_PARAMETER}
+     * parameter or by the UI id in the path of
+     * <code>APP/[type]/[uiId]/</code> requests, e.g. connector resource, file
+     * upload and global resource requests. For other requests, only the UI
+     * with the embed id of the request is loaded so that a
+     * {@link PreserveOnRefresh} UI can be reused and a replaced UI can be
+     * closed. The transient fields of the returned session must be restored
+     * using {@link VaadinService#storeSession(VaadinSession, WrappedSession)}
+     * before using it.
+     *
+     * @param sessionId
+     *            the id of the session, not <code>null</code>
+     * @param request
+     *            the request to load the session for, not <code>null</code>
+     * @return the loaded session, or <code>null</code> if the session is not
+     *         stored
+     * @throws IOException
+     *             if the session could not be loaded
+     * @throws ClassNotFoundException
+     *             if a class of a serialized object could not be found
+     */
+    public VaadinSession load(String sessionId, VaadinRequest request)
+            throws IOException, ClassNotFoundException {
+        int uiId = getRequestUIId(request);
+        if (uiId != -1) {
+            return load(sessionId, uiId);
+        }
+        return load(sessionId, -1, getEmbedId(request), false);
+    }
+
+    /**
+     * Loads a stored session with all its UIs, e.g. for handling requests that
+     * need access to every UI of the session. The transient fields of the
+     * returned session must be restored using
+     * {@link VaadinService#storeSession(VaadinSession, WrappedSession)}
+     * before using it.
+     *
+     * @param sessionId
+     *            the id of the session, not <code>null</code>
+     * @return the loaded session, or <code>null</code> if the session is not
+     *         stored
+     * @throws IOException
+     *             if the session could not be loaded
+     * @throws ClassNotFoundException
+     *             if a class of a serialized object could not be found
+     */
+    public VaadinSession loadAll(String sessionId)
+            throws IOException, ClassNotFoundException {
+        return load(sessionId, -1, null, true);
+    }
+
+    private VaadinSession load(String sessionId, int uiId, String embedId,
+            boolean all) throws IOException, ClassNotFoundException {
+        byte[] data = store.loadSession(sessionId);
+        if (data == null) {
+            return null;
+        }
+        DataInputStream in = new DataInputStream(
+                new ByteArrayInputStream(data));
+        int format = in.readByte();
+        if (format == FORMAT_FULL) {
+            try (ObjectInputStream objectIn = new ObjectInputStream(in)) {
+                return (VaadinSession) objectIn.readObject();
+            }
+        } else if (format != FORMAT_SHARDED) {
+            throw new StreamCorruptedException(
+                    "Unknown session format " + format);
+        }
+
+        Set<Integer> unloadedUIIds = new HashSet<>();
+        int uiCount = in.readInt();
+        for (int i = 0; i < uiCount; i++) {
+            unloadedUIIds.add(Integer.valueOf(in.readInt()));
+        }
+        byte[] sessionBytes = new byte[in.readInt()];
+        in.readFully(sessionBytes);
+        VaadinSession session = IncrementalSessionSerializer
+                .readSession(sessionBytes);
+
+        if (embedId != null) {
+            Integer embeddedUIId = session.getUIIdByEmbedId(embedId);
+            if (embeddedUIId != null) {
+                uiId = embeddedUIId.intValue();
+            }
+        }
+
+        Map<Integer, SerializedUI> serializedUIs = new HashMap<>();
+        if (all) {
+            for (Integer id : unloadedUIIds) {
+                loadUI(sessionId, session, id.intValue(), serializedUIs);
+            }
+            unloadedUIIds.clear();
+        } else if (unloadedUIIds.remove(Integer.valueOf(uiId))) {
+            loadUI(sessionId, session, uiId, serializedUIs);
+        }
+        session.setSerializedUIs(serializedUIs);
+        session.setUnloadedUIs(unloadedUIIds, this, sessionId);
+        return session;
+    }
+
+    private void loadUI(String sessionId, VaadinSession session, int uiId,
+            Map<Integer, SerializedUI> serializedUIs)
+            throws IOException, ClassNotFoundException {
+        byte[] uiBytes = store.loadUI(sessionId, uiId);
+        if (uiBytes == null) {
+            getLogger().log(Level.WARNING,
+                    "UI {0} of session {1} is missing from the store",
+                    new Object[] { uiId, sessionId });
+            return;
+        }
+        serializedUIs.put(Integer.valueOf(uiId),
+                IncrementalSessionSerializer.readUI(uiBytes, session));
+    }
+
+    /**
+     * Loads a UI of a partially loaded session when it is needed.
+     *
+     * @param sessionId
+     *            the id of the session
+     * @param session
+     *            the session loaded using this persistence
+     * @param uiId
+     *            the id of a UI that has not been loaded
+     * @throws IOException
+     *             if the UI could not be loaded
+     */
+    void loadUnloadedUI(String sessionId, VaadinSession session,
+            Integer uiId) throws IOException {
+        try {
+            loadUI(sessionId, session, uiId.intValue(),
+                    session.getSerializedUIs());
+        } catch (ClassNotFoundException e) {
+            throw new IOException("Could not load UI " + uiId, e);
+        }
+        session.getUnloadedUIIds().remove(uiId);
+    }
+
+    /**
+     * Stores a session loaded using {@link #load(String, int)} or created
+     * during the request. Only the loaded UIs that have changed and the
+     * session entry are stored.
+     *
+     * @param sessionId
+     *            the id of the session, not <code>null</code>
+     * @param session
+     *            the session to store, not <code>null</code>
+     * @throws IOException
+     *             if the session could not be stored
+     */
+    public void save(String sessionId, VaadinSession session)
+            throws IOException {
+        Lock lock = session.getLockInstance();
+        if (lock != null) {
+            lock.lock();
+        }
+        try {
+            try {
+                saveSharded(sessionId, session);
+            } catch (CrossReferenceException e) {
+                getLogger().log(Level.FINE,
+                        "Storing the complete session", e);
+                saveFull(sessionId, session);
+            }
+        } finally {
+            if (lock != null) {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void saveSharded(String sessionId, VaadinSession session)
+            throws IOException {
+        // Serialize everything before storing anything
+        Map<Integer, SerializedUI> previousUIs = session.getSerializedUIs();
+        Map<Integer, SerializedUI> serializedUIs = new HashMap<>();
+        byte[] sessionBytes = serializer.writeSessionAndUIs(session,
+                serializedUIs);
+
+        Set<Integer> uiIds = new HashSet<>(session.getUnloadedUIIds());
+        uiIds.addAll(serializedUIs.keySet());
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(FORMAT_SHARDED);
+        out.writeInt(uiIds.size());
+        for (Integer uiId : uiIds) {
+            out.writeInt(uiId.intValue());
+        }
+        out.writeInt(sessionBytes.length);
+        out.write(sessionBytes);
+        out.flush();
+
+        try {
+            for (Map.Entry<Integer, SerializedUI> entry : serializedUIs
+                    .entrySet()) {
+                SerializedUI serializedUI = entry.getValue();
+                if (serializedUI != previousUIs.get(entry.getKey())) {
+                    store.storeUI(sessionId, entry.getKey().intValue(),
+                            serializedUI.getBytes());
+                }
+            }
+            store.storeSession(sessionId, bytes.toByteArray());
+        } catch (IOException | RuntimeException e) {
+            // Store the written UIs again the next time
+            for (UI ui : session.getLoadedUIs()) {
+                Integer uiId = Integer.valueOf(ui.getUIId());
+                if (serializedUIs.get(uiId) != previousUIs.get(uiId)) {
+                    ui.setSerializationDirty(true);
+                }
+            }
+            throw e;
+        }
+        for (Integer uiId : previousUIs.keySet()) {
+            if (!serializedUIs.containsKey(uiId)) {
+                // Removed during the request
+                store.removeUI(sessionId, uiId.intValue());
+            }
+        }
+        session.setSerializedUIs(serializedUIs);
+    }
+
+    private void saveFull(String sessionId, VaadinSession session)
+            throws IOException {
+        for (Integer uiId : new ArrayList<>(session.getUnloadedUIIds())) {
+            loadUnloadedUI(sessionId, session, uiId);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(FORMAT_FULL);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(session);
+        }
+        store.storeSession(sessionId, bytes.toByteArray());
+
+        for (Integer uiId : session.getSerializedUIs().keySet()) {
+            store.removeUI(sessionId, uiId.intValue());
+        }
+        session.setSerializedUIs(new HashMap<>());
+        session.setUnloadedUIs(new HashSet<>(), null, null);
+    }
+
+    /**
+     * Gets the id of the UI targeted by the given request.
+     *
+     * @param request
+     *            the request
+     * @return the id of the UI, or -1 if the request does not identify a UI
+     */
+    static int getRequestUIId(VaadinRequest request) {
+        String uiId = request.getParameter(UIConstants.UI_ID_PARAMETER);
+        if (uiId == null) {
+            // APP/[type]/[uiId]/...
+            String pathInfo = request.getPathInfo();
+            String prefix = ApplicationConstants.APP_PATH + '/';
+            if (pathInfo == null) {
+                return -1;
+            } else if (pathInfo.startsWith("/")) {
+                pathInfo = pathInfo.substring(1);
+            }
+            if (!pathInfo.startsWith(prefix)) {
+                return -1;
+            }
+            String[] parts = pathInfo.substring(prefix.length()).split("/",
+                    3);
+            if (parts.length < 3) {
+                return -1;
+            }
+            uiId = parts[1];
+        }
+        try {
+            return Integer.parseInt(uiId);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static String getEmbedId(VaadinRequest request) {
+        // Same as UIInitHandler.getEmbedId
+        String windowName = request.getParameter("v-wn");
+        String appId = request.getParameter("v-appId");
+        if (windowName != null && appId != null) {
+            return windowName + '.' + appId;
+        }
+        return null;
+    }
+
+    /**
+     * Removes a session and all its UIs from the store, e.g. when the session
+     * has expired.
+     *
+     * @param sessionId
+     *            the id of the session, not <code>null</code>
+     * @throws IOException
+     *             if removing fails
+     */
+    public void remove(String sessionId) throws IOException {
+        store.removeSession(sessionId);
+    }
+
+    private static Logger getLogger() {
+        return Logger.getLogger(ShardedSessionPersistence.class.getName());
+    }
+}
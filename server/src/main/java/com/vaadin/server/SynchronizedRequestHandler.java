@@ -36,6 +36,15 @@ public abstract class SynchronizedRequestHandler implements RequestHandler {
             return false;
         }
 
+        if (isReadOnly()) {
+            session.lockRead();
+            try {
+                return synchronizedHandleRequest(session, request, response);
+            } finally {
+                session.unlockRead();
+            }
+        }
+
         session.lock();
         try {
             return synchronizedHandleRequest(session, request, response);
@@ -87,4 +96,21 @@ public abstract class SynchronizedRequestHandler implements RequestHandler {
         return true;
     }
 
+    /**
+     * Checks whether this handler only reads the state of the session and its
+     * UIs. Read-only handlers are run while holding the
+     * {@link VaadinSession#lockRead() read lock}, which allows running them
+     * concurrently with each other if read/write session locking is enabled.
+     * The default implementation returns <code>false</code>, which means that
+     * {@link #synchronizedHandleRequest(VaadinSession, VaadinRequest, VaadinResponse)}
+     * is called with the session locked exclusively.
+     *
+     * @since 8.1
+     * @return <code>true</code> if the handler does not modify the session or
+     *         its UIs; <code>false</code> otherwise
+     */
+    protected boolean isReadOnly() {
+        return false;
+    }
+
 }
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of time measurements. Measurements are counted in
+ * buckets by powers of two, which makes recording cheap at the cost of
+ * percentiles being estimates with up to a factor of two error.
+ *
+ * @see HistogramServiceMetrics
+ * @since 8.1
+ * @author Vaadin Ltd
+ */
+public class TimingHistogram implements TimingHistogramMXBean, Serializable {
+
+    /*
+     * Bucket i counts the measurements in [2^i, 2^(i+1)), except bucket 0
+     * which also counts measurements below 1.
+     */
+    private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a measurement.
+     *
+     * @param nanos
+     *            the measured time in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            // Clock adjustments, System.nanoTime should not go backwards
+            nanos = 0;
+        }
+        buckets.incrementAndGet(getBucket(nanos));
+        count.increment();
+        total.add(nanos);
+        if (nanos > max.get()) {
+            max.accumulateAndGet(nanos, Math::max);
+        }
+    }
+
+    private static int getBucket(long nanos) {
+        if (nanos == 0) {
+            return 0;
+        }
+        return Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos);
+    }
+
+    @Override
+    public long getCount() {
+        return count.sum();
+    }
+
+    @Override
+    public long getTotalNanos() {
+        return total.sum();
+    }
+
+    @Override
+    public long getMaxNanos() {
+        return max.get();
+    }
+
+    @Override
+    public long getMeanNanos() {
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        return getTotalNanos() / count;
+    }
+
+    /**
+     * Gets an estimate of the given percentile of the recorded measurements.
+     * The estimate is the upper bound of the bucket containing the percentile,
+     * but never more than the largest recorded measurement.
+     *
+     * @param percentile
+     *            the percentile, between 0 and 100
+     * @return the estimated percentile in nanoseconds, or 0 if nothing has
+     *         been recorded
+     */
+    public long getPercentileNanos(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException(
+                    "Percentile must be between 0 and 100");
+        }
+        long[] counts = new long[buckets.length()];
+        long count = 0;
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = buckets.get(i);
+            count += counts[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil(count * percentile / 100);
+        long cumulative = 0;
+        for (int i = 0; i < counts.length; i++) {
+            cumulative += counts[i];
+            if (cumulative >= rank && counts[i] != 0) {
+                // Overflows to Long.MAX_VALUE for the last used bucket
+                long upperBound = (1L << (i + 1)) - 1;
+                return Math.min(upperBound, getMaxNanos());
+            }
+        }
+        return getMaxNanos();
+    }
+
+    @Override
+    public long getMedianNanos() {
+        return getPercentileNanos(50);
+    }
+
+    @Override
+    public long getPercentile95Nanos() {
+        return getPercentileNanos(95);
+    }
+
+    @Override
+    public long getPercentile99Nanos() {
+        return getPercentileNanos(99);
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+/**
+ * Management interface exposing a {@link TimingHistogram} through JMX.
+ *
+ * @see HistogramServiceMetrics#registerMBeans(javax.management.MBeanServer,
+ *      String)
+ * @since 8.1
+ * @author Vaadin Ltd
+ */
+public interface TimingHistogramMXBean {
+
+    /**
+     * Gets the number of recorded measurements.
+     *
+     * @return the number of measurements
+     */
+    public long getCount();
+
+    /**
+     * Gets the sum of all recorded measurements.
+     *
+     * @return the total time in nanoseconds
+     */
+    public long getTotalNanos();
+
+    /**
+     * Gets the largest recorded measurement.
+     *
+     * @return the maximum time in nanoseconds
+     */
+    public long getMaxNanos();
+
+    /**
+     * Gets the mean of the recorded measurements.
+     *
+     * @return the mean time in nanoseconds, or 0 if nothing has been recorded
+     */
+    public long getMeanNanos();
+
+    /**
+     * Gets an estimate of the median of the recorded measurements.
+     *
+     * @return the estimated median in nanoseconds
+     */
+    public long getMedianNanos();
+
+    /**
+     * Gets an estimate of the 95th percentile of the recorded measurements.
+     *
+     * @return the estimated 95th percentile in nanoseconds
+     */
+    public long getPercentile95Nanos();
+
+    /**
+     * Gets an estimate of the 99th percentile of the recorded measurements.
+     *
+     * @return the estimated 99th percentile in nanoseconds
+     */
+    public long getPercentile99Nanos();
+}
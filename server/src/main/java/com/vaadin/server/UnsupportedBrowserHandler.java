@@ -33,6 +33,25 @@ public class UnsupportedBrowserHandler extends SynchronizedRequestHandler {
     /** Cookie used to ignore browser checks */
     public static final String FORCE_LOAD_COOKIE = "vaadinforceload=1";
 
+    @Override
+    protected boolean isReadOnly() {
+        return true;
+    }
+
+    /**
+     * Heartbeat, UIDL and push requests are sent by an already loaded client
+     * engine, so they never need the browser check. Skipping them avoids
+     * locking the session, which would e.g. make heartbeats wait for other
+     * requests holding the lock.
+     */
+    @Override
+    @SuppressWarnings("deprecation")
+    protected boolean canHandleRequest(VaadinRequest request) {
+        return !ServletPortletHelper.isHeartbeatRequest(request)
+                && !ServletPortletHelper.isUIDLRequest(request)
+                && !ServletPortletHelper.isPushRequest(request);
+    }
+
     @Override
     public boolean synchronizedHandleRequest(VaadinSession session,
             VaadinRequest request, VaadinResponse response) throws IOException {
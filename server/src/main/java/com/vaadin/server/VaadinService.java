@@ -38,10 +38,13 @@ import java.util.ServiceLoader;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -135,11 +138,21 @@ public abstract class VaadinService implements Serializable {
     private ClassLoader classLoader;
 
     private Iterable<RequestHandler> requestHandlers;
+
+    private RequestHandlerRouter requestHandlerRouter;
     private Iterable<DependencyFilter> dependencyFilters;
     private ConnectorIdGenerator connectorIdGenerator;
 
     private boolean atmosphereAvailable = checkAtmosphereSupport();
 
+    private transient Executor accessExecutor;
+
+    private final AccessQueueMetrics accessQueueMetrics = new AccessQueueMetrics();
+
+    private ServiceMetrics metrics = ServiceMetrics.NO_OP;
+
+    private SessionSerializer sessionSerializer = new JavaSessionSerializer();
+
     /**
      * Keeps track of whether a warning about missing push support has already
      * been logged. This is used to avoid spamming the log with the same message
@@ -207,6 +220,7 @@ public abstract class VaadinService implements Serializable {
         Collections.reverse(handlers);
 
         requestHandlers = Collections.unmodifiableCollection(handlers);
+        requestHandlerRouter = new RequestHandlerRouter(getRequestHandlers());
 
         dependencyFilters = Collections.unmodifiableCollection(
                 initDependencyFilters(event.getAddedDependencyFilters()));
@@ -598,9 +612,10 @@ public abstract class VaadinService implements Serializable {
      * @param wrappedSession
      *            The wrapped session the lock is associated with
      * @param lock
-     *            The lock object
+     *            The lock object, either a {@link ReentrantLock} or a
+     *            {@link ReentrantReadWriteLock}
      */
-    private void setSessionLock(WrappedSession wrappedSession, Lock lock) {
+    private void setSessionLock(WrappedSession wrappedSession, Object lock) {
         if (wrappedSession == null) {
             throw new IllegalArgumentException(
                     "Can't set a lock for a null session");
@@ -641,15 +656,63 @@ public abstract class VaadinService implements Serializable {
             return (ReentrantLock) lock;
         }
 
+        if (lock instanceof ReentrantReadWriteLock) {
+            return ((ReentrantReadWriteLock) lock).writeLock();
+        }
+
         if (lock == null) {
             return null;
         }
 
         throw new RuntimeException(
-                "Something else than a ReentrantLock was stored in the "
+                "Something else than a ReentrantLock or a ReentrantReadWriteLock was stored in the "
                         + getLockAttributeName() + " in the session");
     }
 
+    /**
+     * Gets the read/write lock used to lock the VaadinSession associated with
+     * the given wrapped session, if read/write session locking is enabled.
+     *
+     * @see #isReadWriteSessionLockEnabled()
+     * @param wrappedSession
+     *            The wrapped session
+     * @return the read/write lock of the wrapped session, or <code>null</code>
+     *         if the session uses an exclusive lock
+     */
+    ReentrantReadWriteLock getSessionReadWriteLock(
+            WrappedSession wrappedSession) {
+        Object lock = wrappedSession.getAttribute(getLockAttributeName());
+        if (lock instanceof ReentrantReadWriteLock) {
+            return (ReentrantReadWriteLock) lock;
+        }
+        return null;
+    }
+
+    /**
+     * Checks whether new sessions should be protected by a read/write lock
+     * instead of an exclusive lock. With a read/write lock, request handling
+     * that only reads session state, e.g. serving resources, can run
+     * concurrently using {@link VaadinSession#lockRead()}. Work that modifies
+     * the session still requires {@link VaadinSession#lock()}, which waits for
+     * all readers to finish.
+     * <p>
+     * The default implementation reads the
+     * {@value Constants#SERVLET_PARAMETER_READ_WRITE_SESSION_LOCK} property
+     * from the deployment configuration, which is <code>false</code> by
+     * default.
+     *
+     * @since 8.1
+     * @return <code>true</code> to use a read/write lock for new sessions,
+     *         <code>false</code> to use an exclusive lock
+     */
+    protected boolean isReadWriteSessionLockEnabled() {
+        DeploymentConfiguration configuration = getDeploymentConfiguration();
+        return configuration != null && Boolean.parseBoolean(
+                configuration.getApplicationOrSystemProperty(
+                        Constants.SERVLET_PARAMETER_READ_WRITE_SESSION_LOCK,
+                        Boolean.FALSE.toString()));
+    }
+
     /**
      * Locks the given session for this service instance. Typically you want to
      * call {@link VaadinSession#lock()} instead of this method.
@@ -673,8 +736,13 @@ public abstract class VaadinService implements Serializable {
             synchronized (VaadinService.class) {
                 lock = getSessionLock(wrappedSession);
                 if (lock == null) {
-                    lock = new ReentrantLock();
-                    setSessionLock(wrappedSession, lock);
+                    if (isReadWriteSessionLockEnabled()) {
+                        setSessionLock(wrappedSession,
+                                new ReentrantReadWriteLock());
+                    } else {
+                        setSessionLock(wrappedSession, new ReentrantLock());
+                    }
+                    lock = getSessionLock(wrappedSession);
                 }
             }
         }
@@ -702,8 +770,8 @@ public abstract class VaadinService implements Serializable {
      */
     protected void unlockSession(WrappedSession wrappedSession) {
         assert getSessionLock(wrappedSession) != null;
-        assert ((ReentrantLock) getSessionLock(wrappedSession))
-                .isHeldByCurrentThread() : "Trying to unlock the session but it has not been locked by this thread";
+        assert VaadinSession.isHeldByCurrentThread(getSessionLock(
+                wrappedSession)) : "Trying to unlock the session but it has not been locked by this thread";
         getSessionLock(wrappedSession).unlock();
     }
 
@@ -713,6 +781,12 @@ public abstract class VaadinService implements Serializable {
         WrappedSession wrappedSession = getWrappedSession(request,
                 requestCanCreateSession);
 
+        VaadinSession loadedSession = findLoadedVaadinSession(request,
+                wrappedSession, requestCanCreateSession);
+        if (loadedSession != null) {
+            return loadedSession;
+        }
+
         try {
             lockSession(wrappedSession);
         } catch (IllegalStateException e) {
@@ -728,6 +802,84 @@ public abstract class VaadinService implements Serializable {
 
     }
 
+    /**
+     * Finds an existing session for the request without taking the exclusive
+     * session lock. Heartbeat requests look up the session without locking so
+     * that they are not delayed by other requests holding the lock. With
+     * read/write session locking, other requests look up the session holding
+     * only the read lock.
+     * <p>
+     * Only sessions already loaded by this service are returned. Closing or
+     * restarting a session and loading a session for the first time, e.g.
+     * after deserialization, still require the exclusive lock.
+     *
+     * @param request
+     *            the request to find a session for
+     * @param wrappedSession
+     *            the wrapped session of the request
+     * @param requestCanCreateSession
+     *            whether the request may create a new session
+     * @return the loaded session, or <code>null</code> if the session must be
+     *         found holding the exclusive lock
+     * @throws SessionExpiredException
+     *             if the wrapped session has been invalidated
+     */
+    private VaadinSession findLoadedVaadinSession(VaadinRequest request,
+            WrappedSession wrappedSession, boolean requestCanCreateSession)
+            throws SessionExpiredException {
+        if (hasParameter(request, URL_PARAMETER_RESTART_APPLICATION)
+                || hasParameter(request, URL_PARAMETER_CLOSE_APPLICATION)) {
+            return null;
+        }
+
+        try {
+            if (isHeartbeatRequest(request)) {
+                return getLoadedSession(request, wrappedSession,
+                        requestCanCreateSession);
+            }
+
+            ReentrantReadWriteLock lock = getSessionReadWriteLock(
+                    wrappedSession);
+            if (lock == null) {
+                return null;
+            }
+            lock.readLock().lock();
+            try {
+                return getLoadedSession(request, wrappedSession,
+                        requestCanCreateSession);
+            } finally {
+                lock.readLock().unlock();
+            }
+        } catch (IllegalStateException e) {
+            throw new SessionExpiredException();
+        }
+    }
+
+    private VaadinSession getLoadedSession(VaadinRequest request,
+            WrappedSession wrappedSession, boolean requestCanCreateSession)
+            throws SessionExpiredException {
+        if (!isLoadedSession(wrappedSession)) {
+            // Transient fields must be refreshed holding the lock
+            return null;
+        }
+        VaadinSession session = getExistingSession(request,
+                requestCanCreateSession);
+        if (session == null || session.getService() != this) {
+            return null;
+        }
+        return session;
+    }
+
+    private boolean isLoadedSession(WrappedSession wrappedSession) {
+        VaadinSession session = readFromHttpSession(wrappedSession);
+        return session != null && session.getService() == this;
+    }
+
+    @SuppressWarnings("deprecation")
+    private static boolean isHeartbeatRequest(VaadinRequest request) {
+        return ServletPortletHelper.isHeartbeatRequest(request);
+    }
+
     /**
      * Finds or creates a Vaadin session. Assumes necessary synchronization has
      * been done by the caller to ensure this is not called simultaneously by
@@ -742,8 +894,8 @@ public abstract class VaadinService implements Serializable {
     private VaadinSession doFindOrCreateVaadinSession(VaadinRequest request,
             boolean requestCanCreateSession)
             throws SessionExpiredException, ServiceException {
-        assert ((ReentrantLock) getSessionLock(request.getWrappedSession()))
-                .isHeldByCurrentThread() : "Session has not been locked by this thread";
+        assert VaadinSession.isHeldByCurrentThread(getSessionLock(request
+                .getWrappedSession())) : "Session has not been locked by this thread";
 
         /* Find an existing session for this request. */
         VaadinSession session = getExistingSession(request,
@@ -808,8 +960,8 @@ public abstract class VaadinService implements Serializable {
      */
     private VaadinSession createAndRegisterSession(VaadinRequest request)
             throws ServiceException {
-        assert ((ReentrantLock) getSessionLock(request.getWrappedSession()))
-                .isHeldByCurrentThread() : "Session has not been locked by this thread";
+        assert VaadinSession.isHeldByCurrentThread(getSessionLock(request
+                .getWrappedSession())) : "Session has not been locked by this thread";
 
         VaadinSession session = createVaadinSession(request);
 
@@ -1137,8 +1289,11 @@ public abstract class VaadinService implements Serializable {
                 VaadinSession serviceSession = (VaadinSession) value;
                 VaadinService service = serviceSession.getService();
                 // Use the same lock instance in the new session
+                ReentrantReadWriteLock readWriteLock = serviceSession
+                        .getReadWriteLock();
                 service.setSessionLock(newSession,
-                        serviceSession.getLockInstance());
+                        readWriteLock != null ? readWriteLock
+                                : serviceSession.getLockInstance());
 
                 service.storeSession(serviceSession, newSession);
                 serviceSession.setAttribute(PRESERVE_UNBOUND_SESSION_ATTRIBUTE,
@@ -1240,6 +1395,29 @@ public abstract class VaadinService implements Serializable {
         }
     }
 
+    /**
+     * Checks, without locking the session, whether
+     * {@link #cleanupSession(VaadinSession)} has anything to do for the given
+     * session.
+     *
+     * @param session
+     *            the session to check
+     * @return <code>true</code> if the session should be cleaned up,
+     *         <code>false</code> otherwise
+     */
+    private boolean isCleanupNeeded(VaadinSession session) {
+        if (session.getSession() == null) {
+            return true;
+        }
+        try {
+            long timeout = 1000L * getUidlRequestTimeout(session);
+            return session.isCleanupNeeded(timeout);
+        } catch (IllegalStateException e) {
+            // The underlying session has been invalidated
+            return true;
+        }
+    }
+
     /**
      * Removes those UIs from the given session for which {@link UI#isClosing()
      * isClosing} yields true.
@@ -1247,7 +1425,7 @@ public abstract class VaadinService implements Serializable {
      * @param session
      */
     private void removeClosedUIs(final VaadinSession session) {
-        ArrayList<UI> uis = new ArrayList<>(session.getUIs());
+        ArrayList<UI> uis = new ArrayList<>(session.getLoadedUIs());
         for (final UI ui : uis) {
             if (ui.isClosing()) {
                 ui.accessSynchronously(() -> {
@@ -1267,7 +1445,7 @@ public abstract class VaadinService implements Serializable {
      */
     private void closeInactiveUIs(VaadinSession session) {
         final String sessionId = session.getSession().getId();
-        for (final UI ui : session.getUIs()) {
+        for (final UI ui : session.getLoadedUIs()) {
             if (!isUIActive(ui) && !ui.isClosing()) {
                 ui.accessSynchronously(() -> {
                     getLogger().log(Level.FINE,
@@ -1332,6 +1510,8 @@ public abstract class VaadinService implements Serializable {
      * A UI is active if and only if its {@link UI#isClosing() isClosing}
      * returns false and {@link #getHeartbeatTimeout() getHeartbeatTimeout} is
      * negative or has not yet expired.
+     * <p>
+     * This method may be called without holding the session lock.
      *
      * @since 8.1
      *
@@ -1412,16 +1592,32 @@ public abstract class VaadinService implements Serializable {
             VaadinSession session) {
         if (session != null) {
             assert VaadinSession.getCurrent() == session;
-            session.lock();
-            try {
-                cleanupSession(session);
-                final long duration = (System.nanoTime() - (Long) request
-                        .getAttribute(REQUEST_START_TIME_ATTRIBUTE)) / 1000000;
-                session.setLastRequestDuration(duration);
-            } finally {
-                session.unlock();
+            /*
+             * Heartbeats are handled without locking the session. Only lock the
+             * session if there is something to clean up so that heartbeats are
+             * not delayed by other requests holding the lock.
+             */
+            if (!isHeartbeatRequest(request) || isCleanupNeeded(session)) {
+                session.lock();
+                try {
+                    cleanupSession(session);
+                    final long duration = (System.nanoTime()
+                            - (Long) request.getAttribute(
+                                    REQUEST_START_TIME_ATTRIBUTE))
+                            / 1000000;
+                    session.setLastRequestDuration(duration);
+                } finally {
+                    session.unlock();
+                }
             }
         }
+        if (metrics != ServiceMetrics.NO_OP) {
+            UI ui = UI.getCurrent();
+            metrics.record(ui == null ? UI.class : ui.getClass(),
+                    ServiceMetrics.Phase.REQUEST, System.nanoTime()
+                            - (Long) request.getAttribute(
+                                    REQUEST_START_TIME_ATTRIBUTE));
+        }
         CurrentInstance.clearAll();
     }
 
@@ -1536,6 +1732,8 @@ public abstract class VaadinService implements Serializable {
     /**
      * Handles the incoming request and writes the response into the response
      * object. Uses {@link #getRequestHandlers()} for handling the request.
+     * Request handlers implementing {@link PathPrefixRequestHandler} are only
+     * consulted for requests matching their path prefix.
      * <p>
      * If a session expiration is detected during request handling then each
      * {@link RequestHandler request handler} has an opportunity to handle the
@@ -1564,7 +1762,7 @@ public abstract class VaadinService implements Serializable {
                 return;
             }
 
-            for (RequestHandler handler : getRequestHandlers()) {
+            for (RequestHandler handler : getRequestHandlers(request)) {
                 if (handler.handleRequest(vaadinSession, request, response)) {
                     return;
                 }
@@ -1583,6 +1781,15 @@ public abstract class VaadinService implements Serializable {
         }
     }
 
+    private Iterable<RequestHandler> getRequestHandlers(
+            VaadinRequest request) {
+        if (requestHandlerRouter == null) {
+            // Not initialized
+            return getRequestHandlers();
+        }
+        return requestHandlerRouter.getRequestHandlers(request);
+    }
+
     private void handleExceptionDuringRequest(VaadinRequest request,
             VaadinResponse response, VaadinSession vaadinSession, Throwable t)
             throws ServiceException {
@@ -1917,6 +2124,7 @@ public abstract class VaadinService implements Serializable {
             Runnable runnable) {
         FutureAccess future = new FutureAccess(session, runnable);
         session.getPendingAccessQueue().add(future);
+        accessQueueMetrics.taskQueued();
 
         ensureAccessQueuePurged(session);
 
@@ -1947,7 +2155,37 @@ public abstract class VaadinService implements Serializable {
          * the lock is ultimately released. If the lock is not held by any
          * thread and we acquire it, we just release it again to purge the queue
          * right away.
+         *
+         * With an access executor, the queue is instead purged by a task run
+         * by the executor unless the current thread will purge it when
+         * releasing the lock. At most one such task is scheduled for a session
+         * at a time.
          */
+        Executor executor = getAccessExecutor();
+        if (executor != null && !session.hasLock()) {
+            if (session.getAccessQueuePurgeScheduled().compareAndSet(false,
+                    true)) {
+                try {
+                    executor.execute(() -> {
+                        session.getAccessQueuePurgeScheduled().set(false);
+                        tryPurgeAccessQueue(session);
+                    });
+                    return;
+                } catch (RejectedExecutionException e) {
+                    session.getAccessQueuePurgeScheduled().set(false);
+                    getLogger().log(Level.WARNING,
+                            "Access executor rejected purging the access queue, purging it in the current thread",
+                            e);
+                }
+            } else {
+                // Queue will be purged by the already scheduled task
+                return;
+            }
+        }
+        tryPurgeAccessQueue(session);
+    }
+
+    private void tryPurgeAccessQueue(VaadinSession session) {
         try {
             // tryLock() would be shorter, but it does not guarantee fairness
             if (session.getLockInstance().tryLock(0, TimeUnit.SECONDS)) {
@@ -1959,6 +2197,109 @@ public abstract class VaadinService implements Serializable {
         }
     }
 
+    /**
+     * Sets the executor used for running the tasks queued using
+     * {@link VaadinSession#access(Runnable)} and {@link UI#access(Runnable)}
+     * when the session is not locked.
+     * <p>
+     * By default, the tasks are run by the thread calling <code>access</code>
+     * if the session lock is available, or otherwise by the thread releasing
+     * the lock. With an executor, <code>access</code> never runs the tasks in
+     * the calling thread. Instead, the executor runs a task that purges the
+     * queue of the session. The executor task does not wait for the session
+     * lock if it is held by another thread, since that thread purges the queue
+     * when releasing the lock. The tasks of a session are still run one at a
+     * time in the order they were queued.
+     * <p>
+     * The executor is not serialized with the service.
+     *
+     * @param accessExecutor
+     *            the executor to use, or <code>null</code> to run the tasks in
+     *            the thread calling <code>access</code>
+     * @since 8.1
+     */
+    public void setAccessExecutor(Executor accessExecutor) {
+        this.accessExecutor = accessExecutor;
+    }
+
+    /**
+     * Gets the executor used for running session access tasks.
+     *
+     * @see #setAccessExecutor(Executor)
+     * @return the access executor, or <code>null</code> if no executor is used
+     * @since 8.1
+     */
+    public Executor getAccessExecutor() {
+        return accessExecutor;
+    }
+
+    /**
+     * Gets the access task and session lock metrics of this service.
+     *
+     * @return the access queue metrics, not <code>null</code>
+     * @since 8.1
+     */
+    public AccessQueueMetrics getAccessQueueMetrics() {
+        return accessQueueMetrics;
+    }
+
+    /**
+     * Sets the metrics implementation used for recording the time spent in
+     * different phases of request handling. By default, nothing is recorded.
+     *
+     * @see HistogramServiceMetrics
+     * @param metrics
+     *            the metrics implementation to use, or <code>null</code> to
+     *            not record anything
+     * @since 8.1
+     */
+    public void setMetrics(ServiceMetrics metrics) {
+        this.metrics = metrics == null ? ServiceMetrics.NO_OP : metrics;
+    }
+
+    /**
+     * Gets the metrics implementation used for recording the time spent in
+     * different phases of request handling.
+     *
+     * @see #setMetrics(ServiceMetrics)
+     * @return the metrics implementation, {@link ServiceMetrics#NO_OP} if
+     *         nothing is recorded
+     * @since 8.1
+     */
+    public ServiceMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Sets the serializer used for storing sessions outside the servlet
+     * container as a single entry. By default, sessions are serialized using
+     * {@link JavaSessionSerializer}.
+     *
+     * @see IncrementalSessionSerializer
+     * @param sessionSerializer
+     *            the session serializer to use, not <code>null</code>
+     * @since 8.1
+     */
+    public void setSessionSerializer(SessionSerializer sessionSerializer) {
+        if (sessionSerializer == null) {
+            throw new IllegalArgumentException(
+                    "The session serializer cannot be null");
+        }
+        this.sessionSerializer = sessionSerializer;
+    }
+
+    /**
+     * Gets the serializer used for storing sessions outside the servlet
+     * container.
+     *
+     * @see #setSessionSerializer(SessionSerializer)
+     * @return the session serializer, not <code>null</code>
+     * @since 8.1
+     */
+    public SessionSerializer getSessionSerializer() {
+        return sessionSerializer;
+    }
+
     /**
      * Purges the queue of pending access invocations enqueued with
      * {@link VaadinSession#access(Runnable)}.
@@ -1986,6 +2327,7 @@ public abstract class VaadinService implements Serializable {
         try {
             while ((pendingAccess = session.getPendingAccessQueue()
                     .poll()) != null) {
+                accessQueueMetrics.taskRun();
                 if (!pendingAccess.isCancelled()) {
                     pendingAccess.run();
 
@@ -2119,6 +2461,12 @@ public abstract class VaadinService implements Serializable {
     /**
      * Called when the VaadinSession should be loaded from the underlying HTTP
      * session
+     * <p>
+     * Since 8.1, this is also called without holding the session lock, or
+     * holding only the read lock, if the session has already been loaded by
+     * this service. This allows e.g. heartbeat requests to find their session
+     * without waiting for other requests holding the lock. Loading a session
+     * that has not yet been loaded by this service always requires the lock.
      *
      * @since 7.6
      * @param wrappedSession
@@ -2126,12 +2474,17 @@ public abstract class VaadinService implements Serializable {
      * @return the VaadinSession in the HTTP session or null if not found
      */
     protected VaadinSession loadSession(WrappedSession wrappedSession) {
-        assert VaadinSession.hasLock(this, wrappedSession);
-
         VaadinSession vaadinSession = readFromHttpSession(wrappedSession);
         if (vaadinSession == null) {
             return null;
         }
+        if (vaadinSession.getService() == this
+                && !VaadinSession.hasLock(this, wrappedSession)) {
+            // Already loaded, the transient fields are up to date
+            return vaadinSession;
+        }
+
+        assert VaadinSession.hasLock(this, wrappedSession);
         vaadinSession.refreshTransients(wrappedSession, this);
         return vaadinSession;
     }
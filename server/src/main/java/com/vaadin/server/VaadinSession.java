@@ -20,7 +20,9 @@ import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Enumeration;
@@ -33,12 +35,16 @@ import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -209,10 +215,18 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
     @Deprecated
     private Object converterFactory;
 
-    private LinkedList<RequestHandler> requestHandlers = new LinkedList<>();
+    /*
+     * Copy on write so that the handlers can be consulted without locking the
+     * session, e.g. for heartbeat requests.
+     */
+    private final List<RequestHandler> requestHandlers = new CopyOnWriteArrayList<>();
 
     private int nextUIId = 0;
-    private Map<Integer, UI> uIs = new HashMap<>();
+    /*
+     * Written explicitly in writeObject so that the UIs can be left out when
+     * they are serialized separately by IncrementalSessionSerializer.
+     */
+    private transient Map<Integer, UI> uIs = new ConcurrentHashMap<>();
 
     private final Map<String, Integer> embedIdMap = new HashMap<>();
 
@@ -230,9 +244,9 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
 
     private long lastRequestDuration = -1;
 
-    private long lastRequestTimestamp = System.currentTimeMillis();
+    private volatile long lastRequestTimestamp = System.currentTimeMillis();
 
-    private State state = State.OPEN;
+    private volatile State state = State.OPEN;
 
     private transient WrappedSession session;
 
@@ -244,6 +258,12 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
 
     private transient Lock lock;
 
+    /**
+     * The read/write lock that {@link #lock} belongs to, or <code>null</code>
+     * if the session uses an exclusive lock.
+     */
+    private transient ReentrantReadWriteLock readWriteLock;
+
     /*
      * Pending tasks can't be serialized and the queue should be empty when the
      * session is serialized as long as it doesn't happen while some other
@@ -251,6 +271,31 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      */
     private transient ConcurrentLinkedQueue<FutureAccess> pendingAccessQueue = new ConcurrentLinkedQueue<>();
 
+    /**
+     * Whether a task purging {@link #pendingAccessQueue} has been scheduled
+     * with the access executor of the service.
+     */
+    private transient AtomicBoolean accessQueuePurgeScheduled = new AtomicBoolean();
+
+    /**
+     * The serialized form of each UI, by UI id, as last written or read by
+     * {@link IncrementalSessionSerializer}.
+     */
+    private transient Map<Integer, IncrementalSessionSerializer.SerializedUI> serializedUIs = new HashMap<>();
+
+    /**
+     * The ids of UIs stored by {@link ShardedSessionPersistence} that have not
+     * been loaded into this session.
+     */
+    private transient Set<Integer> unloadedUIIds = new HashSet<>();
+
+    /**
+     * The persistence and the stored session id used for loading the UIs in
+     * {@link #unloadedUIIds} when they are needed.
+     */
+    private transient ShardedSessionPersistence persistence;
+    private transient String persistedSessionId;
+
     /**
      * Creates a new VaadinSession tied to a VaadinService.
      *
@@ -325,7 +370,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      */
     @Deprecated
     public WebBrowser getBrowser() {
-        assert hasLock();
+        assert hasReadLock();
         return browser;
     }
 
@@ -407,7 +452,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      */
     @Deprecated
     public LegacyCommunicationManager getCommunicationManager() {
-        assert hasLock();
+        assert hasReadLock();
         return communicationManager;
     }
 
@@ -500,6 +545,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
                 session) : "Cannot change the lock from one instance to another";
         assert hasLock(service, session);
         lock = service.getSessionLock(session);
+        readWriteLock = service.getSessionReadWriteLock(session);
     }
 
     public void setCommunicationManager(
@@ -641,7 +687,7 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      */
     public void addRequestHandler(RequestHandler handler) {
         assert hasLock();
-        requestHandlers.addFirst(handler);
+        requestHandlers.add(0, handler);
     }
 
     /**
@@ -661,6 +707,11 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * Gets the request handlers that are registered to the session. The
      * iteration order of the returned collection is the same as the order in
      * which the request handlers will be invoked when a request is handled.
+     * <p>
+     * Since 8.1, this method can be called without holding the session lock.
+     * Iterating the returned collection never fails because of concurrent
+     * modifications, but does not reflect handlers added or removed after
+     * the iteration was started.
      *
      * @return a collection of request handlers, with the iteration order
      *         according to the order they would be invoked
@@ -671,7 +722,6 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * @since 7.0
      */
     public Collection<RequestHandler> getRequestHandlers() {
-        assert hasLock();
         return Collections.unmodifiableCollection(requestHandlers);
     }
 
@@ -724,16 +774,67 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * Gets all the UIs of this session. This includes UIs that have been
      * requested but not yet initialized. UIs that receive no heartbeat requests
      * from the client are eventually removed from the session.
+     * <p>
+     * If the session is {@link #isPartiallyLoaded() partially loaded}, the UIs
+     * that have not been loaded are loaded before returning. Use
+     * {@link #getLoadedUIs()} to only get the UIs that have been loaded.
      *
      * @return a collection of UIs belonging to this application
+     * @throws UncheckedIOException
+     *             if loading a UI of a partially loaded session fails
      *
      * @since 7.0
      */
     public Collection<UI> getUIs() {
         assert hasLock();
+        loadUnloadedUIs();
         return Collections.unmodifiableCollection(uIs.values());
     }
 
+    /**
+     * Gets the UIs of this session that have been loaded. This is the same as
+     * {@link #getUIs()} unless the session is {@link #isPartiallyLoaded()
+     * partially loaded}.
+     *
+     * @return a collection of the loaded UIs of this session
+     *
+     * @since 8.1
+     */
+    public Collection<UI> getLoadedUIs() {
+        assert hasLock();
+        return Collections.unmodifiableCollection(uIs.values());
+    }
+
+    /**
+     * Checks whether some UIs of this session have not been loaded. A session
+     * loaded by {@link ShardedSessionPersistence} only contains the UI needed
+     * for the request until the other UIs are requested using
+     * {@link #getUIs()} or {@link #getUIById(int)}.
+     *
+     * @return <code>true</code> if some UIs of this session have not been
+     *         loaded, <code>false</code> if all UIs are loaded
+     *
+     * @since 8.1
+     */
+    public boolean isPartiallyLoaded() {
+        assert hasLock();
+        return !unloadedUIIds.isEmpty();
+    }
+
+    private void loadUnloadedUIs() {
+        for (Integer uiId : new ArrayList<>(unloadedUIIds)) {
+            loadUnloadedUI(uiId);
+        }
+    }
+
+    private void loadUnloadedUI(Integer uiId) {
+        try {
+            persistence.loadUnloadedUI(persistedSessionId, this, uiId);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not load UI " + uiId, e);
+        }
+    }
+
     private int connectorIdSequence = 0;
 
     /*
@@ -780,16 +881,56 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
     /**
      * Returns a UI with the given id.
      * <p>
-     * This is meant for framework internal use.
+     * This is meant for framework internal use. Since 8.1, this method can be
+     * used without holding the session lock, e.g. for recording heartbeats.
+     * The returned UI should still only be accessed while holding the lock.
+     * If the session is {@link #isPartiallyLoaded() partially loaded}, a UI
+     * that has not been loaded is only loaded if the lock is held.
      * </p>
      *
      * @param uiId
      *            The UI id
      * @return The UI with the given id or null if not found
+     * @throws UncheckedIOException
+     *             if loading the UI fails
      */
     public UI getUIById(int uiId) {
-        assert hasLock();
-        return uIs.get(uiId);
+        UI ui = uIs.get(uiId);
+        if (ui == null && hasLock()
+                && unloadedUIIds.contains(Integer.valueOf(uiId))) {
+            loadUnloadedUI(Integer.valueOf(uiId));
+            ui = uIs.get(uiId);
+        }
+        return ui;
+    }
+
+    /**
+     * Checks, without requiring the session lock, whether this session might
+     * need to be cleaned up at the end of a request. This is the case if the
+     * session is no longer open, if it has been idle for longer than the given
+     * timeout or if any UI is no longer active according to
+     * {@link VaadinService#isUIActive(UI)}.
+     *
+     * @param uidlRequestTimeout
+     *            the idle timeout of the session in milliseconds, or a negative
+     *            number if the session never times out
+     * @return <code>true</code> if the session should be locked and cleaned up,
+     *         <code>false</code> if there is nothing to clean up
+     */
+    boolean isCleanupNeeded(long uidlRequestTimeout) {
+        if (state != State.OPEN || session == null || service == null) {
+            return true;
+        }
+        if (uidlRequestTimeout >= 0 && System.currentTimeMillis()
+                - lastRequestTimestamp >= uidlRequestTimeout) {
+            return true;
+        }
+        for (UI ui : uIs.values()) {
+            if (!service.isUIActive(ui)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     /**
@@ -799,8 +940,21 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * @since 7.1
      */
     public boolean hasLock() {
-        ReentrantLock l = ((ReentrantLock) getLockInstance());
-        return l.isHeldByCurrentThread();
+        return isHeldByCurrentThread(getLockInstance());
+    }
+
+    /**
+     * Checks if the current thread has at least read access to this
+     * VaadinSession, i.e. if it holds either the read lock or the exclusive
+     * lock.
+     *
+     * @see #lockRead()
+     * @return true if the thread has read access, false otherwise
+     * @since 8.1
+     */
+    public boolean hasReadLock() {
+        return hasLock() || readWriteLock != null
+                && readWriteLock.getReadHoldCount() > 0;
     }
 
     /**
@@ -812,8 +966,32 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      */
     protected static boolean hasLock(VaadinService service,
             WrappedSession session) {
-        ReentrantLock l = (ReentrantLock) service.getSessionLock(session);
-        return l.isHeldByCurrentThread();
+        return isHeldByCurrentThread(service.getSessionLock(session));
+    }
+
+    static boolean isHeldByCurrentThread(Lock lock) {
+        if (lock instanceof ReentrantReadWriteLock.WriteLock) {
+            return ((ReentrantReadWriteLock.WriteLock) lock)
+                    .isHeldByCurrentThread();
+        }
+        return ((ReentrantLock) lock).isHeldByCurrentThread();
+    }
+
+    private static int getHoldCount(Lock lock) {
+        if (lock instanceof ReentrantReadWriteLock.WriteLock) {
+            return ((ReentrantReadWriteLock.WriteLock) lock).getHoldCount();
+        }
+        return ((ReentrantLock) lock).getHoldCount();
+    }
+
+    /**
+     * Gets the read/write lock of this session.
+     *
+     * @return the read/write lock, or <code>null</code> if this session uses
+     *         an exclusive lock
+     */
+    ReentrantReadWriteLock getReadWriteLock() {
+        return readWriteLock;
     }
 
     /**
@@ -939,6 +1117,8 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * <code>Lock</code> interface than {@link Lock#lock()} and
      * {@link Lock#unlock()}.
      *
+     * If read/write session locking is enabled, this is the write lock.
+     *
      * @return the <code>Lock</code> that is used for synchronization, never
      *         <code>null</code>
      *
@@ -990,7 +1170,89 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
      * @see #hasLock()
      */
     public void lock() {
-        getLockInstance().lock();
+        if (readWriteLock != null && readWriteLock.getReadHoldCount() > 0
+                && !readWriteLock.isWriteLockedByCurrentThread()) {
+            // Upgrading from a read lock would never succeed
+            throw new IllegalStateException(
+                    "The session cannot be locked while only holding the read lock");
+        }
+        Lock lock = getLockInstance();
+        if (!lock.tryLock()) {
+            long start = System.nanoTime();
+            lock.lock();
+            VaadinService service = getService();
+            AccessQueueMetrics metrics = service == null ? null
+                    : service.getAccessQueueMetrics();
+            long waitNanos = System.nanoTime() - start;
+            if (metrics != null) {
+                metrics.lockWaited(waitNanos);
+            }
+            ServiceMetrics.get(service).record(UI.class,
+                    ServiceMetrics.Phase.LOCK_WAIT, waitNanos);
+        }
+    }
+
+    /**
+     * Locks this session for reading. Multiple threads can hold the read lock
+     * at the same time, but not while another thread holds the lock acquired
+     * through {@link #lock()}. The read lock should only be used for work that
+     * does not modify the session or its UIs, e.g. looking up a resource to
+     * serve. Always release the lock using {@link #unlockRead()} in a finally
+     * block:
+     *
+     * <pre>
+     * session.lockRead();
+     * try {
+     *     lookUpSomething();
+     * } finally {
+     *     session.unlockRead();
+     * }
+     * </pre>
+     *
+     * A thread holding only the read lock cannot acquire the lock using
+     * {@link #lock()}.
+     * <p>
+     * The read lock is only shared between threads if read/write session
+     * locking has been enabled using the
+     * {@value Constants#SERVLET_PARAMETER_READ_WRITE_SESSION_LOCK} property.
+     * Otherwise this method is the same as {@link #lock()}.
+     *
+     * @see #unlockRead()
+     * @see #hasReadLock()
+     * @see VaadinService#isReadWriteSessionLockEnabled()
+     * @since 8.1
+     */
+    public void lockRead() {
+        if (readWriteLock == null) {
+            lock();
+        } else {
+            readWriteLock.readLock().lock();
+        }
+    }
+
+    /**
+     * Releases the read lock of this session acquired using
+     * {@link #lockRead()}.
+     *
+     * @see #lockRead()
+     * @since 8.1
+     */
+    public void unlockRead() {
+        if (readWriteLock == null) {
+            unlock();
+            return;
+        }
+        readWriteLock.readLock().unlock();
+
+        /*
+         * Access tasks enqueued while the read lock was held could not be run
+         * since the lock could not be acquired. Make sure they are run once
+         * the last reader is gone.
+         */
+        if (readWriteLock.getReadHoldCount() == 0 && !hasLock()
+                && !getPendingAccessQueue().isEmpty()) {
+            getService().ensureAccessQueuePurged(this);
+        }
     }
 
     /**
@@ -1012,11 +1274,17 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
              * Run pending tasks and push if the reentrant lock will actually be
              * released by this unlock() invocation.
              */
-            if (((ReentrantLock) getLockInstance()).getHoldCount() == 1) {
+            if (getHoldCount(getLockInstance()) == 1) {
                 ultimateRelease = true;
+
+                // The UI may have been changed in any way while locked
+                UI currentUI = UI.getCurrent();
+                if (currentUI != null && currentUI.getSession() == this) {
+                    currentUI.setSerializationDirty(true);
+                }
                 getService().runPendingAccessTasks(this);
 
-                for (UI ui : getUIs()) {
+                for (UI ui : getLoadedUIs()) {
                     if (ui.getPushConfiguration()
                             .getPushMode() == PushMode.AUTOMATIC) {
                         Map<Class<?>, CurrentInstance> oldCurrent = CurrentInstance
@@ -1429,6 +1697,64 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
         return pendingAccessQueue;
     }
 
+    AtomicBoolean getAccessQueuePurgeScheduled() {
+        return accessQueuePurgeScheduled;
+    }
+
+    Map<Integer, IncrementalSessionSerializer.SerializedUI> getSerializedUIs() {
+        return serializedUIs;
+    }
+
+    void setSerializedUIs(
+            Map<Integer, IncrementalSessionSerializer.SerializedUI> serializedUIs) {
+        this.serializedUIs = serializedUIs;
+    }
+
+    Set<Integer> getUnloadedUIIds() {
+        return unloadedUIIds;
+    }
+
+    /**
+     * Sets the UIs of this session that have not been loaded.
+     *
+     * @param unloadedUIIds
+     *            the ids of the UIs that have not been loaded
+     * @param persistence
+     *            the persistence to load the UIs from when needed, or
+     *            <code>null</code> if all UIs are loaded
+     * @param persistedSessionId
+     *            the id of the session in the persistence
+     */
+    void setUnloadedUIs(Set<Integer> unloadedUIIds,
+            ShardedSessionPersistence persistence, String persistedSessionId) {
+        this.unloadedUIIds = unloadedUIIds;
+        this.persistence = persistence;
+        this.persistedSessionId = persistedSessionId;
+    }
+
+    /**
+     * Gets the id of the UI with the given embed id, also if the UI has not
+     * been loaded.
+     *
+     * @param embedId
+     *            the embed id
+     * @return the id of the UI, or <code>null</code> if no UI is found
+     */
+    Integer getUIIdByEmbedId(String embedId) {
+        return embedIdMap.get(embedId);
+    }
+
+    /**
+     * Adds a UI that has been deserialized separately from this session.
+     *
+     * @param ui
+     *            the deserialized UI
+     */
+    void addDeserializedUI(UI ui) {
+        assert ui.getSession() == this;
+        uIs.put(Integer.valueOf(ui.getUIId()), ui);
+    }
+
     /**
      * Gets the CSRF token (aka double submit cookie) that is used to protect
      * against Cross Site Request Forgery attacks.
@@ -1463,7 +1789,17 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
         Map<Class<?>, CurrentInstance> old = CurrentInstance.setCurrent(this);
         try {
             stream.defaultReadObject();
+            uIs = new ConcurrentHashMap<>();
+            if (!(stream instanceof IncrementalSessionSerializer.SessionObjectInputStream)) {
+                @SuppressWarnings("unchecked")
+                Map<Integer, UI> uiMap = (Map<Integer, UI>) stream
+                        .readObject();
+                uIs.putAll(uiMap);
+            }
             pendingAccessQueue = new ConcurrentLinkedQueue<>();
+            accessQueuePurgeScheduled = new AtomicBoolean();
+            serializedUIs = new HashMap<>();
+            unloadedUIIds = new HashSet<>();
         } finally {
             CurrentInstance.restoreInstances(old);
         }
@@ -1482,6 +1818,15 @@ public class VaadinSession implements HttpSessionBindingListener, Serializable {
         }
         try {
             out.defaultWriteObject();
+            if (!(out instanceof IncrementalSessionSerializer.SessionObjectOutputStream)) {
+                // Also includes the UIs of a partially loaded session
+                try {
+                    loadUnloadedUIs();
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                out.writeObject(new HashMap<>(uIs));
+            }
         } finally {
             if (lock != null) {
                 lock.unlock();
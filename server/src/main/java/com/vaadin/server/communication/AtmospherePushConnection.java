@@ -35,6 +35,8 @@ import org.atmosphere.cpr.AtmosphereResource;
 import org.atmosphere.cpr.AtmosphereResource.TRANSPORT;
 import org.atmosphere.util.Version;
 
+import com.vaadin.server.ServiceMetrics;
+import com.vaadin.server.ServiceMetrics.Phase;
 import com.vaadin.shared.communication.PushConstants;
 import com.vaadin.ui.UI;
 
@@ -166,7 +168,10 @@ public class AtmospherePushConnection implements PushConnection {
             try {
                 Writer writer = new StringWriter();
                 new UidlWriter().write(getUI(), writer, async);
+                ServiceMetrics metrics = ServiceMetrics.get(getUI());
+                long start = metrics.start();
                 sendMessage("for(;;);[{" + writer.toString() + "}]");
+                metrics.end(getUI(), Phase.PUSH_SEND, start);
             } catch (Exception e) {
                 throw new RuntimeException("Push failed", e);
             }
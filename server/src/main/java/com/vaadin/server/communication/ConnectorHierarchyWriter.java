@@ -19,22 +19,22 @@ package com.vaadin.server.communication;
 import java.io.IOException;
 import java.io.Serializable;
 import java.io.Writer;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
 
 import com.vaadin.server.AbstractClientConnector;
 import com.vaadin.server.ClientConnector;
 import com.vaadin.server.LegacyCommunicationManager;
-import com.vaadin.server.PaintException;
 import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinService;
+import com.vaadin.ui.ConnectorTracker;
 import com.vaadin.ui.UI;
 
 import elemental.json.Json;
 import elemental.json.JsonArray;
-import elemental.json.JsonException;
 import elemental.json.JsonObject;
-import elemental.json.impl.JsonUtil;
 
 /**
  * Serializes a connector hierarchy to JSON.
@@ -46,7 +46,9 @@ public class ConnectorHierarchyWriter implements Serializable {
 
     /**
      * Writes a JSON object containing the connector hierarchy (parent-child
-     * mappings) of the dirty connectors in the given UI.
+     * mappings) of the dirty connectors in the given UI. Hierarchy information
+     * is only written for connectors whose children have changed since they
+     * were last sent to the client, or that have state changes.
      *
      * @param ui
      *            The {@link UI} whose hierarchy to write.
@@ -60,41 +62,67 @@ public class ConnectorHierarchyWriter implements Serializable {
     public void write(UI ui, Writer writer, Set<String> stateUpdateConnectors)
             throws IOException {
 
-        Collection<ClientConnector> dirtyVisibleConnectors = ui
-                .getConnectorTracker().getDirtyVisibleConnectors();
+        ConnectorTracker connectorTracker = ui.getConnectorTracker();
+        Collection<ClientConnector> dirtyVisibleConnectors = connectorTracker
+                .getDirtyVisibleConnectors();
 
-        JsonObject hierarchyInfo = Json.createObject();
+        /*
+         * The hierarchy is streamed directly to the writer. A JSON tree of the
+         * sent hierarchy is only built when assertions are enabled since it is
+         * only used for verifying the hierarchy in ConnectorTracker.
+         */
+        JsonObject hierarchyInfo = null;
+        assert (hierarchyInfo = Json.createObject()) != null;
+
+        JsonStreamWriter json = new JsonStreamWriter(writer);
+        json.beginObject();
+        List<String> children = new ArrayList<>();
         for (ClientConnector connector : dirtyVisibleConnectors) {
             String connectorId = connector.getConnectorId();
-            JsonArray children = Json.createArray();
+            children.clear();
 
             for (ClientConnector child : AbstractClientConnector
                     .getAllChildrenIterable(connector)) {
                 if (LegacyCommunicationManager
                         .isConnectorVisibleToClient(child)) {
-                    children.set(children.length(), child.getConnectorId());
+                    children.add(child.getConnectorId());
                 }
             }
 
-            // Omit for leaf nodes with state changes
-            if (children.length() > 0
-                    || !stateUpdateConnectors.contains(connectorId)) {
-                try {
-                    hierarchyInfo.put(connectorId, children);
-                } catch (JsonException e) {
-                    throw new PaintException(
-                            "Failed to send hierarchy information about "
-                                    + connectorId + " to the client: "
-                                    + e.getMessage(),
-                            e);
+            /*
+             * Omit for leaf nodes with state changes as the client assumes
+             * that a connector with state changes but no hierarchy information
+             * has no children. Also omit for connectors without state changes
+             * if the children have not changed since they were last sent.
+             */
+            boolean hasStateUpdate = stateUpdateConnectors
+                    .contains(connectorId);
+            if (children.isEmpty() && hasStateUpdate) {
+                connectorTracker.setSentChildIds(connector, children);
+            } else if (hasStateUpdate || !children
+                    .equals(connectorTracker.getSentChildIds(connector))) {
+                connectorTracker.setSentChildIds(connector, children);
+
+                json.name(connectorId).beginArray();
+                for (String childId : children) {
+                    json.value(childId);
+                }
+                json.endArray();
+
+                if (hierarchyInfo != null) {
+                    JsonArray childArray = Json.createArray();
+                    for (String childId : children) {
+                        childArray.set(childArray.length(), childId);
+                    }
+                    hierarchyInfo.put(connectorId, childArray);
                 }
             }
         }
+        json.endObject();
+
         // Dummy assert just for conditionally storing away data that will be
         // used by the real assert later on
         assert storeSentHierarchy(hierarchyInfo, stateUpdateConnectors);
-
-        writer.write(JsonUtil.stringify(hierarchyInfo));
     }
 
     private boolean storeSentHierarchy(JsonObject hierarchyInfo,
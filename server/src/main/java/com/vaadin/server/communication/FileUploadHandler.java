@@ -27,7 +27,7 @@ import java.io.PrintWriter;
 import com.vaadin.server.ClientConnector;
 import com.vaadin.server.NoInputStreamException;
 import com.vaadin.server.NoOutputStreamException;
-import com.vaadin.server.RequestHandler;
+import com.vaadin.server.PathPrefixRequestHandler;
 import com.vaadin.server.ServletPortletHelper;
 import com.vaadin.server.StreamVariable;
 import com.vaadin.server.StreamVariable.StreamingEndEvent;
@@ -46,7 +46,7 @@ import com.vaadin.ui.Upload.FailedEvent;
  * @author Vaadin Ltd
  * @since 7.1
  */
-public class FileUploadHandler implements RequestHandler {
+public class FileUploadHandler implements PathPrefixRequestHandler {
 
     public static final int MULTIPART_BOUNDARY_LINE_LIMIT = 20000;
 
@@ -238,6 +238,12 @@ public class FileUploadHandler implements RequestHandler {
     /* Minimum interval which will be used for streaming progress events. */
     public static final int DEFAULT_STREAMING_PROGRESS_EVENT_INTERVAL_MS = 500;
 
+    @Override
+    @SuppressWarnings("deprecation")
+    public String getPathPrefix() {
+        return ServletPortletHelper.UPLOAD_URL_PREFIX;
+    }
+
     @Override
     public boolean handleRequest(VaadinSession session, VaadinRequest request,
             VaadinResponse response) throws IOException {
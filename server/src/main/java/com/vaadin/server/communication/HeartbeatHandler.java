@@ -20,12 +20,14 @@ import java.io.IOException;
 
 import javax.servlet.http.HttpServletResponse;
 
+import com.vaadin.server.PathPrefixRequestHandler;
 import com.vaadin.server.ServletPortletHelper;
 import com.vaadin.server.SessionExpiredHandler;
 import com.vaadin.server.SynchronizedRequestHandler;
 import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinResponse;
 import com.vaadin.server.VaadinSession;
+import com.vaadin.shared.ApplicationConstants;
 import com.vaadin.shared.ui.ui.UIConstants;
 import com.vaadin.ui.UI;
 
@@ -41,24 +43,48 @@ import com.vaadin.ui.UI;
  * @since 7.1
  */
 public class HeartbeatHandler extends SynchronizedRequestHandler
-        implements SessionExpiredHandler {
+        implements SessionExpiredHandler, PathPrefixRequestHandler {
 
     @Override
     protected boolean canHandleRequest(VaadinRequest request) {
         return ServletPortletHelper.isHeartbeatRequest(request);
     }
 
+    @Override
+    public String getPathPrefix() {
+        return ApplicationConstants.HEARTBEAT_PATH + '/';
+    }
+
+    /**
+     * Handles a heartbeat request without locking the session. Heartbeats only
+     * update the {@link UI#getLastHeartbeatTimestamp() heartbeat timestamp} of
+     * the UI, which can be done without the session lock. This way heartbeats
+     * are not delayed by other requests holding the lock.
+     *
+     * @since 8.1
+     */
+    @Override
+    public boolean handleRequest(VaadinSession session, VaadinRequest request,
+            VaadinResponse response) throws IOException {
+        if (!canHandleRequest(request)) {
+            return false;
+        }
+        return synchronizedHandleRequest(session, request, response);
+    }
+
     /**
      * Handles a heartbeat request for the given session. Reads the GET
      * parameter named {@link UIConstants#UI_ID_PARAMETER} to identify the UI.
      * If the UI is found in the session, sets it
      * {@link UI#getLastHeartbeatTimestamp() heartbeat timestamp} to the current
      * time. Otherwise, writes a HTTP Not Found error to the response.
+     * <p>
+     * Since 8.1, this method is called without locking the session.
      */
     @Override
     public boolean synchronizedHandleRequest(VaadinSession session,
             VaadinRequest request, VaadinResponse response) throws IOException {
-        UI ui = session.getService().findUI(request);
+        UI ui = findUI(session, request);
         if (ui != null) {
             ui.setLastHeartbeatTimestamp(System.currentTimeMillis());
             // Ensure that the browser does not cache heartbeat responses.
@@ -75,6 +101,18 @@ public class HeartbeatHandler extends SynchronizedRequestHandler
         return true;
     }
 
+    private static UI findUI(VaadinSession session, VaadinRequest request) {
+        String uiIdString = request.getParameter(UIConstants.UI_ID_PARAMETER);
+        if (uiIdString == null) {
+            return null;
+        }
+        try {
+            return session.getUIById(Integer.parseInt(uiIdString));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
     /*
      * (non-Javadoc)
      *
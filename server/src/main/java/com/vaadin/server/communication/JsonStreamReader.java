@@ -0,0 +1,327 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.communication;
+
+import java.io.IOException;
+import java.io.Reader;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonException;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+import elemental.json.impl.JsonUtil;
+
+/**
+ * Reads JSON values directly from a {@link Reader} without first reading the
+ * whole input into an intermediate string. The values are identical to what
+ * {@link JsonUtil#parse(String)} produces for the same input.
+ * <p>
+ * A stream reader can optionally limit the number of characters read, so that
+ * oversized input is rejected before it has been buffered in memory.
+ * <p>
+ * This class is not thread safe and is intended to be used only while
+ * reading a single request.
+ *
+ * @see JsonStreamWriter
+ * @author Vaadin Ltd
+ * @since 8.1
+ */
+public class JsonStreamReader {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final Reader reader;
+    private final long maxLength;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder token = new StringBuilder();
+    private int position = 0;
+    private int limit = 0;
+    private long charactersRead = 0;
+
+    /**
+     * Creates a new stream reader reading from the given reader without a
+     * limit on the number of characters read.
+     *
+     * @param reader
+     *            the reader to read JSON from, not <code>null</code>
+     */
+    public JsonStreamReader(Reader reader) {
+        this(reader, -1);
+    }
+
+    /**
+     * Creates a new stream reader reading at most the given number of
+     * characters from the given reader.
+     *
+     * @param reader
+     *            the reader to read JSON from, not <code>null</code>
+     * @param maxLength
+     *            the maximum number of characters to read, or a negative
+     *            value to not limit the number of characters
+     */
+    public JsonStreamReader(Reader reader, long maxLength) {
+        if (reader == null) {
+            throw new IllegalArgumentException("Reader cannot be null");
+        }
+        this.reader = reader;
+        this.maxLength = maxLength;
+    }
+
+    /**
+     * Reads the next JSON value.
+     *
+     * @return the JSON value, or <code>null</code> if there is nothing but
+     *         whitespace left in the input
+     * @throws IOException
+     *             if reading fails
+     * @throws JsonException
+     *             if the input is not valid JSON or if reading the value
+     *             would exceed the maximum number of characters
+     */
+    public JsonValue read() throws IOException {
+        int c = nextNonWhitespace();
+        if (c == -1) {
+            return null;
+        }
+        return readValue(c);
+    }
+
+    /**
+     * Checks whether there is anything else than whitespace left in the
+     * input.
+     *
+     * @return <code>true</code> if there is more input, <code>false</code>
+     *         otherwise
+     * @throws IOException
+     *             if reading fails
+     */
+    public boolean hasNext() throws IOException {
+        if (nextNonWhitespace() == -1) {
+            return false;
+        }
+        // Still in the buffer, unread it
+        position--;
+        return true;
+    }
+
+    /**
+     * Gets the number of characters read from the underlying reader so far.
+     * Because input is read in blocks, this can be larger than the number of
+     * characters used for the values read so far.
+     *
+     * @return the number of characters read
+     */
+    public long getCharactersRead() {
+        return charactersRead;
+    }
+
+    private JsonValue readValue(int c) throws IOException {
+        switch (c) {
+        case '{':
+            return readObject();
+        case '[':
+            return readArray();
+        case '"':
+            return Json.create(readString());
+        case 't':
+            expect("rue");
+            return Json.create(true);
+        case 'f':
+            expect("alse");
+            return Json.create(false);
+        case 'n':
+            expect("ull");
+            return Json.createNull();
+        case -1:
+            throw syntaxError("Unexpected end of input");
+        default:
+            if (c == '-' || (c >= '0' && c <= '9')) {
+                return readNumber((char) c);
+            }
+            throw syntaxError("Unexpected character '" + (char) c + "'");
+        }
+    }
+
+    private JsonObject readObject() throws IOException {
+        JsonObject object = Json.createObject();
+        int c = nextNonWhitespace();
+        if (c == '}') {
+            return object;
+        }
+        while (true) {
+            if (c != '"') {
+                throw syntaxError("Expected a member name");
+            }
+            String name = readString();
+            if (nextNonWhitespace() != ':') {
+                throw syntaxError("Expected ':'");
+            }
+            object.put(name, readValue(nextNonWhitespace()));
+
+            c = nextNonWhitespace();
+            if (c == '}') {
+                return object;
+            } else if (c != ',') {
+                throw syntaxError("Expected ',' or '}'");
+            }
+            c = nextNonWhitespace();
+        }
+    }
+
+    private JsonArray readArray() throws IOException {
+        JsonArray array = Json.createArray();
+        int c = nextNonWhitespace();
+        if (c == ']') {
+            return array;
+        }
+        int index = 0;
+        while (true) {
+            array.set(index++, readValue(c));
+
+            c = nextNonWhitespace();
+            if (c == ']') {
+                return array;
+            } else if (c != ',') {
+                throw syntaxError("Expected ',' or ']'");
+            }
+            c = nextNonWhitespace();
+        }
+    }
+
+    private String readString() throws IOException {
+        token.setLength(0);
+        while (true) {
+            if (position == limit && !fill()) {
+                throw syntaxError("Unterminated string");
+            }
+            // Copy everything up to the next quote or escape in one go
+            int start = position;
+            while (position < limit && buffer[position] != '"'
+                    && buffer[position] != '\\') {
+                position++;
+            }
+            token.append(buffer, start, position - start);
+            if (position == limit) {
+                continue;
+            }
+            if (buffer[position++] == '"') {
+                return token.toString();
+            }
+            token.append(readEscape());
+        }
+    }
+
+    private char readEscape() throws IOException {
+        int c = nextChar();
+        switch (c) {
+        case '"':
+        case '\\':
+        case '/':
+            return (char) c;
+        case 'b':
+            return '\b';
+        case 'f':
+            return '\f';
+        case 'n':
+            return '\n';
+        case 'r':
+            return '\r';
+        case 't':
+            return '\t';
+        case 'u':
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                int digit = Character.digit(nextChar(), 16);
+                if (digit == -1) {
+                    throw syntaxError("Invalid unicode escape");
+                }
+                value = value * 16 + digit;
+            }
+            return (char) value;
+        default:
+            throw syntaxError("Invalid escape sequence");
+        }
+    }
+
+    private JsonValue readNumber(char first) throws IOException {
+        token.setLength(0);
+        token.append(first);
+        while (true) {
+            if (position == limit && !fill()) {
+                break;
+            }
+            char c = buffer[position];
+            if ((c >= '0' && c <= '9') || c == '.' || c == 'e' || c == 'E'
+                    || c == '+' || c == '-') {
+                token.append(c);
+                position++;
+            } else {
+                break;
+            }
+        }
+        try {
+            return Json.create(Double.parseDouble(token.toString()));
+        } catch (NumberFormatException e) {
+            throw syntaxError("Invalid number " + token);
+        }
+    }
+
+    private void expect(String rest) throws IOException {
+        for (int i = 0; i < rest.length(); i++) {
+            if (nextChar() != rest.charAt(i)) {
+                throw syntaxError("Invalid literal");
+            }
+        }
+    }
+
+    private int nextNonWhitespace() throws IOException {
+        while (true) {
+            int c = nextChar();
+            if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+                return c;
+            }
+        }
+    }
+
+    private int nextChar() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    private boolean fill() throws IOException {
+        int read = reader.read(buffer, 0, buffer.length);
+        if (read <= 0) {
+            return false;
+        }
+        charactersRead += read;
+        if (maxLength >= 0 && charactersRead > maxLength) {
+            throw new JsonException(
+                    "Input exceeds the maximum length of " + maxLength
+                            + " characters");
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    private JsonException syntaxError(String message) {
+        long offset = charactersRead - limit + position;
+        return new JsonException(message + " at position " + offset);
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.vaadin.server.communication;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+import elemental.json.impl.JsonUtil;
+
+/**
+ * Writes JSON directly to a {@link Writer} without first building a tree of
+ * {@link JsonValue} instances or an intermediate string. The output is
+ * identical to what {@link JsonUtil#stringify(JsonValue)} produces for the
+ * same data.
+ * <p>
+ * A stream writer keeps track of the currently open objects and arrays and
+ * inserts separators as needed. It can be reused for writing several
+ * consecutive top-level values using {@link #reset(Writer)}.
+ * <p>
+ * This class is not thread safe and is intended to be used only while
+ * writing a single response.
+ *
+ * @author Vaadin Ltd
+ * @since 8.1
+ */
+public class JsonStreamWriter {
+
+    private Writer writer;
+
+    /*
+     * One entry per currently open object or array, true if at least one
+     * member has already been written to it.
+     */
+    private boolean[] hasMembers = new boolean[8];
+    private int depth = 0;
+    private boolean nameWritten = false;
+
+    /**
+     * Creates a new stream writer writing to the given writer.
+     *
+     * @param writer
+     *            the writer to write JSON to, not <code>null</code>
+     */
+    public JsonStreamWriter(Writer writer) {
+        reset(writer);
+    }
+
+    /**
+     * Resets this stream writer to write a new top-level value to the given
+     * writer.
+     *
+     * @param writer
+     *            the writer to write JSON to, not <code>null</code>
+     * @return this stream writer
+     */
+    public JsonStreamWriter reset(Writer writer) {
+        if (writer == null) {
+            throw new IllegalArgumentException("Writer cannot be null");
+        }
+        this.writer = writer;
+        depth = 0;
+        nameWritten = false;
+        return this;
+    }
+
+    /**
+     * Starts a new JSON object.
+     *
+     * @return this stream writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter beginObject() throws IOException {
+        return open('{');
+    }
+
+    /**
+     * Ends the current JSON object.
+     *
+     * @return this stream writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter endObject() throws IOException {
+        return close('}');
+    }
+
+    /**
+     * Starts a new JSON array.
+     *
+     * @return this stream writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter beginArray() throws IOException {
+        return open('[');
+    }
+
+    /**
+     * Ends the current JSON array.
+     *
+     * @return this stream writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter endArray() throws IOException {
+        return close(']');
+    }
+
+    /**
+     * Writes the name of the next member of the current JSON object. The name
+     * should be followed by exactly one value.
+     *
+     * @param name
+     *            the member name, not <code>null</code>
+     * @return this stream writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter name(String name) throws IOException {
+        if (depth == 0 || nameWritten) {
+            throw new IllegalStateException(
+                    "A name can only be written inside an object");
+        }
+        beforeValue();
+        writer.write(JsonUtil.quote(name));
+        writer.write(':');
+        nameWritten = true;
+        return this;
+    }
+
+    /**
+     * Writes a string value. A <code>null</code> string is written as a JSON
+     * null.
+     *
+     * @param value
+     *            the string to write
+     * @return this stream writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter value(String value) throws IOException {
+        beforeValue();
+        if (value == null) {
+            writer.write("null");
+        } else {
+            writer.write(JsonUtil.quote(value));
+        }
+        return this;
+    }
+
+    /**
+     * Writes a JSON value, recursively streaming the contents of objects and
+     * arrays. A <code>null</code> value is written as a JSON null.
+     *
+     * @param value
+     *            the JSON value to write
+     * @return this stream writer
+     * @throws IOException
+     *             if writing fails
+     */
+    public JsonStreamWriter value(JsonValue value) throws IOException {
+        if (value == null) {
+            return value((String) null);
+        }
+        switch (value.getType()) {
+        case OBJECT:
+            JsonObject object = (JsonObject) value;
+            beginObject();
+            for (String key : object.keys()) {
+                name(key);
+                JsonValue child = object.get(key);
+                value(child);
+            }
+            return endObject();
+        case ARRAY:
+            JsonArray array = (JsonArray) value;
+            beginArray();
+            for (int i = 0; i < array.length(); i++) {
+                JsonValue child = array.get(i);
+                value(child);
+            }
+            return endArray();
+        case STRING:
+            return value(value.asString());
+        default:
+            // numbers, booleans and null
+            beforeValue();
+            writer.write(JsonUtil.stringify(value));
+            return this;
+        }
+    }
+
+    private JsonStreamWriter open(char c) throws IOException {
+        beforeValue();
+        if (depth == hasMembers.length) {
+            hasMembers = Arrays.copyOf(hasMembers, depth * 2);
+        }
+        hasMembers[depth++] = false;
+        writer.write(c);
+        return this;
+    }
+
+    private JsonStreamWriter close(char c) throws IOException {
+        if (depth == 0 || nameWritten) {
+            throw new IllegalStateException("Nothing to close");
+        }
+        depth--;
+        writer.write(c);
+        return this;
+    }
+
+    private void beforeValue() throws IOException {
+        if (nameWritten) {
+            // Value of an object member, separator already written
+            nameWritten = false;
+        } else if (depth > 0) {
+            if (hasMembers[depth - 1]) {
+                writer.write(',');
+            } else {
+                hasMembers[depth - 1] = true;
+            }
+        }
+    }
+}
@@ -35,7 +35,7 @@ import org.atmosphere.cpr.AtmosphereResponseImpl;
 import org.atmosphere.interceptor.HeartbeatInterceptor;
 import org.atmosphere.util.VoidAnnotationProcessor;
 
-import com.vaadin.server.RequestHandler;
+import com.vaadin.server.PathPrefixRequestHandler;
 import com.vaadin.server.ServiceDestroyEvent;
 import com.vaadin.server.ServiceException;
 import com.vaadin.server.ServletPortletHelper;
@@ -46,6 +46,7 @@ import com.vaadin.server.VaadinServletRequest;
 import com.vaadin.server.VaadinServletResponse;
 import com.vaadin.server.VaadinServletService;
 import com.vaadin.server.VaadinSession;
+import com.vaadin.shared.ApplicationConstants;
 import com.vaadin.shared.communication.PushConstants;
 
 /**
@@ -58,7 +59,7 @@ import com.vaadin.shared.communication.PushConstants;
  * @since 7.1
  */
 public class PushRequestHandler
-        implements RequestHandler, SessionExpiredHandler {
+        implements PathPrefixRequestHandler, SessionExpiredHandler {
 
     private AtmosphereFramework atmosphere;
     private PushHandler pushHandler;
@@ -226,6 +227,11 @@ public class PushRequestHandler
         return atmosphere;
     }
 
+    @Override
+    public String getPathPrefix() {
+        return ApplicationConstants.PUSH_PATH;
+    }
+
     @Override
     public boolean handleRequest(VaadinSession session, VaadinRequest request,
             VaadinResponse response) throws IOException {
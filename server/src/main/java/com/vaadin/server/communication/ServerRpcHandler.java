@@ -19,6 +19,7 @@ package com.vaadin.server.communication;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Serializable;
+import java.io.StringReader;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -30,12 +31,15 @@ import java.util.logging.Logger;
 
 import com.vaadin.server.ClientConnector;
 import com.vaadin.server.Constants;
+import com.vaadin.server.DeploymentConfiguration;
 import com.vaadin.server.JsonCodec;
 import com.vaadin.server.LegacyCommunicationManager;
 import com.vaadin.server.LegacyCommunicationManager.InvalidUIDLSecurityKeyException;
 import com.vaadin.server.ServerRpcManager;
 import com.vaadin.server.ServerRpcManager.RpcInvocationException;
 import com.vaadin.server.ServerRpcMethodInvocation;
+import com.vaadin.server.ServiceMetrics;
+import com.vaadin.server.ServiceMetrics.Phase;
 import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinService;
 import com.vaadin.server.VariableOwner;
@@ -54,6 +58,7 @@ import com.vaadin.ui.UI;
 import elemental.json.JsonArray;
 import elemental.json.JsonException;
 import elemental.json.JsonObject;
+import elemental.json.JsonType;
 import elemental.json.JsonValue;
 import elemental.json.impl.JsonUtil;
 
@@ -84,7 +89,21 @@ public class ServerRpcHandler implements Serializable {
         private String widgetsetVersion = null;
 
         public RpcRequest(String jsonString, VaadinRequest request) {
-            json = JsonUtil.parse(jsonString);
+            this(JsonUtil.<JsonObject> parse(jsonString), request);
+        }
+
+        /**
+         * Creates an RPC request from a message that has already been parsed.
+         *
+         * @param json
+         *            the message received from the client, not
+         *            <code>null</code>
+         * @param request
+         *            the request the message was received in
+         * @since 8.1
+         */
+        public RpcRequest(JsonObject json, VaadinRequest request) {
+            this.json = json;
 
             JsonValue token = json.get(ApplicationConstants.CSRF_TOKEN);
             if (token == null) {
@@ -203,6 +222,13 @@ public class ServerRpcHandler implements Serializable {
 
     private static final int MAX_BUFFER_SIZE = 64 * 1024;
 
+    /**
+     * Whether a subclass overrides the deprecated {@link #getMessage(Reader)},
+     * in which case it is still used for reading the message.
+     */
+    private final boolean getMessageOverridden = isGetMessageOverridden(
+            getClass());
+
     /**
      * Reads JSON containing zero or more serialized RPC calls (including legacy
      * variable changes) and executes the calls.
@@ -222,14 +248,14 @@ public class ServerRpcHandler implements Serializable {
             throws IOException, InvalidUIDLSecurityKeyException {
         ui.getSession().setLastRequestTimestamp(System.currentTimeMillis());
 
-        String changeMessage = getMessage(reader);
+        JsonObject message = readMessage(reader, request);
 
-        if (changeMessage == null || changeMessage.isEmpty()) {
+        if (message == null) {
             // The client sometimes sends empty messages, this is probably a bug
             return;
         }
 
-        RpcRequest rpcRequest = new RpcRequest(changeMessage, request);
+        RpcRequest rpcRequest = new RpcRequest(message, request);
 
         // Security: double cookie submission pattern unless disabled by
         // property
@@ -271,8 +297,11 @@ public class ServerRpcHandler implements Serializable {
         } else {
             // Message id ok, process RPCs
             ui.setLastProcessedClientToServerId(expectedId);
+            ServiceMetrics metrics = ServiceMetrics.get(ui);
+            long start = metrics.start();
             handleInvocations(ui, rpcRequest.getSyncId(),
                     rpcRequest.getRpcInvocationsData());
+            metrics.end(ui, Phase.RPC_HANDLING, start);
         }
 
         if (rpcRequest.isResynchronize()) {
@@ -626,6 +655,93 @@ public class ServerRpcHandler implements Serializable {
         owner.changeVariables(source, m);
     }
 
+    /**
+     * Reads the message containing RPC invocations from the given reader. The
+     * message is parsed while it is read, without first reading it into a
+     * string. Reading is aborted if the message is longer than
+     * {@link #getMaxMessageLength(VaadinRequest)}.
+     * <p>
+     * If a subclass overrides the deprecated {@link #getMessage(Reader)}, the
+     * message is first read into a string using that method and then parsed.
+     *
+     * @param reader
+     *            the reader to read the message from
+     * @param request
+     *            the request the message is received in
+     * @return the message, or <code>null</code> if the message is empty
+     * @throws IOException
+     *             if reading the message fails
+     * @throws JsonException
+     *             if the message is not a valid JSON object or if it is too
+     *             long
+     * @since 8.1
+     */
+    protected JsonObject readMessage(Reader reader, VaadinRequest request)
+            throws IOException {
+        if (getMessageOverridden) {
+            String message = getMessage(reader);
+            if (message == null || message.isEmpty()) {
+                return null;
+            }
+            reader = new StringReader(message);
+        }
+
+        JsonStreamReader jsonReader = new JsonStreamReader(reader,
+                getMaxMessageLength(request));
+        JsonValue message = jsonReader.read();
+        if (message == null) {
+            return null;
+        }
+        if (message.getType() != JsonType.OBJECT) {
+            throw new JsonException(
+                    "The message must be a JSON object, was "
+                            + message.getType());
+        }
+        if (jsonReader.hasNext()) {
+            throw new JsonException("Unexpected content after the message");
+        }
+        return (JsonObject) message;
+    }
+
+    /**
+     * Gets the maximum number of characters in a message containing RPC
+     * invocations. By default, the limit is read from the
+     * {@value Constants#SERVLET_PARAMETER_MAX_RPC_MESSAGE_LENGTH} parameter.
+     *
+     * @param request
+     *            the request the message is received in
+     * @return the maximum number of characters, or a negative value for no
+     *         limit
+     * @since 8.1
+     */
+    protected int getMaxMessageLength(VaadinRequest request) {
+        DeploymentConfiguration configuration = request.getService()
+                .getDeploymentConfiguration();
+        String value = configuration.getApplicationOrSystemProperty(
+                Constants.SERVLET_PARAMETER_MAX_RPC_MESSAGE_LENGTH, "-1");
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            getLogger().warning("Ignoring non-numeric value " + value + " for "
+                    + Constants.SERVLET_PARAMETER_MAX_RPC_MESSAGE_LENGTH);
+            return -1;
+        }
+    }
+
+    /**
+     * Reads the whole message from the given reader into a string.
+     *
+     * @param reader
+     *            the reader to read the message from
+     * @return the message
+     * @throws IOException
+     *             if reading fails
+     * @deprecated As of 8.1, only called if overridden. By default, the
+     *             message is parsed directly from the reader in
+     *             {@link #readMessage(Reader, VaadinRequest)}, which should be
+     *             overridden instead.
+     */
+    @Deprecated
     protected String getMessage(Reader reader) throws IOException {
 
         StringBuilder sb = new StringBuilder(MAX_BUFFER_SIZE);
@@ -642,6 +758,19 @@ public class ServerRpcHandler implements Serializable {
         return sb.toString();
     }
 
+    private static boolean isGetMessageOverridden(Class<?> type) {
+        for (Class<?> c = type; c != ServerRpcHandler.class; c = c
+                .getSuperclass()) {
+            try {
+                c.getDeclaredMethod("getMessage", Reader.class);
+                return true;
+            } catch (NoSuchMethodException e) {
+                // Not overridden in this class, check the superclass
+            }
+        }
+        return false;
+    }
+
     private static final Logger getLogger() {
         return Logger.getLogger(ServerRpcHandler.class.getName());
     }
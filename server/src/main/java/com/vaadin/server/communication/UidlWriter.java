@@ -34,6 +34,8 @@ import com.vaadin.server.DependencyFilter.FilterContext;
 import com.vaadin.server.JsonPaintTarget;
 import com.vaadin.server.LegacyCommunicationManager;
 import com.vaadin.server.LegacyCommunicationManager.ClientCache;
+import com.vaadin.server.ServiceMetrics;
+import com.vaadin.server.ServiceMetrics.Phase;
 import com.vaadin.server.SystemMessages;
 import com.vaadin.server.VaadinService;
 import com.vaadin.server.VaadinSession;
@@ -42,11 +44,6 @@ import com.vaadin.ui.ConnectorTracker;
 import com.vaadin.ui.Dependency;
 import com.vaadin.ui.UI;
 
-import elemental.json.Json;
-import elemental.json.JsonArray;
-import elemental.json.JsonObject;
-import elemental.json.impl.JsonUtil;
-
 /**
  * Serializes pending server-side changes to UI state to JSON. This includes
  * shared state, client RPC invocations, connector hierarchy changes, connector
@@ -79,6 +76,9 @@ public class UidlWriter implements Serializable {
         // to write out
         service.runPendingAccessTasks(session);
 
+        ServiceMetrics metrics = ServiceMetrics.get(service);
+        long writeStart = metrics.start();
+
         Set<ClientConnector> processedConnectors = new HashSet<>();
 
         LegacyCommunicationManager manager = session.getCommunicationManager();
@@ -88,39 +88,22 @@ public class UidlWriter implements Serializable {
         ConnectorTracker uiConnectorTracker = ui.getConnectorTracker();
         getLogger().log(Level.FINE, "* Creating response to client");
 
-        while (true) {
-            ArrayList<ClientConnector> connectorsToProcess = new ArrayList<>();
-            for (ClientConnector c : uiConnectorTracker
-                    .getDirtyVisibleConnectors()) {
-                if (!processedConnectors.contains(c)) {
-                    connectorsToProcess.add(c);
-                }
-            }
-
-            if (connectorsToProcess.isEmpty()) {
-                break;
-            }
-
-            // process parents before children
-            Collections.sort(connectorsToProcess,
-                    Comparator.comparingInt(conn -> {
-                        int depth = 0;
-                        ClientConnector connector = conn;
-                        // this is a very fast operation, even for 100+ levels
-                        while (connector.getParent() != null) {
-                            ++depth;
-                            connector = connector.getParent();
-                        }
-                        return depth;
-                    }));
-
+        // Process parents before children. Connectors marked dirty during
+        // beforeClientResponse are returned by the following poll.
+        long phaseStart = metrics.start();
+        List<ClientConnector> connectorsToProcess;
+        while (!(connectorsToProcess = uiConnectorTracker
+                .pollDirtyVisibleConnectors()).isEmpty()) {
             for (ClientConnector connector : connectorsToProcess) {
+                if (!processedConnectors.add(connector)) {
+                    // Marked clean and dirty again during this response
+                    continue;
+                }
                 // call isDirty() to find out if ConnectorTracker knows the
                 // connector
                 boolean initialized = uiConnectorTracker.isDirty(connector)
                         && uiConnectorTracker
                                 .isClientSideInitialized(connector);
-                processedConnectors.add(connector);
 
                 try {
                     connector.beforeClientResponse(!initialized);
@@ -129,6 +112,7 @@ public class UidlWriter implements Serializable {
                 }
             }
         }
+        metrics.end(ui, Phase.BEFORE_CLIENT_RESPONSE, phaseStart);
 
         getLogger().log(Level.FINE, "Found " + processedConnectors.size()
                 + " dirty connectors to paint");
@@ -171,29 +155,33 @@ public class UidlWriter implements Serializable {
             // processing.
 
             writer.write("\"state\":");
+            phaseStart = metrics.start();
             Set<String> stateUpdateConnectors = new SharedStateWriter()
                     .write(ui, writer);
+            metrics.end(ui, Phase.STATE_ENCODING, phaseStart);
             writer.write(", "); // close states
 
-            // TODO This should be optimized. The type only needs to be
-            // sent once for each connector id + on refresh. Use the same cache
-            // as
-            // widget mapping
+            // The type is only sent for connectors that are not yet known by
+            // the client, i.e. once for each connector id + on refresh
 
             writer.write("\"types\":");
+            phaseStart = metrics.start();
             new ConnectorTypeWriter().write(ui, writer, paintTarget);
+            metrics.end(ui, Phase.TYPE_ENCODING, phaseStart);
             writer.write(", "); // close states
 
             // Send update hierarchy information to the client.
 
-            // This could be optimized aswell to send only info if hierarchy has
-            // actually changed. Much like with the shared state. Note though
+            // Only sent for connectors whose children have changed since the
+            // previous response, much like with the shared state. Note though
             // that an empty hierarchy is information aswell (e.g. change from 1
             // child to 0 children)
 
             writer.write("\"hierarchy\":");
+            phaseStart = metrics.start();
             new ConnectorHierarchyWriter().write(ui, writer,
                     stateUpdateConnectors);
+            metrics.end(ui, Phase.HIERARCHY_ENCODING, phaseStart);
             writer.write(", "); // close hierarchy
 
             // send server to client RPC calls for components in the UI, in call
@@ -203,7 +191,9 @@ public class UidlWriter implements Serializable {
             // which they were performed, remove the calls from components
 
             writer.write("\"rpc\" : ");
+            phaseStart = metrics.start();
             new ClientRpcWriter().write(ui, writer);
+            metrics.end(ui, Phase.CLIENT_RPC_ENCODING, phaseStart);
             writer.write(", "); // close rpc
 
             uiConnectorTracker.markAllConnectorsClean();
@@ -305,8 +295,8 @@ public class UidlWriter implements Serializable {
 
             // Include dependencies in output if there are any
             if (!dependencies.isEmpty()) {
-                writer.write(", \"dependencies\": "
-                        + JsonUtil.stringify(toJsonArray(dependencies)));
+                writer.write(", \"dependencies\": ");
+                writeDependencies(dependencies, writer);
             }
 
             session.getDragAndDropService().printJSONResponse(writer);
@@ -321,20 +311,21 @@ public class UidlWriter implements Serializable {
             writePerformanceData(ui, writer);
         } finally {
             uiConnectorTracker.setWritingResponse(false);
+            metrics.end(ui, Phase.RESPONSE_WRITING, writeStart);
         }
     }
 
-    private JsonArray toJsonArray(List<Dependency> list) {
-        JsonArray result = Json.createArray();
-        for (int i = 0; i < list.size(); i++) {
-            JsonObject dep = Json.createObject();
-            Dependency dependency = list.get(i);
-            dep.put("type", dependency.getType().name());
-            dep.put("url", dependency.getUrl());
-            result.set(i, dep);
+    private void writeDependencies(List<Dependency> list, Writer writer)
+            throws IOException {
+        JsonStreamWriter json = new JsonStreamWriter(writer);
+        json.beginArray();
+        for (Dependency dependency : list) {
+            json.beginObject();
+            json.name("type").value(dependency.getType().name());
+            json.name("url").value(dependency.getUrl());
+            json.endObject();
         }
-
-        return result;
+        json.endArray();
     }
 
     /**
@@ -456,6 +456,10 @@ public abstract class AbstractComponent extends AbstractClientConnector
         }
 
         this.visible = visible;
+        UI ui = getUI();
+        if (ui != null) {
+            ui.getConnectorTracker().markVisibilityChanged(this);
+        }
         if (visible) {
             /*
              * If the visibility state is toggled from invisible to visible it
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.ui;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import com.vaadin.data.provider.DataProviderListener;
+import com.vaadin.data.provider.DataProviderWrapper;
+import com.vaadin.data.provider.ListDataProvider;
+import com.vaadin.data.provider.Query;
+import com.vaadin.server.SerializableFunction;
+import com.vaadin.server.SerializablePredicate;
+import com.vaadin.server.SerializableSupplier;
+import com.vaadin.shared.Registration;
+
+/**
+ * List data provider wrapper for {@link ComboBox} that filters items with a
+ * case insensitive substring match of their captions using an index of the
+ * captions.
+ * <p>
+ * The lowercased captions of all items are cached together with an index of
+ * the trigrams they contain. A filter of at least three characters is only
+ * compared to the captions containing its rarest trigram, while a shorter
+ * filter is compared to all the cached captions. The matches for the latest
+ * filter are also cached, since both the size and the items are queried for
+ * each filter.
+ * <p>
+ * The index is built when it is first needed and discarded when the wrapped
+ * data provider is refreshed or a listener is added to this data provider.
+ * It is rebuilt if the locale used for lowercasing changes, and should be
+ * {@link #invalidate() invalidated} if the captions change in some other way.
+ *
+ * @param <T>
+ *            the item type
+ * @since 8.1
+ */
+class CaptionIndexDataProvider<T>
+        extends DataProviderWrapper<T, String, SerializablePredicate<T>> {
+
+    private static final int GRAM_LENGTH = 3;
+
+    private final ListDataProvider<T> listDataProvider;
+    private final SerializableFunction<T, String> captionGenerator;
+    private final SerializableSupplier<Locale> localeSupplier;
+
+    // The index is not serialized, it is rebuilt when needed
+    private transient Locale indexLocale;
+    private transient List<T> items;
+    private transient String[] captions;
+    private transient Map<Long, int[]> grams;
+
+    private transient String lastFilter;
+    private transient int[] lastMatches;
+
+    /**
+     * Creates a new caption index wrapper for the given list data provider.
+     *
+     * @param listDataProvider
+     *            the list data provider to wrap, not <code>null</code>
+     * @param captionGenerator
+     *            the function giving the caption of an item, not
+     *            <code>null</code>
+     * @param localeSupplier
+     *            the supplier of the locale for lowercasing the captions and
+     *            filters, not <code>null</code>
+     */
+    public CaptionIndexDataProvider(ListDataProvider<T> listDataProvider,
+            SerializableFunction<T, String> captionGenerator,
+            SerializableSupplier<Locale> localeSupplier) {
+        super(listDataProvider);
+        this.listDataProvider = listDataProvider;
+        this.captionGenerator = Objects.requireNonNull(captionGenerator,
+                "Caption generator cannot be null");
+        this.localeSupplier = Objects.requireNonNull(localeSupplier,
+                "Locale supplier cannot be null");
+    }
+
+    /**
+     * Gets the wrapped list data provider.
+     *
+     * @return the wrapped list data provider, not <code>null</code>
+     */
+    public ListDataProvider<T> getListDataProvider() {
+        return listDataProvider;
+    }
+
+    /**
+     * Discards the index. It is rebuilt the next time a filter is applied.
+     */
+    public void invalidate() {
+        indexLocale = null;
+        items = null;
+        captions = null;
+        grams = null;
+        lastFilter = null;
+        lastMatches = null;
+    }
+
+    @Override
+    public Registration addDataProviderListener(
+            DataProviderListener<T> listener) {
+        // Changes are not tracked without listeners
+        invalidate();
+        return super.addDataProviderListener(event -> {
+            invalidate();
+            listener.onDataChange(event);
+        });
+    }
+
+    @Override
+    public int size(Query<T, String> query) {
+        String filter = query.getFilter().orElse("");
+        if (filter.isEmpty()) {
+            return super.size(query);
+        }
+        return (int) getFilteredStream(filter).count();
+    }
+
+    @Override
+    public Stream<T> fetch(Query<T, String> query) {
+        String filter = query.getFilter().orElse("");
+        if (filter.isEmpty()) {
+            return super.fetch(query);
+        }
+        Stream<T> stream = getFilteredStream(filter);
+
+        Optional<Comparator<T>> comparing = Stream
+                .of(query.getInMemorySorting(),
+                        listDataProvider.getSortComparator())
+                .filter(c -> c != null)
+                .reduce((c1, c2) -> c1.thenComparing(c2));
+
+        if (comparing.isPresent()) {
+            stream = stream.sorted(comparing.get());
+        }
+
+        return stream.skip(query.getOffset()).limit(query.getLimit());
+    }
+
+    @Override
+    protected SerializablePredicate<T> getFilter(Query<T, String> query) {
+        // Only used for queries without a filter
+        return null;
+    }
+
+    private Stream<T> getFilteredStream(String filter) {
+        Stream<T> stream = Arrays.stream(findMatches(filter))
+                .mapToObj(items::get);
+        SerializablePredicate<T> itemFilter = listDataProvider.getFilter();
+        if (itemFilter != null) {
+            stream = stream.filter(itemFilter);
+        }
+        return stream;
+    }
+
+    /**
+     * Finds the indices of the items whose captions contain the given filter,
+     * in the order of the items.
+     *
+     * @param filter
+     *            the filter text, not empty
+     * @return the indices of the matching items
+     */
+    private int[] findMatches(String filter) {
+        Locale locale = getLocale();
+        if (items == null || !locale.equals(indexLocale)) {
+            buildIndex(locale);
+        }
+
+        String text = filter.toLowerCase(locale);
+        if (text.equals(lastFilter)) {
+            return lastMatches;
+        }
+
+        int[] candidates = findCandidates(text);
+        int[] matches = new int[candidates.length];
+        int count = 0;
+        for (int item : candidates) {
+            if (captions[item].contains(text)) {
+                matches[count++] = item;
+            }
+        }
+
+        lastFilter = text;
+        lastMatches = Arrays.copyOf(matches, count);
+        return lastMatches;
+    }
+
+    private int[] findCandidates(String text) {
+        if (text.length() < GRAM_LENGTH) {
+            return IntStream.range(0, captions.length).toArray();
+        }
+        int[] rarest = null;
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            int[] posting = grams.get(gram(text, i));
+            if (posting == null) {
+                return new int[0];
+            }
+            if (rarest == null || posting.length < rarest.length) {
+                rarest = posting;
+            }
+        }
+        return rarest;
+    }
+
+    private void buildIndex(Locale locale) {
+        invalidate();
+
+        List<T> newItems = new ArrayList<>(listDataProvider.getItems());
+        String[] newCaptions = new String[newItems.size()];
+        Map<Long, Posting> postings = new HashMap<>();
+        for (int i = 0; i < newCaptions.length; i++) {
+            String caption = captionGenerator.apply(newItems.get(i));
+            caption = caption == null ? "" : caption.toLowerCase(locale);
+            newCaptions[i] = caption;
+            for (int j = 0; j + GRAM_LENGTH <= caption.length(); j++) {
+                postings.computeIfAbsent(gram(caption, j), g -> new Posting())
+                        .add(i);
+            }
+        }
+
+        Map<Long, int[]> newGrams = new HashMap<>(postings.size() * 4 / 3 + 1);
+        postings.forEach((gram, posting) -> newGrams.put(gram,
+                Arrays.copyOf(posting.items, posting.size)));
+
+        indexLocale = locale;
+        items = newItems;
+        captions = newCaptions;
+        grams = newGrams;
+    }
+
+    private Locale getLocale() {
+        Locale locale = localeSupplier.get();
+        return locale != null ? locale : Locale.getDefault();
+    }
+
+    private static long gram(String text, int start) {
+        return (long) text.charAt(start) << 32
+                | (long) text.charAt(start + 1) << 16
+                | text.charAt(start + 2);
+    }
+
+    /**
+     * Growable list of the ascending indices of the items containing a gram.
+     */
+    private static class Posting implements Serializable {
+        private int[] items = new int[4];
+        private int size = 0;
+
+        private void add(int item) {
+            // The same gram may occur several times in a caption
+            if (size > 0 && items[size - 1] == item) {
+                return;
+            }
+            if (size == items.length) {
+                items = Arrays.copyOf(items, size * 2);
+            }
+            items[size++] = item;
+        }
+    }
+}
@@ -177,6 +177,10 @@ public class ComboBox<T> extends AbstractSingleSelect<T>
 
     private String currentFilterText;
 
+    private boolean captionIndexEnabled = false;
+
+    private CaptionIndexDataProvider<T> captionIndexDataProvider;
+
     private SerializableConsumer<String> filterSlot = filter -> {
         // Just ignore when neither setDataProvider nor setItems has been called
     };
@@ -308,9 +312,22 @@ public class ComboBox<T> extends AbstractSingleSelect<T>
      *
      * @param listDataProvider
      *            the list data provider to use, not <code>null</code>
+     * @see #setCaptionIndexEnabled(boolean)
      * @since 8.0
      */
     public void setDataProvider(ListDataProvider<T> listDataProvider) {
+        if (isCaptionIndexEnabled()) {
+            Objects.requireNonNull(listDataProvider,
+                    "List data provider cannot be null");
+
+            // Must do getItemCaptionGenerator() and getLocale() for each
+            // operation since they might change later on
+            setDataProvider(new CaptionIndexDataProvider<>(listDataProvider,
+                    item -> getItemCaptionGenerator().apply(item),
+                    this::getLocale), filterText -> filterText);
+            return;
+        }
+
         // Cannot use the case insensitive contains shorthand from
         // ListDataProvider since it wouldn't react to locale changes
         CaptionFilter defaultCaptionFilter = (itemText, filterText) -> itemText
@@ -584,6 +601,44 @@ public class ComboBox<T> extends AbstractSingleSelect<T>
         return getState(false).scrollToSelectedItem;
     }
 
+    /**
+     * Sets whether the default filtering of in-memory items uses an index of
+     * the item captions. The index makes filtering a large number of items
+     * considerably faster, but keeps the lowercased captions of all items in
+     * memory.
+     * <p>
+     * The index is used for items set with {@link #setItems(Collection)} or
+     * {@link #setDataProvider(ListDataProvider)} after enabling it. It is
+     * rebuilt when the list data provider is refreshed or the item caption
+     * generator or the locale is changed. Custom caption filters are never
+     * indexed.
+     * <p>
+     * The index is disabled by default.
+     *
+     * @param captionIndexEnabled
+     *            <code>true</code> to index the item captions,
+     *            <code>false</code> to compare the caption of each item to the
+     *            filter
+     * @since 8.1
+     */
+    public void setCaptionIndexEnabled(boolean captionIndexEnabled) {
+        this.captionIndexEnabled = captionIndexEnabled;
+    }
+
+    /**
+     * Returns whether the default filtering of in-memory items uses an index
+     * of the item captions.
+     *
+     * @see #setCaptionIndexEnabled(boolean)
+     *
+     * @return <code>true</code> if the item captions are indexed,
+     *         <code>false</code> otherwise
+     * @since 8.1
+     */
+    public boolean isCaptionIndexEnabled() {
+        return captionIndexEnabled;
+    }
+
     @Override
     public ItemCaptionGenerator<T> getItemCaptionGenerator() {
         return super.getItemCaptionGenerator();
@@ -593,6 +648,9 @@ public class ComboBox<T> extends AbstractSingleSelect<T>
     public void setItemCaptionGenerator(
             ItemCaptionGenerator<T> itemCaptionGenerator) {
         super.setItemCaptionGenerator(itemCaptionGenerator);
+        if (captionIndexDataProvider != null) {
+            captionIndexDataProvider.invalidate();
+        }
         if (getSelectedItem().isPresent()) {
             updateSelectedItemCaption();
         }
@@ -783,6 +841,9 @@ public class ComboBox<T> extends AbstractSingleSelect<T>
 
     @Override
     public DataProvider<T, ?> getDataProvider() {
+        if (captionIndexDataProvider != null) {
+            return captionIndexDataProvider.getListDataProvider();
+        }
         return internalGetDataProvider();
     }
 
@@ -793,6 +854,14 @@ public class ComboBox<T> extends AbstractSingleSelect<T>
         Objects.requireNonNull(filterConverter,
                 "filterConverter cannot be null");
 
+        if (dataProvider instanceof CaptionIndexDataProvider) {
+            @SuppressWarnings("unchecked")
+            CaptionIndexDataProvider<T> indexed = (CaptionIndexDataProvider<T>) dataProvider;
+            captionIndexDataProvider = indexed;
+        } else {
+            captionIndexDataProvider = null;
+        }
+
         SerializableFunction<String, C> convertOrNull = filterText -> {
             if (filterText == null || filterText.isEmpty()) {
                 return null;
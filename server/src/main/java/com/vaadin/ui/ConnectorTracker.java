@@ -19,11 +19,15 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
 import java.util.UUID;
 import java.util.logging.Level;
@@ -69,6 +73,12 @@ public class ConnectorTracker implements Serializable {
     private final Set<ClientConnector> dirtyConnectors = new HashSet<>();
     private final Set<ClientConnector> uninitializedConnectors = new HashSet<>();
 
+    /**
+     * Dirty connectors that have not yet been returned by
+     * {@link #pollDirtyVisibleConnectors()}.
+     */
+    private final Set<ClientConnector> unprocessedDirtyConnectors = new LinkedHashSet<>();
+
     /**
      * Connectors that have been unregistered and should be cleaned up the next
      * time {@link #cleanConnectorMap()} is invoked unless they have been
@@ -76,11 +86,26 @@ public class ConnectorTracker implements Serializable {
      */
     private final Set<ClientConnector> unregisteredConnectors = new HashSet<>();
 
+    /**
+     * Connectors that have been registered, marked as dirty or had their
+     * visibility changed since {@link #cleanConnectorMap()} was last invoked.
+     * Only these connectors and their children can have become invisible to
+     * the client.
+     */
+    private final Set<ClientConnector> visibilityChangedConnectors = new HashSet<>();
+
     private boolean writingResponse = false;
 
     private final UI uI;
     private transient Map<ClientConnector, JsonObject> diffStates = new HashMap<>();
 
+    /**
+     * The ids of the visible children last sent to the client for each
+     * connector. Used for sending hierarchy information only for connectors
+     * whose children have changed.
+     */
+    private final Map<ClientConnector, List<String>> sentChildIds = new HashMap<>();
+
     /** Maps connectorIds to a map of named StreamVariables */
     private Map<String, Map<String, StreamVariable>> pidToNameToStreamVariable;
 
@@ -143,7 +168,8 @@ public class ConnectorTracker implements Serializable {
                     new Object[] { connector.getClass().getSimpleName(),
                             connectorId });
         }
-        dirtyConnectors.add(connector);
+        addDirtyConnector(connector);
+        visibilityChangedConnectors.add(connector);
     }
 
     /**
@@ -173,6 +199,8 @@ public class ConnectorTracker implements Serializable {
         }
 
         dirtyConnectors.remove(connector);
+        unprocessedDirtyConnectors.remove(connector);
+        visibilityChangedConnectors.remove(connector);
 
         if (!isClientSideInitialized(connector)) {
             // Client side has never known about this connector so there is no
@@ -235,6 +263,7 @@ public class ConnectorTracker implements Serializable {
     public void markAllClientSidesUninitialized() {
         uninitializedConnectors.addAll(connectorIdToConnector.values());
         diffStates.clear();
+        sentChildIds.clear();
     }
 
     /**
@@ -279,6 +308,136 @@ public class ConnectorTracker implements Serializable {
                 + "and that all custom component containers call child.setParent(this) when a child is added and child.setParent(null) when the child is no longer used. "
                 + "See previous log messages for details.";
 
+        if (!visibilityChangedConnectors.isEmpty()) {
+            removeInvisibleConnectorStates();
+        }
+
+        // Do the full scan only with assertions enabled
+        assert isConnectorMapClean() : "Connectors that are detached or no "
+                + "longer visible to the client were not cleaned up. "
+                + "See previous log messages for details.";
+    }
+
+    /**
+     * Marks the given connector as potentially having changed its visibility
+     * to the client. The state of the connector and its descendants is
+     * discarded in the next {@link #cleanConnectorMap()} if they are no longer
+     * visible to the client, to make sure that the full state is sent
+     * again when/if they are made visible.
+     * <p>
+     * Registering a connector or marking it as dirty implicitly marks its
+     * visibility as changed, and so does
+     * {@link Component#setVisible(boolean)}.
+     * <p>
+     * Without assertions enabled, only marked connectors are checked. Custom
+     * components that change the visibility of a connector in some other way
+     * must call this method, or mark the connector or its parent as dirty.
+     * This is the case e.g. when overriding {@link Component#isVisible()} or
+     * when a {@link SelectiveRenderer} changes the result of
+     * {@link SelectiveRenderer#isRendered(Component)}. Otherwise the client
+     * keeps the stale state of the hidden connector.
+     *
+     * @param connector
+     *            the connector whose visibility might have changed
+     * @since 8.1
+     */
+    public void markVisibilityChanged(ClientConnector connector) {
+        visibilityChangedConnectors.add(connector);
+    }
+
+    /**
+     * Discards the state of connectors that have become invisible to the
+     * client since the previous cleanup. Only connectors that have had their
+     * visibility changed, been registered or been marked as dirty, along with
+     * their children, are checked.
+     */
+    private void removeInvisibleConnectorStates() {
+        Set<ClientConnector> checked = new HashSet<>();
+        for (ClientConnector connector : visibilityChangedConnectors) {
+            if (!isRegistered(connector)) {
+                continue;
+            }
+            if (!isConnectorVisibleToClient(connector)) {
+                removeInvisibleStatesRecursively(connector, checked);
+            } else {
+                // A visible connector might have stopped rendering some of its
+                // children (e.g. setVisible(false) or SelectiveRenderer)
+                for (ClientConnector child : AbstractClientConnector
+                        .getAllChildrenIterable(connector)) {
+                    if (!isConnectorVisibleToClient(child)) {
+                        removeInvisibleStatesRecursively(child, checked);
+                    }
+                }
+            }
+        }
+        visibilityChangedConnectors.clear();
+    }
+
+    @SuppressWarnings("deprecation")
+    private static boolean isConnectorVisibleToClient(
+            ClientConnector connector) {
+        return LegacyCommunicationManager.isConnectorVisibleToClient(connector);
+    }
+
+    private void removeInvisibleStatesRecursively(ClientConnector connector,
+            Set<ClientConnector> checked) {
+        LinkedList<ClientConnector> stack = new LinkedList<>();
+        stack.add(connector);
+        while (!stack.isEmpty()) {
+            ClientConnector invisible = stack.pop();
+            if (!checked.add(invisible)) {
+                continue;
+            }
+            if (isRegistered(invisible)
+                    && !uninitializedConnectors.contains(invisible)) {
+                removeInvisibleState(invisible);
+            }
+            for (ClientConnector child : AbstractClientConnector
+                    .getAllChildrenIterable(invisible)) {
+                stack.add(child);
+            }
+        }
+    }
+
+    private boolean isRegistered(ClientConnector connector) {
+        return connectorIdToConnector
+                .get(connector.getConnectorId()) == connector
+                && !unregisteredConnectors.contains(connector);
+    }
+
+    /**
+     * Discards the state of a connector that was visible to the client but is
+     * no longer (e.g. setVisible(false) has been called or SelectiveRenderer
+     * tells it's no longer shown) to make sure that the full state is sent
+     * again when/if made visible.
+     *
+     * @param connector
+     *            the connector that is no longer visible to the client
+     */
+    private void removeInvisibleState(ClientConnector connector) {
+        uninitializedConnectors.add(connector);
+        diffStates.remove(connector);
+        sentChildIds.remove(connector);
+        assert isRemovalSentToClient(connector) : "Connector " + connector
+                + " (id = " + connector.getConnectorId()
+                + ") is no longer visible to the client, but no corresponding hierarchy change was sent.";
+        if (getLogger().isLoggable(Level.FINE)) {
+            getLogger().log(Level.FINE,
+                    "cleanConnectorMap removed state for {0} as it is not visible",
+                    getConnectorAndParentInfo(connector));
+        }
+    }
+
+    /**
+     * Checks all registered connectors for connectors that are no longer
+     * attached to this UI or no longer visible to the client but have not
+     * been cleaned up, and cleans them up.
+     *
+     * @return <code>true</code> if no connector needed to be cleaned up,
+     *         <code>false</code> otherwise
+     */
+    private boolean isConnectorMapClean() {
+        boolean clean = true;
         Iterator<ClientConnector> iterator = connectorIdToConnector.values()
                 .iterator();
         GlobalResourceHandler globalResourceHandler = uI.getSession()
@@ -301,26 +460,20 @@ public class ConnectorTracker implements Serializable {
                 }
                 uninitializedConnectors.remove(connector);
                 diffStates.remove(connector);
+                sentChildIds.remove(connector);
                 iterator.remove();
+                clean = false;
             } else if (!uninitializedConnectors.contains(connector)
                     && !LegacyCommunicationManager
                             .isConnectorVisibleToClient(connector)) {
-                // Connector was visible to the client but is no longer (e.g.
-                // setVisible(false) has been called or SelectiveRenderer tells
-                // it's no longer shown) -> make sure that the full state is
-                // sent again when/if made visible
-                uninitializedConnectors.add(connector);
-                diffStates.remove(connector);
-                assert isRemovalSentToClient(connector) : "Connector "
-                        + connector + " (id = " + connector.getConnectorId()
-                        + ") is no longer visible to the client, but no corresponding hierarchy change was sent.";
-                if (getLogger().isLoggable(Level.FINE)) {
-                    getLogger().log(Level.FINE,
-                            "cleanConnectorMap removed state for {0} as it is not visible",
-                            getConnectorAndParentInfo(connector));
-                }
+                getLogger().log(Level.WARNING,
+                        "cleanConnectorMap found {0} that is no longer visible but was not marked as changed.",
+                        getConnectorAndParentInfo(connector));
+                removeInvisibleState(connector);
+                clean = false;
             }
         }
+        return clean;
     }
 
     private boolean isRemovalSentToClient(ClientConnector connector) {
@@ -436,6 +589,8 @@ public class ConnectorTracker implements Serializable {
         }
         uninitializedConnectors.remove(connector);
         diffStates.remove(connector);
+        sentChildIds.remove(connector);
+        visibilityChangedConnectors.remove(connector);
     }
 
     /**
@@ -507,7 +662,17 @@ public class ConnectorTracker implements Serializable {
             }
         }
 
-        dirtyConnectors.add(connector);
+        addDirtyConnector(connector);
+        visibilityChangedConnectors.add(connector);
+    }
+
+    private void addDirtyConnector(ClientConnector connector) {
+        if (dirtyConnectors.add(connector)) {
+            unprocessedDirtyConnectors.add(connector);
+        }
+        if (!uI.isSerializationDirty()) {
+            uI.setSerializationDirty(true);
+        }
     }
 
     /**
@@ -525,6 +690,7 @@ public class ConnectorTracker implements Serializable {
         }
 
         dirtyConnectors.remove(connector);
+        unprocessedDirtyConnectors.remove(connector);
     }
 
     /**
@@ -581,6 +747,7 @@ public class ConnectorTracker implements Serializable {
      */
     public void markAllConnectorsClean() {
         dirtyConnectors.clear();
+        unprocessedDirtyConnectors.clear();
         getLogger().fine("All connectors are now clean");
     }
 
@@ -643,6 +810,73 @@ public class ConnectorTracker implements Serializable {
         return dirtyVisibleConnectors;
     }
 
+    /**
+     * Returns the {@link #getDirtyVisibleConnectors() dirty and visible
+     * connectors} that have not been returned by this method since they were
+     * marked dirty. The connectors are ordered so that parents come before
+     * their children.
+     * <p>
+     * This is used while writing a response for processing connectors that
+     * are marked dirty while other connectors are being processed, e.g. in
+     * {@link ClientConnector#beforeClientResponse(boolean)}. Dirty connectors
+     * that are not visible to the client are returned when they become
+     * visible, as long as they are still dirty.
+     *
+     * @return a list of connectors to process, ordered by their depth in the
+     *         connector hierarchy, empty if there are no more connectors to
+     *         process
+     * @since 8.1
+     */
+    public List<ClientConnector> pollDirtyVisibleConnectors() {
+        if (unprocessedDirtyConnectors.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        // Bucket the connectors by depth instead of sorting to avoid
+        // computing the depth of a connector repeatedly
+        List<List<ClientConnector>> depthBuckets = new ArrayList<>();
+        int count = 0;
+        Iterator<ClientConnector> iterator = unprocessedDirtyConnectors
+                .iterator();
+        while (iterator.hasNext()) {
+            ClientConnector connector = iterator.next();
+            if (!dirtyConnectors.contains(connector)) {
+                // Removed directly from the dirty connectors collection
+                iterator.remove();
+                continue;
+            } else if (!LegacyCommunicationManager
+                    .isConnectorVisibleToClient(connector)) {
+                continue;
+            }
+            iterator.remove();
+
+            int depth = 0;
+            ClientConnector parent = connector.getParent();
+            while (parent != null) {
+                depth++;
+                parent = parent.getParent();
+            }
+            while (depthBuckets.size() <= depth) {
+                depthBuckets.add(null);
+            }
+            List<ClientConnector> bucket = depthBuckets.get(depth);
+            if (bucket == null) {
+                bucket = new ArrayList<>();
+                depthBuckets.set(depth, bucket);
+            }
+            bucket.add(connector);
+            count++;
+        }
+
+        List<ClientConnector> connectors = new ArrayList<>(count);
+        for (List<ClientConnector> bucket : depthBuckets) {
+            if (bucket != null) {
+                connectors.addAll(bucket);
+            }
+        }
+        return connectors;
+    }
+
     public JsonObject getDiffState(ClientConnector connector) {
         assert getConnector(connector.getConnectorId()) == connector;
         return diffStates.get(connector);
@@ -653,6 +887,41 @@ public class ConnectorTracker implements Serializable {
         diffStates.put(connector, diffState);
     }
 
+    /**
+     * Gets the ids of the visible children of the given connector that were
+     * last sent to the client. This is used for only sending hierarchy
+     * information for connectors whose children have actually changed.
+     *
+     * @param connector
+     *            the connector to get the sent child ids for
+     * @return an unmodifiable list of the child ids last sent to the client, or
+     *         <code>null</code> if the client-side hierarchy of the connector
+     *         is not known
+     * @since 8.1
+     */
+    public List<String> getSentChildIds(ClientConnector connector) {
+        return sentChildIds.get(connector);
+    }
+
+    /**
+     * Records the ids of the visible children of the given connector that
+     * have been sent to the client. The recorded ids are discarded whenever
+     * the client-side state of the connector is reset.
+     *
+     * @param connector
+     *            the connector for which child ids have been sent
+     * @param childIds
+     *            the ids of the children sent to the client, not
+     *            <code>null</code>
+     * @since 8.1
+     */
+    public void setSentChildIds(ClientConnector connector,
+            List<String> childIds) {
+        assert getConnector(connector.getConnectorId()) == connector;
+        sentChildIds.put(connector, Collections
+                .unmodifiableList(new ArrayList<>(childIds)));
+    }
+
     public boolean isDirty(ClientConnector connector) {
         return dirtyConnectors.contains(connector);
     }
@@ -714,14 +983,21 @@ public class ConnectorTracker implements Serializable {
     private void writeObject(java.io.ObjectOutputStream out)
             throws IOException {
         out.defaultWriteObject();
-        // Convert JsonObjects in diff state to String representation as
-        // JsonObject is not serializable
-        HashMap<ClientConnector, String> stringDiffStates = new HashMap<>(
-                diffStates.size() * 2);
-        for (ClientConnector key : diffStates.keySet()) {
-            stringDiffStates.put(key, diffStates.get(key).toString());
+        /*
+         * Convert JsonObjects in diff state to String representation as
+         * JsonObject is not serializable. Equal states, e.g. of connectors
+         * that have only default values, are written as the same String
+         * instance so that the stream contains each distinct state once.
+         */
+        Map<String, String> distinctStates = new HashMap<>();
+        out.writeInt(diffStates.size());
+        for (Entry<ClientConnector, JsonObject> entry : diffStates
+                .entrySet()) {
+            String state = entry.getValue().toString();
+            String previous = distinctStates.putIfAbsent(state, state);
+            out.writeObject(entry.getKey());
+            out.writeObject(previous == null ? state : previous);
         }
-        out.writeObject(stringDiffStates);
     }
 
     /* Special serialization to JsonObjects which are not serializable */
@@ -731,14 +1007,14 @@ public class ConnectorTracker implements Serializable {
 
         // Read String versions of JsonObjects and parse into JsonObjects as
         // JsonObject is not serializable
-        diffStates = new HashMap<>();
-        @SuppressWarnings("unchecked")
-        HashMap<ClientConnector, String> stringDiffStates = (HashMap<ClientConnector, String>) in
-                .readObject();
-        diffStates = new HashMap<>(stringDiffStates.size() * 2);
-        for (ClientConnector key : stringDiffStates.keySet()) {
+        int size = in.readInt();
+        diffStates = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            ClientConnector connector = (ClientConnector) in.readObject();
+            String state = (String) in.readObject();
             try {
-                diffStates.put(key, Json.parse(stringDiffStates.get(key)));
+                // Parsed separately as the states are updated independently
+                diffStates.put(connector, Json.parse(state));
             } catch (JsonException e) {
                 throw new IOException(e);
             }
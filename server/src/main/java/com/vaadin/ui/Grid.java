@@ -26,6 +26,7 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
@@ -33,7 +34,6 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
-import java.util.function.BinaryOperator;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -58,6 +58,7 @@ import com.vaadin.data.provider.GridSortOrder;
 import com.vaadin.data.provider.GridSortOrderBuilder;
 import com.vaadin.data.provider.Query;
 import com.vaadin.data.provider.QuerySortOrder;
+import com.vaadin.data.provider.SortKeyComparator;
 import com.vaadin.event.ConnectorEvent;
 import com.vaadin.event.ContextClickEvent;
 import com.vaadin.event.HasUserOriginated;
@@ -83,6 +84,7 @@ import com.vaadin.shared.data.sort.SortDirection;
 import com.vaadin.shared.ui.grid.AbstractGridExtensionState;
 import com.vaadin.shared.ui.grid.ColumnResizeMode;
 import com.vaadin.shared.ui.grid.ColumnState;
+import com.vaadin.shared.ui.grid.DetailsManagerServerRpc;
 import com.vaadin.shared.ui.grid.DetailsManagerState;
 import com.vaadin.shared.ui.grid.GridClientRpc;
 import com.vaadin.shared.ui.grid.GridConstants;
@@ -121,6 +123,7 @@ import com.vaadin.ui.declarative.DesignFormatter;
 import com.vaadin.ui.renderers.AbstractRenderer;
 import com.vaadin.ui.renderers.ComponentRenderer;
 import com.vaadin.ui.renderers.HtmlRenderer;
+import com.vaadin.ui.renderers.RecyclingComponentRenderer;
 import com.vaadin.ui.renderers.Renderer;
 import com.vaadin.ui.renderers.TextRenderer;
 import com.vaadin.util.ReflectTools;
@@ -683,6 +686,9 @@ public class Grid<T> extends AbstractListing<T> implements HasComponents,
             ColumnState columnState = column.getState(false);
             if (columnState.hidden != hidden) {
                 columnState.hidden = hidden;
+                if (!hidden) {
+                    requestColumnData(column);
+                }
                 fireColumnVisibilityChangeEvent(column, hidden, true);
             }
         }
@@ -708,6 +714,26 @@ public class Grid<T> extends AbstractListing<T> implements HasComponents,
         private final Set<T> visibleDetails = new HashSet<>();
         private final Map<T, Component> components = new HashMap<>();
         private DetailsGenerator<T> generator;
+        private boolean lazy = false;
+
+        /**
+         * Creates a new details manager.
+         */
+        public DetailsManager() {
+            registerRpc((DetailsManagerServerRpc) rowKeys -> {
+                if (!lazy || generator == null) {
+                    return;
+                }
+                rowKeys.stream().map(getParent().getDataCommunicator()
+                        .getKeyMapper()::get).filter(Objects::nonNull)
+                        .filter(visibleDetails::contains)
+                        .filter(item -> !components.containsKey(item))
+                        .forEach(item -> {
+                            createComponent(item);
+                            refresh(item);
+                        });
+            });
+        }
 
         /**
          * Sets the details component generator.
@@ -723,6 +749,39 @@ public class Grid<T> extends AbstractListing<T> implements HasComponents,
             visibleDetails.forEach(this::refresh);
         }
 
+        /**
+         * Sets whether details components are generated only when the client
+         * needs them. When enabled, the details components of rows with
+         * visible details are generated when the details rows are scrolled
+         * into view, and removed when the rows are dropped from the client
+         * side cache. Until a details row has been generated and measured, an
+         * estimated height is used for it.
+         *
+         * @since 8.1
+         * @param lazy
+         *            {@code true} to generate details components lazily,
+         *            {@code false} to generate them when the rows are sent to
+         *            the client
+         */
+        public void setLazy(boolean lazy) {
+            if (this.lazy != lazy) {
+                this.lazy = lazy;
+                visibleDetails.forEach(this::refresh);
+            }
+        }
+
+        /**
+         * Returns whether details components are generated only when the
+         * client needs them.
+         *
+         * @since 8.1
+         * @return {@code true} if details components are generated lazily,
+         *         {@code false} otherwise
+         */
+        public boolean isLazy() {
+            return lazy;
+        }
+
         @Override
         public void remove() {
             removeAllComponents();
@@ -743,25 +802,37 @@ public class Grid<T> extends AbstractListing<T> implements HasComponents,
             }
 
             if (!components.containsKey(item)) {
-                Component detailsComponent = generator.apply(item);
-                Objects.requireNonNull(detailsComponent,
-                        "Details generator can't create null components");
-                if (detailsComponent.getParent() != null) {
-                    throw new IllegalStateException(
-                            "Details component was already attached");
+                if (lazy) {
+                    // Generated when the client requests it
+                    jsonObject.put(GridState.JSONKEY_DETAILS_PENDING, true);
+                    return;
                 }
-                addComponentToGrid(detailsComponent);
-                components.put(item, detailsComponent);
+                createComponent(item);
             }
 
             jsonObject.put(GridState.JSONKEY_DETAILS_VISIBLE,
                     components.get(item).getConnectorId());
         }
 
+        private void createComponent(T item) {
+            Component detailsComponent = generator.apply(item);
+            Objects.requireNonNull(detailsComponent,
+                    "Details generator can't create null components");
+            if (detailsComponent.getParent() != null) {
+                throw new IllegalStateException(
+                        "Details component was already attached");
+            }
+            addComponentToGrid(detailsComponent);
+            components.put(item, detailsComponent);
+        }
+
         @Override
         public void destroyData(T item) {
-            // No clean up needed. Components are removed when hiding details
-            // and/or changing details generator
+            // Otherwise components are removed when hiding details and/or
+            // changing details generator
+            if (lazy && components.containsKey(item)) {
+                removeComponentFromGrid(components.remove(item));
+            }
         }
 
         /**
@@ -842,12 +913,22 @@ public class Grid<T> extends AbstractListing<T> implements HasComponents,
         };
 
         private SerializableComparator<T> comparator;
+        /*
+         * Compares the values of this column, null if a custom comparator has
+         * been set
+         */
+        private SerializableComparator<Object> valueComparator;
         private StyleGenerator<T> styleGenerator = item -> null;
         private DescriptionGenerator<T> descriptionGenerator;
         private DataGenerator<T> dataGenerator = new DataGenerator<T>() {
 
             @Override
             public void generateData(T item, JsonObject jsonObject) {
+                if (isHidden()) {
+                    // Sent as a column update once the column is shown
+                    return;
+                }
+
                 ColumnState state = getState(false);
 
                 String communicationId = getConnectorId();
@@ -884,10 +965,7 @@ public class Grid<T> extends AbstractListing<T> implements HasComponents,
 
             @Override
             public void destroyAllData() {
-                // Make a defensive copy of keys, as the map gets cleared when
-                // removing components.
-                new HashSet<>(activeComponents.keySet())
-                        .forEach(component -> removeComponent(component));
+                removeAllComponents();
             }
         };
 
@@ -957,21 +1035,21 @@ public class Grid<T> extends AbstractListing<T> implements HasComponents,
             Class<? super P> valueType = renderer.getPresentationType();
 
             if (Comparable.class.isAssignableFrom(valueType)) {
-                comparator = (a, b) -> compareComparables(
-                        valueProvider.apply(a), valueProvider.apply(b));
+                valueComparator = Column::compareComparables;
             } else if (Number.class.isAssignableFrom(valueType)) {
                 /*
                  * Value type will be Number whenever using NumberRenderer.
                  * Provide explicit comparison support in this case even though
                  * Number itself isn't Comparable.
                  */
-                comparator = (a, b) -> compareNumbers(
-                        (Number) valueProvider.apply(a),
-                        (Number) valueProvider.apply(b));
+                valueComparator = (a, b) -> compareNumbers((Number) a,
+                        (Number) b);
             } else {
-                comparator = (a, b) -> compareMaybeComparables(
-                        valueProvider.apply(a), valueProvider.apply(b));
+                valueComparator = Column::compareMaybeComparables;
             }
+            SerializableComparator<Object> values = valueComparator;
+            comparator = (a, b) -> values.compare(valueProvider.apply(a),
+                    valueProvider.apply(b));
         }
 
         private static int compareMaybeComparables(Object a, Object b) {
@@ -1042,6 +1120,14 @@ public class Grid<T> extends AbstractListing<T> implements HasComponents,
             P presentationValue = presentationProvider
                     .apply(valueProvider.apply(item));
 
+            if (renderer instanceof RecyclingComponentRenderer) {
+                Component component = bindRecycledComponent(
+                        getGrid().getDataProvider().getId(item),
+                        (RecyclingComponentRenderer<P, ?>) renderer,
+                        presentationValue);
+                return Json.create(component.getConnectorId());
+            }
+
             // Make Grid track components.
             if (renderer instanceof ComponentRenderer
                     && presentationValue instanceof Component) {
@@ -1063,13 +1149,56 @@ public class Grid<T> extends AbstractListing<T> implements HasComponents,
             getGrid().addExtensionComponent(component);
         }
 
+        @SuppressWarnings("unchecked")
+        private <P, C extends Component> Component bindRecycledComponent(
+                Object item, RecyclingComponentRenderer<P, C> renderer,
+                P value) {
+            C component = (C) activeComponents.get(item);
+            if (component != null) {
+                renderer.updateComponent(component, value);
+            } else {
+                component = renderer.acquireComponent(value);
+                activeComponents.put(item, component);
+                // Pooled components are still attached to the grid
+                getGrid().addExtensionComponent(component);
+            }
+            return component;
+        }
+
+        @SuppressWarnings("unchecked")
         private void removeComponent(Object item) {
             Component component = activeComponents.remove(item);
             if (component != null) {
-                getGrid().removeExtensionComponent(component);
+                Connector renderer = getState(false).renderer;
+                if (!(renderer instanceof RecyclingComponentRenderer
+                        && ((RecyclingComponentRenderer<?, Component>) renderer)
+                                .releaseComponent(component))) {
+                    getGrid().removeExtensionComponent(component);
+                }
             }
         }
 
+        private void removeAllComponents() {
+            // Make a defensive copy of keys, as the map gets cleared when
+            // removing components.
+            new HashSet<>(activeComponents.keySet())
+                    .forEach(item -> removeComponent(item));
+
+            Connector renderer = getState(false).renderer;
+            if (renderer instanceof RecyclingComponentRenderer) {
+                ((RecyclingComponentRenderer<?, ?>) renderer).clearPool()
+                        .forEach(component -> getGrid()
+                                .removeExtensionComponent(component));
+            }
+        }
+
+        @Override
+        public void remove() {
+            removeAllComponents();
+
+            super.remove();
+        }
+
         /**
          * Gets a data object with the given key from the given JsonObject. If
          * there is no object with the key, this method creates a new
@@ -1244,6 +1373,7 @@ public class Grid<T> extends AbstractListing<T> implements HasComponents,
                 SerializableComparator<T> comparator) {
             Objects.requireNonNull(comparator, "Comparator can't be null");
             this.comparator = comparator;
+            valueComparator = null;
             return this;
         }
 
@@ -1260,8 +1390,30 @@ public class Grid<T> extends AbstractListing<T> implements HasComponents,
             Objects.requireNonNull(comparator,
                     "No comparator defined for sorted column.");
             boolean reverse = sortDirection != SortDirection.ASCENDING;
-            return reverse ? (t1, t2) -> comparator.reversed().compare(t1, t2)
-                    : comparator;
+            return reverse ? comparator.reversed()::compare : comparator;
+        }
+
+        /**
+         * Adds the sort key of this column to a sort key comparator. Unless a
+         * custom comparator has been set, the sort key is the value of this
+         * column, so that it is extracted only once per item and sort.
+         *
+         * @param sortKeyComparator
+         *            the comparator to add the sort key to
+         * @param sortDirection
+         *            the direction this column is sorted by
+         */
+        private void addSortKey(SortKeyComparator<T> sortKeyComparator,
+                SortDirection sortDirection) {
+            if (valueComparator == null) {
+                sortKeyComparator.addSortKey(ValueProvider.identity(),
+                        getComparator(sortDirection));
+            } else if (sortDirection == SortDirection.ASCENDING) {
+                sortKeyComparator.addSortKey(valueProvider, valueComparator);
+            } else {
+                sortKeyComparator.addSortKey(valueProvider,
+                        valueComparator.reversed()::compare);
+            }
         }
 
         /**
@@ -1704,6 +1856,9 @@ public class Grid<T> extends AbstractListing<T> implements HasComponents,
             checkColumnIsAttached();
             if (hidden != isHidden()) {
                 getState().hidden = hidden;
+                if (!hidden) {
+                    getGrid().requestColumnData(this);
+                }
                 getGrid().fireColumnVisibilityChangeEvent(this, hidden, false);
             }
             return this;
@@ -1964,6 +2119,9 @@ public class Grid<T> extends AbstractListing<T> implements HasComponents,
             Objects.requireNonNull(presentationProvider,
                     "Presentation provider can not be null");
 
+            // Components of the old renderer are not reused
+            removeAllComponents();
+
             // Remove old renderer
             Connector oldRenderer = getState().renderer;
             if (oldRenderer != null && oldRenderer instanceof Extension) {
@@ -2214,7 +2372,20 @@ public class Grid<T> extends AbstractListing<T> implements HasComponents,
     private final Map<String, Column<T, ?>> columnKeys = new HashMap<>();
     private final Map<String, Column<T, ?>> columnIds = new HashMap<>();
 
+    /**
+     * Columns whose data should be sent to the client for the already cached
+     * rows in the next response.
+     */
+    private final Set<Column<T, ?>> columnsToUpdate = new LinkedHashSet<>();
+
+    /**
+     * Items mapped by their id per column, for cells whose data should be sent
+     * to the client in the next response.
+     */
+    private final Map<Column<T, ?>, Map<Object, T>> cellsToUpdate = new LinkedHashMap<>();
+
     private final List<GridSortOrder<T>> sortOrder = new ArrayList<>();
+    private boolean parallelSortKeyExtractionEnabled = false;
     private final DetailsManager<T> detailsManager;
     private final Set<Component> extensionComponents = new HashSet<>();
     private StyleGenerator<T> styleGenerator = item -> null;
@@ -2788,6 +2959,42 @@ public class Grid<T> extends AbstractListing<T> implements HasComponents,
         detailsManager.setDetailsVisible(item, visible);
     }
 
+    /**
+     * Sets whether details components are generated only when they are
+     * scrolled into view. This reduces the number of components created when
+     * details are visible for many rows.
+     * <p>
+     * When enabled, the details generator is called for a row when its details
+     * row enters the visible area of the Grid, and the details component is
+     * removed when the row is no longer cached on the client. Until a details
+     * row has been generated, its height is estimated based on the details
+     * rows measured so far.
+     * <p>
+     * Lazy details are disabled by default.
+     *
+     * @since 8.1
+     * @param lazyDetailsEnabled
+     *            {@code true} to generate details components lazily,
+     *            {@code false} to generate them when the rows are sent to the
+     *            client
+     */
+    public void setLazyDetailsEnabled(boolean lazyDetailsEnabled) {
+        detailsManager.setLazy(lazyDetailsEnabled);
+    }
+
+    /**
+     * Returns whether details components are generated only when they are
+     * scrolled into view.
+     *
+     * @since 8.1
+     * @return {@code true} if details components are generated lazily,
+     *         {@code false} otherwise
+     * @see #setLazyDetailsEnabled(boolean)
+     */
+    public boolean isLazyDetailsEnabled() {
+        return detailsManager.isLazy();
+    }
+
     /**
      * Returns the visibility of details component for given item.
      *
@@ -3021,6 +3228,120 @@ public class Grid<T> extends AbstractListing<T> implements HasComponents,
         return getState(false).rowHeight;
     }
 
+    /**
+     * Refreshes the value, style and description of the given column for all
+     * the rows currently cached by the client. Only the data of the column is
+     * regenerated and sent to the client, which makes this considerably
+     * cheaper than refreshing the complete items when the data of a single
+     * column changes.
+     *
+     * @since 8.1
+     * @param column
+     *            the column to refresh, not <code>null</code>
+     * @throws IllegalArgumentException
+     *             if the column is not part of this grid
+     * @see DataProvider#refreshAll()
+     */
+    public void refreshColumn(Column<T, ?> column) {
+        checkColumnInGrid(column);
+        requestColumnData(column);
+    }
+
+    /**
+     * Refreshes the value, style and description of a single cell. Only the
+     * data of the cell is regenerated and sent to the client, without
+     * refreshing the rest of the row. Nothing is sent if the item is not
+     * currently cached by the client.
+     * <p>
+     * The given item replaces the previously known item instance with the
+     * same id, like when {@link DataProvider#refreshItem(Object) refreshing}
+     * an item.
+     *
+     * @since 8.1
+     * @param item
+     *            the item of the row to refresh, not <code>null</code>
+     * @param column
+     *            the column of the cell to refresh, not <code>null</code>
+     * @throws IllegalArgumentException
+     *             if the column is not part of this grid
+     * @see DataProvider#refreshItem(Object)
+     */
+    public void refreshCell(T item, Column<T, ?> column) {
+        Objects.requireNonNull(item, "Item can not be null");
+        checkColumnInGrid(column);
+        if (columnsToUpdate.contains(column)) {
+            // The whole column is already sent
+            return;
+        }
+        if (cellsToUpdate.isEmpty()) {
+            markAsDirty();
+        }
+        cellsToUpdate.computeIfAbsent(column, c -> new LinkedHashMap<>())
+                .put(getDataProvider().getId(item), item);
+    }
+
+    private void checkColumnInGrid(Column<T, ?> column) {
+        Objects.requireNonNull(column, "Column can not be null");
+        if (!columnSet.contains(column)) {
+            throw new IllegalArgumentException(
+                    "The column is not part of this grid");
+        }
+    }
+
+    /**
+     * Sends the data of the given column for the rows cached by the client in
+     * the next response. Used when data generation has been skipped for the
+     * column, e.g. while it was hidden.
+     */
+    private void requestColumnData(Column<T, ?> column) {
+        cellsToUpdate.remove(column);
+        if (columnsToUpdate.add(column)) {
+            markAsDirty();
+        }
+    }
+
+    @Override
+    public void beforeClientResponse(boolean initial) {
+        super.beforeClientResponse(initial);
+
+        if (!initial) {
+            for (Column<T, ?> column : columnsToUpdate) {
+                if (isColumnDataSent(column)) {
+                    sendColumnData(column, getDataCommunicator()
+                            .generatePartialData(column.getDataGenerator()));
+                }
+            }
+            cellsToUpdate.forEach((column, items) -> {
+                if (isColumnDataSent(column)) {
+                    sendColumnData(column,
+                            getDataCommunicator().generatePartialData(
+                                    column.getDataGenerator(), items.values()));
+                }
+            });
+        }
+        // The initial response sends all data for shown columns
+        columnsToUpdate.clear();
+        cellsToUpdate.clear();
+    }
+
+    private boolean isColumnDataSent(Column<T, ?> column) {
+        return columnSet.contains(column) && !column.isHidden();
+    }
+
+    private void sendColumnData(Column<T, ?> column, JsonObject data) {
+        if (data.keys().length > 0) {
+            getRpcProxy(GridClientRpc.class)
+                    .updateColumnData(column.getInternalId(), data);
+        }
+    }
+
+    @Override
+    public void detach() {
+        columnsToUpdate.clear();
+        cellsToUpdate.clear();
+        super.detach();
+    }
+
     /**
      * Sets the style generator that is used for generating class names for rows
      * in this grid. Returning null from the generator results in no custom
@@ -4435,16 +4756,51 @@ public class Grid<T> extends AbstractListing<T> implements HasComponents,
      * @return the comparator based on column sorting information.
      */
     protected SerializableComparator<T> createSortingComparator() {
-        BinaryOperator<SerializableComparator<T>> operator = (comparator1,
-                comparator2) -> {
-            /*
-             * thenComparing is defined to return a serializable comparator as
-             * long as both original comparators are also serializable
-             */
-            return comparator1.thenComparing(comparator2)::compare;
-        };
-        return sortOrder.stream().map(
-                order -> order.getSorted().getComparator(order.getDirection()))
-                .reduce((x, y) -> 0, operator);
+        SortKeyComparator<T> comparator = new SortKeyComparator<>();
+        comparator.setParallel(parallelSortKeyExtractionEnabled);
+        sortOrder.forEach(order -> order.getSorted().addSortKey(comparator,
+                order.getDirection()));
+        return comparator;
+    }
+
+    /**
+     * Sets whether the values of the sorted columns may be extracted in
+     * parallel when sorting in memory.
+     * <p>
+     * When sorting in memory, the value of each sorted column is extracted
+     * once per item and cached until the item is refreshed. With parallel
+     * extraction enabled, the values are extracted in multiple threads before
+     * sorting. The value providers of the columns are then called without
+     * holding the session lock, so they must be thread safe and must not use
+     * thread local state such as {@code VaadinSession.getCurrent()}.
+     * <p>
+     * Parallel extraction is disabled by default.
+     *
+     * @since 8.1
+     * @param parallelSortKeyExtractionEnabled
+     *            {@code true} to extract column values in parallel,
+     *            {@code false} to extract them in the calling thread
+     */
+    public void setParallelSortKeyExtractionEnabled(
+            boolean parallelSortKeyExtractionEnabled) {
+        this.parallelSortKeyExtractionEnabled = parallelSortKeyExtractionEnabled;
+        Comparator<T> comparator = getDataCommunicator().getInMemorySorting();
+        if (comparator instanceof SortKeyComparator) {
+            ((SortKeyComparator<?>) comparator)
+                    .setParallel(parallelSortKeyExtractionEnabled);
+        }
+    }
+
+    /**
+     * Returns whether the values of the sorted columns may be extracted in
+     * parallel when sorting in memory.
+     *
+     * @since 8.1
+     * @return {@code true} if column values are extracted in parallel,
+     *         {@code false} otherwise
+     * @see #setParallelSortKeyExtractionEnabled(boolean)
+     */
+    public boolean isParallelSortKeyExtractionEnabled() {
+        return parallelSortKeyExtractionEnabled;
     }
 }
@@ -15,6 +15,8 @@
  */
 package com.vaadin.ui;
 
+import com.vaadin.server.ClientConnector;
+
 /**
  * Interface implemented by {@link HasComponents} implementors that wish to
  * dynamically be able to prevent given child components from reaching the
@@ -39,6 +41,11 @@ public interface SelectiveRenderer extends HasComponents {
      * returning false will prevent the child from being sent to the client. If
      * a child is set to invisible, this method has no effect.
      * </p>
+     * <p>
+     * When the result of this method changes for a child, the child must be
+     * passed to {@link ConnectorTracker#markVisibilityChanged(ClientConnector)}
+     * or this component must be marked as dirty.
+     * </p>
      *
      * @param childComponent
      *            The child component to check
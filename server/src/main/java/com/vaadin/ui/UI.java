@@ -277,11 +277,19 @@ public abstract class UI extends AbstractSingleComponentContainer
     /**
      * Timestamp keeping track of the last heartbeat of this UI. Updated to the
      * current time whenever the application receives a heartbeat or UIDL
-     * request from the client for this UI.
+     * request from the client for this UI. Volatile since heartbeats are
+     * recorded without locking the session.
      */
-    private long lastHeartbeatTimestamp = System.currentTimeMillis();
+    private volatile long lastHeartbeatTimestamp = System.currentTimeMillis();
 
-    private boolean closing = false;
+    private volatile boolean closing = false;
+
+    /**
+     * Whether this UI may have changed since it was last serialized. Not set
+     * after deserializing since the serialized form is then up to date.
+     * Volatile since heartbeats change the UI without locking the session.
+     */
+    private transient volatile boolean serializationDirty = true;
 
     private TooltipConfiguration tooltipConfiguration = new TooltipConfigurationImpl(
             this);
@@ -1224,7 +1232,8 @@ public abstract class UI extends AbstractSingleComponentContainer
      * <p>
      * This method is not intended to be overridden. If it is overridden, care
      * should be taken since this method might be called in situations where
-     * {@link UI#getCurrent()} does not return this UI.
+     * {@link UI#getCurrent()} does not return this UI. Heartbeat requests
+     * update the timestamp without locking the session.
      *
      * @param lastHeartbeat
      *            The time the last heartbeat request occurred, in milliseconds
@@ -1232,6 +1241,42 @@ public abstract class UI extends AbstractSingleComponentContainer
      */
     public void setLastHeartbeatTimestamp(long lastHeartbeat) {
         lastHeartbeatTimestamp = lastHeartbeat;
+        setSerializationDirty(true);
+    }
+
+    /**
+     * Sets whether this UI may have changed since it was last serialized.
+     * Session serializers that only serialize changed UIs, such as
+     * {@link com.vaadin.server.IncrementalSessionSerializer}, reuse the
+     * previous serialized form of a UI that is not marked dirty.
+     * <p>
+     * The framework marks a UI dirty when a connector in it is marked dirty,
+     * when a heartbeat is received for it and when the session lock is
+     * released while it is the current UI. Applications that change a UI in
+     * other ways, e.g. from a background thread using
+     * {@link VaadinSession#access(Runnable)} without changing any connector,
+     * must mark it dirty explicitly. Otherwise the previous serialized form of
+     * the UI, without the changes, is stored again.
+     *
+     * @param serializationDirty
+     *            <code>true</code> if the UI may have changed,
+     *            <code>false</code> if it has just been serialized
+     * @since 8.1
+     */
+    public void setSerializationDirty(boolean serializationDirty) {
+        this.serializationDirty = serializationDirty;
+    }
+
+    /**
+     * Checks whether this UI may have changed since it was last serialized.
+     *
+     * @see #setSerializationDirty(boolean)
+     * @return <code>true</code> if the UI may have changed, otherwise
+     *         <code>false</code>
+     * @since 8.1
+     */
+    public boolean isSerializationDirty() {
+        return serializationDirty;
     }
 
     /**
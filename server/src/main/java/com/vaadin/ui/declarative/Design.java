@@ -23,6 +23,8 @@ import java.io.Serializable;
 import java.lang.annotation.Annotation;
 import java.util.Collection;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -315,6 +317,12 @@ public class Design implements Serializable {
     private static volatile ComponentFactory componentFactory = new DefaultComponentFactory();
     private static volatile ComponentMapper componentMapper = new DefaultComponentMapper();
 
+    private static volatile boolean designCacheEnabled = false;
+
+    // cache for parsed design resources, keyed by the class used for loading
+    // the resource and the name of the resource
+    private static final Map<Class<?>, Map<String, Document>> designCache = new ConcurrentHashMap<>();
+
     /**
      * Sets the component factory that is used for creating component instances
      * based on fully qualified class names derived from a design file.
@@ -381,6 +389,47 @@ public class Design implements Serializable {
         return componentMapper;
     }
 
+    /**
+     * Sets whether designs read from class path resources using
+     * {@link #read(Component)} or {@link #read(String, Component)} are parsed
+     * only once. When enabled, the parsed design is kept in memory and every
+     * read creates the component tree from a copy of it instead of parsing the
+     * resource again. This speeds up creating views from designs, e.g. on every
+     * navigation.
+     * <p>
+     * The cache is disabled by default as changes to design files are not
+     * noticed while it is enabled. Disabling the cache also clears it.
+     * <p>
+     * Please note that this setting is global, so care should be taken to avoid
+     * conflicting changes.
+     *
+     * @param designCacheEnabled
+     *            <code>true</code> to parse design resources only once,
+     *            <code>false</code> to parse them on every read
+     *
+     * @since 8.1
+     */
+    public static void setDesignCacheEnabled(boolean designCacheEnabled) {
+        Design.designCacheEnabled = designCacheEnabled;
+        if (!designCacheEnabled) {
+            designCache.clear();
+        }
+    }
+
+    /**
+     * Checks whether parsed design resources are cached.
+     *
+     * @see #setDesignCacheEnabled(boolean)
+     *
+     * @return <code>true</code> if design resources are parsed only once,
+     *         <code>false</code> if they are parsed on every read
+     *
+     * @since 8.1
+     */
+    public static boolean isDesignCacheEnabled() {
+        return designCacheEnabled;
+    }
+
     /**
      * Parses the given input stream into a jsoup document
      *
@@ -399,6 +448,53 @@ public class Design implements Serializable {
 
     }
 
+    /**
+     * Parses the given design resource into a jsoup document. If the design
+     * cache is enabled, the resource is only parsed the first time and a copy
+     * of the cached document is returned.
+     *
+     * @param resourceClass
+     *            the class used for loading the resource
+     * @param filename
+     *            the name of the resource, relative to the class
+     * @return the parsed jsoup document or <code>null</code> if the resource
+     *         was not found
+     */
+    private static Document parse(Class<?> resourceClass, String filename) {
+        if (!designCacheEnabled) {
+            return parseResource(resourceClass, filename);
+        }
+        Map<String, Document> resources = designCache.computeIfAbsent(
+                resourceClass, key -> new ConcurrentHashMap<>());
+        Document cached = resources.get(filename);
+        if (cached == null) {
+            cached = parseResource(resourceClass, filename);
+            if (cached == null) {
+                return null;
+            }
+            resources.put(filename, cached);
+        }
+        // Reading the design may modify the document
+        return cached.clone();
+    }
+
+    private static Document parseResource(Class<?> resourceClass,
+            String filename) {
+        InputStream stream = resourceClass.getResourceAsStream(filename);
+        if (stream == null) {
+            return null;
+        }
+        try {
+            return parse(stream);
+        } finally {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                getLogger().log(Level.FINE, "Error closing design stream", e);
+            }
+        }
+    }
+
     /**
      * Constructs a component hierarchy from the design specified as an html
      * tree.
@@ -602,24 +698,15 @@ public class Design implements Serializable {
             filename = annotatedClass.getSimpleName() + ".html";
         }
 
-        InputStream stream = annotatedClass.getResourceAsStream(filename);
-        if (stream == null) {
+        Document doc = parse(annotatedClass, filename);
+        if (doc == null) {
             throw new DesignException("Unable to find design file " + filename
                     + " in " + annotatedClass.getPackage().getName());
         }
-        try {
-            Document doc = parse(stream);
-            DesignContext context = designToComponentTree(doc, rootComponent,
-                    annotatedClass);
+        DesignContext context = designToComponentTree(doc, rootComponent,
+                annotatedClass);
 
-            return context;
-        } finally {
-            try {
-                stream.close();
-            } catch (IOException e) {
-                getLogger().log(Level.FINE, "Error closing design stream", e);
-            }
-        }
+        return context;
     }
 
     private static Logger getLogger() {
@@ -684,22 +771,13 @@ public class Design implements Serializable {
      */
     public static DesignContext read(String filename, Component rootComponent)
             throws DesignException {
-        InputStream stream = rootComponent.getClass()
-                .getResourceAsStream(filename);
-        if (stream == null) {
+        Document doc = parse(rootComponent.getClass(), filename);
+        if (doc == null) {
             throw new DesignException(
                     "File " + filename + " was not found in the package "
                             + rootComponent.getClass().getPackage().getName());
         }
-        try {
-            return read(stream, rootComponent);
-        } finally {
-            try {
-                stream.close();
-            } catch (IOException e) {
-                getLogger().log(Level.FINE, "Error closing design stream", e);
-            }
-        }
+        return designToComponentTree(doc, rootComponent);
     }
 
     /**
@@ -110,16 +110,16 @@ public class DesignAttributeHandler implements Serializable {
         }
         boolean success = false;
         try {
-            Method setter = findSetterForAttribute(target.getClass(),
-                    attribute);
+            Class<?> targetClass = target.getClass();
+            Method setter = findSetterForAttribute(targetClass, attribute);
             if (setter == null) {
                 // if we don't have the setter, there is no point in continuing
                 success = false;
             } else {
                 // we have a value from design attributes, let's use that
-                Type[] types = GenericTypeReflector
-                        .getExactParameterTypes(setter, target.getClass());
-                Object param = getFormatter().parse(value, (Class<?>) types[0]);
+                Class<?> type = cache.get(targetClass)
+                        .getSetterParameterType(attribute, targetClass);
+                Object param = getFormatter().parse(value, type);
                 setter.invoke(target, param);
                 success = true;
             }
@@ -439,6 +439,7 @@ public class DesignAttributeHandler implements Serializable {
      */
     private static class AttributeCacheEntry implements Serializable {
         private final Map<String, Method[]> accessMethods = new ConcurrentHashMap<>();
+        private final Map<String, Class<?>> setterParameterTypes = new ConcurrentHashMap<>();
 
         private void addAttribute(String attribute, Method getter,
                 Method setter) {
@@ -463,6 +464,23 @@ public class DesignAttributeHandler implements Serializable {
             Method[] methods = accessMethods.get(attribute);
             return (methods != null && methods.length > 1) ? methods[1] : null;
         }
+
+        /**
+         * Returns the exact parameter type of the setter for the given
+         * attribute in the given class. The type is resolved on first use and
+         * cached, as resolving generic parameter types is expensive.
+         */
+        private Class<?> getSetterParameterType(String attribute,
+                Class<?> clazz) {
+            Class<?> type = setterParameterTypes.get(attribute);
+            if (type == null) {
+                Type[] types = GenericTypeReflector
+                        .getExactParameterTypes(getSetter(attribute), clazz);
+                type = (Class<?>) types[0];
+                setterParameterTypes.put(attribute, type);
+            }
+            return type;
+        }
     }
 
     /**
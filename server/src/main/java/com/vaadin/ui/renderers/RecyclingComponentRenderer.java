@@ -0,0 +1,235 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.ui.renderers;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+
+import com.vaadin.server.SerializableSupplier;
+import com.vaadin.shared.ui.grid.renderers.ComponentRendererState;
+import com.vaadin.ui.Component;
+import com.vaadin.ui.Grid;
+
+import elemental.json.Json;
+import elemental.json.JsonValue;
+
+/**
+ * A renderer for presenting Components that recycles the components instead of
+ * creating new ones for every row.
+ * <p>
+ * Unlike {@link ComponentRenderer}, the column value is not a component but a
+ * value that is bound to a component using an updater. When a row is no longer
+ * available on the client side, its component is kept in a bounded pool and is
+ * later bound to another row. A recycled component keeps its connector and
+ * only the state that the updater changes is sent to the client, which makes
+ * scrolling through a large number of rows considerably cheaper.
+ * <p>
+ * The updater should set all the state of the component that depends on the
+ * row, since the component may have been used for another row before.
+ * Components that hold state not coming from the column value should not be
+ * recycled.
+ * <p>
+ * Example of how to show progress bars in a {@link Grid}:
+ *
+ * <pre>
+ * Grid&lt;Task&gt; grid;
+ * grid.addColumn(Task::getProgress, new RecyclingComponentRenderer&lt;&gt;(
+ *         ProgressBar::new, ProgressBar::setValue)).setCaption("Progress");
+ * </pre>
+ *
+ * @param <V>
+ *            the type of the column value
+ * @param <C>
+ *            the type of the components
+ *
+ * @see ComponentRenderer
+ * @author Vaadin Ltd
+ * @since 8.1
+ */
+public class RecyclingComponentRenderer<V, C extends Component>
+        extends AbstractRenderer<Object, V> {
+
+    /**
+     * Binds a column value to a component.
+     *
+     * @param <C>
+     *            the type of the component
+     * @param <V>
+     *            the type of the value
+     */
+    @FunctionalInterface
+    public interface ComponentUpdater<C extends Component, V>
+            extends Serializable {
+
+        /**
+         * Updates the given component to present the given value.
+         *
+         * @param component
+         *            the component to update, not <code>null</code>
+         * @param value
+         *            the column value of the row, may be <code>null</code>
+         */
+        public void update(C component, V value);
+    }
+
+    /**
+     * The default maximum number of unused components kept per column.
+     */
+    public static final int DEFAULT_MAX_POOL_SIZE = 100;
+
+    private final SerializableSupplier<C> componentFactory;
+    private final ComponentUpdater<C, V> componentUpdater;
+    private final Deque<C> pool = new ArrayDeque<>();
+    private int maxPoolSize = DEFAULT_MAX_POOL_SIZE;
+
+    /**
+     * Creates a new recycling component renderer.
+     *
+     * @param componentFactory
+     *            the factory for creating new components, not
+     *            <code>null</code>
+     * @param componentUpdater
+     *            the updater for binding values to components, not
+     *            <code>null</code>
+     */
+    @SuppressWarnings("unchecked")
+    public RecyclingComponentRenderer(SerializableSupplier<C> componentFactory,
+            ComponentUpdater<C, V> componentUpdater) {
+        super((Class<V>) Object.class);
+        Objects.requireNonNull(componentFactory,
+                "Component factory cannot be null");
+        Objects.requireNonNull(componentUpdater,
+                "Component updater cannot be null");
+        this.componentFactory = componentFactory;
+        this.componentUpdater = componentUpdater;
+    }
+
+    /**
+     * Sets the maximum number of unused components to keep for recycling.
+     * Components released when the pool is full are discarded. A smaller limit
+     * takes effect as components are released. The default is
+     * {@value #DEFAULT_MAX_POOL_SIZE}.
+     *
+     * @param maxPoolSize
+     *            the maximum pool size, not negative
+     */
+    public void setMaxPoolSize(int maxPoolSize) {
+        if (maxPoolSize < 0) {
+            throw new IllegalArgumentException(
+                    "Maximum pool size cannot be negative");
+        }
+        this.maxPoolSize = maxPoolSize;
+    }
+
+    /**
+     * Gets the maximum number of unused components to keep for recycling.
+     *
+     * @return the maximum pool size
+     */
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+
+    /**
+     * Gets a component for presenting the given value, either from the pool of
+     * unused components or by creating a new one. This method is used by
+     * {@link Grid} and should not be called directly.
+     *
+     * @param value
+     *            the value to present
+     * @return a component bound to the value
+     */
+    public C acquireComponent(V value) {
+        C component = pool.poll();
+        if (component == null) {
+            component = componentFactory.get();
+        }
+        updateComponent(component, value);
+        return component;
+    }
+
+    /**
+     * Binds a new value to a component that is already in use. This method is
+     * used by {@link Grid} and should not be called directly.
+     *
+     * @param component
+     *            the component to update
+     * @param value
+     *            the value to present
+     */
+    public void updateComponent(C component, V value) {
+        componentUpdater.update(component, value);
+    }
+
+    /**
+     * Returns a component that is no longer used to the pool of unused
+     * components. This method is used by {@link Grid} and should not be called
+     * directly.
+     *
+     * @param component
+     *            the component that is no longer used
+     * @return <code>true</code> if the component was pooled,
+     *         <code>false</code> if the pool was full and the component should
+     *         be discarded
+     */
+    public boolean releaseComponent(C component) {
+        if (pool.size() >= maxPoolSize) {
+            return false;
+        }
+        pool.push(component);
+        return true;
+    }
+
+    /**
+     * Removes all the unused components from the pool. This method is used by
+     * {@link Grid} and should not be called directly.
+     *
+     * @return the components that were removed from the pool
+     */
+    public List<C> clearPool() {
+        List<C> components = new ArrayList<>(pool);
+        pool.clear();
+        return components;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * Values are bound to components by {@link Grid}, which sends the
+     * connector ids of the bound components to the client. Like
+     * {@link ComponentRenderer}, this method encodes the connector id of a
+     * value that is a component, and <code>null</code> for other values.
+     */
+    @Override
+    public JsonValue encode(V value) {
+        return value instanceof Component
+                ? Json.create(((Component) value).getConnectorId()) : null;
+    }
+
+    @Override
+    protected ComponentRendererState getState(boolean markAsDirty) {
+        return (ComponentRendererState) super.getState(markAsDirty);
+    }
+
+    @Override
+    protected ComponentRendererState getState() {
+        return (ComponentRendererState) super.getState();
+    }
+}
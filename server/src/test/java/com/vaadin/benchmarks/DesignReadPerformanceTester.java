@@ -0,0 +1,53 @@
+package com.vaadin.benchmarks;
+
+import com.vaadin.tests.design.designroot.DesignWithAnnotation;
+import com.vaadin.ui.declarative.Design;
+
+/*
+ * Shows the difference in view creation throughput when a @DesignRoot view is
+ * created from a design that is parsed on every read compared to a design that
+ * is parsed once and then cached (Design.setDesignCacheEnabled).
+ *
+ * Please run with -server. Your results will vary.
+ */
+public class DesignReadPerformanceTester {
+
+    private static final int VIEWS = 20000;
+
+    public static void main(String[] args) throws InterruptedException {
+        warmup();
+
+        Design.setDesignCacheEnabled(false);
+        runBenchmark("parse on every read");
+
+        Design.setDesignCacheEnabled(true);
+        runBenchmark("cached design");
+    }
+
+    private static void warmup() throws InterruptedException {
+        Design.setDesignCacheEnabled(false);
+        createViews(VIEWS / 10);
+        Design.setDesignCacheEnabled(true);
+        createViews(VIEWS / 10);
+        System.gc();
+        System.out.println("warmup and gc complete. sleeping 5 seconds.");
+        Thread.sleep(5000l);
+        System.out.println("woke up - go.");
+    }
+
+    private static void runBenchmark(String name) {
+        long start = System.currentTimeMillis();
+        createViews(VIEWS);
+        long time = System.currentTimeMillis() - start;
+        System.out.println(name + ": " + VIEWS + " views took " + time
+                + " ms, " + (VIEWS * 1000L / Math.max(1, time))
+                + " views/s");
+    }
+
+    private static void createViews(int views) {
+        for (int i = 0; i < views; i++) {
+            new DesignWithAnnotation();
+        }
+    }
+
+}
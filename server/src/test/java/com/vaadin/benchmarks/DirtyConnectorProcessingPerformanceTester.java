@@ -0,0 +1,167 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmarks;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import com.vaadin.server.ClientConnector;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.ConnectorTracker;
+import com.vaadin.ui.CssLayout;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+
+/**
+ * Compares the previous way of finding the dirty connectors to process
+ * before writing a response, i.e. re-scanning all dirty connectors and
+ * sorting them by depth, with
+ * {@link ConnectorTracker#pollDirtyVisibleConnectors()}.
+ *
+ * Every tenth label is initially clean and is marked dirty by another label in
+ * beforeClientResponse to trigger an additional processing round.
+ */
+public class DirtyConnectorProcessingPerformanceTester {
+
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) throws InterruptedException {
+        warmup();
+
+        for (int connectors : new int[] { 1000, 10000, 50000 }) {
+            UI ui = createUI(connectors);
+            runBenchmark("re-scan and sort", ui, false);
+            runBenchmark("depth-bucketed queue", ui, true);
+        }
+    }
+
+    private static void warmup() throws InterruptedException {
+        UI ui = createUI(10000);
+        for (int i = 0; i < ROUNDS; i++) {
+            process(ui, false);
+            process(ui, true);
+        }
+        System.gc();
+        System.out.println("warmup and gc complete. sleeping 5 seconds.");
+        Thread.sleep(5000l);
+        System.out.println("woke up - go.");
+    }
+
+    private static void runBenchmark(String name, UI ui, boolean poll) {
+        long time = 0;
+        int processed = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            long start = System.nanoTime();
+            processed = process(ui, poll);
+            time += System.nanoTime() - start;
+        }
+        System.out.println(name + ": " + processed + " dirty connectors took "
+                + time / ROUNDS / 1000 + " us per response");
+    }
+
+    private static int process(UI ui, boolean poll) {
+        ConnectorTracker tracker = ui.getConnectorTracker();
+        tracker.markAllConnectorsClean();
+        tracker.markAllConnectorsDirty();
+        for (ClientConnector connector : new ArrayList<>(
+                tracker.getDirtyConnectors())) {
+            if (connector instanceof DirtyingLabel) {
+                tracker.markClean(((DirtyingLabel) connector).other);
+            }
+        }
+
+        Set<ClientConnector> processedConnectors = new HashSet<>();
+        if (poll) {
+            List<ClientConnector> connectorsToProcess;
+            while (!(connectorsToProcess = tracker
+                    .pollDirtyVisibleConnectors()).isEmpty()) {
+                for (ClientConnector connector : connectorsToProcess) {
+                    if (processedConnectors.add(connector)) {
+                        connector.beforeClientResponse(false);
+                    }
+                }
+            }
+        } else {
+            while (true) {
+                ArrayList<ClientConnector> connectorsToProcess = new ArrayList<>();
+                for (ClientConnector c : tracker.getDirtyVisibleConnectors()) {
+                    if (!processedConnectors.contains(c)) {
+                        connectorsToProcess.add(c);
+                    }
+                }
+                if (connectorsToProcess.isEmpty()) {
+                    break;
+                }
+                Collections.sort(connectorsToProcess,
+                        Comparator.comparingInt(conn -> {
+                            int depth = 0;
+                            ClientConnector connector = conn;
+                            while (connector.getParent() != null) {
+                                ++depth;
+                                connector = connector.getParent();
+                            }
+                            return depth;
+                        }));
+                for (ClientConnector connector : connectorsToProcess) {
+                    processedConnectors.add(connector);
+                    connector.beforeClientResponse(false);
+                }
+            }
+        }
+        return processedConnectors.size();
+    }
+
+    private static UI createUI(int connectors) {
+        UI ui = new MockUI();
+        CssLayout root = new CssLayout();
+        CssLayout row = null;
+        Label previous = null;
+        for (int i = 0; i < connectors; i++) {
+            if (i % 100 == 0) {
+                row = new CssLayout();
+                root.addComponent(row);
+            }
+            Label label;
+            if (i % 10 == 0 && previous != null) {
+                label = new DirtyingLabel(previous);
+            } else {
+                label = new Label("Label " + i);
+            }
+            row.addComponent(label);
+            previous = label;
+        }
+        ui.setContent(root);
+        return ui;
+    }
+
+    private static class DirtyingLabel extends Label {
+        private final Label other;
+
+        public DirtyingLabel(Label other) {
+            this.other = other;
+        }
+
+        @Override
+        public void beforeClientResponse(boolean initial) {
+            super.beforeClientResponse(initial);
+            other.markAsDirty();
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmarks;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.mockito.Mockito;
+
+import com.vaadin.server.DefaultDeploymentConfiguration;
+import com.vaadin.server.MockServletConfig;
+import com.vaadin.server.PathPrefixRequestHandler;
+import com.vaadin.server.RequestHandler;
+import com.vaadin.server.ServiceException;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinResponse;
+import com.vaadin.server.VaadinService;
+import com.vaadin.server.VaadinServlet;
+import com.vaadin.server.VaadinServletService;
+import com.vaadin.server.VaadinSession;
+
+/**
+ * Compares dispatching requests by consulting every registered request handler
+ * with dispatching through {@link VaadinService#handleRequest}, which only
+ * consults the handlers matching the path prefix of the request.
+ *
+ * Each handler only answers requests with its own path prefix, like the
+ * framework handlers do, and a number of add-on handlers are registered to
+ * show how the dispatch cost grows with the number of handlers.
+ */
+public class RequestDispatchPerformanceTester {
+
+    private static final int REQUESTS = 1000000;
+
+    private static final String[] PATHS = { "/UIDL/", "/HEARTBEAT/",
+            "/APP/connector/0/1/file.js", "/APP/UPLOAD/0/1/2/key",
+            "/APP/PUBLISHED/file.js" };
+
+    public static void main(String[] args) throws Exception {
+        warmup();
+
+        for (int addons : new int[] { 0, 10, 50 }) {
+            TestService service = createService(addons);
+            runBenchmark("handler chain", service, false, addons);
+            runBenchmark("prefix routing", service, true, addons);
+        }
+    }
+
+    private static void warmup() throws Exception {
+        TestService service = createService(10);
+        for (int i = 0; i < 10; i++) {
+            dispatch(service, false);
+            dispatch(service, true);
+        }
+        System.gc();
+        System.out.println("warmup and gc complete. sleeping 5 seconds.");
+        Thread.sleep(5000l);
+        System.out.println("woke up - go.");
+    }
+
+    private static void runBenchmark(String name, TestService service,
+            boolean routed, int addons) throws Exception {
+        long start = System.nanoTime();
+        dispatch(service, routed);
+        long time = System.nanoTime() - start;
+        System.out.println(name + " with " + addons + " add-on handlers: "
+                + time / REQUESTS + " ns per request");
+    }
+
+    private static void dispatch(TestService service, boolean routed)
+            throws Exception {
+        VaadinRequest[] requests = new VaadinRequest[PATHS.length];
+        for (int i = 0; i < PATHS.length; i++) {
+            requests[i] = createRequest(PATHS[i]);
+        }
+        for (int i = 0; i < REQUESTS; i++) {
+            VaadinRequest request = requests[i % requests.length];
+            if (routed) {
+                service.handleRequest(request, null);
+            } else {
+                service.handleRequestWithChain(request);
+            }
+        }
+    }
+
+    private static VaadinRequest createRequest(String pathInfo) {
+        // A proxy is considerably faster than a mock
+        return (VaadinRequest) Proxy.newProxyInstance(
+                VaadinRequest.class.getClassLoader(),
+                new Class<?>[] { VaadinRequest.class },
+                (proxy, method, args) -> "getPathInfo"
+                        .equals(method.getName()) ? pathInfo : null);
+    }
+
+    private static TestService createService(int addons)
+            throws ServiceException {
+        VaadinServlet servlet = new VaadinServlet();
+        try {
+            servlet.init(new MockServletConfig());
+        } catch (Exception e) {
+            throw new ServiceException(e);
+        }
+        TestService service = new TestService(servlet, addons);
+        service.init();
+        return service;
+    }
+
+    private static class TestService extends VaadinServletService {
+        private final VaadinSession session;
+        private final int addons;
+
+        public TestService(VaadinServlet servlet, int addons)
+                throws ServiceException {
+            super(servlet, new DefaultDeploymentConfiguration(
+                    TestService.class, new Properties()));
+            this.addons = addons;
+            session = Mockito.mock(VaadinSession.class);
+        }
+
+        @Override
+        protected List<RequestHandler> createRequestHandlers()
+                throws ServiceException {
+            List<RequestHandler> handlers = new ArrayList<>();
+            // Same order as the framework handlers, reversed by init()
+            for (String prefix : new String[] { "APP/PUBLISHED/", "HEARTBEAT/",
+                    "APP/UPLOAD/", "UIDL/", "APP/connector/", "PUSH" }) {
+                handlers.add(new PrefixHandler(prefix));
+            }
+            for (int i = 0; i < addons; i++) {
+                handlers.add(new PrefixHandler("addon" + i + "/"));
+            }
+            return handlers;
+        }
+
+        @Override
+        public VaadinSession findVaadinSession(VaadinRequest request) {
+            return session;
+        }
+
+        @Override
+        public void requestStart(VaadinRequest request,
+                VaadinResponse response) {
+        }
+
+        @Override
+        public void requestEnd(VaadinRequest request, VaadinResponse response,
+                VaadinSession session) {
+        }
+
+        private void handleRequestWithChain(VaadinRequest request)
+                throws Exception {
+            for (RequestHandler handler : getRequestHandlers()) {
+                if (handler.handleRequest(session, request, null)) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static class PrefixHandler implements PathPrefixRequestHandler {
+        private final String prefix;
+
+        public PrefixHandler(String prefix) {
+            this.prefix = "/" + prefix;
+        }
+
+        @Override
+        public String getPathPrefix() {
+            return prefix;
+        }
+
+        @Override
+        public boolean handleRequest(VaadinSession session,
+                VaadinRequest request, VaadinResponse response) {
+            String pathInfo = request.getPathInfo();
+            return pathInfo != null && pathInfo.startsWith(prefix);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmarks;
+
+import org.mockito.Mockito;
+
+import com.vaadin.server.IncrementalSessionSerializer;
+import com.vaadin.server.JavaSessionSerializer;
+import com.vaadin.server.MockVaadinSession;
+import com.vaadin.server.SessionSerializer;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.CssLayout;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+
+/**
+ * Compares serializing a session with several large UIs using
+ * {@link JavaSessionSerializer} and {@link IncrementalSessionSerializer} when
+ * only one UI has changed since the previous request, as well as the
+ * corresponding deserialization times.
+ */
+public class SessionSerializationPerformanceTester {
+
+    private static final int UIS = 10;
+    private static final int LABELS_PER_UI = 5000;
+    private static final int ROUNDS = 20;
+
+    public static void main(String[] args) throws Exception {
+        VaadinSession session = createSession();
+        SessionSerializer java = new JavaSessionSerializer();
+        SessionSerializer incremental = new IncrementalSessionSerializer();
+
+        warmup(session, java, incremental);
+
+        runBenchmark("java", session, java);
+        runBenchmark("incremental", session, incremental);
+    }
+
+    private static void warmup(VaadinSession session,
+            SessionSerializer... serializers) throws Exception {
+        for (int i = 0; i < ROUNDS; i++) {
+            for (SessionSerializer serializer : serializers) {
+                touchOneUI(session, i);
+                serializer.deserialize(serializer.serialize(session));
+            }
+        }
+        System.gc();
+        System.out.println("warmup and gc complete. sleeping 5 seconds.");
+        Thread.sleep(5000l);
+        System.out.println("woke up - go.");
+    }
+
+    private static void runBenchmark(String name, VaadinSession session,
+            SessionSerializer serializer) throws Exception {
+        long serializeTime = 0;
+        long deserializeTime = 0;
+        int size = 0;
+        for (int i = 0; i < ROUNDS; i++) {
+            touchOneUI(session, i);
+
+            long start = System.nanoTime();
+            byte[] data = serializer.serialize(session);
+            serializeTime += System.nanoTime() - start;
+            size = data.length;
+
+            start = System.nanoTime();
+            serializer.deserialize(data);
+            deserializeTime += System.nanoTime() - start;
+        }
+        System.out.println(name + ": " + size / 1024 + " kB, serialize "
+                + serializeTime / ROUNDS / 1000 + " us, deserialize "
+                + deserializeTime / ROUNDS / 1000 + " us per request");
+    }
+
+    /**
+     * Changes one label in one UI and marks all connectors clean as if a
+     * response had been written.
+     */
+    private static void touchOneUI(VaadinSession session, int round) {
+        for (UI ui : session.getUIs()) {
+            if (ui.getUIId() == round % UIS) {
+                CssLayout layout = (CssLayout) ui.getContent();
+                ((Label) layout.getComponent(0)).setValue("Round " + round);
+            }
+            ui.getConnectorTracker().markAllConnectorsClean();
+        }
+    }
+
+    private static VaadinSession createSession() {
+        MockVaadinSession session = new MockVaadinSession(null);
+        session.lock();
+        for (int i = 0; i < UIS; i++) {
+            UI ui = new MockUI(session);
+            ui.doInit(Mockito.mock(VaadinRequest.class),
+                    session.getNextUIid(), null);
+            CssLayout layout = new CssLayout();
+            for (int j = 0; j < LABELS_PER_UI; j++) {
+                layout.addComponent(new Label("Label " + j));
+            }
+            ui.setContent(layout);
+            session.addUI(ui);
+        }
+        return session;
+    }
+}
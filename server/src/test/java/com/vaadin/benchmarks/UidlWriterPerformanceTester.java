@@ -0,0 +1,130 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.benchmarks;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Properties;
+
+import org.mockito.Mockito;
+
+import com.vaadin.server.DefaultDeploymentConfiguration;
+import com.vaadin.server.LegacyCommunicationManager;
+import com.vaadin.server.MockServletConfig;
+import com.vaadin.server.MockVaadinSession;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinServlet;
+import com.vaadin.server.VaadinServletService;
+import com.vaadin.server.communication.UidlWriter;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.CssLayout;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.TextField;
+import com.vaadin.ui.UI;
+import com.vaadin.ui.VerticalLayout;
+
+/**
+ * Measures the time needed for writing a full UIDL response for a UI with
+ * thousands of connectors.
+ *
+ * Each round marks all connectors dirty and writes the full state, hierarchy
+ * and type information of the UI, as when the page is reloaded.
+ */
+public class UidlWriterPerformanceTester {
+
+    private static final int ROWS = 1000;
+    private static final int ROUNDS = 200;
+
+    public static void main(String[] args) throws Exception {
+        UI ui = createUI();
+        int connectors = ui.getConnectorTracker().getDirtyConnectors().size();
+
+        ui.getSession().lock();
+        try {
+            warmup(ui);
+            long start = System.currentTimeMillis();
+            long length = writeResponses(ui, ROUNDS);
+            long time = System.currentTimeMillis() - start;
+            System.out.println(ROUNDS + " responses with "
+                    + connectors + " connectors (" + length / ROUNDS + " chars each) took "
+                    + time + " ms, " + (time * 1000 / ROUNDS)
+                    + " us per response");
+        } finally {
+            ui.getSession().unlock();
+        }
+    }
+
+    private static void warmup(UI ui)
+            throws IOException, InterruptedException {
+        writeResponses(ui, ROUNDS / 4);
+        System.gc();
+        System.out.println("warmup and gc complete. sleeping 5 seconds.");
+        Thread.sleep(5000l);
+        System.out.println("woke up - go.");
+    }
+
+    private static long writeResponses(UI ui, int rounds) throws IOException {
+        long length = 0;
+        for (int i = 0; i < rounds; i++) {
+            ui.getConnectorTracker().markAllConnectorsDirty();
+            ui.getConnectorTracker().markAllClientSidesUninitialized();
+            ui.getSession().getCommunicationManager().getClientCache(ui)
+                    .clear();
+
+            StringWriter writer = new StringWriter();
+            new UidlWriter().write(ui, writer, false);
+            length += writer.getBuffer().length();
+        }
+        return length;
+    }
+
+    private static UI createUI() throws Exception {
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig());
+        DefaultDeploymentConfiguration deploymentConfiguration = new DefaultDeploymentConfiguration(
+                UI.class, new Properties());
+        MockVaadinSession session = new MockVaadinSession(
+                new VaadinServletService(servlet, deploymentConfiguration));
+
+        UI ui = new UI() {
+            @Override
+            protected void init(VaadinRequest request) {
+            }
+        };
+        ui.doInit(Mockito.mock(VaadinRequest.class), 0, "");
+
+        session.lock();
+        try {
+            session.setCommunicationManager(
+                    new LegacyCommunicationManager(session));
+            ui.setSession(session);
+            session.addUI(ui);
+
+            VerticalLayout content = new VerticalLayout();
+            for (int i = 0; i < ROWS; i++) {
+                CssLayout row = new CssLayout();
+                row.addComponent(new Label("Row " + i));
+                row.addComponent(new TextField("Value", "Value " + i));
+                row.addComponent(new Button("Edit " + i));
+                content.addComponent(row);
+            }
+            ui.setContent(content);
+        } finally {
+            session.unlock();
+        }
+        return ui;
+    }
+}
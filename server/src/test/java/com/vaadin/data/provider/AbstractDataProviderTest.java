@@ -15,12 +15,18 @@
  */
 package com.vaadin.data.provider;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Stream;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.vaadin.data.provider.DataChangeEvent.DataRefreshEvent;
+import com.vaadin.data.provider.DataChangeEvent.DataRefreshItemsEvent;
 import com.vaadin.shared.Registration;
 
 /**
@@ -71,4 +77,43 @@ public class AbstractDataProviderTest {
         dataProvider.refreshAll();
         Assert.assertNull(event.get());
     }
+
+    @Test
+    public void refreshItems_singleEventWithDistinctItems() {
+        TestDataProvider dataProvider = new TestDataProvider();
+        List<DataChangeEvent<Object>> events = new ArrayList<>();
+        dataProvider.addDataProviderListener(events::add);
+        Object first = new Object();
+        Object second = new Object();
+
+        dataProvider.refreshItems(Arrays.asList(first, second, first));
+
+        Assert.assertEquals(1, events.size());
+        Assert.assertEquals(Arrays.asList(first, second), new ArrayList<>(
+                ((DataRefreshItemsEvent<Object>) events.get(0)).getItems()));
+    }
+
+    @Test
+    public void refreshItems_singleItem_refreshEventFired() {
+        TestDataProvider dataProvider = new TestDataProvider();
+        AtomicReference<DataChangeEvent<Object>> event = new AtomicReference<>();
+        dataProvider.addDataProviderListener(event::set);
+        Object item = new Object();
+
+        dataProvider.refreshItems(Arrays.asList(item, item));
+
+        Assert.assertSame(item,
+                ((DataRefreshEvent<Object>) event.get()).getItem());
+    }
+
+    @Test
+    public void refreshItems_noItems_listenersNotNotified() {
+        TestDataProvider dataProvider = new TestDataProvider();
+        AtomicReference<DataChangeEvent<Object>> event = new AtomicReference<>();
+        dataProvider.addDataProviderListener(event::set);
+
+        dataProvider.refreshItems(Collections.emptyList());
+
+        Assert.assertNull(event.get());
+    }
 }
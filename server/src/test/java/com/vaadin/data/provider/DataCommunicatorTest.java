@@ -15,8 +15,11 @@
  */
 package com.vaadin.data.provider;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 import elemental.json.Json;
 import elemental.json.JsonArray;
@@ -25,6 +28,7 @@ import org.junit.Test;
 import org.mockito.Mockito;
 
 import com.vaadin.server.MockVaadinSession;
+import com.vaadin.server.SerializablePredicate;
 import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinService;
 import com.vaadin.server.VaadinSession;
@@ -116,6 +120,30 @@ public class DataCommunicatorTest {
         }
     }
 
+    private static class Item {
+        private final int id;
+        private String value;
+
+        public Item(int id, String value) {
+            this.id = id;
+            this.value = value;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Item && ((Item) obj).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id;
+        }
+    }
+
     private final MockVaadinSession session = new MockVaadinSession(
             Mockito.mock(VaadinService.class));
 
@@ -220,4 +248,95 @@ public class DataCommunicatorTest {
         assertFalse("Stalled object in KeyMapper",
                 communicator.getKeyMapper().has(TEST_OBJECT));
     }
+
+    @Test
+    public void refreshItems_allItemsUpdatedTogether() {
+        session.lock();
+        UI ui = new TestUI(session);
+        TestDataCommunicator communicator = new TestDataCommunicator();
+        Object first = new Object();
+        Object second = new Object();
+        ListDataProvider<Object> dataProvider = new ListDataProvider<>(
+                Arrays.asList(first, second, TEST_OBJECT));
+        communicator.setDataProvider(dataProvider, null);
+        communicator.extend(ui);
+        communicator.pushData(0, Arrays.asList(first, second, TEST_OBJECT));
+
+        dataProvider.refreshItems(Arrays.asList(first, second));
+
+        Assert.assertEquals(new HashSet<>(Arrays.asList(first, second)),
+                communicator.getUpdatedData());
+    }
+
+    @Test
+    public void refreshItem_equalInstance_sortKeysExtractedAgain() {
+        session.lock();
+        UI ui = new TestUI(session);
+        Item first = new Item(1, "a");
+        Item second = new Item(2, "b");
+        ListDataProvider<Object> dataProvider = new ListDataProvider<>(
+                Arrays.asList(first, second));
+        TestDataCommunicator communicator = new TestDataCommunicator();
+        communicator.setDataProvider(dataProvider, null);
+        communicator.extend(ui);
+        SortKeyComparator<Object> sorting = new SortKeyComparator<>()
+                .addSortKey(item -> ((Item) item).getValue(),
+                        (v1, v2) -> v1.compareTo(v2));
+        communicator.setInMemorySorting(sorting);
+        Query<Object, SerializablePredicate<Object>> query = new Query<>(0, 2,
+                Collections.emptyList(), sorting, null);
+        Assert.assertEquals(Arrays.asList(first, second),
+                dataProvider.fetch(query).collect(Collectors.toList()));
+
+        first.value = "c";
+        dataProvider.refreshItem(new Item(1, "c"));
+
+        Assert.assertEquals(Arrays.asList(second, first),
+                dataProvider.fetch(query).collect(Collectors.toList()));
+    }
+
+    @Test
+    public void generatePartialData_onlyActiveItemsWithData() {
+        session.lock();
+        UI ui = new TestUI(session);
+        TestDataCommunicator communicator = new TestDataCommunicator();
+        Object first = new Object();
+        Object second = new Object();
+        communicator.setDataProvider(new ListDataProvider<>(
+                Arrays.asList(first, second, TEST_OBJECT)), null);
+        communicator.extend(ui);
+        communicator.pushData(0, Arrays.asList(first, second));
+
+        JsonObject data = communicator.generatePartialData((item, json) -> {
+            if (item != second) {
+                json.put("foo", "bar");
+            }
+        });
+
+        Assert.assertEquals(1, data.keys().length);
+        String key = communicator.getKeyMapper().key(first);
+        Assert.assertEquals("bar", data.getObject(key).getString("foo"));
+    }
+
+    @Test
+    public void generatePartialDataForItems_onlyGivenActiveItems() {
+        session.lock();
+        UI ui = new TestUI(session);
+        TestDataCommunicator communicator = new TestDataCommunicator();
+        Object first = new Object();
+        Object second = new Object();
+        communicator.setDataProvider(new ListDataProvider<>(
+                Arrays.asList(first, second, TEST_OBJECT)), null);
+        communicator.extend(ui);
+        communicator.pushData(0, Arrays.asList(first, second));
+
+        JsonObject data = communicator.generatePartialData(
+                (item, json) -> json.put("foo", "bar"),
+                Arrays.asList(second, TEST_OBJECT));
+
+        Assert.assertEquals(1, data.keys().length);
+        String key = communicator.getKeyMapper().key(second);
+        Assert.assertEquals("bar", data.getObject(key).getString("foo"));
+        assertFalse(communicator.getKeyMapper().has(TEST_OBJECT));
+    }
 }
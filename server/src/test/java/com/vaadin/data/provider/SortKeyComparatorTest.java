@@ -0,0 +1,182 @@
+package com.vaadin.data.provider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.data.ValueProvider;
+import com.vaadin.server.SerializableComparator;
+
+public class SortKeyComparatorTest {
+
+    private final AtomicInteger extractions = new AtomicInteger();
+
+    private ValueProvider<StrBean, String> countingValue() {
+        return bean -> {
+            extractions.incrementAndGet();
+            return bean.getValue();
+        };
+    }
+
+    private <K extends Comparable<K>> SerializableComparator<K> natural() {
+        return (a, b) -> a.compareTo(b);
+    }
+
+    @Test
+    public void sort_keysExtractedOncePerItem() {
+        List<StrBean> data = StrBean.generateRandomBeans(100);
+        SortKeyComparator<StrBean> comparator = new SortKeyComparator<StrBean>()
+                .addSortKey(countingValue(), natural());
+
+        List<StrBean> sorted = new ArrayList<>(data);
+        sorted.sort(comparator);
+
+        Assert.assertEquals(data.size(), extractions.get());
+        Assert.assertEquals(sortedByValueAndId(data), sorted);
+    }
+
+    @Test
+    public void sort_multipleKeys_comparedInOrder() {
+        List<StrBean> data = StrBean.generateRandomBeans(100);
+        SortKeyComparator<StrBean> comparator = new SortKeyComparator<StrBean>()
+                .addSortKey(StrBean::getValue, natural())
+                .addSortKey(StrBean::getId, natural());
+
+        List<StrBean> sorted = new ArrayList<>(data);
+        sorted.sort(comparator);
+
+        Assert.assertEquals(sortedByValueAndId(data), sorted);
+    }
+
+    @Test
+    public void sort_again_keysReused() {
+        List<StrBean> data = StrBean.generateRandomBeans(50);
+        SortKeyComparator<StrBean> comparator = new SortKeyComparator<StrBean>()
+                .addSortKey(countingValue(), natural());
+
+        new ArrayList<>(data).sort(comparator);
+        new ArrayList<>(data).sort(comparator);
+
+        Assert.assertEquals(data.size(), extractions.get());
+    }
+
+    @Test
+    public void invalidate_itemKeysExtractedAgain() {
+        StrBean first = new StrBean("a", 1, 0);
+        StrBean second = new StrBean("b", 2, 0);
+        SortKeyComparator<StrBean> comparator = new SortKeyComparator<StrBean>()
+                .addSortKey(countingValue(), natural());
+
+        Assert.assertTrue(comparator.compare(first, second) < 0);
+
+        first.setValue("c");
+        Assert.assertTrue("Stale key should still be used",
+                comparator.compare(first, second) < 0);
+
+        comparator.invalidate(first);
+        Assert.assertTrue(comparator.compare(first, second) > 0);
+        Assert.assertEquals(3, extractions.get());
+
+        comparator.invalidateAll();
+        comparator.compare(first, second);
+        Assert.assertEquals(5, extractions.get());
+    }
+
+    @Test
+    public void invalidate_uncachedInstance_allKeysExtractedAgain() {
+        StrBean first = new StrBean("a", 1, 0);
+        StrBean second = new StrBean("b", 2, 0);
+        SortKeyComparator<StrBean> comparator = new SortKeyComparator<StrBean>()
+                .addSortKey(countingValue(), natural());
+        comparator.compare(first, second);
+
+        first.setValue("c");
+        comparator.invalidate(new StrBean("c", 1, 0));
+
+        Assert.assertTrue(comparator.compare(first, second) > 0);
+        Assert.assertEquals(4, extractions.get());
+    }
+
+    @Test
+    public void limitSortKeys_moreKeysCached_allKeysExtractedAgain() {
+        List<StrBean> data = StrBean.generateRandomBeans(10);
+        SortKeyComparator<StrBean> comparator = new SortKeyComparator<StrBean>()
+                .addSortKey(countingValue(), natural());
+        new ArrayList<>(data).sort(comparator);
+
+        comparator.limitSortKeys(data.size());
+        new ArrayList<>(data).sort(comparator);
+        Assert.assertEquals(data.size(), extractions.get());
+
+        List<StrBean> remaining = data.subList(0, 5);
+        comparator.limitSortKeys(remaining.size());
+        new ArrayList<>(remaining).sort(comparator);
+        Assert.assertEquals(data.size() + remaining.size(), extractions.get());
+    }
+
+    @Test
+    public void extractSortKeys_parallel_keysExtractedOncePerItem() {
+        List<StrBean> data = StrBean.generateRandomBeans(1000);
+        SortKeyComparator<StrBean> comparator = new SortKeyComparator<StrBean>()
+                .addSortKey(countingValue(), natural())
+                .addSortKey(StrBean::getId, natural());
+        comparator.setParallel(true);
+        Assert.assertTrue(comparator.isParallel());
+
+        comparator.extractSortKeys(data);
+        comparator.extractSortKeys(data);
+        Assert.assertEquals(data.size(), extractions.get());
+
+        List<StrBean> sorted = new ArrayList<>(data);
+        sorted.sort(comparator);
+
+        Assert.assertEquals(data.size(), extractions.get());
+        Assert.assertEquals(sortedByValueAndId(data), sorted);
+    }
+
+    @Test
+    public void listDataProvider_parallelComparator_sortsInMemory() {
+        List<StrBean> data = StrBean.generateRandomBeans(200);
+        SortKeyComparator<StrBean> comparator = new SortKeyComparator<StrBean>()
+                .addSortKey(countingValue(), natural())
+                .addSortKey(StrBean::getId, natural());
+        comparator.setParallel(true);
+
+        List<StrBean> fetched = DataProvider.ofCollection(data)
+                .fetch(new Query<>(0, data.size(), Collections.emptyList(),
+                        comparator, null))
+                .collect(Collectors.toList());
+
+        Assert.assertEquals(data.size(), extractions.get());
+        Assert.assertEquals(sortedByValueAndId(data), fetched);
+    }
+
+    @Test
+    public void sortKeyComparator_reversedKeyComparator_sortsDescending() {
+        List<StrBean> data = Arrays.asList(new StrBean("a", 1, 0),
+                new StrBean("c", 2, 0), new StrBean("b", 3, 0));
+        SerializableComparator<String> natural = natural();
+        SortKeyComparator<StrBean> comparator = new SortKeyComparator<StrBean>()
+                .addSortKey(StrBean::getValue, natural.reversed()::compare);
+
+        List<StrBean> sorted = new ArrayList<>(data);
+        sorted.sort(comparator);
+
+        Assert.assertEquals(Arrays.asList("c", "b", "a"), sorted.stream()
+                .map(StrBean::getValue).collect(Collectors.toList()));
+    }
+
+    private static List<StrBean> sortedByValueAndId(List<StrBean> data) {
+        return data.stream()
+                .sorted(Comparator.comparing(StrBean::getValue)
+                        .thenComparing(StrBean::getId))
+                .collect(Collectors.toList());
+    }
+}
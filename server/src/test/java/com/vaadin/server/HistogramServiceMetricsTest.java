@@ -0,0 +1,145 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.io.StringWriter;
+import java.util.Collections;
+import java.util.Properties;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.server.ServiceMetrics.Phase;
+import com.vaadin.server.communication.UidlWriter;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+import com.vaadin.util.CurrentInstance;
+
+public class HistogramServiceMetricsTest {
+
+    private final HistogramServiceMetrics metrics = new HistogramServiceMetrics();
+
+    @Test
+    public void record_histogramPerUIClassAndPhase() {
+        metrics.record(MockUI.class, Phase.RPC_HANDLING, 100);
+        metrics.record(MockUI.class, Phase.RPC_HANDLING, 300);
+        metrics.end(null, Phase.REQUEST, System.nanoTime());
+
+        TimingHistogram rpc = metrics.getHistogram(MockUI.class,
+                Phase.RPC_HANDLING);
+        Assert.assertEquals(2, rpc.getCount());
+        Assert.assertEquals(400, rpc.getTotalNanos());
+        Assert.assertEquals(300, rpc.getMaxNanos());
+        Assert.assertEquals(200, rpc.getMeanNanos());
+        Assert.assertEquals(0,
+                metrics.getHistogram(MockUI.class, Phase.REQUEST).getCount());
+        Assert.assertEquals(1,
+                metrics.getHistogram(UI.class, Phase.REQUEST).getCount());
+        Assert.assertNull(metrics.getHistogram(TestUI.class, Phase.REQUEST));
+    }
+
+    @Test
+    public void percentiles_boundedByBucketAndMax() {
+        TimingHistogram histogram = new TimingHistogram();
+        Assert.assertEquals(0, histogram.getMedianNanos());
+        for (int i = 0; i < 99; i++) {
+            histogram.record(1000);
+        }
+        histogram.record(1000000);
+
+        // 1000 is in the bucket [512, 1023]
+        Assert.assertEquals(1023, histogram.getMedianNanos());
+        Assert.assertEquals(1023, histogram.getPercentile99Nanos());
+        Assert.assertEquals(1000000, histogram.getPercentileNanos(100));
+        Assert.assertEquals(1023, histogram.getPercentileNanos(0));
+    }
+
+    @Test
+    public void noOp_doesNotReadClock() {
+        Assert.assertEquals(0, ServiceMetrics.NO_OP.start());
+        Assert.assertSame(ServiceMetrics.NO_OP,
+                ServiceMetrics.get(new MockUI()));
+    }
+
+    @Test
+    public void registerMBeans_existingAndNewUIClassesRegistered()
+            throws Exception {
+        MBeanServer server = MBeanServerFactory.newMBeanServer();
+        metrics.record(MockUI.class, Phase.STATE_ENCODING, 10);
+
+        metrics.registerMBeans(server, "test");
+        metrics.record(TestUI.class, Phase.STATE_ENCODING, 20);
+
+        ObjectName name = new ObjectName(
+                "com.vaadin:type=ServiceMetrics,service=\"test\",ui=\""
+                        + TestUI.class.getName()
+                        + "\",phase=\"STATE_ENCODING\"");
+        Assert.assertEquals(1L, server.getAttribute(name, "Count"));
+        Assert.assertEquals(2 * Phase.values().length,
+                server.queryNames(new ObjectName("com.vaadin:*"), null)
+                        .size());
+
+        metrics.unregisterMBeans();
+        Assert.assertEquals(Collections.emptySet(),
+                server.queryNames(new ObjectName("com.vaadin:*"), null));
+    }
+
+    @Test
+    public void uidlWriter_recordsEachResponsePhase() throws Exception {
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig());
+        VaadinServletService service = new VaadinServletService(servlet,
+                new DefaultDeploymentConfiguration(UI.class,
+                        new Properties()));
+        service.setMetrics(metrics);
+        MockVaadinSession session = new MockVaadinSession(service);
+
+        session.lock();
+        try {
+            session.setCommunicationManager(
+                    new LegacyCommunicationManager(session));
+            TestUI ui = new TestUI(session);
+            ui.doInit(Mockito.mock(VaadinRequest.class), 0, "");
+            session.addUI(ui);
+            ui.setContent(new Label("Label"));
+
+            new UidlWriter().write(ui, new StringWriter(), false);
+        } finally {
+            session.unlock();
+            CurrentInstance.clearAll();
+        }
+
+        for (Phase phase : new Phase[] { Phase.BEFORE_CLIENT_RESPONSE,
+                Phase.STATE_ENCODING, Phase.TYPE_ENCODING,
+                Phase.HIERARCHY_ENCODING, Phase.CLIENT_RPC_ENCODING,
+                Phase.RESPONSE_WRITING }) {
+            Assert.assertEquals(phase.name(), 1,
+                    metrics.getHistogram(TestUI.class, phase).getCount());
+        }
+    }
+
+    public static class TestUI extends MockUI {
+        public TestUI(VaadinSession session) {
+            super(session);
+        }
+    }
+}
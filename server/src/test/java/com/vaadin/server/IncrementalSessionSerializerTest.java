@@ -0,0 +1,267 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.util.ArrayList;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.server.IncrementalSessionSerializer.SerializedUI;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+import com.vaadin.util.CurrentInstance;
+
+public class IncrementalSessionSerializerTest {
+
+    private final IncrementalSessionSerializer serializer = new IncrementalSessionSerializer();
+
+    private MockVaadinSession session;
+    private VaadinSession deserialized;
+    private UI ui1;
+    private UI ui2;
+    private Label label1;
+    private Label label2;
+
+    @Before
+    public void setup() throws Exception {
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig());
+        session = new MockVaadinSession(servlet.getService());
+        session.lock();
+        label1 = new Label("first");
+        ui1 = createUI(label1);
+        label2 = new Label("second");
+        ui2 = createUI(label2);
+    }
+
+    @After
+    public void tearDown() {
+        session.unlock();
+        if (deserialized != null) {
+            deserialized.getLockInstance().unlock();
+        }
+        CurrentInstance.clearAll();
+    }
+
+    @Test
+    public void roundTrip_sessionAndUIsRestored() throws Exception {
+        session.setAttribute("attribute", "value");
+
+        deserialize(serializer.serialize(session));
+
+        Assert.assertEquals("value", deserialized.getAttribute("attribute"));
+        Assert.assertEquals(2, deserialized.getUIs().size());
+        UI deserializedUI = deserialized.getUIById(ui1.getUIId());
+        Assert.assertSame(deserialized, deserializedUI.getSession());
+        Assert.assertEquals("first",
+                ((Label) deserializedUI.getContent()).getValue());
+        Assert.assertFalse(deserializedUI.isSerializationDirty());
+    }
+
+    @Test
+    public void unchangedUI_previousSerializedFormReused() throws Exception {
+        markResponseWritten();
+        serializer.serialize(session);
+        SerializedUI ui1Serialized = session.getSerializedUIs()
+                .get(ui1.getUIId());
+        SerializedUI ui2Serialized = session.getSerializedUIs()
+                .get(ui2.getUIId());
+        Assert.assertFalse(ui1.isSerializationDirty());
+
+        label1.setValue("changed");
+        Assert.assertTrue(ui1.isSerializationDirty());
+        Assert.assertFalse(ui2.isSerializationDirty());
+        byte[] data = serializer.serialize(session);
+
+        Assert.assertNotSame(ui1Serialized,
+                session.getSerializedUIs().get(ui1.getUIId()));
+        Assert.assertSame(ui2Serialized,
+                session.getSerializedUIs().get(ui2.getUIId()));
+
+        deserialize(data);
+        Assert.assertEquals("changed",
+                ((Label) deserialized.getUIById(ui1.getUIId()).getContent())
+                        .getValue());
+    }
+
+    @Test
+    public void dirtyConnectorChangedAgain_uiSerializedAgain()
+            throws Exception {
+        serializer.serialize(session);
+        SerializedUI ui1Serialized = session.getSerializedUIs()
+                .get(ui1.getUIId());
+
+        // Already dirty, so the connector is not marked dirty again
+        label1.setValue("changed");
+        serializer.serialize(session);
+
+        Assert.assertNotSame(ui1Serialized,
+                session.getSerializedUIs().get(ui1.getUIId()));
+    }
+
+    @Test
+    public void deserializedSession_serializedFormsReused() throws Exception {
+        markResponseWritten();
+        deserialize(serializer.serialize(session));
+        SerializedUI ui2Serialized = deserialized.getSerializedUIs()
+                .get(ui2.getUIId());
+
+        serializer.serialize(deserialized);
+
+        Assert.assertSame(ui2Serialized,
+                deserialized.getSerializedUIs().get(ui2.getUIId()));
+    }
+
+    @Test
+    public void sessionReferencesComponent_completeSessionSerialized()
+            throws Exception {
+        session.setAttribute(Label.class, label1);
+
+        deserialize(serializer.serialize(session));
+
+        Assert.assertTrue(session.getSerializedUIs().isEmpty());
+        Assert.assertSame(deserialized.getUIById(ui1.getUIId()).getContent(),
+                deserialized.getAttribute(Label.class));
+    }
+
+    @Test
+    public void sessionSharesObjectWithUI_completeSessionSerialized()
+            throws Exception {
+        ArrayList<String> bean = new ArrayList<>();
+        session.setAttribute("bean", bean);
+        label1.setData(bean);
+
+        deserialize(serializer.serialize(session));
+
+        Assert.assertTrue(session.getSerializedUIs().isEmpty());
+        Assert.assertSame(deserialized.getAttribute("bean"),
+                getDeserializedData(ui1));
+    }
+
+    @Test
+    public void uisShareObject_completeSessionSerialized() throws Exception {
+        ArrayList<String> bean = new ArrayList<>();
+        label1.setData(bean);
+        label2.setData(bean);
+
+        deserialize(serializer.serialize(session));
+
+        Assert.assertTrue(session.getSerializedUIs().isEmpty());
+        Assert.assertSame(getDeserializedData(ui1), getDeserializedData(ui2));
+    }
+
+    @Test
+    public void sessionSharesObjectWithUnchangedUI_completeSessionSerialized()
+            throws Exception {
+        ArrayList<String> bean = new ArrayList<>();
+        label2.setData(bean);
+        markResponseWritten();
+        serializer.serialize(session);
+        Assert.assertFalse(session.getSerializedUIs().isEmpty());
+
+        // Only the session changes
+        session.setAttribute("bean", bean);
+        deserialize(serializer.serialize(session));
+
+        Assert.assertTrue(session.getSerializedUIs().isEmpty());
+        Assert.assertSame(deserialized.getAttribute("bean"),
+                getDeserializedData(ui2));
+    }
+
+    @Test
+    public void changedUISharesObjectWithUnchangedUI_completeSessionSerialized()
+            throws Exception {
+        ArrayList<String> bean = new ArrayList<>();
+        label2.setData(bean);
+        markResponseWritten();
+        serializer.serialize(session);
+
+        label1.setData(bean);
+        label1.setValue("changed");
+        Assert.assertTrue(ui1.isSerializationDirty());
+        Assert.assertFalse(ui2.isSerializationDirty());
+        deserialize(serializer.serialize(session));
+
+        Assert.assertTrue(session.getSerializedUIs().isEmpty());
+        Assert.assertSame(getDeserializedData(ui1), getDeserializedData(ui2));
+    }
+
+    @Test
+    public void objectSharedAfterDeserialization_completeSessionSerialized()
+            throws Exception {
+        label2.setData(new ArrayList<String>());
+        markResponseWritten();
+        deserialize(serializer.serialize(session));
+        UI deserializedUI2 = deserialized.getUIById(ui2.getUIId());
+
+        deserialized.setAttribute("bean", getDeserializedData(ui2));
+        Assert.assertFalse(deserializedUI2.isSerializationDirty());
+        serializer.serialize(deserialized);
+
+        Assert.assertTrue(deserialized.getSerializedUIs().isEmpty());
+    }
+
+    @Test
+    public void sessionSharesImmutableValueWithUI_uisSerializedSeparately()
+            throws Exception {
+        Integer value = Integer.valueOf(1000);
+        session.setAttribute("value", value);
+        label1.setData(value);
+
+        serializer.serialize(session);
+
+        Assert.assertEquals(2, session.getSerializedUIs().size());
+    }
+
+    @Test
+    public void javaSerializedSession_uisRestored() throws Exception {
+        JavaSessionSerializer javaSerializer = new JavaSessionSerializer();
+
+        VaadinSession javaDeserialized = javaSerializer
+                .deserialize(javaSerializer.serialize(session));
+
+        Assert.assertNotNull(javaDeserialized.getUIById(ui2.getUIId()));
+    }
+
+    private UI createUI(Label content) {
+        UI ui = new MockUI(session);
+        ui.doInit(Mockito.mock(VaadinRequest.class), session.getNextUIid(),
+                null);
+        ui.setContent(content);
+        session.addUI(ui);
+        return ui;
+    }
+
+    private void markResponseWritten() {
+        ui1.getConnectorTracker().markAllConnectorsClean();
+        ui2.getConnectorTracker().markAllConnectorsClean();
+    }
+
+    private Object getDeserializedData(UI ui) {
+        return ((Label) deserialized.getUIById(ui.getUIId()).getContent())
+                .getData();
+    }
+
+    private void deserialize(byte[] data) throws Exception {
+        deserialized = serializer.deserialize(data);
+        deserialized.getLockInstance().lock();
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+public class RequestHandlerRouterTest {
+
+    private final RequestHandler generic1 = new TestHandler(null);
+    private final RequestHandler generic2 = new TestHandler(null);
+    private final RequestHandler uidl = new TestHandler("UIDL/");
+    private final RequestHandler app = new TestHandler("APP/");
+    private final RequestHandler connector = new TestHandler("/APP/connector/");
+    private final RequestHandler push = new TestHandler("PUSH");
+
+    private final RequestHandlerRouter router = new RequestHandlerRouter(
+            Arrays.asList(generic1, connector, uidl, generic2, app, push));
+
+    @Test
+    public void matchingPrefix_matchingAndGenericHandlersInOrder() {
+        Assert.assertEquals(Arrays.asList(generic1, uidl, generic2),
+                route("/UIDL/"));
+        Assert.assertEquals(Arrays.asList(generic1, generic2, push),
+                route("/PUSH"));
+    }
+
+    @Test
+    public void nestedPrefixes_allMatchingHandlersIncluded() {
+        Assert.assertEquals(Arrays.asList(generic1, connector, generic2, app),
+                route("/APP/connector/0/1/file.js"));
+        Assert.assertEquals(Arrays.asList(generic1, generic2, app),
+                route("/APP/global/0/file.js"));
+    }
+
+    @Test
+    public void noMatchingPrefix_onlyGenericHandlers() {
+        List<RequestHandler> generic = Arrays.asList(generic1, generic2);
+        Assert.assertEquals(generic, route(null));
+        Assert.assertEquals(generic, route("/"));
+        Assert.assertEquals(generic, route("/UIDL"));
+        Assert.assertEquals(generic, route("/UIDLX/"));
+        Assert.assertEquals(generic, route("UIDL/"));
+        Assert.assertEquals(generic, route("/my/view"));
+    }
+
+    @Test
+    public void noPrefixedHandlers_allHandlers() {
+        RequestHandler nullPrefix = new TestHandler(null);
+        RequestHandler emptyPrefix = new TestHandler("");
+        RequestHandlerRouter router = new RequestHandlerRouter(
+                Arrays.asList(generic1, nullPrefix, emptyPrefix));
+
+        Assert.assertEquals(Arrays.asList(generic1, nullPrefix, emptyPrefix),
+                router.getRequestHandlers(createRequest("/UIDL/")));
+        Assert.assertEquals(Collections.emptyList(),
+                new RequestHandlerRouter(Collections.emptyList())
+                        .getRequestHandlers(createRequest("/UIDL/")));
+    }
+
+    private List<RequestHandler> route(String pathInfo) {
+        return router.getRequestHandlers(createRequest(pathInfo));
+    }
+
+    private static VaadinRequest createRequest(String pathInfo) {
+        VaadinRequest request = Mockito.mock(VaadinRequest.class);
+        Mockito.when(request.getPathInfo()).thenReturn(pathInfo);
+        return request;
+    }
+
+    private static class TestHandler implements PathPrefixRequestHandler {
+        private final String prefix;
+
+        private TestHandler(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public String getPathPrefix() {
+            return prefix;
+        }
+
+        @Override
+        public boolean handleRequest(VaadinSession session,
+                VaadinRequest request, VaadinResponse response) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,389 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import com.vaadin.shared.ApplicationConstants;
+import com.vaadin.shared.ui.ui.UIConstants;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+import com.vaadin.util.CurrentInstance;
+
+public class ShardedSessionPersistenceTest {
+
+    private static final String SESSION_ID = "session";
+
+    private static class RecordingSessionStore extends InMemorySessionStore {
+        private final List<Integer> storedUIs = new ArrayList<>();
+        private boolean failing;
+
+        @Override
+        public void storeSession(String sessionId, byte[] data) {
+            if (failing) {
+                throw new IllegalStateException("Store not available");
+            }
+            super.storeSession(sessionId, data);
+        }
+
+        @Override
+        public void storeUI(String sessionId, int uiId, byte[] data) {
+            storedUIs.add(uiId);
+            super.storeUI(sessionId, uiId, data);
+        }
+    }
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private final RecordingSessionStore store = new RecordingSessionStore();
+    private final ShardedSessionPersistence persistence = new ShardedSessionPersistence(
+            store);
+
+    private MockVaadinSession session;
+    private final List<VaadinSession> loadedSessions = new ArrayList<>();
+    private UI ui1;
+    private UI ui2;
+    private Label label1;
+
+    @Before
+    public void setup() throws Exception {
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig());
+        session = new MockVaadinSession(servlet.getService());
+        session.lock();
+        label1 = new Label("first");
+        ui1 = createUI(label1);
+        ui2 = createUI(new Label("second"), "window.app");
+    }
+
+    @After
+    public void tearDown() {
+        session.unlock();
+        for (VaadinSession loaded : loadedSessions) {
+            loaded.getLockInstance().unlock();
+        }
+        CurrentInstance.clearAll();
+    }
+
+    @Test
+    public void load_onlyTargetedUILoaded() throws Exception {
+        session.setAttribute("attribute", "value");
+        persistence.save(SESSION_ID, session);
+
+        VaadinSession loaded = load(persistence, ui1.getUIId());
+
+        Assert.assertEquals("value", loaded.getAttribute("attribute"));
+        Assert.assertTrue(loaded.isPartiallyLoaded());
+        Assert.assertEquals(1, loaded.getLoadedUIs().size());
+        UI loadedUI = loaded.getLoadedUIs().iterator().next();
+        Assert.assertEquals(ui1.getUIId(), loadedUI.getUIId());
+        Assert.assertSame(loaded, loadedUI.getSession());
+        Assert.assertEquals("first",
+                ((Label) loadedUI.getContent()).getValue());
+    }
+
+    @Test
+    public void noUIId_noUILoaded() throws Exception {
+        persistence.save(SESSION_ID, session);
+
+        Assert.assertTrue(load(persistence, -1).getLoadedUIs().isEmpty());
+    }
+
+    @Test
+    public void partiallyLoaded_getUIById_uiLoaded() throws Exception {
+        persistence.save(SESSION_ID, session);
+
+        VaadinSession loaded = load(persistence, ui1.getUIId());
+        UI loadedUI = loaded.getUIById(ui2.getUIId());
+
+        Assert.assertSame(loaded, loadedUI.getSession());
+        Assert.assertEquals("second",
+                ((Label) loadedUI.getContent()).getValue());
+        Assert.assertEquals(2, loaded.getLoadedUIs().size());
+        Assert.assertFalse(loaded.isPartiallyLoaded());
+    }
+
+    @Test
+    public void partiallyLoaded_getUIs_allUIsLoaded() throws Exception {
+        persistence.save(SESSION_ID, session);
+
+        VaadinSession loaded = load(persistence, -1);
+
+        Assert.assertEquals(2, loaded.getUIs().size());
+        Assert.assertFalse(loaded.isPartiallyLoaded());
+    }
+
+    @Test
+    public void uiLoadedWhenNeededSaved_notStoredAgain() throws Exception {
+        markResponseWritten();
+        persistence.save(SESSION_ID, session);
+        store.storedUIs.clear();
+
+        VaadinSession loaded = load(persistence, -1);
+        loaded.getUIs();
+        persistence.save(SESSION_ID, loaded);
+
+        Assert.assertEquals(0, store.storedUIs.size());
+        Assert.assertEquals(2, load(persistence, -1).getUIs().size());
+    }
+
+    @Test
+    public void uidlRequest_parameterUILoaded() throws Exception {
+        VaadinRequest request = createRequest(
+                "/" + ApplicationConstants.UIDL_PATH + "/");
+        Mockito.when(request.getParameter(UIConstants.UI_ID_PARAMETER))
+                .thenReturn(String.valueOf(ui2.getUIId()));
+
+        assertLoadedUI(request, ui2);
+    }
+
+    @Test
+    public void connectorResourceRequest_pathUILoaded() throws Exception {
+        assertLoadedUI(createRequest("/APP/connector/" + ui2.getUIId()
+                + "/5/image.png"), ui2);
+    }
+
+    @Test
+    public void uploadRequest_pathUILoaded() throws Exception {
+        assertLoadedUI(
+                createRequest("/APP/UPLOAD/" + ui1.getUIId() + "/5/action/key"),
+                ui1);
+    }
+
+    @Test
+    public void globalResourceRequest_pathUILoaded() throws Exception {
+        assertLoadedUI(createRequest(
+                "/APP/global/" + ui2.getUIId() + "/legacy/1/image.png"), ui2);
+    }
+
+    @Test
+    public void publishedFileRequest_noUILoaded() throws Exception {
+        assertLoadedUI(createRequest("/APP/PUBLISHED/script.js"), null);
+    }
+
+    @Test
+    public void bootstrapRequest_noUILoaded() throws Exception {
+        assertLoadedUI(createRequest("/"), null);
+    }
+
+    @Test
+    public void uiInitRequest_uiWithEmbedIdLoaded() throws Exception {
+        VaadinRequest request = createRequest("/");
+        Mockito.when(request.getParameter("v-wn")).thenReturn("window");
+        Mockito.when(request.getParameter("v-appId")).thenReturn("app");
+
+        assertLoadedUI(request, ui2);
+    }
+
+    @Test
+    public void loadAll_allUIsLoaded() throws Exception {
+        persistence.save(SESSION_ID, session);
+
+        VaadinSession loaded = persistence.loadAll(SESSION_ID);
+        loaded.getLockInstance().lock();
+        loadedSessions.add(loaded);
+
+        Assert.assertEquals(2, loaded.getUIs().size());
+    }
+
+    @Test
+    public void save_onlyChangedUIsStored() throws Exception {
+        markResponseWritten();
+        persistence.save(SESSION_ID, session);
+        Assert.assertEquals(2, store.storedUIs.size());
+
+        store.storedUIs.clear();
+        label1.setValue("changed");
+        persistence.save(SESSION_ID, session);
+
+        Assert.assertEquals(1, store.storedUIs.size());
+        Assert.assertEquals(ui1.getUIId(), store.storedUIs.get(0).intValue());
+    }
+
+    @Test
+    public void loadedSessionSaved_unloadedUIsPreserved() throws Exception {
+        persistence.save(SESSION_ID, session);
+        store.storedUIs.clear();
+
+        VaadinSession loaded = load(persistence, ui1.getUIId());
+        ((Label) loaded.getUIById(ui1.getUIId()).getContent())
+                .setValue("changed");
+        persistence.save(SESSION_ID, loaded);
+
+        Assert.assertEquals(1, store.storedUIs.size());
+        VaadinSession all = persistence.loadAll(SESSION_ID);
+        all.getLockInstance().lock();
+        loadedSessions.add(all);
+        Assert.assertEquals(2, all.getUIs().size());
+        Assert.assertEquals("changed",
+                ((Label) all.getUIById(ui1.getUIId()).getContent())
+                        .getValue());
+    }
+
+    @Test
+    public void removedUI_entryRemoved() throws Exception {
+        persistence.save(SESSION_ID, session);
+        Assert.assertNotNull(store.loadUI(SESSION_ID, ui2.getUIId()));
+
+        session.removeUI(ui2);
+        persistence.save(SESSION_ID, session);
+
+        Assert.assertNull(store.loadUI(SESSION_ID, ui2.getUIId()));
+        Assert.assertNull(load(persistence, ui2.getUIId())
+                .getUIById(ui2.getUIId()));
+    }
+
+    @Test
+    public void sessionReferencesComponent_storedAsOneEntry()
+            throws Exception {
+        persistence.save(SESSION_ID, session);
+
+        VaadinSession loaded = load(persistence, ui1.getUIId());
+        loaded.setAttribute(Label.class,
+                (Label) loaded.getUIById(ui1.getUIId()).getContent());
+        persistence.save(SESSION_ID, loaded);
+
+        Assert.assertNull(store.loadUI(SESSION_ID, ui1.getUIId()));
+        Assert.assertNull(store.loadUI(SESSION_ID, ui2.getUIId()));
+        VaadinSession full = load(persistence, ui1.getUIId());
+        Assert.assertEquals(2, full.getUIs().size());
+        Assert.assertSame(full.getUIById(ui1.getUIId()).getContent(),
+                full.getAttribute(Label.class));
+    }
+
+    @Test
+    public void sessionSharesObjectWithUI_storedAsOneEntry()
+            throws Exception {
+        label1.setData(new ArrayList<>());
+        persistence.save(SESSION_ID, session);
+
+        VaadinSession loaded = load(persistence, ui1.getUIId());
+        loaded.setAttribute("data", getLabel(loaded, ui1).getData());
+        persistence.save(SESSION_ID, loaded);
+
+        Assert.assertNull(store.loadUI(SESSION_ID, ui1.getUIId()));
+        VaadinSession full = load(persistence, ui2.getUIId());
+        Assert.assertEquals(2, full.getLoadedUIs().size());
+        Assert.assertSame(getLabel(full, ui1).getData(),
+                full.getAttribute("data"));
+    }
+
+    @Test
+    public void storingFails_changedUIStoredNextTime() throws Exception {
+        markResponseWritten();
+        persistence.save(SESSION_ID, session);
+        store.storedUIs.clear();
+
+        label1.setValue("changed");
+        store.failing = true;
+        try {
+            persistence.save(SESSION_ID, session);
+            Assert.fail("Storing should fail");
+        } catch (IllegalStateException expected) {
+            // Expected
+        }
+        store.failing = false;
+        store.storedUIs.clear();
+        persistence.save(SESSION_ID, session);
+
+        Assert.assertEquals(1, store.storedUIs.size());
+        Assert.assertEquals("changed",
+                getLabel(load(persistence, ui1.getUIId()), ui1).getValue());
+    }
+
+    @Test
+    public void fileSessionStore_sessionRestored() throws Exception {
+        FileSessionStore fileStore = new FileSessionStore(
+                temporaryFolder.getRoot());
+        ShardedSessionPersistence filePersistence = new ShardedSessionPersistence(
+                fileStore);
+        filePersistence.save(SESSION_ID, session);
+
+        VaadinSession loaded = load(filePersistence, ui2.getUIId());
+        Assert.assertEquals("second",
+                ((Label) loaded.getUIById(ui2.getUIId()).getContent())
+                        .getValue());
+
+        filePersistence.remove(SESSION_ID);
+        Assert.assertNull(fileStore.loadSession(SESSION_ID));
+        Assert.assertNull(fileStore.loadUI(SESSION_ID, ui2.getUIId()));
+        Assert.assertEquals(0, temporaryFolder.getRoot().list().length);
+    }
+
+    private UI createUI(Label content) {
+        return createUI(content, null);
+    }
+
+    private UI createUI(Label content, String embedId) {
+        UI ui = new MockUI(session);
+        ui.doInit(Mockito.mock(VaadinRequest.class), session.getNextUIid(),
+                embedId);
+        ui.setContent(content);
+        session.addUI(ui);
+        return ui;
+    }
+
+    private static Label getLabel(VaadinSession loaded, UI ui) {
+        return (Label) loaded.getUIById(ui.getUIId()).getContent();
+    }
+
+    private void markResponseWritten() {
+        ui1.getConnectorTracker().markAllConnectorsClean();
+        ui2.getConnectorTracker().markAllConnectorsClean();
+    }
+
+    private VaadinRequest createRequest(String pathInfo) {
+        VaadinRequest request = Mockito.mock(VaadinRequest.class);
+        Mockito.when(request.getPathInfo()).thenReturn(pathInfo);
+        return request;
+    }
+
+    private void assertLoadedUI(VaadinRequest request, UI expected)
+            throws Exception {
+        persistence.save(SESSION_ID, session);
+
+        VaadinSession loaded = persistence.load(SESSION_ID, request);
+        loaded.getLockInstance().lock();
+        loadedSessions.add(loaded);
+
+        if (expected == null) {
+            Assert.assertTrue(loaded.getLoadedUIs().isEmpty());
+        } else {
+            Assert.assertEquals(1, loaded.getLoadedUIs().size());
+            Assert.assertEquals(expected.getUIId(),
+                    loaded.getLoadedUIs().iterator().next().getUIId());
+        }
+    }
+
+    private VaadinSession load(ShardedSessionPersistence persistence,
+            int uiId) throws Exception {
+        VaadinSession loaded = persistence.load(SESSION_ID, uiId);
+        loaded.getLockInstance().lock();
+        loadedSessions.add(loaded);
+        return loaded;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+public class VaadinServiceAccessExecutorTest {
+
+    private VaadinService service;
+    private VaadinSession session;
+    private final List<Runnable> executorTasks = new ArrayList<>();
+
+    @Before
+    public void setup() throws Exception {
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig());
+        service = servlet.getService();
+
+        Map<String, Object> attributes = new HashMap<>();
+        WrappedSession wrappedSession = Mockito.mock(WrappedSession.class);
+        Mockito.when(wrappedSession.getAttribute(Matchers.anyString()))
+                .then(invocation -> attributes
+                        .get(invocation.getArguments()[0]));
+        Mockito.doAnswer(invocation -> attributes.put(
+                (String) invocation.getArguments()[0],
+                invocation.getArguments()[1])).when(wrappedSession)
+                .setAttribute(Matchers.anyString(), Matchers.any());
+
+        session = new VaadinSession(service);
+        service.lockSession(wrappedSession);
+        try {
+            service.storeSession(session, wrappedSession);
+        } finally {
+            service.unlockSession(wrappedSession);
+        }
+    }
+
+    @Test
+    public void noExecutor_taskRunInCallingThread() {
+        List<String> log = new ArrayList<>();
+        session.access(() -> log.add("task"));
+
+        Assert.assertEquals(1, log.size());
+        Assert.assertEquals(1,
+                service.getAccessQueueMetrics().getQueuedTaskCount());
+        Assert.assertEquals(0,
+                service.getAccessQueueMetrics().getPendingTaskCount());
+    }
+
+    @Test
+    public void executor_tasksRunByOneExecutorTaskInOrder() {
+        service.setAccessExecutor(executorTasks::add);
+        List<String> log = new ArrayList<>();
+
+        session.access(() -> log.add("first"));
+        session.access(() -> log.add("second"));
+
+        Assert.assertTrue(log.isEmpty());
+        Assert.assertEquals(1, executorTasks.size());
+        Assert.assertEquals(2,
+                service.getAccessQueueMetrics().getPendingTaskCount());
+
+        executorTasks.remove(0).run();
+
+        Assert.assertEquals(2, log.size());
+        Assert.assertEquals("first", log.get(0));
+        Assert.assertEquals("second", log.get(1));
+        Assert.assertEquals(0,
+                service.getAccessQueueMetrics().getPendingTaskCount());
+
+        // A new executor task is scheduled once the previous one has run
+        session.access(() -> log.add("third"));
+        Assert.assertEquals(1, executorTasks.size());
+    }
+
+    @Test
+    public void executor_lockedByCurrentThread_runOnUnlock() {
+        service.setAccessExecutor(executorTasks::add);
+        List<String> log = new ArrayList<>();
+
+        session.lock();
+        try {
+            session.access(() -> log.add("task"));
+            Assert.assertTrue(executorTasks.isEmpty());
+            Assert.assertTrue(log.isEmpty());
+        } finally {
+            session.unlock();
+        }
+
+        Assert.assertEquals(1, log.size());
+        Assert.assertTrue(executorTasks.isEmpty());
+    }
+
+    @Test
+    public void contendedLock_lockWaitRecorded() throws Exception {
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            session.lock();
+            try {
+                locked.countDown();
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                session.unlock();
+            }
+        });
+        thread.start();
+        Assert.assertTrue(locked.await(5, TimeUnit.SECONDS));
+
+        new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            release.countDown();
+        }).start();
+
+        session.lock();
+        session.unlock();
+        thread.join();
+
+        AccessQueueMetrics metrics = service.getAccessQueueMetrics();
+        Assert.assertEquals(1, metrics.getLockWaitCount());
+        Assert.assertTrue(metrics.getMaxLockWaitNanos() > 0);
+        Assert.assertEquals(metrics.getMaxLockWaitNanos(),
+                metrics.getTotalLockWaitNanos());
+    }
+}
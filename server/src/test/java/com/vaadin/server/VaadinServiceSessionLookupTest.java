@@ -0,0 +1,253 @@
+package com.vaadin.server;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import com.vaadin.server.communication.HeartbeatHandler;
+import com.vaadin.shared.ApplicationConstants;
+import com.vaadin.shared.ui.ui.UIConstants;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.UI;
+import com.vaadin.util.CurrentInstance;
+
+public class VaadinServiceSessionLookupTest {
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicInteger loadSessionCalls = new AtomicInteger();
+
+    private VaadinService service;
+    private WrappedSession wrappedSession;
+    private VaadinSession session;
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        while (session != null && session.hasLock()) {
+            session.unlock();
+        }
+        CurrentInstance.clearAll();
+    }
+
+    @Test
+    public void heartbeat_completesWhileSessionLockedByOtherThread()
+            throws Exception {
+        createSession(false);
+        UI ui = createUI();
+        ui.setLastHeartbeatTimestamp(0);
+
+        VaadinRequest request = createRequest(
+                "/" + ApplicationConstants.HEARTBEAT_PATH + "/");
+        Mockito.when(request.getParameter(UIConstants.UI_ID_PARAMETER))
+                .thenReturn(String.valueOf(ui.getUIId()));
+        VaadinResponse response = Mockito.mock(VaadinResponse.class);
+
+        session.lock();
+        Future<Boolean> heartbeat = executor.submit(() -> {
+            VaadinSession found = service.findVaadinSession(request);
+            Assert.assertSame(session, found);
+            return new HeartbeatHandler().handleRequest(found, request,
+                    response);
+        });
+
+        Assert.assertTrue(heartbeat.get(5, TimeUnit.SECONDS));
+        Assert.assertTrue(session.hasLock());
+        Assert.assertEquals("Lookup should use the loadSession hook", 1,
+                loadSessionCalls.get());
+        Assert.assertNotEquals(0, ui.getLastHeartbeatTimestamp());
+        Mockito.verify(response, Mockito.never())
+                .sendError(Matchers.anyInt(), Matchers.anyString());
+    }
+
+    @Test
+    public void heartbeat_handledByServiceWithoutTakingSessionLock()
+            throws Exception {
+        createSession(false);
+        UI ui = createUI();
+        ui.setLastHeartbeatTimestamp(0);
+
+        VaadinRequest request = createRequest(
+                "/" + ApplicationConstants.HEARTBEAT_PATH + "/");
+        Mockito.when(request.getParameter(UIConstants.UI_ID_PARAMETER))
+                .thenReturn(String.valueOf(ui.getUIId()));
+        VaadinResponse response = Mockito.mock(VaadinResponse.class);
+
+        // Any attempt to take the lock would block until the timeout
+        session.lock();
+        Future<?> heartbeat = executor.submit(() -> {
+            service.handleRequest(request, response);
+            return null;
+        });
+
+        heartbeat.get(5, TimeUnit.SECONDS);
+        Assert.assertTrue(session.hasLock());
+        Assert.assertNotEquals(0, ui.getLastHeartbeatTimestamp());
+        Mockito.verify(response, Mockito.never())
+                .sendError(Matchers.anyInt(), Matchers.anyString());
+    }
+
+    @Test
+    public void uidlRequest_waitsForSessionLock() throws Exception {
+        createSession(false);
+        VaadinRequest request = createRequest(
+                "/" + ApplicationConstants.UIDL_PATH + "/");
+
+        session.lock();
+        Future<VaadinSession> lookup = executor
+                .submit(() -> service.findVaadinSession(request));
+        try {
+            Thread.sleep(100);
+            Assert.assertFalse(lookup.isDone());
+        } finally {
+            session.unlock();
+        }
+
+        Assert.assertSame(session, lookup.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void readWriteLock_readOnlyRequestsRunConcurrentlyWithWriter()
+            throws Exception {
+        createSession(true);
+        CountDownLatch readersLocked = new CountDownLatch(2);
+        CountDownLatch releaseReaders = new CountDownLatch(1);
+        CountDownLatch writerFound = new CountDownLatch(1);
+        CountDownLatch writerLocked = new CountDownLatch(1);
+
+        for (int i = 0; i < 2; i++) {
+            VaadinRequest request = createRequest("/APP/connector/0/1/file");
+            executor.submit(() -> {
+                VaadinSession found = service.findVaadinSession(request);
+                found.lockRead();
+                try {
+                    readersLocked.countDown();
+                    releaseReaders.await();
+                } finally {
+                    found.unlockRead();
+                }
+                return null;
+            });
+        }
+        Assert.assertTrue("Read-only requests should not wait for each other",
+                readersLocked.await(5, TimeUnit.SECONDS));
+
+        VaadinRequest writeRequest = createRequest(
+                "/" + ApplicationConstants.UIDL_PATH + "/");
+        executor.submit(() -> {
+            VaadinSession found = service.findVaadinSession(writeRequest);
+            writerFound.countDown();
+            found.lock();
+            try {
+                writerLocked.countDown();
+            } finally {
+                found.unlock();
+            }
+            return null;
+        });
+
+        Assert.assertTrue(writerFound.await(5, TimeUnit.SECONDS));
+        Assert.assertFalse("Writer should wait for the readers",
+                writerLocked.await(100, TimeUnit.MILLISECONDS));
+
+        releaseReaders.countDown();
+        Assert.assertTrue(writerLocked.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void readWriteLock_lookupWaitsForActiveWriter() throws Exception {
+        createSession(true);
+        VaadinRequest request = createRequest("/APP/connector/0/1/file");
+
+        session.lock();
+        Future<VaadinSession> lookup = executor
+                .submit(() -> service.findVaadinSession(request));
+        try {
+            Thread.sleep(100);
+            Assert.assertFalse(lookup.isDone());
+        } finally {
+            session.unlock();
+        }
+
+        Assert.assertSame(session, lookup.get(5, TimeUnit.SECONDS));
+    }
+
+    private void createSession(boolean readWriteLock) throws Exception {
+        Properties initParameters = new Properties();
+        initParameters.setProperty(
+                Constants.SERVLET_PARAMETER_READ_WRITE_SESSION_LOCK,
+                Boolean.toString(readWriteLock));
+        VaadinServlet servlet = new VaadinServlet() {
+            @Override
+            protected VaadinServletService createServletService(
+                    DeploymentConfiguration deploymentConfiguration)
+                    throws ServiceException {
+                VaadinServletService service = new VaadinServletService(this,
+                        deploymentConfiguration) {
+                    @Override
+                    protected VaadinSession loadSession(
+                            WrappedSession wrappedSession) {
+                        loadSessionCalls.incrementAndGet();
+                        return super.loadSession(wrappedSession);
+                    }
+                };
+                service.init();
+                return service;
+            }
+        };
+        servlet.init(new MockServletConfig(initParameters));
+        service = servlet.getService();
+
+        Map<String, Object> attributes = new HashMap<>();
+        wrappedSession = Mockito.mock(WrappedSession.class);
+        Mockito.when(wrappedSession.getAttribute(Matchers.anyString()))
+                .then(invocation -> attributes
+                        .get(invocation.getArguments()[0]));
+        Mockito.doAnswer(invocation -> attributes.put(
+                (String) invocation.getArguments()[0],
+                invocation.getArguments()[1])).when(wrappedSession)
+                .setAttribute(Matchers.anyString(), Matchers.any());
+
+        session = new VaadinSession(service);
+        service.lockSession(wrappedSession);
+        try {
+            service.storeSession(session, wrappedSession);
+        } finally {
+            service.unlockSession(wrappedSession);
+        }
+    }
+
+    private UI createUI() {
+        session.lock();
+        try {
+            UI ui = new MockUI(session);
+            ui.doInit(Mockito.mock(VaadinRequest.class),
+                    session.getNextUIid(), null);
+            session.addUI(ui);
+            return ui;
+        } finally {
+            session.unlock();
+        }
+    }
+
+    private VaadinRequest createRequest(String pathInfo) {
+        VaadinRequest request = Mockito.mock(VaadinRequest.class);
+        Mockito.when(request.getPathInfo()).thenReturn(pathInfo);
+        Mockito.when(request.getService()).thenReturn(service);
+        Mockito.when(request.getWrappedSession()).thenReturn(wrappedSession);
+        Mockito.when(request.getWrappedSession(Matchers.anyBoolean()))
+                .thenReturn(wrappedSession);
+        return request;
+    }
+}
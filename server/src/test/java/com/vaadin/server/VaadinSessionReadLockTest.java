@@ -0,0 +1,178 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+public class VaadinSessionReadLockTest {
+
+    private VaadinSession session;
+
+    @After
+    public void tearDown() {
+        while (session != null && session.hasLock()) {
+            session.unlock();
+        }
+    }
+
+    @Test
+    public void readWriteLockDisabled_readLockIsExclusive() throws Exception {
+        session = createSession(false);
+
+        session.lockRead();
+        try {
+            Assert.assertTrue(session.hasLock());
+            Assert.assertTrue(session.hasReadLock());
+            Assert.assertFalse(lockReadInOtherThread());
+        } finally {
+            session.unlockRead();
+        }
+        Assert.assertFalse(session.hasReadLock());
+    }
+
+    @Test
+    public void readWriteLockEnabled_readersRunConcurrently()
+            throws Exception {
+        session = createSession(true);
+
+        session.lockRead();
+        try {
+            Assert.assertFalse(session.hasLock());
+            Assert.assertTrue(session.hasReadLock());
+            Assert.assertTrue(lockReadInOtherThread());
+            Assert.assertFalse(lockInOtherThread());
+        } finally {
+            session.unlockRead();
+        }
+        Assert.assertFalse(session.hasReadLock());
+        Assert.assertTrue(lockInOtherThread());
+    }
+
+    @Test
+    public void readWriteLockEnabled_lockExcludesReaders() throws Exception {
+        session = createSession(true);
+
+        session.lock();
+        try {
+            Assert.assertTrue(session.hasReadLock());
+            Assert.assertFalse(lockReadInOtherThread());
+
+            // Read lock can be acquired while holding the lock
+            session.lockRead();
+            session.unlockRead();
+        } finally {
+            session.unlock();
+        }
+        Assert.assertTrue(lockReadInOtherThread());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void readWriteLockEnabled_lockWhileHoldingReadLock_throws()
+            throws Exception {
+        session = createSession(true);
+
+        session.lockRead();
+        try {
+            session.lock();
+        } finally {
+            session.unlockRead();
+        }
+    }
+
+    @Test
+    public void readWriteLockEnabled_accessTaskRunAfterReadLockReleased()
+            throws Exception {
+        session = createSession(true);
+        AtomicBoolean run = new AtomicBoolean();
+
+        session.lockRead();
+        try {
+            session.access(() -> run.set(true));
+            Assert.assertFalse(run.get());
+        } finally {
+            session.unlockRead();
+        }
+        Assert.assertTrue(run.get());
+    }
+
+    private boolean lockReadInOtherThread() throws InterruptedException {
+        return tryInOtherThread(true);
+    }
+
+    private boolean lockInOtherThread() throws InterruptedException {
+        return tryInOtherThread(false);
+    }
+
+    private boolean tryInOtherThread(boolean read)
+            throws InterruptedException {
+        CountDownLatch locked = new CountDownLatch(1);
+        Thread thread = new Thread(() -> {
+            if (read) {
+                session.lockRead();
+                locked.countDown();
+                session.unlockRead();
+            } else {
+                session.lock();
+                locked.countDown();
+                session.unlock();
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return locked.await(200, TimeUnit.MILLISECONDS);
+    }
+
+    private static VaadinSession createSession(boolean readWriteLock)
+            throws Exception {
+        Properties initParameters = new Properties();
+        initParameters.setProperty(
+                Constants.SERVLET_PARAMETER_READ_WRITE_SESSION_LOCK,
+                Boolean.toString(readWriteLock));
+        VaadinServlet servlet = new VaadinServlet();
+        servlet.init(new MockServletConfig(initParameters));
+        VaadinService service = servlet.getService();
+
+        Map<String, Object> attributes = new HashMap<>();
+        WrappedSession wrappedSession = Mockito.mock(WrappedSession.class);
+        Mockito.when(wrappedSession.getAttribute(Matchers.anyString()))
+                .then(invocation -> attributes
+                        .get(invocation.getArguments()[0]));
+        Mockito.doAnswer(invocation -> attributes.put(
+                (String) invocation.getArguments()[0],
+                invocation.getArguments()[1])).when(wrappedSession)
+                .setAttribute(Matchers.anyString(), Matchers.any());
+
+        VaadinSession session = new VaadinSession(service);
+        service.lockSession(wrappedSession);
+        try {
+            service.storeSession(session, wrappedSession);
+        } finally {
+            service.unlockSession(wrappedSession);
+        }
+        return session;
+    }
+}
@@ -120,6 +120,11 @@ public class VaadinSessionTest implements Serializable {
                 return "POST";
             }
 
+            @Override
+            public String getPathInfo() {
+                return null;
+            }
+
             @Override
             public WrappedSession getWrappedSession(
                     boolean allowSessionCreation) {
@@ -0,0 +1,160 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.communication;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.server.ClientConnector;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.ConnectorTracker;
+import com.vaadin.ui.CssLayout;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+
+import elemental.json.Json;
+import elemental.json.JsonObject;
+
+public class ConnectorHierarchyWriterTest {
+
+    private UI ui;
+    private CssLayout layout;
+    private Label label;
+    private ConnectorTracker tracker;
+
+    @Before
+    public void setup() {
+        ui = new MockUI();
+        layout = new CssLayout();
+        label = new Label();
+        layout.addComponent(label);
+        ui.setContent(layout);
+        tracker = ui.getConnectorTracker();
+    }
+
+    @Test
+    public void initialWrite_allDirtyConnectorsIncluded() throws IOException {
+        JsonObject hierarchy = writeHierarchy(Collections.emptySet());
+
+        Assert.assertEquals(3, hierarchy.keys().length);
+        assertChildren(hierarchy, ui, layout);
+        assertChildren(hierarchy, layout, label);
+        assertChildren(hierarchy, label);
+    }
+
+    @Test
+    public void unchangedChildren_omitted() throws IOException {
+        writeHierarchy(Collections.emptySet());
+        endResponse();
+
+        layout.markAsDirty();
+        label.markAsDirty();
+
+        Assert.assertEquals(0,
+                writeHierarchy(Collections.emptySet()).keys().length);
+    }
+
+    @Test
+    public void changedChildren_included() throws IOException {
+        writeHierarchy(Collections.emptySet());
+        endResponse();
+
+        Label newLabel = new Label();
+        layout.addComponent(newLabel);
+
+        JsonObject hierarchy = writeHierarchy(Collections.emptySet());
+        Assert.assertEquals(2, hierarchy.keys().length);
+        assertChildren(hierarchy, layout, label, newLabel);
+        assertChildren(hierarchy, newLabel);
+        endResponse();
+
+        layout.removeComponent(label);
+
+        hierarchy = writeHierarchy(Collections.emptySet());
+        Assert.assertEquals(1, hierarchy.keys().length);
+        assertChildren(hierarchy, layout, newLabel);
+    }
+
+    @Test
+    public void stateChanges_includedIfChildren() throws IOException {
+        writeHierarchy(Collections.emptySet());
+        endResponse();
+
+        layout.markAsDirty();
+        label.markAsDirty();
+
+        // Client assumes no children for connectors with state changes but
+        // without hierarchy information
+        JsonObject hierarchy = writeHierarchy(
+                set(layout.getConnectorId(), label.getConnectorId()));
+        Assert.assertEquals(1, hierarchy.keys().length);
+        assertChildren(hierarchy, layout, label);
+    }
+
+    @Test
+    public void allClientSidesUninitialized_allIncluded() throws IOException {
+        writeHierarchy(Collections.emptySet());
+        endResponse();
+
+        tracker.markAllClientSidesUninitialized();
+        tracker.markAllConnectorsDirty();
+
+        Assert.assertEquals(3,
+                writeHierarchy(Collections.emptySet()).keys().length);
+    }
+
+    private JsonObject writeHierarchy(Set<String> stateUpdateConnectors)
+            throws IOException {
+        StringWriter writer = new StringWriter();
+        new ConnectorHierarchyWriter().write(ui, writer,
+                stateUpdateConnectors);
+        return Json.parse(writer.toString());
+    }
+
+    private void endResponse() {
+        for (ClientConnector connector : tracker.getDirtyConnectors()) {
+            tracker.markClientSideInitialized(connector);
+        }
+        tracker.markAllConnectorsClean();
+    }
+
+    private static Set<String> set(String... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+
+    private static void assertChildren(JsonObject hierarchy,
+            ClientConnector parent, ClientConnector... children) {
+        String[] childIds = new String[children.length];
+        for (int i = 0; i < children.length; i++) {
+            childIds[i] = children[i].getConnectorId();
+        }
+        String[] sentIds = new String[hierarchy
+                .getArray(parent.getConnectorId()).length()];
+        for (int i = 0; i < sentIds.length; i++) {
+            sentIds[i] = hierarchy.getArray(parent.getConnectorId())
+                    .getString(i);
+        }
+        Assert.assertArrayEquals(childIds, sentIds);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.communication;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+import org.mockito.Mockito;
+
+import com.vaadin.server.ClientConnector;
+import com.vaadin.server.PaintTarget;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.ConnectorTracker;
+import com.vaadin.ui.CssLayout;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.UI;
+
+import elemental.json.Json;
+import elemental.json.JsonObject;
+
+public class ConnectorTypeWriterTest {
+
+    private UI ui;
+    private CssLayout layout;
+    private ConnectorTracker tracker;
+    private PaintTarget target;
+
+    @Before
+    public void setup() {
+        ui = new MockUI();
+        layout = new CssLayout();
+        layout.addComponent(new Label());
+        ui.setContent(layout);
+        tracker = ui.getConnectorTracker();
+
+        target = Mockito.mock(PaintTarget.class);
+        Mockito.when(target.getTag(Matchers.any(ClientConnector.class)))
+                .thenReturn("1");
+    }
+
+    @Test
+    public void newConnectors_typesWritten() throws IOException {
+        Assert.assertEquals(3, writeTypes().keys().length);
+    }
+
+    @Test
+    public void initializedConnectors_typesNotWritten() throws IOException {
+        writeTypes();
+        endResponse();
+
+        Label label = new Label();
+        layout.addComponent(label);
+
+        JsonObject types = writeTypes();
+        Assert.assertArrayEquals(new String[] { label.getConnectorId() },
+                types.keys());
+    }
+
+    @Test
+    public void allClientSidesUninitialized_allTypesWritten()
+            throws IOException {
+        writeTypes();
+        endResponse();
+
+        tracker.markAllClientSidesUninitialized();
+        tracker.markAllConnectorsDirty();
+
+        Assert.assertEquals(3, writeTypes().keys().length);
+    }
+
+    private JsonObject writeTypes() throws IOException {
+        StringWriter writer = new StringWriter();
+        new ConnectorTypeWriter().write(ui, writer, target);
+        return Json.parse(writer.toString());
+    }
+
+    private void endResponse() {
+        for (ClientConnector connector : tracker.getDirtyConnectors()) {
+            tracker.markClientSideInitialized(connector);
+        }
+        tracker.markAllConnectorsClean();
+    }
+}
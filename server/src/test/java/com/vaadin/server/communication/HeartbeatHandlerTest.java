@@ -0,0 +1,86 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.communication;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.server.VaadinResponse;
+import com.vaadin.server.VaadinSession;
+import com.vaadin.shared.ApplicationConstants;
+import com.vaadin.shared.ui.ui.UIConstants;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.UI;
+
+public class HeartbeatHandlerTest {
+
+    private VaadinSession session;
+    private VaadinRequest request;
+    private VaadinResponse response;
+    private UI ui;
+    private final HeartbeatHandler handler = new HeartbeatHandler();
+
+    @Before
+    public void setup() {
+        session = Mockito.mock(VaadinSession.class);
+        request = Mockito.mock(VaadinRequest.class);
+        response = Mockito.mock(VaadinResponse.class);
+        ui = new MockUI();
+
+        Mockito.when(request.getPathInfo())
+                .thenReturn("/" + ApplicationConstants.HEARTBEAT_PATH + "/");
+        Mockito.when(session.getUIById(1)).thenReturn(ui);
+    }
+
+    @Test
+    public void heartbeat_timestampUpdatedWithoutLocking() throws IOException {
+        Mockito.when(request.getParameter(UIConstants.UI_ID_PARAMETER))
+                .thenReturn("1");
+        ui.setLastHeartbeatTimestamp(0);
+
+        Assert.assertTrue(handler.handleRequest(session, request, response));
+
+        Assert.assertNotEquals(0, ui.getLastHeartbeatTimestamp());
+        Mockito.verify(session, Mockito.never()).lock();
+    }
+
+    @Test
+    public void unknownUI_notFound() throws IOException {
+        Mockito.when(request.getParameter(UIConstants.UI_ID_PARAMETER))
+                .thenReturn("2");
+
+        Assert.assertTrue(handler.handleRequest(session, request, response));
+
+        Mockito.verify(response).sendError(
+                Mockito.eq(HttpServletResponse.SC_NOT_FOUND),
+                Mockito.anyString());
+        Mockito.verify(session, Mockito.never()).lock();
+    }
+
+    @Test
+    public void notHeartbeatRequest_notHandled() throws IOException {
+        Mockito.when(request.getPathInfo()).thenReturn("/UIDL/");
+
+        Assert.assertFalse(handler.handleRequest(session, request, response));
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.communication;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonException;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+import elemental.json.impl.JsonUtil;
+
+public class JsonStreamReaderTest {
+
+    @Test
+    public void structure_sameAsParse() throws IOException {
+        String json = " {\"id\" : \"1\", \"children\":[\"2\", 3.5, -1e2],"
+                + "\"quoted\":\"a \\\"b\\\"\\n\\u00e4\\/\","
+                + "\"flags\":[true,false,null],\"empty\":{}, \"none\":[]}\n";
+
+        JsonObject expected = Json.createObject();
+        expected.put("id", "1");
+        JsonArray children = Json.createArray();
+        children.set(0, "2");
+        children.set(1, 3.5);
+        children.set(2, -100);
+        expected.put("children", children);
+        expected.put("quoted", "a \"b\"\n\u00e4/");
+        JsonArray flags = Json.createArray();
+        flags.set(0, true);
+        flags.set(1, false);
+        flags.set(2, Json.createNull());
+        expected.put("flags", flags);
+        expected.put("empty", Json.createObject());
+        expected.put("none", Json.createArray());
+
+        JsonStreamReader reader = read(json, -1);
+        JsonValue value = reader.read();
+
+        Assert.assertEquals(JsonUtil.stringify(expected),
+                JsonUtil.stringify(value));
+        Assert.assertFalse(reader.hasNext());
+        Assert.assertNull(reader.read());
+    }
+
+    @Test
+    public void stringLongerThanBuffer_readCompletely() throws IOException {
+        StringBuilder value = new StringBuilder();
+        for (int i = 0; i < 5000; i++) {
+            value.append("text\"\\");
+        }
+
+        JsonValue read = read(JsonUtil.quote(value.toString()), -1).read();
+
+        Assert.assertEquals(value.toString(), read.asString());
+    }
+
+    @Test
+    public void consecutiveValues_readOneByOne() throws IOException {
+        JsonStreamReader reader = read("1 \"two\" [3]", -1);
+
+        Assert.assertEquals(1, reader.read().asNumber(), 0);
+        Assert.assertEquals("two", reader.read().asString());
+        Assert.assertTrue(reader.hasNext());
+        Assert.assertEquals("[3]", JsonUtil.stringify(reader.read()));
+        Assert.assertFalse(reader.hasNext());
+    }
+
+    @Test
+    public void emptyInput_nothingRead() throws IOException {
+        Assert.assertNull(read("  \n", -1).read());
+    }
+
+    @Test
+    public void inputWithinMaxLength_read() throws IOException {
+        Assert.assertEquals("[1,2]",
+                JsonUtil.stringify(read("[1,2]", 5).read()));
+    }
+
+    @Test(expected = JsonException.class)
+    public void inputExceedsMaxLength_rejected() throws IOException {
+        read("[1,2,3]", 5).read();
+    }
+
+    @Test(expected = JsonException.class)
+    public void unterminatedString_rejected() throws IOException {
+        read("[\"abc", -1).read();
+    }
+
+    @Test(expected = JsonException.class)
+    public void missingSeparator_rejected() throws IOException {
+        read("{\"a\":1 \"b\":2}", -1).read();
+    }
+
+    @Test(expected = JsonException.class)
+    public void invalidLiteral_rejected() throws IOException {
+        read("[nul]", -1).read();
+    }
+
+    private static JsonStreamReader read(String json, long maxLength) {
+        return new JsonStreamReader(new StringReader(json), maxLength);
+    }
+}
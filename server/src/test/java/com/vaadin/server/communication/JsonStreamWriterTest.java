@@ -0,0 +1,120 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.server.communication;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+import elemental.json.JsonObject;
+import elemental.json.JsonValue;
+import elemental.json.impl.JsonUtil;
+
+public class JsonStreamWriterTest {
+
+    private StringWriter writer;
+    private JsonStreamWriter json;
+
+    @Before
+    public void setup() {
+        writer = new StringWriter();
+        json = new JsonStreamWriter(writer);
+    }
+
+    @Test
+    public void emptyObjectAndArray() throws IOException {
+        json.beginArray().beginObject().endObject().beginArray().endArray()
+                .endArray();
+        Assert.assertEquals("[{},[]]", writer.toString());
+    }
+
+    @Test
+    public void streamedStructure_sameAsStringify() throws IOException {
+        json.beginObject();
+        json.name("id").value("1");
+        json.name("children").beginArray().value("2").value("3").endArray();
+        json.name("quoted").value("a \"b\"\n");
+        json.name("nothing").value((String) null);
+        json.endObject();
+
+        JsonObject expected = Json.createObject();
+        expected.put("id", "1");
+        JsonArray children = Json.createArray();
+        children.set(0, "2");
+        children.set(1, "3");
+        expected.put("children", children);
+        expected.put("quoted", "a \"b\"\n");
+        expected.put("nothing", Json.createNull());
+
+        Assert.assertEquals(JsonUtil.stringify(expected), writer.toString());
+    }
+
+    @Test
+    public void jsonValue_sameAsStringify() throws IOException {
+        JsonObject state = Json.createObject();
+        state.put("caption", "Hello");
+        state.put("width", 100.5);
+        state.put("height", 42);
+        state.put("enabled", false);
+        state.put("styles", Json.createArray());
+        JsonObject nested = Json.createObject();
+        JsonArray values = Json.createArray();
+        values.set(0, 1);
+        values.set(1, "two");
+        values.set(2, true);
+        values.set(3, Json.createNull());
+        values.set(4, Json.createObject());
+        nested.put("values", values);
+        state.put("nested", nested);
+
+        assertStreamedAsStringified(state);
+        assertStreamedAsStringified(values);
+        assertStreamedAsStringified(Json.create(" "));
+        assertStreamedAsStringified(Json.create(-3));
+    }
+
+    @Test
+    public void reset_writesNewTopLevelValue() throws IOException {
+        json.beginArray().value("a");
+
+        StringWriter other = new StringWriter();
+        json.reset(other).beginArray().value("b").endArray();
+
+        Assert.assertEquals("[\"b\"]", other.toString());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void nameOutsideObject_throws() throws IOException {
+        json.name("foo");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void closeWithoutOpen_throws() throws IOException {
+        json.endObject();
+    }
+
+    private void assertStreamedAsStringified(JsonValue value)
+            throws IOException {
+        StringWriter out = new StringWriter();
+        json.reset(out).value(value);
+        Assert.assertEquals(JsonUtil.stringify(value), out.toString());
+    }
+}
@@ -1,15 +1,24 @@
 package com.vaadin.server.communication;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+
+import org.junit.Assert;
 import org.junit.Test;
 import org.mockito.Mockito;
 
+import com.vaadin.server.Constants;
 import com.vaadin.server.VaadinRequest;
 import com.vaadin.server.VaadinService;
 import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.tests.util.MockDeploymentConfiguration;
 import com.vaadin.ui.UI;
 
 import elemental.json.Json;
 import elemental.json.JsonArray;
+import elemental.json.JsonException;
+import elemental.json.JsonObject;
 
 public class ServerRpcHandlerTest {
 
@@ -46,4 +55,65 @@ public class ServerRpcHandlerTest {
         // This only tests that an invocation for a non-existant connector does
         // not cause any exceptions
     }
+
+    @Test
+    public void readMessage_parsedFromReader() throws IOException {
+        JsonObject message = new ServerRpcHandler().readMessage(
+                new StringReader("{\"rpc\":[],\"syncId\":1}"),
+                createRequest(null));
+
+        Assert.assertEquals(0, message.getArray("rpc").length());
+        Assert.assertEquals(1, message.getNumber("syncId"), 0);
+    }
+
+    @Test
+    public void readMessage_emptyMessageIgnored() throws IOException {
+        Assert.assertNull(new ServerRpcHandler()
+                .readMessage(new StringReader(""), createRequest(null)));
+    }
+
+    @Test(expected = JsonException.class)
+    public void readMessage_tooLongMessageRejected() throws IOException {
+        new ServerRpcHandler().readMessage(
+                new StringReader("{\"rpc\":[],\"syncId\":1}"),
+                createRequest("10"));
+    }
+
+    @Test(expected = JsonException.class)
+    public void readMessage_trailingContentRejected() throws IOException {
+        new ServerRpcHandler().readMessage(new StringReader("{} {}"),
+                createRequest(null));
+    }
+
+    @Test
+    public void readMessage_overriddenGetMessageUsed() throws IOException {
+        ServerRpcHandler rpcHandler = new ServerRpcHandler() {
+            @Override
+            @SuppressWarnings("deprecation")
+            protected String getMessage(Reader reader) throws IOException {
+                // e.g. decode the message
+                return super.getMessage(reader).replace('\'', '"');
+            }
+        };
+
+        JsonObject message = rpcHandler.readMessage(
+                new StringReader("{'syncId':1}"), createRequest(null));
+
+        Assert.assertEquals(1, message.getNumber("syncId"), 0);
+    }
+
+    private static VaadinRequest createRequest(String maxMessageLength) {
+        MockDeploymentConfiguration configuration = new MockDeploymentConfiguration();
+        if (maxMessageLength != null) {
+            configuration.setApplicationOrSystemProperty(
+                    Constants.SERVLET_PARAMETER_MAX_RPC_MESSAGE_LENGTH,
+                    maxMessageLength);
+        }
+        VaadinService service = Mockito.mock(VaadinService.class);
+        Mockito.when(service.getDeploymentConfiguration())
+                .thenReturn(configuration);
+        VaadinRequest request = Mockito.mock(VaadinRequest.class);
+        Mockito.when(request.getService()).thenReturn(service);
+        return request;
+    }
 }
@@ -0,0 +1,150 @@
+package com.vaadin.tests.components.grid;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.server.VaadinSession;
+import com.vaadin.shared.data.DataRequestRpc;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.ComponentTest;
+import com.vaadin.ui.Grid;
+import com.vaadin.ui.Grid.Column;
+import com.vaadin.ui.Label;
+import com.vaadin.ui.renderers.RecyclingComponentRenderer;
+
+import elemental.json.Json;
+import elemental.json.JsonArray;
+
+/**
+ * Test to validate component recycling in Grid with
+ * RecyclingComponentRenderer.
+ */
+public class GridRecyclingComponentRendererTest {
+
+    private Grid<String> grid;
+    private List<String> items;
+    private List<Label> createdComponents;
+    private RecyclingComponentRenderer<String, Label> renderer;
+    private Column<String, String> column;
+    private DataRequestRpc rpc;
+
+    @Before
+    public void setUp() {
+        VaadinSession.setCurrent(new AlwaysLockedVaadinSession(null));
+        items = IntStream.range(0, 100).mapToObj(i -> "Item " + i)
+                .collect(Collectors.toList());
+        createdComponents = new ArrayList<>();
+        renderer = new RecyclingComponentRenderer<>(() -> {
+            Label label = new Label();
+            createdComponents.add(label);
+            return label;
+        }, Label::setValue);
+
+        grid = new Grid<>();
+        grid.setItems(items);
+        column = grid.addColumn(s -> s, renderer);
+        new MockUI() {
+            @Override
+            public Future<Void> access(Runnable runnable) {
+                runnable.run();
+                return null;
+            };
+        }.setContent(grid);
+        rpc = ComponentTest.getRpcProxy(grid.getDataCommunicator(),
+                DataRequestRpc.class);
+
+        grid.getDataCommunicator().beforeClientResponse(true);
+    }
+
+    @Test
+    public void initialRows_componentsCreatedAndAttached() {
+        Assert.assertFalse(createdComponents.isEmpty());
+        for (Label label : createdComponents) {
+            Assert.assertEquals(grid, label.getParent());
+        }
+        Assert.assertEquals("Item 0", createdComponents.get(0).getValue());
+    }
+
+    @Test
+    public void encode_componentConnectorIdOrNull() {
+        Label label = createdComponents.get(0);
+        RecyclingComponentRenderer<Object, Label> componentValues = new RecyclingComponentRenderer<>(
+                Label::new, (component, value) -> {
+                });
+
+        Assert.assertEquals(label.getConnectorId(),
+                componentValues.encode(label).asString());
+        Assert.assertNull(renderer.encode("Item 0"));
+        Assert.assertNull(renderer.encode(null));
+    }
+
+    @Test
+    public void droppedRows_componentsReused() {
+        int created = createdComponents.size();
+        dropRows(0, 10);
+
+        rpc.requestRows(50, 10, 0, 0);
+        grid.getDataCommunicator().beforeClientResponse(false);
+
+        Assert.assertEquals("No new components should have been created",
+                created, createdComponents.size());
+        List<String> values = createdComponents.subList(0, 10).stream()
+                .map(Label::getValue).sorted().collect(Collectors.toList());
+        Assert.assertEquals(items.subList(50, 60).stream().sorted()
+                .collect(Collectors.toList()), values);
+        for (Label label : createdComponents) {
+            Assert.assertEquals("Recycled component should stay attached",
+                    grid, label.getParent());
+        }
+    }
+
+    @Test
+    public void fullPool_componentsDetached() {
+        renderer.setMaxPoolSize(5);
+        dropRows(0, 10);
+
+        long attached = createdComponents.subList(0, 10).stream()
+                .filter(label -> label.getParent() == grid).count();
+        Assert.assertEquals(5, attached);
+    }
+
+    @Test
+    public void setItems_pooledComponentsDetached() {
+        dropRows(0, 10);
+        grid.setItems("foo");
+
+        for (Label label : createdComponents) {
+            Assert.assertNull(label.getParent());
+        }
+    }
+
+    @Test
+    public void removeColumn_pooledComponentsDetached() {
+        dropRows(0, 10);
+        grid.removeColumn(column);
+
+        for (Label label : createdComponents) {
+            Assert.assertNull(label.getParent());
+        }
+    }
+
+    private void dropRows(int first, int count) {
+        JsonArray keys = Json.createArray();
+        for (int i = 0; i < count; ++i) {
+            keys.set(i, grid.getDataCommunicator().getKeyMapper()
+                    .key(items.get(first + i)));
+        }
+        rpc.dropRows(keys);
+        // Dropped rows are cleaned up when the next row is pushed
+        rpc.requestRows(first + count, 1, 0, 0);
+        grid.getDataCommunicator().beforeClientResponse(false);
+    }
+}
@@ -15,10 +15,19 @@
  */
 package com.vaadin.tests.design.designroot;
 
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Test;
 
+import com.vaadin.ui.declarative.Design;
+
 public class DesignRootTest {
+
+    @After
+    public void disableDesignCache() {
+        Design.setDesignCacheEnabled(false);
+    }
+
     @Test
     public void designAnnotationWithoutFilename() {
         DesignWithEmptyAnnotation d = new DesignWithEmptyAnnotation();
@@ -51,4 +60,18 @@ public class DesignRootTest {
         Assert.assertEquals("original", d.preInitializedField.getValue());
     }
 
+    @Test
+    public void designAnnotationWithCache() {
+        Design.setDesignCacheEnabled(true);
+        DesignWithAnnotation first = new DesignWithAnnotation();
+        DesignWithAnnotation second = new DesignWithAnnotation();
+
+        Assert.assertNotSame(first.ok, second.ok);
+        Assert.assertEquals(first.getComponentCount(),
+                second.getComponentCount());
+        Assert.assertEquals("OK", second.ok.getCaption());
+        Assert.assertEquals("Cancel", second.cancel.getCaption());
+        Assert.assertEquals("original", second.preInitializedField.getValue());
+    }
+
 }
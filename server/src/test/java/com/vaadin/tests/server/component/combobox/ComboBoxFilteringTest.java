@@ -18,9 +18,11 @@ package com.vaadin.tests.server.component.combobox;
 import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
+import org.junit.After;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -30,10 +32,13 @@ import com.vaadin.data.provider.DataProvider;
 import com.vaadin.data.provider.ListDataProvider;
 import com.vaadin.server.ClientMethodInvocation;
 import com.vaadin.server.ServerRpcManager;
+import com.vaadin.server.VaadinSession;
 import com.vaadin.shared.ui.combobox.ComboBoxServerRpc;
 import com.vaadin.tests.data.bean.Address;
 import com.vaadin.tests.data.bean.Person;
 import com.vaadin.tests.data.bean.Sex;
+import com.vaadin.tests.util.AlwaysLockedVaadinSession;
+import com.vaadin.tests.util.MockUI;
 import com.vaadin.ui.ComboBox;
 
 /**
@@ -53,6 +58,11 @@ public class ComboBoxFilteringTest {
         comboBox.setLocale(Locale.US);
     }
 
+    @After
+    public void tearDown() {
+        VaadinSession.setCurrent(null);
+    }
+
     @Test
     public void setItems_array_defaultFiltering() {
         comboBox.setItemCaptionGenerator(Person::getFirstName);
@@ -207,6 +217,81 @@ public class ComboBoxFilteringTest {
                 comboBox.getDataProvider().getClass());
     }
 
+    @Test
+    public void captionIndex_setItems_defaultFiltering() {
+        comboBox.setCaptionIndexEnabled(true);
+        comboBox.setItemCaptionGenerator(Person::getFirstName);
+
+        comboBox.setItems(getPersonCollection());
+
+        checkFiltering("en", "ennen", 3, 2);
+        // Filters of at least three characters use the trigram index
+        checkFiltering("ENR", "enrx", 3, 2);
+        checkFiltering("rique", "erique", 3, 1);
+    }
+
+    @Test
+    public void captionIndex_setItemCaptionAfterItems() {
+        comboBox.setCaptionIndexEnabled(true);
+        comboBox.setItemCaptionGenerator(Person::getLastName);
+        comboBox.setItems(getPersonCollection());
+        checkFiltering("dun", "enr", 3, 1);
+
+        comboBox.setItemCaptionGenerator(Person::getFirstName);
+
+        checkFiltering("enr", "dun", 3, 2);
+    }
+
+    @Test
+    public void captionIndex_localeChange() {
+        comboBox.setCaptionIndexEnabled(true);
+        comboBox.setItemCaptionGenerator(Person::getFirstName);
+        comboBox.setItems(Stream.of("Istanbul", "Izmir")
+                .map(name -> new Person(name, "", null, 0, Sex.MALE, null))
+                .collect(Collectors.toList()));
+        checkFiltering("ist", "isx", 2, 1);
+
+        // Dotted and dotless i are different letters in Turkish
+        comboBox.setLocale(new Locale("tr", "TR"));
+
+        checkFiltering("\u0131st", "ist", 2, 1);
+    }
+
+    @Test
+    public void captionIndex_refreshAll() {
+        VaadinSession.setCurrent(new AlwaysLockedVaadinSession(null));
+        new MockUI() {
+            @Override
+            public Future<Void> access(Runnable runnable) {
+                runnable.run();
+                return null;
+            };
+        }.setContent(comboBox);
+
+        List<Person> persons = getPersonCollection();
+        ListDataProvider<Person> provider = DataProvider.ofCollection(persons);
+        comboBox.setCaptionIndexEnabled(true);
+        comboBox.setItemCaptionGenerator(Person::getFirstName);
+        comboBox.setDataProvider(provider);
+        checkFiltering("enr", "ennen", 3, 2);
+
+        persons.remove(0);
+        provider.refreshAll();
+
+        checkFiltering("enr", "ennen", 2, 1);
+    }
+
+    @Test
+    public void captionIndex_setListDataProvider_notWrapped() {
+        ListDataProvider<Person> provider = new ListDataProvider<>(
+                Collections.emptyList());
+        comboBox.setCaptionIndexEnabled(true);
+
+        comboBox.setDataProvider(provider);
+
+        Assert.assertSame(provider, comboBox.getDataProvider());
+    }
+
     private void checkFiltering(String filterText, String nonMatchingFilterText,
             int totalMatches, int matchingResults) {
         Assert.assertEquals(
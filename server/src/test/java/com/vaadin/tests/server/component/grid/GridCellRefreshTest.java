@@ -0,0 +1,116 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.tests.server.component.grid;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.server.ClientMethodInvocation;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.Grid;
+import com.vaadin.ui.Grid.Column;
+
+import elemental.json.JsonObject;
+
+public class GridCellRefreshTest {
+
+    private Grid<StringBuilder> grid;
+    private Column<StringBuilder, String> valueColumn;
+    private Column<StringBuilder, Integer> lengthColumn;
+    private StringBuilder first = new StringBuilder("a");
+    private StringBuilder second = new StringBuilder("bb");
+
+    @Before
+    public void setUp() {
+        grid = new Grid<>();
+        valueColumn = grid.addColumn(StringBuilder::toString);
+        lengthColumn = grid.addColumn(StringBuilder::length);
+        grid.setItems(first, second);
+        new MockUI().setContent(grid);
+
+        grid.getDataCommunicator().beforeClientResponse(true);
+        grid.beforeClientResponse(true);
+        grid.retrievePendingRpcCalls();
+    }
+
+    @Test
+    public void refreshCell_onlyCellSent() {
+        first.append("a");
+        grid.refreshCell(first, lengthColumn);
+        grid.beforeClientResponse(false);
+
+        List<ClientMethodInvocation> updates = getColumnDataUpdates();
+        Assert.assertEquals(1, updates.size());
+        JsonObject data = (JsonObject) updates.get(0).getParameters()[1];
+        Assert.assertEquals(1, data.keys().length);
+        JsonObject cellData = data.getObject(key(first)).getObject("d");
+        Assert.assertEquals(1, cellData.keys().length);
+        Assert.assertEquals("2",
+                cellData.getString(lengthColumn.getConnectorId()));
+    }
+
+    @Test
+    public void refreshCell_itemNotOnClient_nothingSent() {
+        grid.refreshCell(new StringBuilder("other"), lengthColumn);
+        grid.beforeClientResponse(false);
+
+        Assert.assertTrue(getColumnDataUpdates().isEmpty());
+    }
+
+    @Test
+    public void refreshCell_hiddenColumn_nothingSent() {
+        lengthColumn.setHidden(true);
+        grid.refreshCell(first, lengthColumn);
+        grid.beforeClientResponse(false);
+
+        Assert.assertTrue(getColumnDataUpdates().isEmpty());
+    }
+
+    @Test
+    public void refreshColumn_allCachedRowsSent() {
+        grid.refreshCell(first, valueColumn);
+        grid.refreshColumn(valueColumn);
+        grid.beforeClientResponse(false);
+
+        List<ClientMethodInvocation> updates = getColumnDataUpdates();
+        Assert.assertEquals(1, updates.size());
+        JsonObject data = (JsonObject) updates.get(0).getParameters()[1];
+        Assert.assertEquals(2, data.keys().length);
+        Assert.assertEquals("bb", data.getObject(key(second)).getObject("d")
+                .getString(valueColumn.getConnectorId()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void refreshCell_columnFromOtherGrid_throws() {
+        Column<StringBuilder, String> otherColumn = new Grid<StringBuilder>()
+                .addColumn(StringBuilder::toString);
+        grid.refreshCell(first, otherColumn);
+    }
+
+    private String key(StringBuilder item) {
+        return grid.getDataCommunicator().getKeyMapper().key(item);
+    }
+
+    private List<ClientMethodInvocation> getColumnDataUpdates() {
+        return grid.retrievePendingRpcCalls().stream().filter(
+                call -> "updateColumnData".equals(call.getMethodName()))
+                .collect(Collectors.toList());
+    }
+}
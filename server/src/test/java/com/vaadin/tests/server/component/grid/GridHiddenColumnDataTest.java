@@ -0,0 +1,142 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.tests.server.component.grid;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.data.ValueProvider;
+import com.vaadin.data.provider.DataGenerator;
+import com.vaadin.server.ClientMethodInvocation;
+import com.vaadin.shared.ui.grid.GridServerRpc;
+import com.vaadin.tests.util.MockUI;
+import com.vaadin.ui.ComponentTest;
+import com.vaadin.ui.Grid;
+import com.vaadin.ui.Grid.Column;
+
+import elemental.json.Json;
+import elemental.json.JsonObject;
+
+public class GridHiddenColumnDataTest {
+
+    private static class TestGrid extends Grid<String> {
+        private String getColumnInternalId(Column<String, ?> column) {
+            return getInternalIdForColumn(column);
+        }
+    }
+
+    private TestGrid grid;
+    private Column<String, Integer> lengthColumn;
+
+    @Before
+    public void setUp() {
+        grid = new TestGrid();
+        grid.addColumn(ValueProvider.identity());
+        lengthColumn = grid.addColumn(String::length);
+        lengthColumn.setHidden(true);
+        grid.setItems("a", "bb");
+        new MockUI().setContent(grid);
+
+        // Send the initial rows
+        grid.getDataCommunicator().beforeClientResponse(true);
+        grid.beforeClientResponse(true);
+        grid.retrievePendingRpcCalls();
+    }
+
+    @Test
+    public void hiddenColumn_noDataGenerated() {
+        JsonObject json = Json.createObject();
+        generateData(lengthColumn, "foo", json);
+
+        Assert.assertEquals(0, json.keys().length);
+    }
+
+    @Test
+    public void columnShown_columnDataSentForClientRows() {
+        lengthColumn.setHidden(false);
+        grid.beforeClientResponse(false);
+
+        assertColumnDataSent();
+        // Sent only once
+        grid.beforeClientResponse(false);
+        Assert.assertTrue(getColumnDataUpdates().isEmpty());
+    }
+
+    @Test
+    public void columnShownFromClient_columnDataSentForClientRows() {
+        ComponentTest.getRpcProxy(grid, GridServerRpc.class)
+                .columnVisibilityChanged(
+                        grid.getColumnInternalId(lengthColumn), false);
+        grid.beforeClientResponse(false);
+
+        assertColumnDataSent();
+    }
+
+    @Test
+    public void columnShownAndHiddenAgain_noColumnData() {
+        lengthColumn.setHidden(false);
+        lengthColumn.setHidden(true);
+        grid.beforeClientResponse(false);
+
+        Assert.assertTrue(getColumnDataUpdates().isEmpty());
+    }
+
+    @Test
+    public void columnShownBeforeInitialResponse_noColumnData() {
+        lengthColumn.setHidden(false);
+        grid.beforeClientResponse(true);
+
+        Assert.assertTrue(getColumnDataUpdates().isEmpty());
+    }
+
+    private void assertColumnDataSent() {
+        List<ClientMethodInvocation> updates = getColumnDataUpdates();
+        Assert.assertEquals(1, updates.size());
+        Object[] parameters = updates.get(0).getParameters();
+        Assert.assertEquals(grid.getColumnInternalId(lengthColumn),
+                parameters[0]);
+
+        JsonObject data = (JsonObject) parameters[1];
+        Assert.assertEquals(2, data.keys().length);
+        String key = grid.getDataCommunicator().getKeyMapper().key("bb");
+        Assert.assertEquals("2", data.getObject(key).getObject("d")
+                .getString(lengthColumn.getConnectorId()));
+    }
+
+    private List<ClientMethodInvocation> getColumnDataUpdates() {
+        return grid.retrievePendingRpcCalls().stream().filter(
+                call -> "updateColumnData".equals(call.getMethodName()))
+                .collect(Collectors.toList());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void generateData(Column<String, ?> column, String item,
+            JsonObject json) {
+        try {
+            Method getter = Column.class.getDeclaredMethod("getDataGenerator");
+            getter.setAccessible(true);
+            ((DataGenerator<String>) getter.invoke(column)).generateData(item,
+                    json);
+        } catch (ReflectiveOperationException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package com.vaadin.tests.server.component.grid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.server.ServerRpcManager;
+import com.vaadin.shared.ui.grid.DetailsManagerServerRpc;
+import com.vaadin.shared.ui.grid.GridState;
+import com.vaadin.ui.Component;
+import com.vaadin.ui.Grid;
+import com.vaadin.ui.Grid.DetailsManager;
+import com.vaadin.ui.Label;
+
+import elemental.json.Json;
+import elemental.json.JsonObject;
+
+public class GridLazyDetailsTest {
+
+    private static final class DummyLabel extends Label {
+        private DummyLabel(String content) {
+            super(content);
+        }
+
+        @Override
+        public String getConnectorId() {
+            return getValue();
+        }
+    }
+
+    private Grid<String> grid;
+    private DetailsManager<String> detailsManager;
+    private List<String> generated;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        grid = new Grid<>();
+        grid.setItems("Foo", "Bar");
+        generated = new ArrayList<>();
+        grid.setDetailsGenerator(item -> {
+            generated.add(item);
+            return new DummyLabel(item);
+        });
+        grid.setLazyDetailsEnabled(true);
+        grid.setDetailsVisible("Foo", true);
+        grid.setDetailsVisible("Bar", true);
+
+        detailsManager = grid.getExtensions().stream()
+                .filter(DetailsManager.class::isInstance)
+                .map(DetailsManager.class::cast).findFirst().get();
+    }
+
+    @Test
+    public void lazyDetails_generateData_marksPending() {
+        JsonObject json = Json.createObject();
+        detailsManager.generateData("Foo", json);
+
+        Assert.assertTrue(json.getBoolean(GridState.JSONKEY_DETAILS_PENDING));
+        Assert.assertFalse(json.hasKey(GridState.JSONKEY_DETAILS_VISIBLE));
+        Assert.assertTrue(generated.isEmpty());
+        Assert.assertFalse(grid.iterator().hasNext());
+    }
+
+    @Test
+    public void lazyDetails_requestDetails_generatesComponent() {
+        grid.getDataCommunicator().beforeClientResponse(true);
+        Assert.assertTrue(generated.isEmpty());
+
+        requestDetails("Foo");
+
+        Assert.assertEquals(Arrays.asList("Foo"), generated);
+        Component component = grid.iterator().next();
+        Assert.assertSame(grid, component.getParent());
+
+        JsonObject json = Json.createObject();
+        detailsManager.generateData("Foo", json);
+        Assert.assertEquals("Foo",
+                json.getString(GridState.JSONKEY_DETAILS_VISIBLE));
+        Assert.assertFalse(json.hasKey(GridState.JSONKEY_DETAILS_PENDING));
+
+        // Repeated requests do not generate again
+        requestDetails("Foo");
+        Assert.assertEquals(Arrays.asList("Foo"), generated);
+    }
+
+    @Test
+    public void lazyDetails_requestHiddenDetails_doesNotGenerate() {
+        grid.getDataCommunicator().beforeClientResponse(true);
+        grid.setDetailsVisible("Bar", false);
+
+        requestDetails("Bar");
+
+        Assert.assertTrue(generated.isEmpty());
+    }
+
+    @Test
+    public void lazyDetails_destroyData_removesComponent() {
+        grid.getDataCommunicator().beforeClientResponse(true);
+        requestDetails("Foo");
+        Component component = grid.iterator().next();
+
+        detailsManager.destroyData("Foo");
+
+        Assert.assertNull(component.getParent());
+        Assert.assertFalse(grid.iterator().hasNext());
+        Assert.assertTrue(grid.isDetailsVisible("Foo"));
+    }
+
+    @Test
+    public void eagerDetails_generateData_generatesComponent() {
+        grid.setLazyDetailsEnabled(false);
+        JsonObject json = Json.createObject();
+        detailsManager.generateData("Foo", json);
+
+        Assert.assertEquals(Arrays.asList("Foo"), generated);
+        Assert.assertTrue(json.hasKey(GridState.JSONKEY_DETAILS_VISIBLE));
+        Assert.assertFalse(json.hasKey(GridState.JSONKEY_DETAILS_PENDING));
+
+        detailsManager.destroyData("Foo");
+        Assert.assertTrue(grid.iterator().hasNext());
+    }
+
+    private void requestDetails(String item) {
+        String key = grid.getDataCommunicator().getKeyMapper().key(item);
+        ServerRpcManager.getRpcProxy(detailsManager,
+                DetailsManagerServerRpc.class)
+                .requestDetails(Collections.singletonList(key));
+    }
+}
@@ -11,6 +11,7 @@ import java.text.DecimalFormatSymbols;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
@@ -33,6 +34,7 @@ import com.vaadin.data.ValidationException;
 import com.vaadin.data.ValueProvider;
 import com.vaadin.data.provider.DataGenerator;
 import com.vaadin.data.provider.GridSortOrder;
+import com.vaadin.data.provider.Query;
 import com.vaadin.data.provider.QuerySortOrder;
 import com.vaadin.data.provider.bov.Person;
 import com.vaadin.event.selection.SelectionEvent;
@@ -225,6 +227,35 @@ public class GridTest {
         Assert.assertEquals(SortDirection.DESCENDING, sortOrder.getDirection());
     }
 
+    @Test
+    public void sortInMemory_valueProviderCalledOncePerItem() {
+        AtomicInteger calls = new AtomicInteger();
+        Grid<Integer> integerGrid = new Grid<>();
+        Column<Integer, Integer> column = integerGrid.addColumn(i -> {
+            calls.incrementAndGet();
+            return -i;
+        });
+        List<Integer> items = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            items.add(new Random(i).nextInt());
+        }
+        integerGrid.setItems(items);
+        integerGrid.setParallelSortKeyExtractionEnabled(true);
+        integerGrid.sort(column, SortDirection.DESCENDING);
+        calls.set(0);
+
+        Comparator<Integer> sorting = integerGrid
+                .getDataCommunicator().getInMemorySorting();
+        List<Integer> sorted = integerGrid.getDataProvider()
+                .fetch(new Query<>(0, items.size(), Collections.emptyList(),
+                        sorting, null))
+                .collect(Collectors.toList());
+
+        Assert.assertEquals(items.size(), calls.get());
+        Assert.assertEquals(
+                items.stream().sorted().collect(Collectors.toList()), sorted);
+    }
+
     @Test
     public void setSortOrder() {
         Column<String, ?> column1 = grid.getColumns().get(1);
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.ui;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.vaadin.server.ClientConnector;
+import com.vaadin.tests.util.MockUI;
+
+public class ConnectorTrackerTest {
+
+    private UI ui;
+    private CssLayout layout;
+    private Label label;
+    private ConnectorTracker tracker;
+
+    @Before
+    public void setup() {
+        ui = new MockUI();
+        tracker = ui.getConnectorTracker();
+        label = new Label();
+        layout = new CssLayout(label);
+        ui.setContent(layout);
+    }
+
+    @Test
+    public void pollDirtyVisibleConnectors_parentsBeforeChildren() {
+        List<ClientConnector> connectors = tracker.pollDirtyVisibleConnectors();
+
+        Assert.assertEquals(Arrays.asList(ui, layout, label), connectors);
+        Assert.assertTrue(tracker.pollDirtyVisibleConnectors().isEmpty());
+        // Polling does not change the dirty status
+        Assert.assertTrue(tracker.isDirty(label));
+    }
+
+    @Test
+    public void pollDirtyVisibleConnectors_newlyDirtyReturned() {
+        tracker.pollDirtyVisibleConnectors();
+
+        // Already dirty, not returned again
+        layout.markAsDirty();
+        Assert.assertTrue(tracker.pollDirtyVisibleConnectors().isEmpty());
+
+        Label newLabel = new Label();
+        layout.addComponent(newLabel);
+        Assert.assertEquals(Arrays.asList(newLabel),
+                tracker.pollDirtyVisibleConnectors());
+
+        tracker.markAllConnectorsClean();
+        label.markAsDirty();
+        Assert.assertEquals(Arrays.asList(label),
+                tracker.pollDirtyVisibleConnectors());
+    }
+
+    @Test
+    public void pollDirtyVisibleConnectors_invisibleReturnedWhenVisible() {
+        label.setVisible(false);
+        Assert.assertEquals(Arrays.asList(ui, layout),
+                tracker.pollDirtyVisibleConnectors());
+
+        label.setVisible(true);
+        Assert.assertEquals(Arrays.asList(label),
+                tracker.pollDirtyVisibleConnectors());
+    }
+
+    @Test
+    public void pollDirtyVisibleConnectors_cleanNotReturned() {
+        tracker.markClean(label);
+        Assert.assertEquals(Arrays.asList(ui, layout),
+                tracker.pollDirtyVisibleConnectors());
+
+        tracker.markAllConnectorsClean();
+        Assert.assertTrue(tracker.pollDirtyVisibleConnectors().isEmpty());
+    }
+
+    @Test
+    public void cleanConnectorMap_hiddenChildUninitialized() {
+        initializeAll();
+
+        label.setVisible(false);
+        tracker.cleanConnectorMap();
+
+        Assert.assertFalse(tracker.isClientSideInitialized(label));
+        Assert.assertTrue(tracker.isClientSideInitialized(layout));
+        Assert.assertTrue(tracker.isClientSideInitialized(ui));
+    }
+
+    @Test
+    public void cleanConnectorMap_hiddenParentUninitializesDescendants() {
+        initializeAll();
+
+        layout.setVisible(false);
+        tracker.cleanConnectorMap();
+
+        Assert.assertFalse(tracker.isClientSideInitialized(layout));
+        Assert.assertFalse(tracker.isClientSideInitialized(label));
+        Assert.assertTrue(tracker.isClientSideInitialized(ui));
+    }
+
+    @Test
+    public void cleanConnectorMap_addedToHiddenParentUninitialized() {
+        Label other = new Label();
+        CssLayout hidden = new CssLayout();
+        layout.addComponents(other, hidden);
+        initializeAll();
+
+        hidden.setVisible(false);
+        tracker.cleanConnectorMap();
+        tracker.markAllConnectorsClean();
+
+        // Moving a connector known by the client to a hidden parent
+        layout.removeComponent(other);
+        hidden.addComponent(other);
+        tracker.cleanConnectorMap();
+
+        Assert.assertFalse(tracker.isClientSideInitialized(other));
+        Assert.assertTrue(tracker.isClientSideInitialized(label));
+    }
+
+    private void initializeAll() {
+        for (ClientConnector connector : tracker.getDirtyConnectors()) {
+            tracker.markClientSideInitialized(connector);
+        }
+        tracker.markAllConnectorsClean();
+        tracker.cleanConnectorMap();
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.shared.ui.grid;
+
+import java.util.List;
+
+import com.vaadin.shared.communication.ServerRpc;
+
+/**
+ * Client-to-server RPC interface for the DetailsManager extension of Grid.
+ *
+ * @author Vaadin Ltd
+ * @since 8.1
+ */
+public interface DetailsManagerServerRpc extends ServerRpc {
+
+    /**
+     * Requests the details components of rows whose details are visible but
+     * have not been generated yet. This is used when details are generated
+     * lazily and the details rows have been scrolled into view.
+     *
+     * @param rowKeys
+     *            the keys of the rows to generate details for
+     */
+    public void requestDetails(List<String> rowKeys);
+}
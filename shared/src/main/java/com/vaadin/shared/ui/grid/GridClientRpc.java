@@ -17,6 +17,8 @@ package com.vaadin.shared.ui.grid;
 
 import com.vaadin.shared.communication.ClientRpc;
 
+import elemental.json.JsonObject;
+
 /**
  * Server-to-client RPC interface for the Grid component.
  *
@@ -50,4 +52,20 @@ public interface GridClientRpc extends ClientRpc {
      * Command client Grid to scroll to the last row.
      */
     public void scrollToEnd();
+
+    /**
+     * Command client Grid to replace the data of a single column in the rows
+     * it has cached, e.g. when the column is shown after having been hidden or
+     * when single cells are refreshed. The data may contain any subset of the
+     * rows; rows that are not in the client-side cache are ignored. Only the
+     * affected cells are re-rendered.
+     *
+     * @since 8.1
+     * @param columnInternalId
+     *            the internal id of the column to update
+     * @param data
+     *            a JSON object mapping row keys to the data of the column for
+     *            that row, in the same format as in the complete row data
+     */
+    public void updateColumnData(String columnInternalId, JsonObject data);
 }
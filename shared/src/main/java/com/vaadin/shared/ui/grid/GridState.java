@@ -92,6 +92,17 @@ public class GridState extends AbstractSingleSelectState {
      */
     public static final String JSONKEY_DETAILS_VISIBLE = "dv";
 
+    /**
+     * The key that tells that details are visible for the row, but the details
+     * component has not been generated yet. The component is generated when
+     * requested by the client.
+     *
+     * @see com.vaadin.ui.Grid#setLazyDetailsEnabled(boolean)
+     * @see DetailsManagerServerRpc#requestDetails(java.util.List)
+     * @since 8.1
+     */
+    public static final String JSONKEY_DETAILS_PENDING = "dp";
+
     /**
      * The key that tells whether row is selected or not.
      */
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.tests.components.grid;
+
+import java.util.stream.IntStream;
+
+import com.vaadin.data.ValueProvider;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.tests.components.AbstractTestUI;
+import com.vaadin.ui.Button;
+import com.vaadin.ui.Grid;
+import com.vaadin.ui.HorizontalLayout;
+import com.vaadin.ui.Label;
+
+public class GridExpandedNextToGrowingLabel extends AbstractTestUI {
+
+    @Override
+    protected void setup(VaadinRequest request) {
+        Label label = new Label("Short");
+
+        Grid<String> grid = new Grid<>();
+        grid.addColumn(ValueProvider.identity()).setCaption("Item");
+        grid.setItems(IntStream.range(0, 5).mapToObj(i -> "Item " + i));
+        grid.setWidth("100%");
+        grid.setHeight("200px");
+
+        HorizontalLayout layout = new HorizontalLayout(label, grid);
+        layout.setWidth("600px");
+        layout.setExpandRatio(grid, 1);
+        addComponent(layout);
+
+        addComponent(new Button("Grow label", event -> label.setValue(
+                "A considerably longer label that takes a lot of space")));
+    }
+
+    @Override
+    protected String getTestDescription() {
+        return "Growing the label should shrink the expanded Grid next to it "
+                + "and make the Grid lay out its columns again.";
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.tests.performance;
+
+import com.vaadin.annotations.Widgetset;
+import com.vaadin.server.VaadinRequest;
+import com.vaadin.tests.components.AbstractTestUI;
+import com.vaadin.tests.widgetset.TestingWidgetSet;
+import com.vaadin.tests.widgetset.client.grid.RemoteDataSourceBenchmarkWidget;
+import com.vaadin.tests.widgetset.server.TestWidgetComponent;
+
+/**
+ * Benchmark for the client side row cache of Grid. The results are shown when
+ * the benchmark has been run in the browser.
+ *
+ * @author Vaadin Ltd
+ */
+@Widgetset(TestingWidgetSet.NAME)
+public class RemoteDataSourceBenchmark extends AbstractTestUI {
+
+    @Override
+    protected void setup(VaadinRequest request) {
+        addComponent(new TestWidgetComponent(
+                RemoteDataSourceBenchmarkWidget.class));
+    }
+
+    @Override
+    protected String getTestDescription() {
+        return "Measures inserting and removing rows in the client side row "
+                + "cache of Grid";
+    }
+}
@@ -610,6 +610,14 @@ public class EscalatorBasicClientFeaturesWidget
                 escalator.getBody().setDefaultRowHeight(20);
             }
         }, menupath);
+        addMenuCommand("Toggle variable row heights", new ScheduledCommand() {
+            @Override
+            public void execute() {
+                BodyRowContainer body = escalator.getBody();
+                body.setVariableRowHeightsEnabled(
+                        !body.isVariableRowHeightsEnabled());
+            }
+        }, menupath);
     }
 
     private void createRowsMenu(final RowContainer container,
@@ -135,6 +135,16 @@ public class EscalatorProxy extends Escalator {
             throw new UnsupportedOperationException(
                     "setNewRowCallback is not supported");
         }
+
+        @Override
+        public void setVariableRowHeightsEnabled(boolean enabled) {
+            rowContainer.setVariableRowHeightsEnabled(enabled);
+        }
+
+        @Override
+        public boolean isVariableRowHeightsEnabled() {
+            return rowContainer.isVariableRowHeightsEnabled();
+        }
     }
 
     private class RowContainerProxy implements RowContainer {
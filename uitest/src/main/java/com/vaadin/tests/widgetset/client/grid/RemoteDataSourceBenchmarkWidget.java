@@ -0,0 +1,148 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.tests.widgetset.client.grid;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.google.gwt.core.client.Duration;
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.user.client.ui.Composite;
+import com.google.gwt.user.client.ui.HTML;
+import com.vaadin.client.data.AbstractRemoteDataSource;
+import com.vaadin.client.data.CacheStrategy;
+import com.vaadin.shared.Range;
+
+/**
+ * Measures the time spent in {@link AbstractRemoteDataSource} when rows are
+ * inserted and removed in a large cache, as happens when rows are pushed to a
+ * Grid.
+ *
+ * @author Vaadin Ltd
+ */
+public class RemoteDataSourceBenchmarkWidget extends Composite {
+
+    private static final int[] CACHE_SIZES = { 1000, 10000, 50000 };
+    private static final int OPERATIONS = 1000;
+
+    private final HTML results = new HTML("Running...");
+
+    /**
+     * Data source that keeps all rows in the cache and exposes the row
+     * manipulation methods.
+     */
+    private static class BenchmarkDataSource
+            extends AbstractRemoteDataSource<String> {
+
+        private int rowCounter = 0;
+
+        public BenchmarkDataSource(int size) {
+            setCacheStrategy(new CacheStrategy() {
+                @Override
+                public void onDataArrive(double roundTripTime, int rowCount) {
+                    // NOP
+                }
+
+                @Override
+                public Range getMinCacheRange(Range displayedRange,
+                        Range cachedRange, Range estimatedAvailableRange) {
+                    return estimatedAvailableRange;
+                }
+
+                @Override
+                public Range getMaxCacheRange(Range displayedRange,
+                        Range cachedRange, Range estimatedAvailableRange) {
+                    return estimatedAvailableRange;
+                }
+            });
+            resetDataAndSize(size);
+            setRowData(0, createRows(size));
+        }
+
+        @Override
+        protected void requestRows(int firstRowIndex, int numberOfRows,
+                RequestRowsCallback<String> callback) {
+            callback.onResponse(createRows(numberOfRows), size());
+        }
+
+        @Override
+        public Object getRowKey(String row) {
+            return row;
+        }
+
+        private List<String> createRows(int count) {
+            List<String> rows = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                rows.add("row " + rowCounter++);
+            }
+            return rows;
+        }
+
+        private void insertRow(int index) {
+            insertRowData(index, 1);
+            setRowData(index, createRows(1));
+        }
+
+        private void removeRow(int index) {
+            removeRowData(index, 1);
+        }
+    }
+
+    public RemoteDataSourceBenchmarkWidget() {
+        initWidget(results);
+
+        Scheduler.get().scheduleDeferred(() -> {
+            StringBuilder html = new StringBuilder();
+            for (int cacheSize : CACHE_SIZES) {
+                html.append(runBenchmark(cacheSize)).append("<br/>");
+            }
+            results.setHTML(html.toString());
+        });
+    }
+
+    private static String runBenchmark(int cacheSize) {
+        BenchmarkDataSource dataSource = new BenchmarkDataSource(cacheSize);
+
+        double start = Duration.currentTimeMillis();
+        for (int i = 0; i < OPERATIONS; i++) {
+            dataSource.insertRow(0);
+        }
+        double insertFirst = Duration.currentTimeMillis() - start;
+
+        start = Duration.currentTimeMillis();
+        for (int i = 0; i < OPERATIONS; i++) {
+            dataSource.removeRow(0);
+        }
+        double removeFirst = Duration.currentTimeMillis() - start;
+
+        start = Duration.currentTimeMillis();
+        for (int i = 0; i < OPERATIONS; i++) {
+            dataSource.removeRow(dataSource.size() / 2);
+        }
+        double removeMiddle = Duration.currentTimeMillis() - start;
+
+        start = Duration.currentTimeMillis();
+        for (int i = 0; i < OPERATIONS; i++) {
+            dataSource.indexOf("row " + i * cacheSize / OPERATIONS);
+        }
+        double indexOf = Duration.currentTimeMillis() - start;
+
+        return "Cache of " + cacheSize + " rows, " + OPERATIONS
+                + " operations: insert first " + insertFirst
+                + " ms, remove first " + removeFirst + " ms, remove middle "
+                + removeMiddle + " ms, index lookup " + indexOf + " ms";
+    }
+}
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2000-2016 Vaadin Ltd.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+package com.vaadin.tests.components.grid;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vaadin.testbench.elements.ButtonElement;
+import com.vaadin.testbench.elements.GridElement;
+import com.vaadin.testbench.parallel.TestCategory;
+import com.vaadin.tests.tb3.SingleBrowserTest;
+
+@TestCategory("grid")
+public class GridExpandedNextToGrowingLabelTest extends SingleBrowserTest {
+
+    @Test
+    public void growLabel_gridColumnsLaidOutAgain() {
+        openTestURL();
+        GridElement grid = $(GridElement.class).first();
+        int gridWidth = grid.getSize().getWidth();
+        int columnWidth = grid.getHeaderCell(0, 0).getSize().getWidth();
+
+        $(ButtonElement.class).first().click();
+
+        int newGridWidth = grid.getSize().getWidth();
+        int newColumnWidth = grid.getHeaderCell(0, 0).getSize().getWidth();
+        Assert.assertTrue("Grid should have shrunk",
+                newGridWidth < gridWidth);
+        Assert.assertEquals(
+                "Column should have been resized to fit the new Grid width",
+                columnWidth - (gridWidth - newGridWidth), newColumnWidth, 2);
+    }
+}